@@ -0,0 +1,277 @@
+package org.matsim.contrib.protobuf;
+
+import com.google.protobuf.CodedInputStream;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.*;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.pb.ContentType;
+import org.matsim.core.utils.pb.PBFileHeader;
+import org.matsim.core.utils.pb.ProtoEvents;
+import org.matsim.core.utils.pb.ProtoId;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Event reader for protobuf files written by {@link EventWriterPB}.
+ * <p>
+ * The file is read as a stream of {@link ProtoEvents.EventBatch}es. Reading the raw batches from the stream is done
+ * by the calling thread, while parsing the batches and converting them into events is done in parallel by a pool of
+ * decoder threads. The events are passed to the {@link EventsManager} by the calling thread, in the same order as
+ * they were written.
+ * <p>
+ * Events with their own protobuf message are converted directly to the corresponding core events. All other events are
+ * stored as generic events by the writer; they are converted by the same code as events read from xml, so core events
+ * without protobuf message and events registered with {@link #addCustomEventMapper(String, MatsimEventsReader.CustomEventMapper)}
+ * are restored to their typed event classes.
+ * <p>
+ * Empty ids are read as <code>null</code>, as the writer does not distinguish between missing and empty ids.
+ */
+public final class EventReaderPB implements MatsimReader {
+
+    /**
+     * How many batches may be decoded ahead per decoder thread.
+     */
+    private static final int BATCHES_PER_THREAD = 4;
+
+    private final EventsManager events;
+    private final EventsReaderXMLv1 delegate;
+    private final int numberOfThreads;
+
+    public EventReaderPB(EventsManager events) {
+        this(events, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * @param numberOfThreads number of threads used to decode the events
+     */
+    public EventReaderPB(EventsManager events, int numberOfThreads) {
+        if (numberOfThreads < 1) {
+            throw new IllegalArgumentException("At least one decoder thread is required, got " + numberOfThreads);
+        }
+        this.events = events;
+        this.delegate = new EventsReaderXMLv1(events);
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    public void addCustomEventMapper(String eventType, MatsimEventsReader.CustomEventMapper cem) {
+        this.delegate.addCustomEventMapper(eventType, cem);
+    }
+
+    @Override
+    public void readFile(String filename) {
+        readURL(IOUtils.resolveFileOrResource(filename));
+    }
+
+    @Override
+    public void readURL(URL url) {
+        try (InputStream in = IOUtils.getInputStream(url)) {
+            parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads all events from the stream. The stream is not closed.
+     */
+    public void parse(InputStream stream) {
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads, r -> {
+            Thread thread = new Thread(r, "EventReaderPB");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            PBFileHeader header = PBFileHeader.parseDelimitedFrom(in);
+            if (header == null || header.getContentType() != ContentType.EVENTS) {
+                throw new IllegalArgumentException("Not a protobuf events file.");
+            }
+            if (header.getVersion() > PBVersion.EVENTS) {
+                throw new IllegalArgumentException("Unsupported version of protobuf events file: " + header.getVersion());
+            }
+
+            ArrayDeque<Future<Event[]>> pending = new ArrayDeque<>();
+            int maxPending = numberOfThreads * BATCHES_PER_THREAD;
+
+            int firstByte;
+            while ((firstByte = in.read()) != -1) {
+                byte[] bytes = new byte[CodedInputStream.readRawVarint32(firstByte, in)];
+                in.readFully(bytes);
+                pending.add(executor.submit(() -> decodeBatch(bytes)));
+
+                if (pending.size() >= maxPending)
+                    processBatch(pending.poll().get());
+            }
+
+            while (!pending.isEmpty())
+                processBatch(pending.poll().get());
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error while decoding protobuf events.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Passes the decoded events to the events manager. Generic events are handled by the xml reader,
+     * which converts known event types and applies the custom event mappers.
+     */
+    private void processBatch(Event[] batch) {
+        AttributesImpl atts = new AttributesImpl();
+        for (Event event : batch) {
+            if (event.getClass() == GenericEvent.class) {
+                atts.clear();
+                for (Map.Entry<String, String> e : event.getAttributes().entrySet()) {
+                    atts.addAttribute(null, e.getKey(), e.getKey(), null, e.getValue());
+                }
+                delegate.startTag(EventsReaderXMLv1.EVENT, atts, null);
+            } else {
+                events.processEvent(event);
+            }
+        }
+    }
+
+    /**
+     * Parse one batch and convert its events. Called concurrently by the decoder threads.
+     */
+    private static Event[] decodeBatch(byte[] bytes) throws IOException {
+        ProtoEvents.EventBatch batch = ProtoEvents.EventBatch.parseFrom(bytes);
+        Event[] result = new Event[batch.getEventsCount()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = convertEvent(batch.getEvents(i));
+        }
+        return result;
+    }
+
+    /**
+     * Convert a protobuf event to its corresponding core event.
+     * Events that are stored as generic events are returned as {@link GenericEvent}, including their coordinates.
+     */
+    public static Event convertEvent(ProtoEvents.Event event) {
+
+        double time = event.getTime();
+        Coord coord = event.hasCoords() ? new Coord(event.getCoords().getX(), event.getCoords().getY()) : null;
+
+        switch (event.getTypeCase()) {
+            case ACTIVITYEND: {
+                ProtoEvents.ActivityEndEvent e = event.getActivityEnd();
+                return new ActivityEndEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getFacilityId(), ActivityFacility.class), e.getActtype());
+            }
+            case ACTIVITYSTART: {
+                ProtoEvents.ActivityStartEvent e = event.getActivityStart();
+                return new ActivityStartEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getFacilityId(), ActivityFacility.class), e.getActtype(), coord);
+            }
+            case LINKENTER: {
+                ProtoEvents.LinkEnterEvent e = event.getLinkEnter();
+                return new LinkEnterEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertId(e.getLinkId(), Link.class));
+            }
+            case LINKLEAVE: {
+                ProtoEvents.LinkLeaveEvent e = event.getLinkLeave();
+                return new LinkLeaveEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertId(e.getLinkId(), Link.class));
+            }
+            case PERSONALARRIVAL: {
+                ProtoEvents.PersonArrivalEvent e = event.getPersonalArrival();
+                return new PersonArrivalEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class), e.getLegMode());
+            }
+            case PERSONDEPARTURE: {
+                ProtoEvents.PersonDepartureEvent e = event.getPersonDeparture();
+                return new PersonDepartureEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class), e.getLegMode());
+            }
+            case PERSONENTERSVEHICLE: {
+                ProtoEvents.PersonEntersVehicleEvent e = event.getPersonEntersVehicle();
+                return new PersonEntersVehicleEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getVehicleId(), Vehicle.class));
+            }
+            case PERSONLEAVESVEHICLE: {
+                ProtoEvents.PersonLeavesVehicleEvent e = event.getPersonLeavesVehicle();
+                return new PersonLeavesVehicleEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getVehicleId(), Vehicle.class));
+            }
+            case PERSONMONEY: {
+                ProtoEvents.PersonMoneyEvent e = event.getPersonMoney();
+                return new PersonMoneyEvent(time, convertId(e.getPersonId(), Person.class), e.getAmount(), e.getPurpose(), e.getTransactionPartner());
+            }
+            case PERSONSTUCK: {
+                ProtoEvents.PersonStuckEvent e = event.getPersonStuck();
+                return new PersonStuckEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class), e.getLegMode());
+            }
+            case TRANSITDRIVERSTARTS: {
+                ProtoEvents.TransitDriverStartsEvent e = event.getTransitDriverStarts();
+                return new TransitDriverStartsEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getVehicleId(), Vehicle.class),
+                        convertId(e.getTransitLineId(), TransitLine.class), convertId(e.getTransitRouteId(), TransitRoute.class),
+                        convertId(e.getDepartureId(), Departure.class));
+            }
+            case VEHICLEABORTS: {
+                ProtoEvents.VehicleAbortsEvent e = event.getVehicleAborts();
+                return new VehicleAbortsEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertId(e.getLinkId(), Link.class));
+            }
+            case VEHICLEENTERSTRAFFIC: {
+                ProtoEvents.VehicleEntersTrafficEvent e = event.getVehicleEntersTraffic();
+                return new VehicleEntersTrafficEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getVehicleId(), Vehicle.class), e.getNetworkMode(), e.getRelativePositionOnLink());
+            }
+            case VEHICLELEAVESTRAFFIC: {
+                ProtoEvents.VehicleLeavesTrafficEvent e = event.getVehicleLeavesTraffic();
+                return new VehicleLeavesTrafficEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getVehicleId(), Vehicle.class), e.getNetworkMode(), e.getRelativePositionOnLink());
+            }
+            case GENERIC: {
+                ProtoEvents.GenericEvent e = event.getGeneric();
+                GenericEvent generic = new GenericEvent(e.getType(), time);
+                generic.getAttributes().putAll(e.getAttrsMap());
+                if (coord != null) {
+                    generic.getAttributes().put(Event.ATTRIBUTE_X, String.valueOf(coord.getX()));
+                    generic.getAttributes().put(Event.ATTRIBUTE_Y, String.valueOf(coord.getY()));
+                }
+                return generic;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown event type " + event.getTypeCase() + " at time " + time);
+        }
+    }
+
+    /**
+     * Convert a protobuf id to the matsim id of the given type.
+     *
+     * @return null if the id is not set or empty
+     */
+    public static <T> Id<T> convertId(ProtoId id, Class<T> type) {
+        if (id.getId().isEmpty())
+            return null;
+
+        return Id.create(id.getId(), type);
+    }
+
+}
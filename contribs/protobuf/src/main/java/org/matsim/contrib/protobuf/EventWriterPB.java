@@ -164,15 +164,17 @@ public class EventWriterPB implements EventWriter, BasicEventHandler {
                     .setNetworkMode(((VehicleLeavesTrafficEvent) event).getNetworkMode())
                     .setRelativePositionOnLink(((VehicleLeavesTrafficEvent) event).getRelativePositionOnLink());
         } else {
-            Map<String, String> attrs = event.getAttributes();
-            // Checking references is safe here because they are constant
-            attrs.keySet().removeIf(key -> key == Event.ATTRIBUTE_X || key == Event.ATTRIBUTE_Y ||
-                    key == Event.ATTRIBUTE_TIME || key == Event.ATTRIBUTE_TYPE);
-
             // covers generic and all unknown events
-            builder.getGenericBuilder()
-                    .setType(event.getEventType())
-                    .putAllAttrs(attrs);
+            ProtoEvents.GenericEvent.Builder generic = builder.getGenericBuilder()
+                    .setType(event.getEventType());
+
+            // the attributes of generic events are backed by the event itself and must not be modified
+            for (Map.Entry<String, String> e : event.getAttributes().entrySet()) {
+                String key = e.getKey();
+                if (e.getValue() != null && !key.equals(Event.ATTRIBUTE_X) && !key.equals(Event.ATTRIBUTE_Y) &&
+                        !key.equals(Event.ATTRIBUTE_TIME) && !key.equals(Event.ATTRIBUTE_TYPE))
+                    generic.putAttrs(key, e.getValue());
+            }
         }
 
         return builder.build();
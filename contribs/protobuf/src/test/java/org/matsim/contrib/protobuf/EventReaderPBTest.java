@@ -0,0 +1,138 @@
+package org.matsim.contrib.protobuf;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.*;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventReaderPBTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void readStream() {
+
+        List<Event> expected = createEvents();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EventWriterPB writer = new EventWriterPB(out);
+        expected.forEach(writer::handleEvent);
+        writer.closeFile();
+
+        EventsManager events = EventsUtils.createEventsManager();
+        EventsCollector collector = new EventsCollector();
+        events.addHandler(collector);
+        events.initProcessing();
+        new EventReaderPB(events, 3).parse(new ByteArrayInputStream(out.toByteArray()));
+        events.finishProcessing();
+
+        assertEvents(expected, collector.getEvents());
+    }
+
+    @Test
+    public void readFile() throws IOException {
+
+        List<Event> expected = createEvents();
+
+        for (String name : new String[]{"events.pb", "events.pb.gz"}) {
+            File file = tmp.newFile(name);
+            EventWriterPB writer = new EventWriterPB(IOUtils.getOutputStream(file.toURI().toURL(), false));
+            expected.forEach(writer::handleEvent);
+            writer.closeFile();
+
+            EventsManager events = EventsUtils.createEventsManager();
+            EventsCollector collector = new EventsCollector();
+            events.addHandler(collector);
+            events.initProcessing();
+            new MatsimEventsReader(events).readFile(file.getAbsolutePath());
+            events.finishProcessing();
+
+            assertEvents(expected, collector.getEvents());
+        }
+    }
+
+    @Test
+    public void customEventMapper() {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EventWriterPB writer = new EventWriterPB(out);
+        GenericEvent generic = new GenericEvent("myEvent", 12.0);
+        generic.getAttributes().put("person", "7");
+        writer.handleEvent(generic);
+        writer.closeFile();
+
+        EventsManager events = EventsUtils.createEventsManager();
+        EventsCollector collector = new EventsCollector();
+        events.addHandler(collector);
+        events.initProcessing();
+        EventReaderPB reader = new EventReaderPB(events, 1);
+        reader.addCustomEventMapper("myEvent", e -> new PersonStuckEvent(e.getTime(),
+                Id.createPersonId(e.getAttributes().get("person")), null, "custom"));
+        reader.parse(new ByteArrayInputStream(out.toByteArray()));
+        events.finishProcessing();
+
+        assertThat(collector.getEvents())
+                .hasSize(1)
+                .first()
+                .isInstanceOf(PersonStuckEvent.class)
+                .hasFieldOrPropertyWithValue("personId", Id.createPersonId(7))
+                .hasFieldOrPropertyWithValue("legMode", "custom");
+    }
+
+    private static List<Event> createEvents() {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            double time = 21600 + i / 10.0;
+            Id<Person> personId = Id.createPersonId(i % 100);
+            Id<Vehicle> vehicleId = Id.createVehicleId(i % 100);
+            Id<Link> linkId = Id.createLinkId(i % 37);
+            events.add(new ActivityEndEvent(time, personId, linkId, null, "home"));
+            events.add(new PersonDepartureEvent(time, personId, linkId, "car"));
+            events.add(new PersonEntersVehicleEvent(time, personId, vehicleId));
+            events.add(new VehicleEntersTrafficEvent(time, personId, linkId, vehicleId, "car", 1.0));
+            events.add(new LinkLeaveEvent(time, vehicleId, linkId));
+            events.add(new LinkEnterEvent(time + 1, vehicleId, Id.createLinkId(i % 31)));
+            events.add(new VehicleLeavesTrafficEvent(time + 1, personId, linkId, vehicleId, "car", 1.0));
+            events.add(new PersonLeavesVehicleEvent(time + 1, personId, vehicleId));
+            events.add(new PersonArrivalEvent(time + 1, personId, linkId, "car"));
+            events.add(new PersonMoneyEvent(time + 1, personId, -i * 0.013, "toll", "city"));
+            events.add(new ActivityStartEvent(time + 2, personId, linkId, null, "work", new Coord(i * 1.5, -i * 2.75)));
+            // written as generic event, but restored by the xml event conversion
+            events.add(new TeleportationArrivalEvent(time + 3, personId, 1200.0, "walk"));
+            GenericEvent generic = new GenericEvent("custom", time + 3);
+            generic.getAttributes().put("value", Integer.toString(i));
+            events.add(generic);
+        }
+        return events;
+    }
+
+    private static void assertEvents(List<Event> expected, List<Event> actual) {
+        assertThat(actual).hasSameSizeAs(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i)).isInstanceOf(expected.get(i).getClass());
+            assertThat(actual.get(i).getAttributes()).isEqualTo(expected.get(i).getAttributes());
+        }
+    }
+
+}
@@ -63,6 +63,15 @@ public final class IterationStopWatch {
 	/** A list of identifiers used to enumerate operations. */
 	private final List<String> operations;
 
+	/** A list of identifiers used to enumerate measured values. */
+	private final List<String> valueIdentifiers;
+
+	/** The measured values of all iterations. */
+	private final Map<Integer, Map<String, Double>> values;
+
+	/** A cache for easy access to the current object in <code>values</code>. */
+	private Map<String, Double> currentIterationMeasuredValues;
+
 	/** A cache for easy access to the current object in <code>iterations</code>. */
 	private Map<String, Long> currentIterationValues;
 
@@ -85,7 +94,10 @@ public final class IterationStopWatch {
 		this.iterations = new LinkedHashMap<Integer, Map<String, Long>>();
 		this.identifiers = new LinkedList<String>();
 		this.operations = new LinkedList<String>();
+		this.valueIdentifiers = new ArrayList<String>();
+		this.values = new LinkedHashMap<Integer, Map<String, Double>>();
 		this.currentIterationValues = null;
+		this.currentIterationMeasuredValues = null;
 		this.children = new LinkedHashMap<Integer, Map<String, List<String>>>();
 	}
 
@@ -100,6 +112,9 @@ public final class IterationStopWatch {
 		this.iterations.clear();
 		this.identifiers.clear();
 		this.operations.clear();
+		this.valueIdentifiers.clear();
+		this.values.clear();
+		this.currentIterationMeasuredValues = null;
 		this.currentMeasuredOperations.clear();
 		this.currentIterationChildren.clear();
 		this.children.clear();
@@ -122,6 +137,8 @@ public final class IterationStopWatch {
 			this.currentMeasuredOperations = new Stack<String>();
 			this.currentIterationChildren = new HashMap<String, List<String>>();
 			this.children.put(this.iteration, this.currentIterationChildren);
+			this.currentIterationMeasuredValues = new HashMap<String, Double>();
+			this.values.put(this.iteration, this.currentIterationMeasuredValues);
 		}
         this.beginOperation(OPERATION_ITERATION);
 	}
@@ -169,6 +186,30 @@ public final class IterationStopWatch {
 		this.currentMeasuredOperations.pop();
 	}
 
+	/**
+	 * Tells whether an operation with the given identifier has already begun in the current iteration. This allows
+	 * operations which may run several times per iteration to choose a unique identifier.
+	 *
+	 * @param identifier The name of the operation.
+	 */
+	public boolean hasOperation(final String identifier) {
+		return this.currentIterationValues != null && this.currentIterationValues.containsKey("BEGIN " + identifier);
+	}
+
+	/**
+	 * Remembers a value measured in the current iteration, e.g. the throughput of an operation. The values are written
+	 * after the durations of the operations by {@link #writeTextFile(String)}.
+	 *
+	 * @param identifier The name of the value.
+	 * @param value The measured value.
+	 */
+	public void addValue(final String identifier, final double value) {
+		if (!this.valueIdentifiers.contains(identifier)) {
+			this.valueIdentifiers.add(identifier);
+		}
+		this.currentIterationMeasuredValues.put(identifier, value);
+	}
+
     public void endIteration() {
         this.endOperation(OPERATION_ITERATION);
     }
@@ -204,6 +245,13 @@ public final class IterationStopWatch {
 				writer.write('\t');
 				writer.write(identifier);
 			}
+			if (!this.valueIdentifiers.isEmpty()) {
+				writer.write('\t');
+				for (String identifier : this.valueIdentifiers) {
+					writer.write('\t');
+					writer.write(identifier);
+				}
+			}
 			writer.write("\n");
 
 			// print data
@@ -230,6 +278,18 @@ public final class IterationStopWatch {
 						writer.write(Time.writeTime(diff));
 					}
 				}
+				// measured values
+				if (!this.valueIdentifiers.isEmpty()) {
+					writer.write('\t');
+					Map<String, Double> iterationValues = this.values.get(iteration);
+					for (String identifier : this.valueIdentifiers) {
+						Double value = iterationValues == null ? null : iterationValues.get(identifier);
+						writer.write('\t');
+						if (value != null) {
+							writer.write(value.toString());
+						}
+					}
+				}
 
 				// finish
 				writer.write("\n");
@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -224,6 +225,26 @@ public class ScoreStatsControlerListener implements StartupListener, IterationEn
 
 	}
 
+	/**
+	 * Adds the score statistics of earlier iterations, e.g. when a run is continued from a checkpoint. Must be called
+	 * after the startup of the controler.
+	 */
+	public void addScoreHistory(final Map<ScoreItem, Map<Integer, Double>> history) {
+		for (Map.Entry<ScoreItem, Map<Integer, Double>> e : history.entrySet()) {
+			this.scoreHistory.get(e.getKey()).putAll(e.getValue());
+		}
+		try {
+			for (Integer iteration : new TreeSet<>(history.get(ScoreItem.executed).keySet())) {
+				this.out.write(iteration + "\t" + this.scoreHistory.get(ScoreItem.executed).get(iteration) + "\t" +
+						this.scoreHistory.get(ScoreItem.worst).get(iteration) + "\t" + this.scoreHistory.get(ScoreItem.average).get(iteration) +
+						"\t" + this.scoreHistory.get(ScoreItem.best).get(iteration) + "\n");
+			}
+			this.out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	@Override
 	public Map<ScoreItem, Map<Integer, Double>> getScoreHistory() {
 		return Collections.unmodifiableMap( this.scoreHistory ) ;
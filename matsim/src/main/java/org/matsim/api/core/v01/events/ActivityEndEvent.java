@@ -76,5 +76,11 @@ public final class ActivityEndEvent extends Event implements HasPersonId, HasLin
 		return attr;
 	}
 
+	@Override
+	public void writeAttributes(final AttributeWriter writer) {
+		writeCommonAttributes(writer);
+		writer.writeAttribute(ATTRIBUTE_ACTTYPE, this.acttype);
+	}
+
 	
 }
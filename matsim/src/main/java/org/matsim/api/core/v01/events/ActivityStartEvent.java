@@ -103,6 +103,17 @@ public class ActivityStartEvent extends Event implements HasFacilityId, HasPerso
 		attr.put(ATTRIBUTE_ACTTYPE, this.acttype);
 		return attr;
 	}
+
+	@Override
+	public void writeAttributes(final AttributeWriter writer) {
+		if (getClass() != ActivityStartEvent.class) {
+			// subclasses may have overridden getAttributes()
+			super.writeAttributes(writer);
+			return;
+		}
+		writeCommonAttributes(writer);
+		writer.writeAttribute(ATTRIBUTE_ACTTYPE, this.acttype);
+	}
 	@Override public Coord getCoord(){
 		return coord;
 	}
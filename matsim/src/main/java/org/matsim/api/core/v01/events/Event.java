@@ -67,6 +67,59 @@ public abstract class Event {
 		return attr;
 	}
 
+	/**
+	 * Passes all attributes of this event to the given writer, in the same order and with the same values as
+	 * returned by {@link #getAttributes()}, but without creating a map.  Event writers use this to serialize events without
+	 * allocating garbage for every event.
+	 * <p></p>
+	 * The default implementation simply iterates over {@link #getAttributes()}.  Frequent event types override this
+	 * with a direct implementation; such overrides must be kept consistent with {@link #getAttributes()}.
+	 */
+	public void writeAttributes(final AttributeWriter writer) {
+		for (Map.Entry<String, String> entry : getAttributes().entrySet()) {
+			writer.writeAttribute(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Writes the common attributes of {@link #getAttributes()} (time, type and the attributes of the <code>Has...</code>
+	 * interfaces) to the writer.  To be used by implementations of {@link #writeAttributes(AttributeWriter)}.
+	 */
+	protected final void writeCommonAttributes(final AttributeWriter writer) {
+		writer.writeAttribute(ATTRIBUTE_TIME, this.time);
+		writer.writeAttribute(ATTRIBUTE_TYPE, getEventType());
+		if ( this instanceof HasPersonId && ((HasPersonId) this).getPersonId()!=null) {
+			writer.writeAttribute( HasPersonId.ATTRIBUTE_PERSON, ((HasPersonId) this).getPersonId().toString() ) ;
+		}
+		if ( this instanceof HasFacilityId && ((HasFacilityId) this).getFacilityId()!=null ) {
+			writer.writeAttribute( HasFacilityId.ATTRIBUTE_FACILITY, ((HasFacilityId) this).getFacilityId().toString() );
+		}
+		if ( this instanceof HasLinkId && ((HasLinkId) this).getLinkId()!=null) {
+			writer.writeAttribute( HasLinkId.ATTRIBUTE_LINK, ((HasLinkId) this).getLinkId().toString() );
+		}
+		if ( this instanceof BasicLocation && ((BasicLocation) this).getCoord()!=null ) {
+			writer.writeAttribute( ATTRIBUTE_X, ((BasicLocation) this).getCoord().getX() ) ;
+			writer.writeAttribute( ATTRIBUTE_Y, ((BasicLocation) this).getCoord().getY() ) ;
+		}
+		if ( this instanceof HasVehicleId && ((HasVehicleId) this).getVehicleId()!=null ) {
+			writer.writeAttribute( HasVehicleId.ATTRIBUTE_VEHICLE, ((HasVehicleId) this).getVehicleId().toString() );
+		}
+	}
+
+	/**
+	 * Receives the attributes of an event, see {@link Event#writeAttributes(AttributeWriter)}.
+	 */
+	public interface AttributeWriter {
+
+		void writeAttribute(String key, String value);
+
+		/**
+		 * Writes a numeric attribute, the textual representation of which is {@link Double#toString(double)}.
+		 */
+		void writeAttribute(String key, double value);
+
+	}
+
 	/** @return a unique, descriptive name for this event type, used to identify event types in files. */
 	abstract public String getEventType();
 
@@ -76,4 +76,15 @@ public class LinkEnterEvent extends Event implements HasLinkId {
 		attr.put(ATTRIBUTE_LINK, this.linkId.toString());
 		return attr;
 	}
+
+	@Override
+	public void writeAttributes(final AttributeWriter writer) {
+		if (getClass() != LinkEnterEvent.class) {
+			// subclasses may have overridden getAttributes()
+			super.writeAttributes(writer);
+			return;
+		}
+		writeCommonAttributes(writer);
+		writer.writeAttribute(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+	}
 }
@@ -78,4 +78,15 @@ public class LinkLeaveEvent extends Event implements HasLinkId {
 		attr.put(ATTRIBUTE_LINK, this.linkId.toString());
 		return attr;
 	}
+
+	@Override
+	public void writeAttributes(final AttributeWriter writer) {
+		if (getClass() != LinkLeaveEvent.class) {
+			// subclasses may have overridden getAttributes()
+			super.writeAttributes(writer);
+			return;
+		}
+		writeCommonAttributes(writer);
+		writer.writeAttribute(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+	}
 }
\ No newline at end of file
@@ -73,4 +73,20 @@ public class PersonArrivalEvent extends Event implements HasPersonId {
 		}
 		return attr;
 	}
+
+	@Override
+	public void writeAttributes(final AttributeWriter writer) {
+		if (getClass() != PersonArrivalEvent.class) {
+			// subclasses may have overridden getAttributes()
+			super.writeAttributes(writer);
+			return;
+		}
+		writer.writeAttribute(ATTRIBUTE_TIME, getTime());
+		writer.writeAttribute(ATTRIBUTE_TYPE, getEventType());
+		writer.writeAttribute(ATTRIBUTE_PERSON, this.personId.toString());
+		writer.writeAttribute(ATTRIBUTE_LINK, (this.linkId == null ? null : this.linkId.toString()));
+		if (this.legMode != null) {
+			writer.writeAttribute(ATTRIBUTE_LEGMODE, this.legMode);
+		}
+	}
 }
\ No newline at end of file
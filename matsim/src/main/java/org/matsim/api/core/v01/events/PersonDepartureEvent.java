@@ -74,4 +74,20 @@ public class PersonDepartureEvent extends Event implements HasPersonId {
 		}
 		return attr;
 	}
+
+	@Override
+	public void writeAttributes(final AttributeWriter writer) {
+		if (getClass() != PersonDepartureEvent.class) {
+			// subclasses may have overridden getAttributes()
+			super.writeAttributes(writer);
+			return;
+		}
+		writer.writeAttribute(ATTRIBUTE_TIME, getTime());
+		writer.writeAttribute(ATTRIBUTE_TYPE, getEventType());
+		writer.writeAttribute(ATTRIBUTE_PERSON, this.personId.toString());
+		writer.writeAttribute(ATTRIBUTE_LINK, (this.linkId == null ? null : this.linkId.toString()));
+		if (this.legMode != null) {
+			writer.writeAttribute(ATTRIBUTE_LEGMODE, this.legMode);
+		}
+	}
 }
\ No newline at end of file
@@ -71,4 +71,17 @@ public class PersonLeavesVehicleEvent extends Event implements HasPersonId {
 		attrs.put(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
 		return attrs;
 	}
+
+	@Override
+	public void writeAttributes(final AttributeWriter writer) {
+		if (getClass() != PersonLeavesVehicleEvent.class) {
+			// subclasses may have overridden getAttributes()
+			super.writeAttributes(writer);
+			return;
+		}
+		writer.writeAttribute(ATTRIBUTE_TIME, getTime());
+		writer.writeAttribute(ATTRIBUTE_TYPE, getEventType());
+		writer.writeAttribute(ATTRIBUTE_PERSON, this.personId.toString());
+		writer.writeAttribute(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+	}
 }
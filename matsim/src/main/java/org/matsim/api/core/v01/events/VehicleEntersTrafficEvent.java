@@ -92,4 +92,18 @@ public class VehicleEntersTrafficEvent extends Event implements HasPersonId, Has
 		attr.put(ATTRIBUTE_POSITION, Double.toString(this.relativePositionOnLink));
 		return attr;
 	}
+
+	@Override
+	public void writeAttributes(final AttributeWriter writer) {
+		if (getClass() != VehicleEntersTrafficEvent.class) {
+			// subclasses may have overridden getAttributes()
+			super.writeAttributes(writer);
+			return;
+		}
+		writeCommonAttributes(writer);
+		if (this.networkMode != null) {
+			writer.writeAttribute(ATTRIBUTE_NETWORKMODE, this.networkMode);
+		}
+		writer.writeAttribute(ATTRIBUTE_POSITION, this.relativePositionOnLink);
+	}
 }
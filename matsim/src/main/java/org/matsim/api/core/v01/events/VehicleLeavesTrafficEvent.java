@@ -97,4 +97,24 @@ public class VehicleLeavesTrafficEvent extends Event implements HasPersonId, Has
 
 		return attr;
 	}
+
+	@Override
+	public void writeAttributes(final AttributeWriter writer) {
+		if (getClass() != VehicleLeavesTrafficEvent.class) {
+			// subclasses may have overridden getAttributes()
+			super.writeAttributes(writer);
+			return;
+		}
+		writer.writeAttribute(ATTRIBUTE_TIME, getTime());
+		writer.writeAttribute(ATTRIBUTE_TYPE, getEventType());
+		writer.writeAttribute(ATTRIBUTE_DRIVER, this.driverId.toString());
+		writer.writeAttribute(ATTRIBUTE_LINK, (this.linkId == null ? null : this.linkId.toString()));
+		if (this.vehicleId != null) {
+			writer.writeAttribute(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+		}
+		if (this.networkMode != null) {
+			writer.writeAttribute(ATTRIBUTE_NETWORKMODE, this.networkMode);
+		}
+		writer.writeAttribute(ATTRIBUTE_POSITION, this.relativePositionOnLink);
+	}
 }
\ No newline at end of file
@@ -33,9 +33,9 @@ import java.util.*;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, ContractionHierarchies}
 
-	public enum EventsFileFormat {xml, pb, json}
+	public enum EventsFileFormat {xml, pb, json, binary}
 
 	public enum CompressionType {
 		none(""),
@@ -67,6 +67,8 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
 	private static final String COMPRESSION_TYPE = "compressionType";
+	private static final String WRITE_CHECKPOINT_INTERVAL = "writeCheckpointInterval";
+	private static final String RESUME_FROM_CHECKPOINT = "resumeFromCheckpoint";
 
 	/*package*/ static final String MOBSIM = "mobsim";
 	public enum MobsimType {qsim, JDEQSim, hermes}
@@ -94,6 +96,8 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private boolean dumpDataAtEnd = true;
 	private CompressionType compressionType = CompressionType.gzip;
 	private OverwriteFileSetting overwriteFileSetting = OverwriteFileSetting.failIfDirectoryExists;
+	private int writeCheckpointInterval = 0;
+	private String resumeFromCheckpoint = null;
 
 	public ControlerConfigGroup() {
 		super(GROUP_NAME);
@@ -103,7 +107,8 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + ", "  + RoutingAlgorithmType.FastAStarLandmarks + " or " +
+				RoutingAlgorithmType.ContractionHierarchies);
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
 		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: " + Arrays.toString(EventsFileFormat.values()) + IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
@@ -136,6 +141,12 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		map.put(WRITE_SNAPSHOTS_INTERVAL, "iterationNumber % " + WRITE_SNAPSHOTS_INTERVAL + " == 0 defines in which iterations snapshots are written " +
 				"to a file. `0' disables snapshots writing completely");
 		map.put(DUMP_DATA_AT_END, "true if at the end of a run, plans, network, config etc should be dumped to a file");
+		map.put(WRITE_CHECKPOINT_INTERVAL, "iterationNumber % " + WRITE_CHECKPOINT_INTERVAL + " == 0 defines at the end of which iterations " +
+				"a checkpoint (population with all plans and scores, travel times, score statistics) is written, from which the run can be " +
+				"continued. `0' disables checkpoints completely.");
+		map.put(RESUME_FROM_CHECKPOINT, "The checkpoint file (it.N/N.checkpoint.bin) from which a run should be continued, starting with " +
+				"iteration N+1. The network, facilities and other inputs must be the same as in the run that wrote the checkpoint. Mind that " +
+				OverwriteFileSetting.deleteDirectoryIfExists + " deletes the checkpoint if it is located in the output directory of this run.");
 		return map;
 	}
 
@@ -343,6 +354,26 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.writeSnapshotsInterval = writeSnapshotsInterval;
 	}
 
+	@StringGetter( WRITE_CHECKPOINT_INTERVAL )
+	public int getWriteCheckpointInterval() {
+		return this.writeCheckpointInterval;
+	}
+
+	@StringSetter( WRITE_CHECKPOINT_INTERVAL )
+	public void setWriteCheckpointInterval(final int writeCheckpointInterval) {
+		this.writeCheckpointInterval = writeCheckpointInterval;
+	}
+
+	@StringGetter( RESUME_FROM_CHECKPOINT )
+	public String getResumeFromCheckpoint() {
+		return this.resumeFromCheckpoint;
+	}
+
+	@StringSetter( RESUME_FROM_CHECKPOINT )
+	public void setResumeFromCheckpoint(final String resumeFromCheckpoint) {
+		this.resumeFromCheckpoint = resumeFromCheckpoint == null || resumeFromCheckpoint.isEmpty() ? null : resumeFromCheckpoint;
+	}
+
 	@StringGetter( CREATE_GRAPHS )
 	public boolean isCreateGraphs() {
 		return createGraphs;
@@ -39,6 +39,8 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(NUMBER_OF_COMPRESSION_THREADS, NUMBER_OF_COMPRESSION_THREADS_CMT ) ;
+		map.put(REPLANNING_BATCH_SIZE, REPLANNING_BATCH_SIZE_CMT ) ;
 		return map ;
 	}
 
@@ -94,6 +96,51 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	@PositiveOrZero
+	private int numberOfCompressionThreads = 0;
+	private static final String NUMBER_OF_COMPRESSION_THREADS = "numberOfCompressionThreads";
+	private static final String NUMBER_OF_COMPRESSION_THREADS_CMT = "number of threads used to compress output files.  "
+							     + "0 compresses and writes files on the thread that produces the data.  "
+							     + "1 compresses and writes files asynchronously on a separate thread per file.  "
+							     + "Larger values additionally compress gzip and zstd files with this many threads per file; "
+							     + "gzip files then consist of several concatenated gzip members, which all common gzip tools can read.";
+	/**
+	 * @return {@link #NUMBER_OF_COMPRESSION_THREADS_CMT}
+	 */
+	@StringGetter( NUMBER_OF_COMPRESSION_THREADS )
+	public int getNumberOfCompressionThreads() {
+		return this.numberOfCompressionThreads;
+	}
+	/**
+	 * @param numberOfCompressionThreads -- {@link #NUMBER_OF_COMPRESSION_THREADS_CMT}
+	 */
+	@StringSetter( NUMBER_OF_COMPRESSION_THREADS )
+	public void setNumberOfCompressionThreads(final int numberOfCompressionThreads) {
+		this.numberOfCompressionThreads = numberOfCompressionThreads;
+	}
+	// ---
+	@PositiveOrZero
+	private int replanningBatchSize = 0;
+	private static final String REPLANNING_BATCH_SIZE = "replanningBatchSize";
+	private static final String REPLANNING_BATCH_SIZE_CMT = "number of plans a replanning thread takes at once from the plans of a multi-threaded strategy module.  "
+							     + "0 distributes the plans equally to the threads, which gives reproducible results.  "
+							     + "Larger values let threads with cheap plans take over plans from threads with expensive plans, "
+							     + "but the results of strategy modules with random number generators of their own then depend on the scheduling of the threads.";
+	/**
+	 * @return {@link #REPLANNING_BATCH_SIZE_CMT}
+	 */
+	@StringGetter( REPLANNING_BATCH_SIZE )
+	public int getReplanningBatchSize() {
+		return this.replanningBatchSize;
+	}
+	/**
+	 * @param replanningBatchSize -- {@link #REPLANNING_BATCH_SIZE_CMT}
+	 */
+	@StringSetter( REPLANNING_BATCH_SIZE )
+	public void setReplanningBatchSize(final int replanningBatchSize) {
+		this.replanningBatchSize = replanningBatchSize;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
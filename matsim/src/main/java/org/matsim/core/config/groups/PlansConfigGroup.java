@@ -91,6 +91,15 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(COMPACT_PLANS, "(experimental) if true, the plan elements of plans which are not in use, i.e. all plans after reading " +
+				"them and the not selected plans during the mobsim, are stored in a compact encoding in a few arrays per plan, " +
+				"and are re-created when they are needed again. This saves a lot of memory for large populations with several plans per person. " +
+				"Code must then not keep references to activities, legs or routes of a plan across iterations. default=false.");
+
+		comments.put(PARALLEL_READING, "(experimental) if true, population files in the formats v5 and v6 are read with " +
+				"global.numberOfThreads threads. The ids are then created by these threads, so their internal index, and with it the " +
+				"iteration order of id-indexed maps, may differ from run to run. default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -218,6 +227,28 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 
+	private static final String COMPACT_PLANS = "compactPlans";
+	private boolean compactPlans = false;
+	@StringGetter(COMPACT_PLANS)
+	public boolean isCompactPlans() {
+		return this.compactPlans;
+	}
+	@StringSetter(COMPACT_PLANS)
+	public void setCompactPlans(final boolean compactPlans) {
+		this.compactPlans = compactPlans;
+	}
+
+	private static final String PARALLEL_READING = "parallelReading";
+	private boolean parallelReading = false;
+	@StringGetter(PARALLEL_READING)
+	public boolean isParallelReading() {
+		return this.parallelReading;
+	}
+	@StringSetter(PARALLEL_READING)
+	public void setParallelReading(final boolean parallelReading) {
+		this.parallelReading = parallelReading;
+	}
+
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
 		return inputCRS;
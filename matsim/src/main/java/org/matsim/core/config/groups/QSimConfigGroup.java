@@ -298,6 +298,17 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(SEEP_MODE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set a seep mode. Default is bike.");
 		map.put(IS_SEEP_MODE_STORAGE_FREE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set to true if seep mode do not consumes any space on the link. Default is false.");
 		map.put(IS_RESTRICTING_SEEPAGE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set to false if all seep modes should perform seepage. Default is true (better option).");
+		map.put(NODE_ASSIGNMENT, "How the nodes and their outgoing links are distributed over the threads of the QSim. "
+				+ NodeAssignment.roundRobin + " (default) distributes them one by one, " + NodeAssignment.coordinateBisection
+				+ " assigns contiguous regions of similar load to each thread by recursively splitting the network along the x or y axis. "
+				+ "Only relevant if numberOfThreads > 1.");
+		map.put(NODE_REBALANCING_INTERVAL, "Only used with " + NODE_ASSIGNMENT + "=" + NodeAssignment.coordinateBisection
+				+ ": the interval (in seconds of simulated time) in which the regions are re-computed, weighting the nodes with the "
+				+ "number of time steps in which they and their outgoing links were active. `0' disables re-balancing.");
+		map.put(NETSIM_SCHEDULING, "How the nodes and links are scheduled to the threads of the QSim in every time step. "
+				+ NetsimScheduling.threadpool + " (default) moves the nodes and links of each thread as one task, "
+				+ NetsimScheduling.workStealing + " splits them into chunks which idle threads take over from busy threads. "
+				+ "Only relevant if numberOfThreads > 1.");
 //		map.put(CREATING_VEHICLES_FOR_ALL_NETWORK_MODES, "If set to true, creates a vehicle for each person corresponding to every network mode. However, " +
 //				"this will be overridden if vehicle source is "+ VehiclesSource.fromVehiclesData+".");
 		
@@ -584,6 +595,42 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.isRestrictingSeepage = isRestrictingSeepage;
 	}
 	// ---
+	private static final String NODE_ASSIGNMENT = "nodeAssignment";
+	public enum NodeAssignment { roundRobin, coordinateBisection }
+	private NodeAssignment nodeAssignment = NodeAssignment.roundRobin;
+	@StringGetter(NODE_ASSIGNMENT)
+	public NodeAssignment getNodeAssignment() {
+		return this.nodeAssignment;
+	}
+	@StringSetter(NODE_ASSIGNMENT)
+	public void setNodeAssignment(NodeAssignment nodeAssignment) {
+		this.nodeAssignment = nodeAssignment;
+	}
+	// ---
+	private static final String NODE_REBALANCING_INTERVAL = "nodeRebalancingInterval";
+	@PositiveOrZero
+	private double nodeRebalancingInterval = 0;
+	@StringGetter(NODE_REBALANCING_INTERVAL)
+	public double getNodeRebalancingInterval() {
+		return this.nodeRebalancingInterval;
+	}
+	@StringSetter(NODE_REBALANCING_INTERVAL)
+	public void setNodeRebalancingInterval(double nodeRebalancingInterval) {
+		this.nodeRebalancingInterval = nodeRebalancingInterval;
+	}
+	// ---
+	private static final String NETSIM_SCHEDULING = "netsimScheduling";
+	public enum NetsimScheduling { threadpool, workStealing }
+	private NetsimScheduling netsimScheduling = NetsimScheduling.threadpool;
+	@StringGetter(NETSIM_SCHEDULING)
+	public NetsimScheduling getNetsimScheduling() {
+		return this.netsimScheduling;
+	}
+	@StringSetter(NETSIM_SCHEDULING)
+	public void setNetsimScheduling(NetsimScheduling netsimScheduling) {
+		this.netsimScheduling = netsimScheduling;
+	}
+	// ---
 	private boolean usingTravelTimeCheckInTeleportation = false ;
 	public boolean isUsingTravelTimeCheckInTeleportation() {
 		// yyyyyy this should better become a threshold number!  kai, aug'16
@@ -38,11 +38,13 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 	private static final String USE_TRANSIT = "useTransit";
 	private static final String USE_VEHICLES = "useVehicles";
 	private static final String SIMULATION_PERIOD_DAYS = "simulationPeriodInDays"; // is not yet written to log-output so we can still rename it internally
+	private static final String SNAPSHOT_FILE = "snapshotFile";
 	
 	@SuppressWarnings("unused")
 	private static final Logger log = Logger.getLogger( ScenarioConfigGroup.class ) ;
 
 	private double simulationPeriodInDays = 1.0;
+	private String snapshotFile = null;
 	
 	public ScenarioConfigGroup() {
 		super(GROUP_NAME);
@@ -58,6 +60,10 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 		map.put(USE_HOUSEHOLDS, message); // since jul'15
 		map.put(USE_VEHICLES, message); // since jul'15
 		map.put(USE_TRANSIT, "Deprecated, do not use.  See transit section of config file.") ; // since jul'15
+		map.put(SNAPSHOT_FILE, "If set, the network, facilities, population, transit schedule, transit vehicles and vehicles are loaded "
+				+ "from this binary snapshot instead of the input files given in the other config groups, which is much faster. "
+				+ "The snapshot is written with ScenarioUtils.writeSnapshot(...) and must have been written with the same global coordinate system. "
+				+ "Network change events, households and lanes are still loaded from their input files.");
 		
 		return map;
 	}
@@ -75,6 +81,8 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 			this.setUseVehicles( Boolean.parseBoolean(value) );
 		} else if (USE_TRANSIT.equals(paramName)) {
 			this.setUseTransit( Boolean.parseBoolean(value) );
+		} else if (SNAPSHOT_FILE.equals(paramName)) {
+			this.setSnapshotFile( value );
 		} else {
 			throw new IllegalArgumentException("Parameter '" + paramName + "' is not supported by config group '" + GROUP_NAME + "'.");
 		}
@@ -87,6 +95,9 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 	@Override
 	public final Map<String, String> getParams() {
 		Map<String, String> params = super.getParams();
+		if (this.snapshotFile != null) {
+			params.put(SNAPSHOT_FILE, this.snapshotFile);
+		}
 		return params;
 	}
 
@@ -137,6 +148,14 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 		return this.simulationPeriodInDays;
 	}
 
+	public void setSnapshotFile(final String snapshotFile) {
+		this.snapshotFile = snapshotFile;
+	}
+
+	public String getSnapshotFile() {
+		return this.snapshotFile;
+	}
+
 	
 	private static String getMessage( String module ) {
 		return "The " + module + " switch is no longer operational.  The file is loaded if the file name"
@@ -292,6 +292,9 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_TMP_FILE_ROOT_DIR, "root directory for temporary files generated by the external executable. Provided as a service; "
 				+ "I don't think this is used by MATSim.") ;
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_TIME_OUT, "time out value (in seconds) after which matsim will consider the external strategy as failed") ;
+		map.put(ReflectiveDelegate.NUMBER_OF_PLAN_SELECTION_THREADS, "number of threads used to remove surplus plans, choose the strategies and select the plans. "
+				+ "With more than one thread, every person draws its random numbers from a generator of its own; results are reproducible, "
+				+ "but differ from the ones with a single thread. The strategy modules use global.numberOfThreads independently of this.") ;
 		return map ;
 	}
 
@@ -400,6 +403,14 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		return delegate.getFractionOfIterationsToDisableInnovation();
 	}
 
+	public int getNumberOfPlanSelectionThreads() {
+		return delegate.getNumberOfPlanSelectionThreads();
+	}
+
+	public void setNumberOfPlanSelectionThreads(int numberOfPlanSelectionThreads) {
+		delegate.setNumberOfPlanSelectionThreads(numberOfPlanSelectionThreads);
+	}
+
 	public void setFractionOfIterationsToDisableInnovation(double fraction) {
 		delegate.setFractionOfIterationsToDisableInnovation(fraction);
 	}
@@ -416,6 +427,7 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		 static final String EXTERNAL_EXE_TIME_OUT = "ExternalExeTimeOut";
 		 static final String ITERATION_FRACTION_TO_DISABLE_INNOVATION = "fractionOfIterationsToDisableInnovation" ;
 		 static final String PLAN_SELECTOR_FOR_REMOVAL = "planSelectorForRemoval" ;
+		 static final String NUMBER_OF_PLAN_SELECTION_THREADS = "numberOfPlanSelectionThreads" ;
 
 		private int maxAgentPlanMemorySize = 5;
 		private String externalExeConfigTemplate = null;
@@ -427,6 +439,8 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		//---
 		private double fraction = Double.POSITIVE_INFINITY ;
 		//---
+		private int numberOfPlanSelectionThreads = 1 ;
+		//---
 
 		public ReflectiveDelegate() {
 			super( StrategyConfigGroup.GROUP_NAME );
@@ -492,6 +506,19 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		public void setFractionOfIterationsToDisableInnovation(double fraction) {
 			this.fraction = fraction;
 		}
+
+		@StringGetter( NUMBER_OF_PLAN_SELECTION_THREADS )
+		public int getNumberOfPlanSelectionThreads() {
+			return numberOfPlanSelectionThreads;
+		}
+
+		@StringSetter( NUMBER_OF_PLAN_SELECTION_THREADS )
+		public void setNumberOfPlanSelectionThreads(int numberOfPlanSelectionThreads) {
+			if ( numberOfPlanSelectionThreads < 1 ) {
+				throw new IllegalArgumentException( NUMBER_OF_PLAN_SELECTION_THREADS + " must be at least 1, but is " + numberOfPlanSelectionThreads ) ;
+			}
+			this.numberOfPlanSelectionThreads = numberOfPlanSelectionThreads;
+		}
 	}
 }
 
@@ -42,7 +42,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 
 	public static final String GROUPNAME = "travelTimeCalculator";
 
-	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap}
+	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap,TravelTimeCalculatorFlatArray,TravelTimeCalculatorConcurrent}
 
 	private static final String TRAVEL_TIME_CALCULATOR = "travelTimeCalculator";
 	private static final String TRAVEL_TIME_BIN_SIZE = "travelTimeBinSize";
@@ -56,6 +56,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private static final String ANALYZEDMODES = "analyzedModes";
 	private static final String FILTERMODES = "filterModes";
 	private static final String SEPARATEMODES = "separateModes";
+	private static final String NUMBER_OF_CONCURRENT_HANDLERS = "numberOfConcurrentHandlers";
 
 	private TravelTimeCalculatorType travelTimeCalculator = TravelTimeCalculatorType.TravelTimeCalculatorArray;
 	private String travelTimeAggregator = "optimistic";
@@ -69,6 +70,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private Set<String> analyzedModes = new LinkedHashSet<>(  ) ;
 	private boolean filterModes = false;
 	private boolean separateModes = true;
+	private int numberOfConcurrentHandlers = 1;
 
 	public TravelTimeCalculatorConfigGroup() {
 		super(GROUPNAME);
@@ -91,6 +93,9 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 		map.put(FILTERMODES, "(only for backwards compatiblity; only used if " + SEPARATEMODES + "==false)  Only modes included in analyzedModes are included." ) ;
 		map.put(SEPARATEMODES, "(only for backwards compatibility) If false, link travel times are measured and aggregated over all vehicles using the link." ) ;
 		map.put( TRAVEL_TIME_CALCULATOR, "possible values: " + Arrays.stream( TravelTimeCalculatorType.values() ).map( type -> type.toString() + ' ' ).collect( Collectors.joining() ) );
+		map.put(NUMBER_OF_CONCURRENT_HANDLERS, "(only used with " + TravelTimeCalculatorType.TravelTimeCalculatorConcurrent + ") The number of event handlers " +
+				"which measure the travel times together, each one for a part of the vehicles. Set this to the number of threads of the " +
+				"parallelEventHandling, so that every thread handles one of them.");
 		return map;
 	}
 
@@ -213,5 +218,18 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	public void setSeparateModes(boolean separateModes) {
 		this.separateModes = separateModes;
 	}
+	// ---
+	@StringGetter(NUMBER_OF_CONCURRENT_HANDLERS)
+	public int getNumberOfConcurrentHandlers() {
+		return this.numberOfConcurrentHandlers;
+	}
+
+	@StringSetter(NUMBER_OF_CONCURRENT_HANDLERS)
+	public void setNumberOfConcurrentHandlers(int numberOfConcurrentHandlers) {
+		if (numberOfConcurrentHandlers < 1) {
+			throw new IllegalArgumentException("The number of concurrent handlers must be at least 1, but is " + numberOfConcurrentHandlers);
+		}
+		this.numberOfConcurrentHandlers = numberOfConcurrentHandlers;
+	}
 
 }
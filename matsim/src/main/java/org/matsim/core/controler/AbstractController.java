@@ -76,8 +76,9 @@ import org.matsim.utils.MemoryObserver;
                 loadCoreListeners();
                 controlerListenerManagerImpl.fireControlerStartupEvent();
                 ControlerUtils.checkConfigConsistencyAndWriteToLog(config, "config dump before iterations start");
+                Integer restoredIteration = restoreState();
                 prepareForSim();
-                doIterations(config);
+                doIterations(config, restoredIteration == null ? config.controler().getFirstIteration() : restoredIteration + 1);
             }
 
             @Override
@@ -108,8 +109,19 @@ import org.matsim.utils.MemoryObserver;
      */
     protected abstract boolean continueIterations(int iteration);
 
-    private void doIterations(Config config) throws MatsimRuntimeModifications.UnexpectedShutdownException {
-        for (int iteration = config.controler().getFirstIteration(); continueIterations(iteration); iteration++) {
+    /**
+     * Called after the startup listeners and before {@link #prepareForSim()}.  Allows to restore the state of an earlier
+     * run, e.g. from a checkpoint.
+     *
+     * @return the last iteration contained in the restored state, so the iterations continue with the next one, or
+     * <code>null</code> to start with the first iteration of the config.
+     */
+    protected Integer restoreState() {
+        return null;
+    }
+
+    private void doIterations(Config config, int firstIteration) throws MatsimRuntimeModifications.UnexpectedShutdownException {
+        for (int iteration = firstIteration; continueIterations(iteration); iteration++) {
             iteration(config, iteration);
         }
     }
@@ -27,6 +27,7 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.corelisteners.*;
 import org.matsim.core.controler.listener.ControlerListener;
 import org.matsim.core.mobsim.framework.Mobsim;
+import org.matsim.core.utils.io.IOUtils;
 
 import javax.inject.Inject;
 import java.util.Set;
@@ -46,6 +47,7 @@ class NewControler extends AbstractController implements ControlerI {
 	private final PlansScoring plansScoring;
 	private final TerminationCriterion terminationCriterion;
 	private final DumpDataAtEnd dumpDataAtEnd;
+	private final Checkpointing checkpointing;
 	private final Set<ControlerListener> controlerListenersDeclaredByModules;
 	private final ControlerConfigGroup controlerConfigGroup;
 	private final OutputDirectoryHierarchy outputDirectoryHierarchy;
@@ -57,7 +59,7 @@ class NewControler extends AbstractController implements ControlerI {
 			 PlansScoring plansScoring, TerminationCriterion terminationCriterion, DumpDataAtEnd dumpDataAtEnd,
 			 Set<ControlerListener> controlerListenersDeclaredByModules, ControlerConfigGroup controlerConfigGroup,
 			 OutputDirectoryHierarchy outputDirectoryHierarchy
-			, PrepareForMobsim prepareForMobsim
+			, PrepareForMobsim prepareForMobsim, Checkpointing checkpointing
  ) {
 		super(controlerListenerManager, stopWatch, matsimServices);
 		this.config = config;
@@ -71,6 +73,7 @@ class NewControler extends AbstractController implements ControlerI {
 		this.plansScoring = plansScoring;
 		this.terminationCriterion = terminationCriterion;
 		this.dumpDataAtEnd = dumpDataAtEnd;
+		this.checkpointing = checkpointing;
 		this.controlerListenersDeclaredByModules = controlerListenersDeclaredByModules;
 		this.controlerConfigGroup = controlerConfigGroup;
 		this.outputDirectoryHierarchy = outputDirectoryHierarchy;
@@ -79,7 +82,14 @@ class NewControler extends AbstractController implements ControlerI {
 	@Override
 	public final void run() {
 		super.setupOutputDirectory(outputDirectoryHierarchy);
-		super.run(this.config);
+		// the compression threads are only used for the output of this run, so later runs in the same JVM are not affected
+		int compressionThreads = IOUtils.getCompressionThreads();
+		IOUtils.setCompressionThreads(this.config.global().getNumberOfCompressionThreads());
+		try {
+			super.run(this.config);
+		} finally {
+			IOUtils.setCompressionThreads(compressionThreads);
+		}
 		OutputDirectoryLogging.closeOutputDirLogging();
 	}
 
@@ -97,6 +107,10 @@ class NewControler extends AbstractController implements ControlerI {
 			this.addCoreControlerListener(this.dumpDataAtEnd);
 		}
 
+		if (controlerConfigGroup.getWriteCheckpointInterval() > 0) {
+			this.addCoreControlerListener(this.checkpointing);
+		}
+
 		this.addCoreControlerListener(this.plansScoring);
 		this.addCoreControlerListener(this.plansReplanning);
 		this.addCoreControlerListener(this.plansDumping);
@@ -108,6 +122,14 @@ class NewControler extends AbstractController implements ControlerI {
 		}
 	}
 
+	@Override
+	protected final Integer restoreState() {
+		if (controlerConfigGroup.getResumeFromCheckpoint() == null) {
+			return null;
+		}
+		return this.checkpointing.restore(controlerConfigGroup.getResumeFromCheckpoint());
+	}
+
 	@Override
 	protected final void prepareForSim() {
 		this.prepareForSim.run();
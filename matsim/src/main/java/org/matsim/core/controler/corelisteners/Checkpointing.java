@@ -0,0 +1,41 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Checkpointing.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.controler.listener.ControlerListener;
+
+/**
+ * Writes checkpoints from which a run can be continued
+ * ({@link ControlerConfigGroup#getWriteCheckpointInterval()}) and restores
+ * them ({@link ControlerConfigGroup#getResumeFromCheckpoint()}). Can be
+ * replaced by injection, as the other core listeners.
+ */
+public interface Checkpointing extends ControlerListener {
+
+	/**
+	 * Restores the state of the run from the checkpoint.
+	 *
+	 * @return the iteration at the end of which the checkpoint was written
+	 */
+	int restore(String checkpointFile);
+
+}
@@ -0,0 +1,265 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CheckpointingImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Singleton;
+import com.google.inject.name.Names;
+import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
+import org.matsim.analysis.ScoreStats;
+import org.matsim.analysis.ScoreStatsControlerListener;
+import org.matsim.analysis.ScoreStatsControlerListener.ScoreItem;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes a checkpoint after every {@link ControlerConfigGroup#getWriteCheckpointInterval()}-th iteration and after the
+ * last iteration of the run. A checkpoint consists of two files in the directory of the iteration:
+ * <ul>
+ * <li><code>N.checkpoint_population.bin</code>, a population snapshot (see
+ * {@link ScenarioUtils#writePopulationSnapshot(Scenario, String)}) with all plans and their scores,</li>
+ * <li><code>N.checkpoint.bin</code>, containing the iteration, the random seed, the score statistics and the travel
+ * times measured by the {@link TravelTimeCalculator}s.</li>
+ * </ul>
+ * The checkpoint of an iteration is written at the start of the next iteration, i.e. after all iteration ends
+ * listeners, including the score statistics, were called. The random numbers need no further state, as
+ * {@link org.matsim.core.gbl.MatsimRandom} is reset with the random seed and the iteration number at the start of
+ * every iteration. State held by other listeners or modules is not contained in a checkpoint.
+ */
+@Singleton
+final class CheckpointingImpl implements Checkpointing, IterationStartsListener, IterationEndsListener, ShutdownListener {
+
+	private static final Logger log = Logger.getLogger(CheckpointingImpl.class);
+
+	private static final int MAGIC = 0x4d434b50; // "MCKP"
+	private static final int VERSION = 1;
+
+	private static final String CHECKPOINT = "checkpoint.bin";
+	private static final String CHECKPOINT_POPULATION = "checkpoint_population.bin";
+
+	@Inject private Config config;
+	@Inject private Scenario scenario;
+	@Inject private IterationStopWatch stopwatch;
+	@Inject private OutputDirectoryHierarchy controlerIO;
+	@Inject private Injector injector;
+	@Inject private Map<Class<?>, AttributeConverter<?>> attributeConverters = Collections.emptyMap();
+
+	private final int writeCheckpointInterval;
+
+	private Integer lastFinishedIteration = null;
+	private Integer lastCheckpoint = null;
+
+	@Inject
+	CheckpointingImpl(ControlerConfigGroup config) {
+		this.writeCheckpointInterval = config.getWriteCheckpointInterval();
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		if (this.lastFinishedIteration != null && this.lastFinishedIteration % this.writeCheckpointInterval == 0) {
+			writeCheckpoint(this.lastFinishedIteration);
+		}
+	}
+
+	@Override
+	public void notifyIterationEnds(final IterationEndsEvent event) {
+		this.lastFinishedIteration = event.getIteration();
+	}
+
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		if (!event.isUnexpected() && this.lastFinishedIteration != null && !this.lastFinishedIteration.equals(this.lastCheckpoint)) {
+			writeCheckpoint(this.lastFinishedIteration);
+		}
+	}
+
+	private void writeCheckpoint(final int iteration) {
+		if (this.writeCheckpointInterval <= 0) {
+			return;
+		}
+		this.stopwatch.beginOperation("write checkpoint");
+		log.info("writing checkpoint of iteration " + iteration + "...");
+		String populationFile = this.controlerIO.getIterationFilename(iteration, CHECKPOINT_POPULATION);
+		ScenarioUtils.writePopulationSnapshot(this.scenario, populationFile, this.attributeConverters);
+
+		String checkpointFile = this.controlerIO.getIterationFilename(iteration, CHECKPOINT);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(checkpointFile)), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(iteration);
+			out.writeLong(this.config.global().getRandomSeed());
+			out.writeUTF(Paths.get(populationFile).getFileName().toString());
+
+			Map<ScoreItem, Map<Integer, Double>> scoreHistory = getScoreStats() == null ? Collections.emptyMap() : getScoreStats().getScoreHistory();
+			out.writeInt(scoreHistory.size());
+			for (Map.Entry<ScoreItem, Map<Integer, Double>> e : scoreHistory.entrySet()) {
+				out.writeUTF(e.getKey().name());
+				out.writeInt(e.getValue().size());
+				for (Map.Entry<Integer, Double> value : e.getValue().entrySet()) {
+					out.writeInt(value.getKey());
+					out.writeDouble(value.getValue());
+				}
+			}
+
+			Map<String, TravelTimeCalculator> calculators = getTravelTimeCalculators();
+			out.writeInt(calculators.size());
+			for (Map.Entry<String, TravelTimeCalculator> e : calculators.entrySet()) {
+				out.writeUTF(e.getKey());
+				e.getValue().writeState(out);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.lastCheckpoint = iteration;
+		log.info("finished writing checkpoint.");
+		this.stopwatch.endOperation("write checkpoint");
+	}
+
+	@Override
+	public int restore(final String checkpointFile) {
+		URL url = ConfigGroup.getInputFileURL(this.config.getContext(), checkpointFile);
+		Path path;
+		try {
+			path = Paths.get(url.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			throw new RuntimeException("checkpoints can only be restored from local files, not from " + url, e);
+		}
+		log.info("restoring checkpoint " + path + "...");
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+			if (in.readInt() != MAGIC) {
+				throw new IllegalArgumentException(path + " is not a checkpoint.");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of checkpoint " + path + ", expected " + VERSION);
+			}
+			int iteration = in.readInt();
+			long randomSeed = in.readLong();
+			if (randomSeed != this.config.global().getRandomSeed()) {
+				log.warn("the checkpoint was written with random seed " + randomSeed + ", but " + this.config.global().getRandomSeed()
+						+ " is configured. The continued run will differ from a run without interruption.");
+			}
+
+			Population population = this.scenario.getPopulation();
+			List<Id<Person>> personIds = new ArrayList<>(population.getPersons().keySet());
+			for (Id<Person> personId : personIds) {
+				population.removePerson(personId);
+			}
+			String populationFile = path.resolveSibling(in.readUTF()).toString();
+			ScenarioUtils.readPopulationSnapshot(this.scenario, populationFile, this.attributeConverters);
+
+			Map<ScoreItem, Map<Integer, Double>> scoreHistory = new EnumMap<>(ScoreItem.class);
+			int items = in.readInt();
+			for (int i = 0; i < items; i++) {
+				Map<Integer, Double> values = new TreeMap<>();
+				scoreHistory.put(ScoreItem.valueOf(in.readUTF()), values);
+				int count = in.readInt();
+				for (int v = 0; v < count; v++) {
+					values.put(in.readInt(), in.readDouble());
+				}
+			}
+			ScoreStats scoreStats = getScoreStats();
+			if (scoreStats instanceof ScoreStatsControlerListener && !scoreHistory.isEmpty()) {
+				((ScoreStatsControlerListener) scoreStats).addScoreHistory(scoreHistory);
+			}
+
+			Map<String, TravelTimeCalculator> calculators = getTravelTimeCalculators();
+			int count = in.readInt();
+			for (int c = 0; c < count; c++) {
+				String name = in.readUTF();
+				TravelTimeCalculator calculator = calculators.get(name);
+				if (calculator == null) {
+					throw new IllegalArgumentException("The checkpoint contains travel times for "
+							+ (name.isEmpty() ? "all modes" : "mode " + name) + ", but no such travel time calculator is bound. Check the travelTimeCalculator config group.");
+				}
+				calculator.readState(in);
+			}
+
+			this.lastCheckpoint = iteration;
+			log.info("restored checkpoint of iteration " + iteration + ", continuing with iteration " + (iteration + 1) + ".");
+			return iteration;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private ScoreStats getScoreStats() {
+		if (this.injector.getExistingBinding(Key.get(ScoreStats.class)) == null) {
+			return null;
+		}
+		return this.injector.getInstance(ScoreStats.class);
+	}
+
+	/**
+	 * @return the bound travel time calculators, by mode, or by an empty string if the modes are not separated
+	 */
+	private Map<String, TravelTimeCalculator> getTravelTimeCalculators() {
+		Map<String, TravelTimeCalculator> calculators = new LinkedHashMap<>();
+		if (this.injector.getExistingBinding(Key.get(TravelTimeCalculator.class)) != null) {
+			calculators.put("", this.injector.getInstance(TravelTimeCalculator.class));
+		}
+		for (String mode : this.config.plansCalcRoute().getNetworkModes()) {
+			Key<TravelTimeCalculator> key = Key.get(TravelTimeCalculator.class, Names.named(mode));
+			if (this.injector.getExistingBinding(key) != null) {
+				calculators.put(mode, this.injector.getInstance(key));
+			}
+		}
+		return calculators;
+	}
+
+}
@@ -0,0 +1,447 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events written by {@link EventWriterBinary}.
+ * <p></p>
+ * Uncompressed files are memory-mapped and decoded directly from the mapped pages; compressed files and
+ * streams are decoded from a reusable buffer. Every string of the file is decoded only once, when it is added
+ * to the dictionary, and every id is created only once per dictionary entry. The core event types are constructed
+ * directly from their columns; all other events are converted to typed events (including the custom event mappers)
+ * by the same code as events read from xml.
+ */
+public final class EventsReaderBinary {
+
+	private final static Logger LOG = Logger.getLogger(EventsReaderBinary.class);
+
+	private final static int MAPPED_WINDOW_SIZE = 1 << 26;
+	private final static int STREAM_BUFFER_SIZE = 1 << 20;
+	/** long enough for any record header or value, except for strings */
+	private final static int MAX_FIXED_LENGTH = 16;
+
+	private final EventsManager events;
+	private final EventsReaderXMLv1 delegate;
+
+	private ReadableByteChannel stream = null;
+	private FileChannel file = null;
+	private long filePosition = 0;
+	private ByteBuffer buffer;
+	private boolean endOfInput = false;
+
+	private final List<String[]> schemas = new ArrayList<>();
+	private String[] dictionary = new String[1024];
+	private int dictionarySize = 0;
+	private IdCache<Person> personIds;
+	private IdCache<Link> linkIds;
+	private IdCache<Vehicle> vehicleIds;
+	private IdCache<ActivityFacility> facilityIds;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	void parse(final String filename) throws UncheckedIOException {
+		URL url = IOUtils.resolveFileOrResource(filename);
+		if ("file".equals(url.getProtocol()) && filename.toLowerCase(Locale.ROOT).endsWith(".bin")) {
+			try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+				LOG.info("memory-mapping binary events file " + filename);
+				this.file = channel;
+				this.filePosition = 0;
+				this.buffer = ByteBuffer.allocate(0);
+				parse();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (URISyntaxException e) {
+				throw new RuntimeException(e);
+			} finally {
+				this.file = null;
+			}
+		} else {
+			parse(url);
+		}
+	}
+
+	void parse(final URL url) throws UncheckedIOException {
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	void parse(final InputStream stream) throws UncheckedIOException {
+		this.stream = Channels.newChannel(stream);
+		this.buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+		this.buffer.flip();
+		try {
+			parse();
+		} finally {
+			this.stream = null;
+		}
+	}
+
+	private void parse() {
+		this.endOfInput = false;
+		this.schemas.clear();
+		this.dictionarySize = 0;
+		this.personIds = new IdCache<>(Person.class);
+		this.linkIds = new IdCache<>(Link.class);
+		this.vehicleIds = new IdCache<>(Vehicle.class);
+		this.facilityIds = new IdCache<>(ActivityFacility.class);
+
+		ensure(EventWriterBinary.MAGIC.length + 5);
+		byte[] magic = new byte[EventWriterBinary.MAGIC.length];
+		this.buffer.get(magic);
+		if (!Arrays.equals(magic, EventWriterBinary.MAGIC)) {
+			throw new IllegalArgumentException("Not a binary MATSim events file.");
+		}
+		int version = readVarInt();
+		if (version != EventWriterBinary.VERSION) {
+			throw new IllegalArgumentException("Unsupported version of binary events file: " + version);
+		}
+
+		SchemaEventParser schemaEvents = new SchemaEventParser();
+		double time = 0.0;
+		while (ensure(MAX_FIXED_LENGTH)) {
+			int record = readVarInt();
+			if (record == EventWriterBinary.RECORD_SCHEMA) {
+				readSchema();
+				continue;
+			}
+
+			byte timeTag = this.buffer.get();
+			if (timeTag == EventWriterBinary.TIME_DELTA) {
+				long delta = readVarLong();
+				time = (long) time + ((delta >>> 1) ^ -(delta & 1));
+			} else if (timeTag == EventWriterBinary.TIME_DOUBLE) {
+				time = this.buffer.getDouble();
+			}
+
+			// the arguments are evaluated from left to right, i.e. in the order in which the columns were written
+			switch (record) {
+				case EventWriterBinary.RECORD_LINK_ENTER:
+					this.events.processEvent(new LinkEnterEvent(time, readId(this.vehicleIds), readId(this.linkIds)));
+					break;
+				case EventWriterBinary.RECORD_LINK_LEAVE:
+					this.events.processEvent(new LinkLeaveEvent(time, readId(this.vehicleIds), readId(this.linkIds)));
+					break;
+				case EventWriterBinary.RECORD_VEHICLE_ENTERS_TRAFFIC:
+					this.events.processEvent(new VehicleEntersTrafficEvent(time, readId(this.personIds), readId(this.linkIds),
+							readId(this.vehicleIds), readStringColumn(), readDouble()));
+					break;
+				case EventWriterBinary.RECORD_VEHICLE_LEAVES_TRAFFIC:
+					this.events.processEvent(new VehicleLeavesTrafficEvent(time, readId(this.personIds), readId(this.linkIds),
+							readId(this.vehicleIds), readStringColumn(), readDouble()));
+					break;
+				case EventWriterBinary.RECORD_PERSON_DEPARTURE:
+					this.events.processEvent(new PersonDepartureEvent(time, readId(this.personIds), readId(this.linkIds), readStringColumn()));
+					break;
+				case EventWriterBinary.RECORD_PERSON_ARRIVAL:
+					this.events.processEvent(new PersonArrivalEvent(time, readId(this.personIds), readId(this.linkIds), readStringColumn()));
+					break;
+				case EventWriterBinary.RECORD_PERSON_ENTERS_VEHICLE:
+					this.events.processEvent(new PersonEntersVehicleEvent(time, readId(this.personIds), readId(this.vehicleIds)));
+					break;
+				case EventWriterBinary.RECORD_PERSON_LEAVES_VEHICLE:
+					this.events.processEvent(new PersonLeavesVehicleEvent(time, readId(this.personIds), readId(this.vehicleIds)));
+					break;
+				case EventWriterBinary.RECORD_ACTIVITY_START:
+					this.events.processEvent(new ActivityStartEvent(time, readId(this.personIds), readId(this.linkIds),
+							readId(this.facilityIds), readStringColumn(), readCoord()));
+					break;
+				case EventWriterBinary.RECORD_ACTIVITY_END:
+					this.events.processEvent(new ActivityEndEvent(time, readId(this.personIds), readId(this.linkIds),
+							readId(this.facilityIds), readStringColumn()));
+					break;
+				case EventWriterBinary.RECORD_PERSON_MONEY:
+					this.events.processEvent(new PersonMoneyEvent(time, readId(this.personIds), readDouble(),
+							readStringColumn(), readStringColumn()));
+					break;
+				default:
+					if (record < EventWriterBinary.RECORD_FIRST_SCHEMA) {
+						throw new IllegalArgumentException("Unknown record type " + record + " in binary events file.");
+					}
+					schemaEvents.parse(this.schemas.get(record - EventWriterBinary.RECORD_FIRST_SCHEMA), time);
+			}
+		}
+	}
+
+	private void readSchema() {
+		String eventType = readString();
+		ensure(MAX_FIXED_LENGTH);
+		String[] schema = new String[readVarInt() + 1];
+		schema[0] = eventType;
+		for (int i = 1; i < schema.length; i++) {
+			schema[i] = readString();
+		}
+		this.schemas.add(schema);
+	}
+
+	private <T> Id<T> readId(final IdCache<T> cache) {
+		ensure(MAX_FIXED_LENGTH);
+		int code = readVarInt();
+		if (code >= EventWriterBinary.STRING_FIRST_REFERENCE) {
+			return cache.get(code - EventWriterBinary.STRING_FIRST_REFERENCE, this.dictionary);
+		}
+		String value = readNewString(code);
+		if (code == EventWriterBinary.STRING_NEW) {
+			return cache.get(this.dictionarySize - 1, this.dictionary);
+		}
+		return value == null ? null : Id.create(value, cache.type);
+	}
+
+	private String readStringColumn() {
+		ensure(MAX_FIXED_LENGTH);
+		int code = readVarInt();
+		if (code >= EventWriterBinary.STRING_FIRST_REFERENCE) {
+			return this.dictionary[code - EventWriterBinary.STRING_FIRST_REFERENCE];
+		}
+		return readNewString(code);
+	}
+
+	private String readNewString(final int code) {
+		switch (code) {
+			case EventWriterBinary.STRING_NULL:
+				return null;
+			case EventWriterBinary.STRING_NEW:
+				String value = readString();
+				if (this.dictionarySize == this.dictionary.length) {
+					this.dictionary = Arrays.copyOf(this.dictionary, this.dictionary.length * 2);
+				}
+				this.dictionary[this.dictionarySize++] = value;
+				return value;
+			case EventWriterBinary.STRING_INLINE:
+				return readString();
+			default:
+				throw new IllegalArgumentException("Unknown string code " + code + " in binary events file.");
+		}
+	}
+
+	private double readDouble() {
+		ensure(MAX_FIXED_LENGTH);
+		return this.buffer.getDouble();
+	}
+
+	private Coord readCoord() {
+		ensure(MAX_FIXED_LENGTH);
+		if (this.buffer.get() == 0) {
+			return null;
+		}
+		double x = readDouble();
+		return new Coord(x, readDouble());
+	}
+
+	private String readString() {
+		ensure(MAX_FIXED_LENGTH);
+		int length = readVarInt();
+		if (this.buffer.remaining() < length) {
+			ensure(length);
+			if (this.buffer.remaining() < length) {
+				throw new IllegalArgumentException("Unexpected end of binary events file.");
+			}
+		}
+		String value;
+		if (this.buffer.hasArray()) {
+			value = new String(this.buffer.array(), this.buffer.arrayOffset() + this.buffer.position(), length, StandardCharsets.UTF_8);
+			this.buffer.position(this.buffer.position() + length);
+		} else {
+			byte[] bytes = new byte[length];
+			this.buffer.get(bytes);
+			value = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return value;
+	}
+
+	private int readVarInt() {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.buffer.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	private long readVarLong() {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	/**
+	 * Makes sure that at least <code>length</code> bytes are available in the buffer, unless the end of the input
+	 * is reached.
+	 *
+	 * @return <code>false</code> if there are no more bytes at all.
+	 */
+	private boolean ensure(final int length) {
+		if (this.buffer.remaining() >= length || this.endOfInput) {
+			return this.buffer.hasRemaining();
+		}
+		try {
+			if (this.file != null) {
+				// map the next window, starting at the first unread byte
+				this.filePosition += this.buffer.position();
+				long size = Math.min(Math.max(MAPPED_WINDOW_SIZE, length), this.file.size() - this.filePosition);
+				this.buffer = this.file.map(FileChannel.MapMode.READ_ONLY, this.filePosition, size);
+				this.endOfInput = this.filePosition + size >= this.file.size();
+			} else {
+				if (length > this.buffer.capacity()) {
+					ByteBuffer larger = ByteBuffer.allocate(length);
+					larger.put(this.buffer);
+					this.buffer = larger;
+				} else {
+					this.buffer.compact();
+				}
+				while (this.buffer.position() < length && !this.endOfInput) {
+					if (this.stream.read(this.buffer) < 0) {
+						this.endOfInput = true;
+					}
+				}
+				this.buffer.flip();
+			}
+			this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return this.buffer.hasRemaining();
+	}
+
+	/**
+	 * Converts events with a schema to string attributes, which are then handled like events read from xml.
+	 */
+	private class SchemaEventParser {
+		private final AttributesImpl atts = new AttributesImpl();
+		private double lastTime = Double.NaN;
+		private String timeString = null;
+
+		void parse(final String[] schema, final double time) {
+			if (time != this.lastTime) {
+				this.timeString = Double.toString(time);
+				this.lastTime = time;
+			}
+			this.atts.clear();
+			this.atts.addAttribute(null, Event.ATTRIBUTE_TIME, Event.ATTRIBUTE_TIME, null, this.timeString);
+			this.atts.addAttribute(null, Event.ATTRIBUTE_TYPE, Event.ATTRIBUTE_TYPE, null, schema[0]);
+			for (int i = 1; i < schema.length; i++) {
+				this.atts.addAttribute(null, schema[i], schema[i], null, readValue());
+			}
+			EventsReaderBinary.this.delegate.startTag(EventsReaderXMLv1.EVENT, this.atts, null);
+		}
+
+		private String readValue() {
+			ensure(MAX_FIXED_LENGTH);
+			byte tag = EventsReaderBinary.this.buffer.get();
+			switch (tag) {
+				case EventWriterBinary.VALUE_DOUBLE:
+					return Double.toString(readDouble());
+				case EventWriterBinary.VALUE_STRING:
+					return readStringColumn();
+				default:
+					throw new IllegalArgumentException("Unknown value tag " + tag + " in binary events file.");
+			}
+		}
+	}
+
+	/**
+	 * The ids of one type, by the index of their string in the dictionary.
+	 */
+	private static class IdCache<T> {
+		final Class<T> type;
+		private Id<T>[] ids;
+
+		@SuppressWarnings("unchecked")
+		IdCache(final Class<T> type) {
+			this.type = type;
+			this.ids = new Id[1024];
+		}
+
+		Id<T> get(final int index, final String[] dictionary) {
+			if (index >= this.ids.length) {
+				this.ids = Arrays.copyOf(this.ids, Math.max(index + 1, this.ids.length * 2));
+			}
+			Id<T> id = this.ids[index];
+			if (id == null) {
+				id = Id.create(dictionary[index], this.type);
+				this.ids[index] = id;
+			}
+			return id;
+		}
+	}
+
+}
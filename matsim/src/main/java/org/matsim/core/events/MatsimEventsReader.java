@@ -26,11 +26,16 @@ import org.matsim.api.core.v01.events.GenericEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.MatsimReader;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.UncheckedIOException;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.LinkedHashMap;
 import java.util.Locale;
@@ -83,6 +88,14 @@ public final class MatsimEventsReader implements MatsimReader {
 				reader.addCustomEventMapper(entry.getKey(), entry.getValue());
 			}
 			reader.parse(filename);
+		} else if (lcFilename.endsWith(".bin") || lcFilename.endsWith(".bin.gz") || lcFilename.endsWith(".bin.zst") || lcFilename.endsWith(".bin.lz4")) {
+			createBinaryReader().parse(filename);
+		} else if (lcFilename.endsWith(".pb") || lcFilename.endsWith(".pb.gz") || lcFilename.endsWith(".pb.zst")) {
+			try (InputStream stream = IOUtils.getInputStream(IOUtils.resolveFileOrResource(filename))) {
+				readStream(stream, ControlerConfigGroup.EventsFileFormat.pb);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -101,7 +114,8 @@ public final class MatsimEventsReader implements MatsimReader {
 				new XmlEventsReader(this.events, this.customEventMappers).parse(stream);
 				break;
 			case pb:
-				throw new UnsupportedOperationException("PB (Protobuf) is currently not supported to read from a stream");
+				readProtobufStream(stream);
+				break;
 			case json:
 				EventsReaderJson reader = new EventsReaderJson(this.events);
 				for (Map.Entry<String, CustomEventMapper> entry : this.customEventMappers.entrySet()) {
@@ -109,6 +123,9 @@ public final class MatsimEventsReader implements MatsimReader {
 				}
 				reader.parse(stream);
 				break;
+			case binary:
+				createBinaryReader().parse(stream);
+				break;
 		}
 	}
 
@@ -122,7 +139,43 @@ public final class MatsimEventsReader implements MatsimReader {
 				reader.addCustomEventMapper(entry.getKey(), entry.getValue());
 			}
 			reader.parse(url);
+		} else if (url.getFile().contains(".bin")) {
+			createBinaryReader().parse(url);
+		} else if (url.getFile().contains(".pb")) {
+			try (InputStream stream = IOUtils.getInputStream(url)) {
+				readStream(stream, ControlerConfigGroup.EventsFileFormat.pb);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private void readProtobufStream(final InputStream stream) {
+		// The pb dependency is optional at the moment so we search it first
+		try {
+			Class<?> readerClass = ClassLoader.getSystemClassLoader().loadClass("org.matsim.contrib.protobuf.EventReaderPB");
+			Object reader = readerClass.getConstructor(EventsManager.class).newInstance(this.events);
+			Method addMapper = readerClass.getMethod("addCustomEventMapper", String.class, CustomEventMapper.class);
+			for (Map.Entry<String, CustomEventMapper> entry : this.customEventMappers.entrySet()) {
+				addMapper.invoke(reader, entry.getKey(), entry.getValue());
+			}
+			readerClass.getMethod("parse", InputStream.class).invoke(reader, stream);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Error using the PBReader. Please make sure protobuf contrib on the classpath.", e);
+		}
+	}
+
+	private EventsReaderBinary createBinaryReader() {
+		EventsReaderBinary reader = new EventsReaderBinary(this.events);
+		for (Map.Entry<String, CustomEventMapper> entry : this.customEventMappers.entrySet()) {
+			reader.addCustomEventMapper(entry.getKey(), entry.getValue());
 		}
+		return reader;
 	}
 
 	private static class XmlEventsReader extends MatsimXmlParser {
@@ -0,0 +1,417 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * An EventsManager that hands events to its processing threads through a single-producer/multi-consumer
+ * ring buffer, similar to the LMAX disruptor.
+ * <p></p>
+ * Events are collected in batches on the producing thread and a whole batch is published into one slot of
+ * the ring by a single volatile write. Every processing thread reads all slots in order and passes the
+ * events to its own shard of event handlers. Handlers are assigned to shards when they are added and keep
+ * their shard over all iterations, so each handler is only ever called by one thread and can be called
+ * without any synchronization. There is no distributor thread and no locking between producer and consumers.
+ * <p></p>
+ * Events have to be passed to this manager by one thread at a time (the QSim takes care of this when it
+ * runs multi-threaded). Events created by event handlers on the processing threads are collected separately
+ * and published by the producing thread after the next sim step. If the manager synchronizes on sim steps, these
+ * are still published in the sim step they were created in. Otherwise the processing threads may lag behind the
+ * producer, and such events are published behind the events of the sim step that is current when they arrive.
+ * <p></p>
+ * The current queue depth and the lag of the slowest processing thread are available via
+ * {@link #getQueueDepth()} and {@link #getLag()}, and summarized in the log after each iteration.
+ */
+public final class RingBufferEventsManager implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferEventsManager.class);
+
+	private final static int SPIN_TRIES = 100;
+	private final static int YIELD_TRIES = 200;
+	private final static long PARK_NANOS = 20_000;
+
+	private final boolean syncOnSimSteps;
+	private final int batchSize;
+	private final EventArray[] ring;
+	private final int mask;
+	private final EventsManagerImpl[] shards;
+	private int handlerCount = 0;
+
+	/** sequence of the last published slot, written only by the producer */
+	private final AtomicLong publishedSequence = new AtomicLong(-1);
+	private final Queue<Event> eventsFromHandlers = new ConcurrentLinkedQueue<>();
+	private final AtomicReference<Throwable> hadException = new AtomicReference<>();
+
+	private Consumer[] consumers = new Consumer[0];
+	private EventArray batch;
+	private boolean parallelMode = false;
+
+	// statistics, only updated by the producer; volatile if they may be read by other threads
+	private volatile long publishedEvents = 0;
+	private volatile double lastPublishedTime = Double.NEGATIVE_INFINITY;
+	private long publishedBatches = 0;
+	private volatile long maxQueueDepth = 0;
+	private long producerWaitNanos = 0;
+
+	@Inject
+	RingBufferEventsManager(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1,
+				config.getSynchronizeOnSimSteps() != null ? config.getSynchronizeOnSimSteps() : true,
+				config.getEventsQueueSize());
+	}
+
+	public RingBufferEventsManager(final int numOfThreads) {
+		this(numOfThreads, true, 65536);
+	}
+
+	/**
+	 * @param numOfThreads number of event processing threads, i.e. number of handler shards
+	 * @param syncOnSimSteps if <code>true</code>, all events of a sim step are processed before {@link #afterSimStep(double)} returns
+	 * @param eventsQueueSize approximate maximum number of events that may be waiting for processing
+	 */
+	public RingBufferEventsManager(final int numOfThreads, final boolean syncOnSimSteps, final int eventsQueueSize) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("number of threads must be at least 1, but is " + numOfThreads);
+		}
+		this.syncOnSimSteps = syncOnSimSteps;
+		this.batchSize = syncOnSimSteps ? 512 : 32768;
+		int slots = Integer.highestOneBit(Math.max(2, eventsQueueSize / this.batchSize) - 1) << 1;
+		this.ring = new EventArray[slots];
+		this.mask = slots - 1;
+		this.shards = new EventsManagerImpl[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) {
+			this.shards[i] = new EventsManagerImpl(true);
+		}
+		this.batch = new EventArray(this.batchSize);
+		log.info("number of threads=" + numOfThreads + ", ring size=" + slots + " batches of " + this.batchSize + " events");
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (!this.parallelMode) {
+			for (EventsManagerImpl shard : this.shards) {
+				shard.processEvent(event);
+			}
+			return;
+		}
+		Thread thread = Thread.currentThread();
+		if (thread instanceof Consumer && ((Consumer) thread).belongsTo(this)) {
+			// created by an event handler, will be published by the producer
+			this.eventsFromHandlers.add(event);
+			return;
+		}
+		this.batch.add(event);
+		if (this.batch.size() >= this.batchSize) {
+			publish();
+		}
+	}
+
+	/**
+	 * Publishes a whole array of events at once, without copying it. The array must not be modified afterwards.
+	 */
+	public void processEvents(final EventArray events) {
+		if (!this.parallelMode) {
+			for (int i = 0; i < events.size(); i++) {
+				processEvent(events.get(i));
+			}
+			return;
+		}
+		publish();
+		publishSlot(events);
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		this.shards[this.handlerCount % this.shards.length].addHandler(handler);
+		this.handlerCount++;
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		for (EventsManagerImpl shard : this.shards) {
+			shard.removeHandler(handler);
+		}
+	}
+
+	@Override
+	public void resetHandlers(final int iteration) {
+		for (EventsManagerImpl shard : this.shards) {
+			shard.resetHandlers(iteration);
+		}
+	}
+
+	@Override
+	public void initProcessing() {
+		for (EventsManagerImpl shard : this.shards) {
+			shard.initProcessing();
+		}
+		this.hadException.set(null);
+		this.publishedSequence.set(-1);
+		this.publishedEvents = 0;
+		this.lastPublishedTime = Double.NEGATIVE_INFINITY;
+		this.publishedBatches = 0;
+		this.maxQueueDepth = 0;
+		this.producerWaitNanos = 0;
+
+		this.consumers = new Consumer[this.shards.length];
+		for (int i = 0; i < this.shards.length; i++) {
+			Consumer consumer = new Consumer(this.shards[i]);
+			consumer.setName(Consumer.class.getSimpleName() + i);
+			consumer.setDaemon(true);
+			this.consumers[i] = consumer;
+		}
+		this.parallelMode = true;
+		for (Consumer consumer : this.consumers) {
+			consumer.start();
+		}
+	}
+
+	@Override
+	public void afterSimStep(final double time) {
+		if (this.syncOnSimSteps) {
+			flush();
+		} else {
+			addEventsFromHandlers();
+		}
+		checkException();
+	}
+
+	/*
+	 * In some chases Events are created after this method has been called. To ensure that they are processed in
+	 * real time, we process them on the calling thread afterwards.
+	 */
+	@Override
+	public synchronized void finishProcessing() {
+		if (this.parallelMode) {
+			flush();
+			this.parallelMode = false;
+			for (Consumer consumer : this.consumers) {
+				consumer.running = false;
+				LockSupport.unpark(consumer);
+			}
+			try {
+				for (Consumer consumer : this.consumers) {
+					consumer.join();
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException("Exception while waiting on join... " + e.getMessage(), e);
+			}
+			log.info("published " + this.publishedEvents + " events in " + this.publishedBatches + " batches; max. queue depth: "
+					+ this.maxQueueDepth + " events; producer waited " + this.producerWaitNanos / 1_000_000 + " ms for free slots.");
+			for (Consumer consumer : this.consumers) {
+				log.info(consumer.getName() + " processed " + consumer.processedEvents + " events, idle for " + consumer.idleNanos / 1_000_000 + " ms.");
+			}
+		}
+		for (EventsManagerImpl shard : this.shards) {
+			shard.finishProcessing();
+		}
+		checkException();
+	}
+
+	/**
+	 * Publishes all pending events and waits until all of them, including those created by event handlers
+	 * in the meantime, are processed.
+	 */
+	public void flush() {
+		if (!this.parallelMode) {
+			return;
+		}
+		do {
+			addEventsFromHandlers();
+			publish();
+			long sequence = this.publishedSequence.get();
+			int idleCounter = 0;
+			while (getMinimumSequence() < sequence && this.hadException.get() == null) {
+				idleCounter = idle(idleCounter);
+			}
+		} while (!this.eventsFromHandlers.isEmpty() && this.hadException.get() == null);
+	}
+
+	/**
+	 * @return the number of events published to the ring that have not yet been processed by all threads.
+	 */
+	public long getQueueDepth() {
+		long depth = 0;
+		for (Consumer consumer : this.consumers) {
+			depth = Math.max(depth, this.publishedEvents - consumer.processedEvents);
+		}
+		return depth;
+	}
+
+	/**
+	 * @return the maximum queue depth observed during the current or last iteration.
+	 */
+	public long getMaxQueueDepth() {
+		return this.maxQueueDepth;
+	}
+
+	/**
+	 * @return the difference in simulation time between the last published event and the last event processed by the
+	 * slowest thread, in seconds.
+	 */
+	public double getLag() {
+		double lag = 0;
+		for (Consumer consumer : this.consumers) {
+			if (consumer.processedEvents < this.publishedEvents) {
+				lag = Math.max(lag, this.lastPublishedTime - consumer.lastProcessedTime);
+			}
+		}
+		return lag;
+	}
+
+	private void addEventsFromHandlers() {
+		Event event;
+		while ((event = this.eventsFromHandlers.poll()) != null) {
+			this.batch.add(event);
+		}
+	}
+
+	private void publish() {
+		if (this.batch.size() > 0) {
+			EventArray events = this.batch;
+			this.batch = new EventArray(this.batchSize);
+			publishSlot(events);
+		}
+	}
+
+	private void publishSlot(final EventArray events) {
+		if (events.size() == 0) {
+			return;
+		}
+		long sequence = this.publishedSequence.get() + 1;
+		long wrapPoint = sequence - this.ring.length;
+		if (getMinimumSequence() < wrapPoint) {
+			long start = System.nanoTime();
+			int idleCounter = 0;
+			while (getMinimumSequence() < wrapPoint) {
+				checkException();
+				idleCounter = idle(idleCounter);
+			}
+			this.producerWaitNanos += System.nanoTime() - start;
+		}
+		this.ring[(int) sequence & this.mask] = events;
+		this.publishedSequence.set(sequence);
+
+		this.publishedBatches++;
+		this.publishedEvents += events.size();
+		this.lastPublishedTime = events.get(events.size() - 1).getTime();
+		this.maxQueueDepth = Math.max(this.maxQueueDepth, getQueueDepth());
+	}
+
+	private long getMinimumSequence() {
+		long min = Long.MAX_VALUE;
+		for (Consumer consumer : this.consumers) {
+			min = Math.min(min, consumer.sequence.get());
+		}
+		return min;
+	}
+
+	private void checkException() {
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	private static int idle(final int counter) {
+		if (counter < SPIN_TRIES) {
+			Thread.onSpinWait();
+		} else if (counter < YIELD_TRIES) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		return counter + 1;
+	}
+
+	private class Consumer extends Thread {
+
+		private final EventsManager eventsManager;
+		/** sequence of the last processed slot */
+		private final AtomicLong sequence = new AtomicLong(-1);
+		private volatile boolean running = true;
+		private volatile long processedEvents = 0;
+		private volatile double lastProcessedTime = Double.NEGATIVE_INFINITY;
+		private long idleNanos = 0;
+
+		Consumer(EventsManager eventsManager) {
+			this.eventsManager = eventsManager;
+		}
+
+		boolean belongsTo(RingBufferEventsManager manager) {
+			return RingBufferEventsManager.this == manager;
+		}
+
+		@Override
+		public void run() {
+			try {
+				long next = this.sequence.get() + 1;
+				int idleCounter = 0;
+				long idleStart = 0;
+				while (true) {
+					long available = publishedSequence.get();
+					if (available < next) {
+						if (!this.running) {
+							break;
+						}
+						if (idleCounter == 0) {
+							idleStart = System.nanoTime();
+						}
+						idleCounter = idle(idleCounter);
+						continue;
+					}
+					if (idleCounter > 0) {
+						this.idleNanos += System.nanoTime() - idleStart;
+						idleCounter = 0;
+					}
+					for (; next <= available; next++) {
+						EventArray events = ring[(int) next & mask];
+						for (int i = 0; i < events.size(); i++) {
+							this.eventsManager.processEvent(events.get(i));
+						}
+						this.processedEvents += events.size();
+						this.lastProcessedTime = events.get(events.size() - 1).getTime();
+						this.sequence.lazySet(next);
+					}
+				}
+			} catch (Throwable e) {
+				log.error("Thread " + getName() + " died with exception while handling events.", e);
+				hadException.compareAndSet(null, e);
+				// do not block the producer
+				this.sequence.set(Long.MAX_VALUE);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DoubleFormatter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+/**
+ * Formats doubles into a char buffer, producing exactly the same text as {@link Double#toString(double)}.
+ * <p></p>
+ * Most numbers in events (times, relative positions) are integral, these are formatted without creating any
+ * objects. All other values fall back to {@link Double#toString(double)}.
+ */
+final class DoubleFormatter {
+
+	/** large enough for any result of {@link Double#toString(double)} */
+	static final int MAX_LENGTH = 32;
+
+	/** {@link Double#toString(double)} uses computerized scientific notation from this value on */
+	private static final double PLAIN_LIMIT = 1e7;
+
+	private DoubleFormatter() {
+	}
+
+	/**
+	 * Writes the textual representation of the value into the buffer, which must provide at least
+	 * {@link #MAX_LENGTH} chars starting at <code>offset</code>.
+	 *
+	 * @return the position after the last written char
+	 */
+	static int format(final double value, final char[] buffer, int offset) {
+		long integral = (long) value;
+		if (integral != value || value >= PLAIN_LIMIT || value <= -PLAIN_LIMIT || (integral == 0 && 1.0 / value < 0)) {
+			// fractional, large, infinite, NaN or negative zero
+			String str = Double.toString(value);
+			str.getChars(0, str.length(), buffer, offset);
+			return offset + str.length();
+		}
+		if (integral < 0) {
+			buffer[offset++] = '-';
+			integral = -integral;
+		}
+		int digits = 1;
+		for (long i = integral; i >= 10; i /= 10) {
+			digits++;
+		}
+		for (int pos = offset + digits - 1; pos >= offset; pos--) {
+			buffer[pos] = (char) ('0' + integral % 10);
+			integral /= 10;
+		}
+		offset += digits;
+		buffer[offset++] = '.';
+		buffer[offset++] = '0';
+		return offset;
+	}
+
+}
@@ -0,0 +1,517 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in a compact binary format that can be read back much faster than xml,
+ * see {@link org.matsim.core.events.EventsReaderBinary}.
+ * <p></p>
+ * The format is a stream of records, each starting with a variable-length integer:
+ * <ul>
+ * <li><code>0</code>: a schema definition, consisting of the event type and the ordered names of its attributes
+ * (without time and type). Each distinct schema is defined once, before its first use, and gets the next free
+ * schema index.</li>
+ * <li><code>1</code> to <code>11</code>: one of the frequent core event types (see the <code>RECORD_</code>
+ * constants), consisting of the time and the fields of the event in the order of its constructor. Ids, modes and
+ * activity types are string columns, numbers are stored as 8 byte doubles.</li>
+ * <li><code>schema index + 16</code>: any other event, consisting of the time and one tagged value per attribute of
+ * the schema, as passed to {@link Event#writeAttributes(Event.AttributeWriter)}.</li>
+ * </ul>
+ * Times are delta-encoded to the previous event. String columns are a single varint: <code>0</code> for
+ * <code>null</code>, a reference into a string dictionary that is built up while writing, or a new string that is
+ * either added to the dictionary or, once the dictionary is full, written inline. Integers are written as unsigned
+ * LEB128 varints, strings as varint length followed by the UTF-8 bytes.
+ * <p></p>
+ * Ids are dictionary-encoded by their string instead of {@link Id#index()}, as the index depends on the order in
+ * which ids are created in a JVM and is thus not stable across runs. The index is only used to look up the
+ * dictionary entry of an id without hashing its string.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final byte[] MAGIC = {'M', 'A', 'T', 'S', 'i', 'm', 'E', 'v'};
+	public static final int VERSION = 2;
+
+	public static final int RECORD_SCHEMA = 0;
+	public static final int RECORD_LINK_ENTER = 1;
+	public static final int RECORD_LINK_LEAVE = 2;
+	public static final int RECORD_VEHICLE_ENTERS_TRAFFIC = 3;
+	public static final int RECORD_VEHICLE_LEAVES_TRAFFIC = 4;
+	public static final int RECORD_PERSON_DEPARTURE = 5;
+	public static final int RECORD_PERSON_ARRIVAL = 6;
+	public static final int RECORD_PERSON_ENTERS_VEHICLE = 7;
+	public static final int RECORD_PERSON_LEAVES_VEHICLE = 8;
+	public static final int RECORD_ACTIVITY_START = 9;
+	public static final int RECORD_ACTIVITY_END = 10;
+	public static final int RECORD_PERSON_MONEY = 11;
+	/** events with a schema are written as record <code>RECORD_FIRST_SCHEMA + schema index</code> */
+	public static final int RECORD_FIRST_SCHEMA = 16;
+
+	public static final byte TIME_SAME = 0;
+	public static final byte TIME_DELTA = 1;
+	public static final byte TIME_DOUBLE = 2;
+
+	public static final int STRING_NULL = 0;
+	public static final int STRING_NEW = 1;
+	public static final int STRING_INLINE = 2;
+	/** references to the dictionary are written as <code>STRING_FIRST_REFERENCE + dictionary index</code> */
+	public static final int STRING_FIRST_REFERENCE = 3;
+
+	public static final byte VALUE_DOUBLE = 0;
+	public static final byte VALUE_STRING = 1;
+
+	/** maximum number of strings in the dictionary, further strings are written inline */
+	public static final int MAX_DICTIONARY_SIZE = 1 << 24;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final OutputStream out;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+
+	private final Map<String, List<Schema>> schemasByType = new HashMap<>();
+	private int schemaCount = 0;
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final IdReferences personIds = new IdReferences();
+	private final IdReferences linkIds = new IdReferences();
+	private final IdReferences vehicleIds = new IdReferences();
+	private final IdReferences facilityIds = new IdReferences();
+	private double lastTime = 0.0;
+
+	private final SchemaAttributeWriter attributeWriter = new SchemaAttributeWriter();
+
+	public EventWriterBinary(final String filename) {
+		this(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false));
+	}
+
+	public EventWriterBinary(final OutputStream stream) {
+		this.out = stream;
+		writeBytes(MAGIC, 0, MAGIC.length);
+		writeVarInt(VERSION);
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		// compare the exact class, subclasses may have additional attributes
+		Class<? extends Event> type = event.getClass();
+		if (type == LinkEnterEvent.class) {
+			LinkEnterEvent e = (LinkEnterEvent) event;
+			writeHeader(RECORD_LINK_ENTER, e.getTime());
+			writeId(e.getVehicleId(), this.vehicleIds);
+			writeId(e.getLinkId(), this.linkIds);
+		} else if (type == LinkLeaveEvent.class) {
+			LinkLeaveEvent e = (LinkLeaveEvent) event;
+			writeHeader(RECORD_LINK_LEAVE, e.getTime());
+			writeId(e.getVehicleId(), this.vehicleIds);
+			writeId(e.getLinkId(), this.linkIds);
+		} else if (type == VehicleEntersTrafficEvent.class) {
+			VehicleEntersTrafficEvent e = (VehicleEntersTrafficEvent) event;
+			writeHeader(RECORD_VEHICLE_ENTERS_TRAFFIC, e.getTime());
+			writeId(e.getPersonId(), this.personIds);
+			writeId(e.getLinkId(), this.linkIds);
+			writeId(e.getVehicleId(), this.vehicleIds);
+			writeStringColumn(e.getNetworkMode());
+			writeDouble(e.getRelativePositionOnLink());
+		} else if (type == VehicleLeavesTrafficEvent.class) {
+			VehicleLeavesTrafficEvent e = (VehicleLeavesTrafficEvent) event;
+			writeHeader(RECORD_VEHICLE_LEAVES_TRAFFIC, e.getTime());
+			writeId(e.getPersonId(), this.personIds);
+			writeId(e.getLinkId(), this.linkIds);
+			writeId(e.getVehicleId(), this.vehicleIds);
+			writeStringColumn(e.getNetworkMode());
+			writeDouble(e.getRelativePositionOnLink());
+		} else if (type == PersonDepartureEvent.class) {
+			PersonDepartureEvent e = (PersonDepartureEvent) event;
+			writeHeader(RECORD_PERSON_DEPARTURE, e.getTime());
+			writeId(e.getPersonId(), this.personIds);
+			writeId(e.getLinkId(), this.linkIds);
+			writeStringColumn(e.getLegMode());
+		} else if (type == PersonArrivalEvent.class) {
+			PersonArrivalEvent e = (PersonArrivalEvent) event;
+			writeHeader(RECORD_PERSON_ARRIVAL, e.getTime());
+			writeId(e.getPersonId(), this.personIds);
+			writeId(e.getLinkId(), this.linkIds);
+			writeStringColumn(e.getLegMode());
+		} else if (type == PersonEntersVehicleEvent.class) {
+			PersonEntersVehicleEvent e = (PersonEntersVehicleEvent) event;
+			writeHeader(RECORD_PERSON_ENTERS_VEHICLE, e.getTime());
+			writeId(e.getPersonId(), this.personIds);
+			writeId(e.getVehicleId(), this.vehicleIds);
+		} else if (type == PersonLeavesVehicleEvent.class) {
+			PersonLeavesVehicleEvent e = (PersonLeavesVehicleEvent) event;
+			writeHeader(RECORD_PERSON_LEAVES_VEHICLE, e.getTime());
+			writeId(e.getPersonId(), this.personIds);
+			writeId(e.getVehicleId(), this.vehicleIds);
+		} else if (type == ActivityStartEvent.class) {
+			ActivityStartEvent e = (ActivityStartEvent) event;
+			writeHeader(RECORD_ACTIVITY_START, e.getTime());
+			writeId(e.getPersonId(), this.personIds);
+			writeId(e.getLinkId(), this.linkIds);
+			writeId(e.getFacilityId(), this.facilityIds);
+			writeStringColumn(e.getActType());
+			Coord coord = e.getCoord();
+			if (coord == null) {
+				writeByte((byte) 0);
+			} else {
+				writeByte((byte) 1);
+				writeDouble(coord.getX());
+				writeDouble(coord.getY());
+			}
+		} else if (type == ActivityEndEvent.class) {
+			ActivityEndEvent e = (ActivityEndEvent) event;
+			writeHeader(RECORD_ACTIVITY_END, e.getTime());
+			writeId(e.getPersonId(), this.personIds);
+			writeId(e.getLinkId(), this.linkIds);
+			writeId(e.getFacilityId(), this.facilityIds);
+			writeStringColumn(e.getActType());
+		} else if (type == PersonMoneyEvent.class) {
+			PersonMoneyEvent e = (PersonMoneyEvent) event;
+			writeHeader(RECORD_PERSON_MONEY, e.getTime());
+			writeId(e.getPersonId(), this.personIds);
+			writeDouble(e.getAmount());
+			writeStringColumn(e.getPurpose());
+			writeStringColumn(e.getTransactionPartner());
+		} else {
+			writeSchemaEvent(event);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			flushBuffer();
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	private void writeSchemaEvent(final Event event) {
+		SchemaAttributeWriter attributes = this.attributeWriter;
+		attributes.count = 0;
+		event.writeAttributes(attributes);
+		Schema schema = getSchema(event.getEventType(), attributes.keys, attributes.count);
+		writeHeader(RECORD_FIRST_SCHEMA + schema.index, event.getTime());
+		for (int i = 0; i < attributes.count; i++) {
+			String value = attributes.stringValues[i];
+			if (attributes.numeric[i]) {
+				writeByte(VALUE_DOUBLE);
+				writeDouble(attributes.doubleValues[i]);
+			} else if (value != null && isExactDouble(value)) {
+				// attributes of events that do not implement writeAttributes() are only available as strings
+				writeByte(VALUE_DOUBLE);
+				writeDouble(Double.parseDouble(value));
+			} else {
+				writeByte(VALUE_STRING);
+				writeStringColumn(value);
+			}
+		}
+	}
+
+	private Schema getSchema(final String eventType, final String[] keys, final int count) {
+		List<Schema> schemas = this.schemasByType.computeIfAbsent(eventType, t -> new ArrayList<>(2));
+		for (Schema schema : schemas) {
+			if (schema.matches(keys, count)) {
+				return schema;
+			}
+		}
+		String[] schemaKeys = new String[count];
+		System.arraycopy(keys, 0, schemaKeys, 0, count);
+		Schema schema = new Schema(this.schemaCount++, schemaKeys);
+		schemas.add(schema);
+
+		writeVarInt(RECORD_SCHEMA);
+		writeString(eventType);
+		writeVarInt(count);
+		for (String key : schemaKeys) {
+			writeString(key);
+		}
+		return schema;
+	}
+
+	private void writeHeader(final int record, final double time) {
+		writeVarInt(record);
+		if (time == this.lastTime) {
+			writeByte(TIME_SAME);
+		} else if (time == Math.rint(time) && this.lastTime == Math.rint(this.lastTime)
+				&& Math.abs(time) < Long.MAX_VALUE / 2 && Math.abs(this.lastTime) < Long.MAX_VALUE / 2) {
+			writeByte(TIME_DELTA);
+			long delta = (long) time - (long) this.lastTime;
+			writeVarLong((delta << 1) ^ (delta >> 63));
+		} else {
+			writeByte(TIME_DOUBLE);
+			writeDouble(time);
+		}
+		this.lastTime = time;
+	}
+
+	private void writeId(final Id<?> id, final IdReferences references) {
+		if (id == null) {
+			writeVarInt(STRING_NULL);
+			return;
+		}
+		int index = id.index();
+		if (index < references.ids.length && references.ids[index] == id) {
+			writeVarInt(references.codes[index]);
+			return;
+		}
+		int code = writeStringColumn(id.toString());
+		if (code >= STRING_FIRST_REFERENCE) {
+			references.put(index, id, code);
+		}
+	}
+
+	/**
+	 * @return the code with which the value can be referenced from now on, or a smaller value if it was written inline
+	 */
+	private int writeStringColumn(final String value) {
+		if (value == null) {
+			writeVarInt(STRING_NULL);
+			return STRING_NULL;
+		}
+		Integer index = this.dictionary.get(value);
+		if (index != null) {
+			int code = STRING_FIRST_REFERENCE + index;
+			writeVarInt(code);
+			return code;
+		}
+		if (this.dictionary.size() < MAX_DICTIONARY_SIZE) {
+			int code = STRING_FIRST_REFERENCE + this.dictionary.size();
+			this.dictionary.put(value, this.dictionary.size());
+			writeVarInt(STRING_NEW);
+			writeString(value);
+			return code;
+		}
+		writeVarInt(STRING_INLINE);
+		writeString(value);
+		return STRING_INLINE;
+	}
+
+	/**
+	 * @return <code>true</code> if the value looks like a floating point number and
+	 * {@link Double#toString(double)} restores exactly the same string.
+	 */
+	private static boolean isExactDouble(final String value) {
+		int len = value.length();
+		if (len == 0 || len > 24) {
+			return false;
+		}
+		boolean hasDot = false;
+		for (int i = 0; i < len; i++) {
+			char ch = value.charAt(i);
+			if (ch == '.') {
+				hasDot = true;
+			} else if (!((ch >= '0' && ch <= '9') || ch == '-' || ch == 'E')) {
+				return false;
+			}
+		}
+		if (!hasDot) {
+			return false;
+		}
+		try {
+			return Double.toString(Double.parseDouble(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private void writeString(final String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length);
+		writeBytes(bytes, 0, bytes.length);
+	}
+
+	private void writeVarInt(int value) {
+		ensureCapacity(5);
+		while ((value & ~0x7F) != 0) {
+			this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		this.buffer[this.position++] = (byte) value;
+	}
+
+	private void writeVarLong(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		this.buffer[this.position++] = (byte) value;
+	}
+
+	private void writeDouble(final double value) {
+		ensureCapacity(8);
+		long bits = Double.doubleToRawLongBits(value);
+		for (int i = 0; i < 8; i++) {
+			this.buffer[this.position++] = (byte) (bits >>> (8 * i));
+		}
+	}
+
+	private void writeByte(final byte value) {
+		ensureCapacity(1);
+		this.buffer[this.position++] = value;
+	}
+
+	private void writeBytes(final byte[] bytes, final int offset, final int length) {
+		if (length > BUFFER_SIZE) {
+			flushBuffer();
+			try {
+				this.out.write(bytes, offset, length);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return;
+		}
+		ensureCapacity(length);
+		System.arraycopy(bytes, offset, this.buffer, this.position, length);
+		this.position += length;
+	}
+
+	private void ensureCapacity(final int length) {
+		if (this.position + length > BUFFER_SIZE) {
+			flushBuffer();
+		}
+	}
+
+	private void flushBuffer() {
+		try {
+			this.out.write(this.buffer, 0, this.position);
+			this.position = 0;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * The string column codes of the ids of one type, by {@link Id#index()}. The id itself is stored as well, in case
+	 * an id of another type was passed in place of this type.
+	 */
+	private static class IdReferences {
+		Id<?>[] ids = new Id<?>[0];
+		int[] codes = new int[0];
+
+		void put(final int index, final Id<?> id, final int code) {
+			if (index >= this.ids.length) {
+				int length = Math.max(index + 1, this.ids.length * 2);
+				this.ids = Arrays.copyOf(this.ids, length);
+				this.codes = Arrays.copyOf(this.codes, length);
+			}
+			this.ids[index] = id;
+			this.codes[index] = code;
+		}
+	}
+
+	/**
+	 * Collects the attributes of an event, without time and type.
+	 */
+	private static class SchemaAttributeWriter implements Event.AttributeWriter {
+		String[] keys = new String[8];
+		String[] stringValues = new String[8];
+		double[] doubleValues = new double[8];
+		boolean[] numeric = new boolean[8];
+		int count = 0;
+
+		@Override
+		public void writeAttribute(final String key, final String value) {
+			if (add(key)) {
+				this.stringValues[this.count] = value;
+				this.numeric[this.count] = false;
+				this.count++;
+			}
+		}
+
+		@Override
+		public void writeAttribute(final String key, final double value) {
+			if (add(key)) {
+				this.doubleValues[this.count] = value;
+				this.numeric[this.count] = true;
+				this.count++;
+			}
+		}
+
+		private boolean add(final String key) {
+			if (Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key)) {
+				return false;
+			}
+			if (this.count == this.keys.length) {
+				this.keys = Arrays.copyOf(this.keys, this.count * 2);
+				this.stringValues = Arrays.copyOf(this.stringValues, this.count * 2);
+				this.doubleValues = Arrays.copyOf(this.doubleValues, this.count * 2);
+				this.numeric = Arrays.copyOf(this.numeric, this.count * 2);
+			}
+			this.keys[this.count] = key;
+			return true;
+		}
+	}
+
+	private static class Schema {
+		final int index;
+		final String[] keys;
+
+		Schema(final int index, final String[] keys) {
+			this.index = index;
+			this.keys = keys;
+		}
+
+		boolean matches(final String[] otherKeys, final int count) {
+			if (count != this.keys.length) {
+				return false;
+			}
+			for (int i = 0; i < count; i++) {
+				if (!this.keys[i].equals(otherKeys[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+}
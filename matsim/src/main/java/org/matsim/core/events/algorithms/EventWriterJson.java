@@ -11,7 +11,6 @@ import org.matsim.core.utils.io.UncheckedIOException;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Map;
 
 /**
  * @author mrieser / Simunto GmbH
@@ -20,6 +19,7 @@ import java.util.Map;
 public class EventWriterJson implements EventWriter, BasicEventHandler {
 	private OutputStream out = null;
 	private JsonGenerator jsonGenerator = null;
+	private final JsonAttributeWriter attributeWriter = new JsonAttributeWriter();
 
 	public EventWriterJson(File outfile) {
 		try {
@@ -55,16 +55,40 @@ public class EventWriterJson implements EventWriter, BasicEventHandler {
 	public void handleEvent(final Event event) {
 		try {
 			this.jsonGenerator.writeStartObject();
-			Map<String, String> attr = event.getAttributes();
-			for(Map.Entry<String, String> entry : attr.entrySet()) {
-				this.jsonGenerator.writeStringField(entry.getKey(), entry.getValue());
-			}
+			event.writeAttributes(this.attributeWriter);
 			this.jsonGenerator.writeEndObject();
-		} catch (IOException e) {
+		} catch (IOException | UncheckedIOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Writes the attributes directly to the generator, so no map or strings have to be created per event.
+	 */
+	private final class JsonAttributeWriter implements Event.AttributeWriter {
+
+		private final char[] numberBuffer = new char[DoubleFormatter.MAX_LENGTH];
+
+		@Override
+		public void writeAttribute(final String key, final String value) {
+			try {
+				jsonGenerator.writeStringField(key, value);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void writeAttribute(final String key, final double value) {
+			try {
+				jsonGenerator.writeFieldName(key);
+				jsonGenerator.writeString(this.numberBuffer, 0, DoubleFormatter.format(value, this.numberBuffer, 0));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
 	@Override
 	public void reset(final int iter) {
 	}
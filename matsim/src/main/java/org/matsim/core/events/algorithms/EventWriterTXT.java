@@ -63,6 +63,7 @@ public class EventWriterTXT implements EventWriter, ActivityEndEventHandler, Act
 	private BufferedWriter out = null;
 	private double lastTime = Double.NaN;
 	private String timeString = null;
+	private final char[] numberBuffer = new char[DoubleFormatter.MAX_LENGTH];
 	
 	private Map<Id<Vehicle>, Id<Person>> vehicleToDriverMap = new HashMap<>();
 
@@ -113,21 +114,7 @@ public class EventWriterTXT implements EventWriter, ActivityEndEventHandler, Act
 
 	private void writeLine(final double time, final Id<Person> agentId, final Id<Link> linkId, final int flag, final String description) {
 		try {
-			this.out.write(getTimeString(time));
-			if (agentId != null) {
-				this.out.write(agentId.toString());
-			}
-			this.out.write('\t');
-			// nothing to be written for leg-nr
-			this.out.write('\t');
-			if (linkId != null) {
-				this.out.write(linkId.toString());
-			}
-			this.out.write('\t');
-			this.out.write('0'); // from-node-id
-			this.out.write('\t');
-			this.out.write(Integer.toString(flag));
-			this.out.write('\t');
+			writeLineStart(time, agentId, linkId, flag);
 			if (description != null) {
 				this.out.write(description);
 			}
@@ -137,6 +124,48 @@ public class EventWriterTXT implements EventWriter, ActivityEndEventHandler, Act
 		}
 	}
 
+	private void writeLine(final double time, final Id<Person> agentId, final Id<Link> linkId, final int flag, final String description, final String actType) {
+		try {
+			writeLineStart(time, agentId, linkId, flag);
+			this.out.write(description);
+			this.out.write(' ');
+			this.out.write(actType);
+			this.out.write('\n');
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void writeLine(final double time, final Id<Person> agentId, final Id<Link> linkId, final int flag, final String description, final double amount) {
+		try {
+			writeLineStart(time, agentId, linkId, flag);
+			this.out.write(description);
+			this.out.write('\t');
+			this.out.write(this.numberBuffer, 0, DoubleFormatter.format(amount, this.numberBuffer, 0));
+			this.out.write('\n');
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void writeLineStart(final double time, final Id<Person> agentId, final Id<Link> linkId, final int flag) throws IOException {
+		this.out.write(getTimeString(time));
+		if (agentId != null) {
+			this.out.write(agentId.toString());
+		}
+		this.out.write('\t');
+		// nothing to be written for leg-nr
+		this.out.write('\t');
+		if (linkId != null) {
+			this.out.write(linkId.toString());
+		}
+		this.out.write('\t');
+		this.out.write('0'); // from-node-id
+		this.out.write('\t');
+		this.out.write(Integer.toString(flag));
+		this.out.write('\t');
+	}
+
 	/**
 	 * Returns the passed time as Seconds, including a trailing tab-character.
 	 * Internally caches the returned result to speed up writing many events with the same time.
@@ -155,12 +184,12 @@ public class EventWriterTXT implements EventWriter, ActivityEndEventHandler, Act
 
 	@Override
 	public void handleEvent(ActivityEndEvent event) {
-		writeLine(event.getTime(), event.getPersonId(), event.getLinkId(), Number.ActivityEnd.ordinal(), ActivityEndEvent.EVENT_TYPE + " " + event.getActType());
+		writeLine(event.getTime(), event.getPersonId(), event.getLinkId(), Number.ActivityEnd.ordinal(), ActivityEndEvent.EVENT_TYPE, event.getActType());
 	}
 
 	@Override
 	public void handleEvent(ActivityStartEvent event) {
-		writeLine(event.getTime(), event.getPersonId(), event.getLinkId(), Number.ActivityStart.ordinal(), ActivityStartEvent.EVENT_TYPE + " " + event.getActType());
+		writeLine(event.getTime(), event.getPersonId(), event.getLinkId(), Number.ActivityStart.ordinal(), ActivityStartEvent.EVENT_TYPE, event.getActType());
 	}
 
 	@Override
@@ -183,7 +212,7 @@ public class EventWriterTXT implements EventWriter, ActivityEndEventHandler, Act
 
 	@Override
 	public void handleEvent(PersonMoneyEvent event) {
-		writeLine(event.getTime(), event.getPersonId(), null, Number.PersonMoney.ordinal(), "agentMoney" + "\t" + event.getAmount());
+		writeLine(event.getTime(), event.getPersonId(), null, Number.PersonMoney.ordinal(), "agentMoney", event.getAmount());
 	}
 
 	@Override
@@ -30,10 +30,10 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
 
 public class EventWriterXML implements EventWriter, BasicEventHandler {
 	private final BufferedWriter out;
+	private final XmlAttributeWriter attributeWriter = new XmlAttributeWriter();
 
 	public EventWriterXML(final String outfilename) {
 		this.out = IOUtils.getBufferedWriter(outfilename);
@@ -80,72 +80,80 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 	public void handleEvent(final Event event) {
 		try {
 			this.out.append("\t<event ");
-			Map<String, String> attr = event.getAttributes();
-			for (Map.Entry<String, String> entry : attr.entrySet()) {
-				this.out.append(entry.getKey());
-				this.out.append("=\"");
-				this.out.append(encodeAttributeValue(entry.getValue()));
-				this.out.append("\" ");
-			}
+			event.writeAttributes(this.attributeWriter);
 			this.out.append(" />\n");
-		} catch (IOException e) {
+		} catch (IOException | UncheckedIOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Writes the attributes directly to the output, so no map or strings have to be created per event.
+	 */
+	private final class XmlAttributeWriter implements Event.AttributeWriter {
+
+		private final char[] numberBuffer = new char[DoubleFormatter.MAX_LENGTH];
+
+		@Override
+		public void writeAttribute(final String key, final String value) {
+			try {
+				out.write(key);
+				out.write("=\"");
+				writeEncodedAttributeValue(value);
+				out.write("\" ");
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void writeAttribute(final String key, final double value) {
+			try {
+				out.write(key);
+				out.write("=\"");
+				out.write(this.numberBuffer, 0, DoubleFormatter.format(value, this.numberBuffer, 0));
+				out.write("\" ");
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
 	// the following method was taken from MatsimXmlWriter in order to correctly encode attributes, but
 	// to forego the overhead of using the full MatsimXmlWriter.
 	/**
-	 * Encodes the given string in such a way that it no longer contains
+	 * Writes the given string in such a way that it no longer contains
 	 * characters that have a special meaning in xml.
 	 * 
 	 * @see <a href="http://www.w3.org/International/questions/qa-escapes#use">http://www.w3.org/International/questions/qa-escapes#use</a>
 	 * @param attributeValue
-	 * @return String with some characters replaced by their xml-encoding.
 	 */
-	private String encodeAttributeValue(final String attributeValue) {
+	private void writeEncodedAttributeValue(final String attributeValue) throws IOException {
 		if (attributeValue == null) {
-			return null;
+			this.out.write("null");
+			return;
 		}
 		int len = attributeValue.length();
-		boolean encode = false;
+		int start = 0;
 		for (int pos = 0; pos < len; pos++) {
 			char ch = attributeValue.charAt(pos);
+			String encoded;
 			if (ch == '<') {
-				encode = true;
-				break;
+				encoded = "&lt;";
 			} else if (ch == '>') {
-				encode = true;
-				break;
+				encoded = "&gt;";
 			} else if (ch == '\"') {
-				encode = true;
-				break;
+				encoded = "&quot;";
 			} else if (ch == '&') {
-				encode = true;
-				break;
-			}
-		}
-		if (encode) {
-			StringBuilder bf = new StringBuilder(attributeValue.length() + 30);
-			for (int pos = 0; pos < len; pos++) {
-				char ch = attributeValue.charAt(pos);
-				if (ch == '<') {
-					bf.append("&lt;");
-				} else if (ch == '>') {
-					bf.append("&gt;");
-				} else if (ch == '\"') {
-					bf.append("&quot;");
-				} else if (ch == '&') {
-					bf.append("&amp;");
-				} else {
-					bf.append(ch);
-				}
+				encoded = "&amp;";
+			} else {
+				continue;
 			}
-			
-			return bf.toString();
+			this.out.write(attributeValue, start, pos - start);
+			this.out.write(encoded);
+			start = pos + 1;
 		}
-		return attributeValue;
-
+		this.out.write(attributeValue, start, len - start);
 	}
 
 }
@@ -70,11 +70,30 @@ public abstract class MatsimRandom {
 	public static void reset(final long seed) {
 		lastUsedSeed = seed;
 		internalCounter = 0;
-		getRandom().setSeed(seed);
+		random.setSeed(seed);
 //		prepareRNG(random);
 	}
+	/** random number generators replacing the global one in some threads, see {@link #setRandomForCurrentThread(Random)} */
+	private static final ThreadLocal<Random> threadRandom = new ThreadLocal<>();
+
 	public static Random getRandom() {
-		return random;
+		Random r = threadRandom.get();
+		return r == null ? random : r;
+	}
+
+	/**
+	 * Lets {@link #getRandom()} return the given random number generator when called from the current thread,
+	 * until this method is called again with <code>null</code>. This allows code which draws its random numbers
+	 * from {@link #getRandom()}, e.g. plan selectors, to be run in parallel threads with deterministic results.
+	 *
+	 * @param rng the random number generator to be used by the current thread, or <code>null</code> to use the global one again
+	 */
+	public static void setRandomForCurrentThread(final Random rng) {
+		if (rng == null) {
+			threadRandom.remove();
+		} else {
+			threadRandom.set(rng);
+		}
 	}
 
 	/** Returns an instance of a random number generator, which can be used
@@ -6,26 +6,210 @@ import org.matsim.core.events.EventArray;
 
 public class Agent {
 
+	// Plan of an agent. Entries are encoded in one long (compact encoding, see below) as long as all their fields
+	// fit. Once an entry does not fit, the whole plan is converted to the wide encoding which uses two longs per entry:
+	// <4 bit header><28 bit event id or departure sec><32 bit link id, sleep or station id>
+	// <32 bit route id><16 bit station idx><16 bit velocity>
 	public static class PlanArray {
 		long[] array;
+		// second word of every entry, null if the plan uses the compact encoding
+		long[] wide;
 		int size;
 
 		public PlanArray() {
 			this.array = new long[32];
 		}
 
-		public void add(long element) {
+		private void add(long element) {
 			if (size == array.length) {
 				array = Arrays.copyOf(array, array.length * 2);
 			}
 			array[size++] = element;
 		}
 
+		private void add(int type, int event, int element, int routeid, int stopidx, int velocity) {
+			if (wide == null && fitsCompact(type, event, element, routeid, velocity)) {
+				add(prepareCompactEntry(type, event, element, routeid, stopidx, velocity));
+				return;
+			}
+			if (event > MAX_WIDE_EVENT) {
+				throw new RuntimeException(String.format("eventid above limit: %d", event));
+			}
+			if (wide == null) {
+				widen();
+			}
+			if (size == wide.length) {
+				wide = Arrays.copyOf(wide, array.length * 2);
+			}
+			wide[size] = ((long) routeid << 32) | ((long) stopidx << 16) | velocity;
+			add(((long) type << 60) | ((long) event << 32) | (element & 0xFFFFFFFFl));
+		}
+
+		private static boolean fitsCompact(int type, int event, int element, int routeid, int velocity) {
+			switch (type) {
+				case LinkType:
+					return event < HermesConfigGroup.MAX_EVENTS_AGENT && velocity <= HermesConfigGroup.MAX_VEHICLE_VELOCITY;
+				case SleepForType:
+				case SleepUntilType:
+					return event < HermesConfigGroup.MAX_EVENTS_AGENT;
+				case StopDelayType:
+					return event <= MAX_COMPACT_DEPARTURE && element < HermesConfigGroup.MAX_STOP_ROUTE_ID && routeid < HermesConfigGroup.MAX_STOP_ROUTE_ID;
+				default:
+					return event < HermesConfigGroup.MAX_EVENTS_AGENT && element < HermesConfigGroup.MAX_STOP_ROUTE_ID && routeid < HermesConfigGroup.MAX_STOP_ROUTE_ID;
+			}
+		}
+
+		private static long prepareCompactEntry(int type, int event, int element, int routeid, int stopidx, int velocity) {
+			switch (type) {
+				case LinkType:
+					return preparePlanEventEntry(type, event, prepareLinkEntryElement(element, velocity));
+				case SleepForType:
+				case SleepUntilType:
+					return preparePlanEventEntry(type, event, element & 0xFFFFFFFFl);
+				case StopDelayType:
+					return prepareStopDelay(type, event, prepareRouteStopEntry(routeid, element, stopidx));
+				default:
+					return preparePlanEventEntry(type, event, prepareRouteStopEntry(routeid, element, stopidx));
+			}
+		}
+
+		// Converts the entries added so far to the wide encoding.
+		private void widen() {
+			long[] compact = array;
+			int entries = size;
+			array = new long[compact.length];
+			wide = new long[compact.length];
+			size = 0;
+			for (int i = 0; i < entries; i++) {
+				long entry = compact[i];
+				int type = getPlanHeader(entry);
+				switch (type) {
+					case LinkType:
+						add(type, getPlanEvent(entry), getLinkPlanEntry(entry), 0, 0, getVelocityPlanEntry(entry));
+						break;
+					case SleepForType:
+					case SleepUntilType:
+						add(type, getPlanEvent(entry), getSleepPlanEntry(entry), 0, 0, 0);
+						break;
+					case StopDelayType:
+						add(type, getDeparture(entry), getStopPlanEntry(entry), getRoutePlanEntry(entry), getStopIndexPlanEntry(entry), 0);
+						break;
+					default:
+						add(type, getPlanEvent(entry), getStopPlanEntry(entry), getRoutePlanEntry(entry), getStopIndexPlanEntry(entry), 0);
+				}
+			}
+		}
+
+		public boolean isWide() {
+			return wide != null;
+		}
+
+		public void addLinkEntry(int eventid, int linkid, int velocity) {
+			// Checking for velocities that are too high or too low.
+			velocity = velocity < 0 ? HermesConfigGroup.MAX_VEHICLE_VELOCITY : Math.min(velocity, MAX_WIDE_VELOCITY);
+			add(LinkType, eventid, linkid, 0, 0, velocity);
+		}
+
+		public void addSleepForEntry(int eventid, int element) {
+			add(SleepForType, eventid, element, 0, 0, 0);
+		}
+
+		public void addSleepUntilEntry(int eventid, int element) {
+			add(SleepUntilType, eventid, element, 0, 0, 0);
+		}
+
+		public void addAccessEntry(int eventid, int routeid, int stopid) {
+			addRouteStopEntry(AccessType, eventid, routeid, stopid, 0);
+		}
+
+		public void addEgressEntry(int eventid, int routeid, int stopid) {
+			addRouteStopEntry(EgressType, eventid, routeid, stopid, 0);
+		}
+
+		public void addWaitEntry(int eventid, int routeid, int stopid) {
+			addRouteStopEntry(WaitType, eventid, routeid, stopid, 0);
+		}
+
+		public void addStopArrivalEntry(int eventid, int routeid, int stopid, int stopidx) {
+			addRouteStopEntry(StopArriveType, eventid, routeid, stopid, stopidx);
+		}
+
+		public void addStopDelayEntry(int departure, int routeid, int stopid, int stopidx) {
+			addRouteStopEntry(StopDelayType, departure, routeid, stopid, stopidx);
+		}
+
+		public void addStopDepartureEntry(int eventid, int routeid, int stopid, int stopidx) {
+			addRouteStopEntry(StopDepartType, eventid, routeid, stopid, stopidx);
+		}
+
+		private void addRouteStopEntry(int type, int eventid, int routeid, int stopid, int stopidx) {
+			if (stopidx > HermesConfigGroup.MAX_STOP_IDX) {
+				throw new RuntimeException(String.format("station index above limit: %d", stopidx));
+			}
+			add(type, eventid, stopid, routeid, stopidx, 0);
+		}
+
 		public int size() {
 			return size;
 		}
-		public long get(int index) {
-			return array[index];
+
+		public int header(int index) {
+			return getPlanHeader(array[index]);
+		}
+
+		public int event(int index) {
+			return wide == null ? getPlanEvent(array[index]) : getWideEvent(array[index]);
+		}
+
+		public int departure(int index) {
+			return wide == null ? getDeparture(array[index]) : getWideEvent(array[index]);
+		}
+
+		public int link(int index) {
+			return wide == null ? getLinkPlanEntry(array[index]) : getWideElement(array[index]);
+		}
+
+		public int velocity(int index) {
+			return wide == null ? getVelocityPlanEntry(array[index]) : (int) (wide[index] & 0xFFFFl);
+		}
+
+		public int route(int index) {
+			return wide == null ? getRoutePlanEntry(array[index]) : (int) (wide[index] >>> 32);
+		}
+
+		public int stop(int index) {
+			return wide == null ? getStopPlanEntry(array[index]) : getWideElement(array[index]);
+		}
+
+		public int stopIndex(int index) {
+			return wide == null ? getStopIndexPlanEntry(array[index]) : (int) ((wide[index] >> 16) & 0xFFFFl);
+		}
+
+		public int sleep(int index) {
+			return wide == null ? getSleepPlanEntry(array[index]) : getWideElement(array[index]);
+		}
+
+		public String toString(int index) {
+			switch (header(index)) {
+				case LinkType:
+					return String.format("type=link; event=%d; link=%d; vel=%d", event(index), link(index), velocity(index));
+				case SleepForType:
+					return String.format("type=sleepfor; event=%d; sleep=%d", event(index), sleep(index));
+				case SleepUntilType:
+					return String.format("type=sleepuntil; event=%d; sleep=%d", event(index), sleep(index));
+				case StopDelayType:
+					return String.format("type=stopdelay; departure=%d; route=%d stopid=%d stopidx=%d",
+						departure(index), route(index), stop(index), stopIndex(index));
+				case AccessType:
+				case StopArriveType:
+				case StopDepartType:
+				case EgressType:
+				case WaitType:
+					return String.format("type=%s; event=%d; route=%d stopid=%d stopidx=%d",
+						typeName(header(index)), event(index), route(index), stop(index), stopIndex(index));
+				default:
+					return String.format("unknow plan type %d", header(index));
+			}
 		}
 
 		public void clear() {
@@ -33,6 +217,7 @@ public class Agent {
 				array[i] = 0;
 			}
 			size = 0;
+			wide = null;
 		}
 	}
 
@@ -56,10 +241,15 @@ public class Agent {
     // vehicle agent waits at the PT stop until it can leave the stop
     public static final int StopDelayType  =  8;
 
+    // Limits of the fields of the compact and the wide encoding that are not given by HermesConfigGroup.
+    private static final int MAX_COMPACT_DEPARTURE = (1 << 20) - 1;
+    private static final int MAX_WIDE_EVENT = (1 << 28) - 1;
+    private static final int MAX_WIDE_VELOCITY = (1 << 16) - 1;
+
     // Id of the link (index for World.agents).
     protected final int id;
 
-    // Array of plan elements. A plan element has the following structure:
+    // Array of plan elements. In the compact encoding, a plan element has the following structure:
     // <4 bit header><60 bit payload>
     // Possible headers (binary format) and corresponding payload:
     // <0000> SleepForType    | 4 bits unused | 16 bit event id  | 8 bits unused   | 32 bit sleep for a number of second
@@ -118,8 +308,7 @@ public class Agent {
     public int planIndex() { return this.planIndex; }
     public PlanArray plan() { return this.plan; }
     public EventArray events() { return this.events; }
-    public long currPlan() { return this.plan.get(planIndex); }
-    public long prevPlan() { return this.plan.get(planIndex - 1); }
+    public int currPlanEvent() { return this.plan.event(planIndex); }
     public boolean finished() { return planIndex >= (plan.size() - 1); }
 
     public int capacity() {
@@ -151,7 +340,7 @@ public class Agent {
         // TODO - install assert checking if the next entry is an egress?
         // +2 is used to peek where the agent wants to leave the vehicle.
         // +1 is the access plan element which was not yet consumed.
-        return getStopPlanEntry(plan.get(planIndex + 2));
+        return plan.stop(planIndex + 2);
     }
 
     public static int getPlanHeader         (long plan) { return (int)((plan >> 60) & 0x000000000000000Fl); }
@@ -163,6 +352,8 @@ public class Agent {
     public static int getStopPlanEntry      (long plan) { return (int)( plan        & 0x000000000000FFFFl); }
     public static int getStopIndexPlanEntry (long plan) { return (int)( plan >> 32  & 0x00000000000000FFl); }
     public static int getSleepPlanEntry     (long plan) { return (int)( plan        & 0x00000000FFFFFFFFl); }
+    private static int getWideEvent         (long plan) { return (int)((plan >> 32) & 0x000000000FFFFFFFl); }
+    private static int getWideElement       (long plan) { return (int)( plan        & 0x00000000FFFFFFFFl); }
 
     private static void validatePlanEntry(long planEntry) {
         int event = Agent.getPlanEvent(planEntry);
@@ -184,7 +375,7 @@ public class Agent {
     }
 
     public static long preparePlanEventEntry(long type, long eventid, long element) {
-        if (eventid > HermesConfigGroup.MAX_EVENTS_AGENT) {
+        if (eventid >= HermesConfigGroup.MAX_EVENTS_AGENT) {
             throw new RuntimeException(String.format("eventid above limit: %d", eventid));
         }
         return preparePlanEventEntry(type, (eventid << 40) | element);
@@ -209,10 +400,10 @@ public class Agent {
     }
 
     private static long prepareRouteStopEntry(long routeid, long stopid, long stopidx) {
-        if (stopid > HermesConfigGroup.MAX_STOP_ROUTE_ID) {
+        if (stopid >= HermesConfigGroup.MAX_STOP_ROUTE_ID) {
             throw new RuntimeException(String.format("stopid above limit: %d", stopid));
         }
-        if (routeid > HermesConfigGroup.MAX_STOP_ROUTE_ID) {
+        if (routeid >= HermesConfigGroup.MAX_STOP_ROUTE_ID) {
             throw new RuntimeException(String.format("routeid above limit: %d", routeid));
         }
         if (stopidx > HermesConfigGroup.MAX_STOP_IDX) {
@@ -224,6 +415,11 @@ public class Agent {
     public void reset() {
         plan.clear();
         events.clear();
+        resetProgress();
+    }
+
+    // Prepares the agent to execute its plan again, keeping the plan and its events.
+    public void resetProgress() {
         planIndex = 0;
         eventsIndex = 0;
         linkFinishTime = 0;
@@ -235,76 +431,19 @@ public class Agent {
         }
     }
 
-    public static long prepareLinkEntry(int eventid, int linkid, int velocity) {
-        return preparePlanEventEntry(LinkType, eventid, prepareLinkEntryElement(linkid, velocity));
-    }
-
-    public static long prepareSleepForEntry(int eventid, int element) {
-        return preparePlanEventEntry(SleepForType, eventid, element);
-    }
-
-    public static long prepareSleepUntilEntry(int eventid, int element) {
-        return preparePlanEventEntry(SleepUntilType, eventid, element);
-    }
-
-    public static long prepareAccessEntry(int eventid, int routeid, int stopid) {
-        return preparePlanEventEntry(AccessType, eventid, prepareRouteStopEntry(routeid, stopid, 0));
-    }
-
-    public static long prepareEgressEntry(int eventid, int routeid, int stopid) {
-        return preparePlanEventEntry(EgressType, eventid, prepareRouteStopEntry(routeid, stopid, 0));
-    }
-
-    public static long prepareWaitEntry(int eventid, int routeid, int stopid) {
-        return preparePlanEventEntry(WaitType, eventid, prepareRouteStopEntry(routeid, stopid, 0));
-    }
-
-    public static long prepareStopArrivalEntry(int eventid, int routeid, int stopid, int stopidx) {
-        return preparePlanEventEntry(StopArriveType, eventid, prepareRouteStopEntry(routeid, stopid, stopidx));
-    }
-
-    public static long prepareStopDelayEntry(int departure, int routeid, int stopid, int stopidx) {
-        return prepareStopDelay(StopDelayType, departure, prepareRouteStopEntry(routeid, stopid, stopidx));
-    }
-
-    public static long prepareStopDepartureEntry(int eventid, int routeid, int stopid, int stopidx) {
-        return preparePlanEventEntry(StopDepartType, eventid, prepareRouteStopEntry(routeid, stopid, stopidx));
-    }
-
-    public static String toString(long planEntry) {
-        int type = Agent.getPlanHeader(planEntry);
+    private static String typeName(int type) {
         switch (type) {
-            case Agent.LinkType:
-                return String.format("type=link; event=%d; link=%d; vel=%d",
-            		getPlanEvent(planEntry), getLinkPlanEntry(planEntry), getVelocityPlanEntry(planEntry));
-            case Agent.SleepForType:
-                return String.format("type=sleepfor; event=%d; sleep=%d",
-            		getPlanEvent(planEntry), getSleepPlanEntry(planEntry));
-            case Agent.SleepUntilType:
-                return String.format("type=sleepuntil; event=%d; sleep=%d",
-            		getPlanEvent(planEntry), getSleepPlanEntry(planEntry));
-            case Agent.AccessType:
-                return String.format("type=access; event=%d; route=%d stopid=%d stopidx=%d",
-            		getPlanEvent(planEntry), getRoutePlanEntry(planEntry), getStopPlanEntry(planEntry), getStopIndexPlanEntry(planEntry));
-            case Agent.StopArriveType:
-                return String.format("type=stoparrive; event=%d; route=%d stopid=%d stopidx=%d",
-            		getPlanEvent(planEntry), getRoutePlanEntry(planEntry), getStopPlanEntry(planEntry), getStopIndexPlanEntry(planEntry));
-            case Agent.StopDelayType:
-                return String.format("type=stopdelay; departure=%d; route=%d stopid=%d stopidx=%d",
-            		getDeparture(planEntry), getRoutePlanEntry(planEntry), getStopPlanEntry(planEntry), getStopIndexPlanEntry(planEntry));
-            case Agent.StopDepartType:
-                return String.format("type=stopdepart; event=%d; route=%d stopid=%d stopidx=%d",
-            		getPlanEvent(planEntry), getRoutePlanEntry(planEntry), getStopPlanEntry(planEntry), getStopIndexPlanEntry(planEntry));
-            case Agent.EgressType:
-                return String.format("type=egress; event=%d; route=%d stopid=%d stopidx=%d",
-            		getPlanEvent(planEntry), getRoutePlanEntry(planEntry), getStopPlanEntry(planEntry), getStopIndexPlanEntry(planEntry));
-            case Agent.WaitType:
-                return String.format("type=wait; event=%d; route=%d stopid=%d stopidx=%d",
-            		getPlanEvent(planEntry), getRoutePlanEntry(planEntry), getStopPlanEntry(planEntry), getStopIndexPlanEntry(planEntry));
-            default:
-                return String.format("unknow plan type %d", type);
+            case SleepForType:   return "sleepfor";
+            case SleepUntilType: return "sleepuntil";
+            case LinkType:       return "link";
+            case AccessType:     return "access";
+            case EgressType:     return "egress";
+            case StopArriveType: return "stoparrive";
+            case StopDepartType: return "stopdepart";
+            case WaitType:       return "wait";
+            case StopDelayType:  return "stopdelay";
+            default:             return "unknown";
         }
-
     }
 
 }
@@ -1,5 +1,6 @@
 package org.matsim.core.mobsim.hermes;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 
 public class HLink {
@@ -145,6 +146,13 @@ public class HLink {
     private int lastFlowUpdate;
 	private int lastPush;
 	private final int stuckTimePeriod;
+	// Boundary links are pushed to by another thread than the one that pops from them (see ParallelRealm). Pushed
+	// agents are staged and moved to the queue between two time steps. Their space is checked against the free space
+	// of the queue at the beginning of the time step.
+	private boolean boundary;
+	private final ArrayList<Agent> staged = new ArrayList<>();
+	private final ArrayList<Boolean> stagedForced = new ArrayList<>();
+	private int free;
 
     public HLink(int id, int capacity, int length, int velocity, int flowPeriod, int flowCapacity, int stuckTimePeriod) {
         this.id = id;
@@ -162,10 +170,15 @@ public class HLink {
 
     public void reset() {
     	queue.clear();
+    	staged.clear();
+    	stagedForced.clear();
     	this.lastFlowUpdate = 0;
     }
 
 	public boolean push(Agent agent, int timestep) {
+		if (boundary) {
+			return stage(agent, timestep);
+		}
 		if( queue.push(agent)){
 			lastPush = timestep;
 			return true;
@@ -180,6 +193,52 @@ public class HLink {
 		}
 	}
 
+    private boolean stage(Agent agent, int timestep) {
+        if (staged.size() < free) {
+            staged.add(agent);
+            stagedForced.add(false);
+        } else if ((lastPush + stuckTimePeriod) < timestep) {
+            staged.add(agent);
+            stagedForced.add(true);
+        } else {
+            return false;
+        }
+        lastPush = timestep;
+        return true;
+    }
+
+    // Moves the staged agents to the queue, returns true if the queue was empty before.
+    public boolean unstage() {
+        boolean wasEmpty = queue.size() == 0;
+        for (int i = 0; i < staged.size(); i++) {
+            Agent agent = staged.get(i);
+            // the queue has at least the space it had when the agent was staged
+            if (stagedForced.get(i) || !queue.push(agent)) {
+                queue.forcePush(agent);
+            }
+        }
+        staged.clear();
+        stagedForced.clear();
+        return wasEmpty;
+    }
+
+    public int stagedSize() {
+        return staged.size();
+    }
+
+    public void updateFree() {
+        free = Math.max(0, queue.capacity() - queue.size());
+    }
+
+    public void setBoundary(boolean boundary) {
+        this.boundary = boundary;
+        updateFree();
+    }
+
+    public boolean isBoundary() {
+        return boundary;
+    }
+
     public void pop() {
         queue.pop();
     }
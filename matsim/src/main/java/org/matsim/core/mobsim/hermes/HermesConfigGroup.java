@@ -13,11 +13,13 @@ public class HermesConfigGroup extends ReflectiveConfigGroup {
     public static final String NAME = "hermes";
     private static final String END_TIME = "endTime";
 
-    // Maximum number of links (limited to 24 bits in the plan)
-    public static final int MAX_LINK_ID = 16777216;
-    // Maximum number of stops in a link (limited to 8 bits in the plan)
+    // Limits of the compact plan encoding. Plans exceeding them use the wide encoding (see Agent.PlanArray), which
+    // takes twice the memory.
+    // Maximum number of links (limited to 32 bits in the plan)
+    public static final int MAX_LINK_ID = Integer.MAX_VALUE;
+    // Maximum number of stops in a link (limited to 8 bits in the plan, also in the wide encoding)
     public static final int MAX_STOP_IDX = 255;
-    // Maximum number of stops (limited to 20bits in the plan)
+    // Maximum number of stops and routes (limited to 16 bits in the plan)
     public static final int MAX_STOP_ROUTE_ID = 65536;
     // Maximum vehicle velocity (limited to 8 bits in the plan)
     public static final int MAX_VEHICLE_VELOCITY = 255;
@@ -40,6 +42,10 @@ public class HermesConfigGroup extends ReflectiveConfigGroup {
     private static final String MAINMODESPARAMDESC = "[comma-separated list] Modes that are handled in the mobsim along links. By default: car";
     private Set<String> mainModes = Set.of(TransportMode.car);
 
+    private static final String NUMBER_OF_THREADS = "numberOfThreads";
+    private static final String NUMBER_OF_THREADS_DESC = "Number of threads used to simulate. With more than one thread, the network is split into "
+            + "spatial partitions, one per thread, which exchange the agents crossing their boundaries every second. Default: 1";
+
     private static final String DETPTDESC = "treats PT as deterministic. Everything will run on time.";
     private boolean deterministicPt = false;
     public static final boolean DEBUG_REALMS = false;
@@ -55,6 +61,9 @@ public class HermesConfigGroup extends ReflectiveConfigGroup {
     @Positive
     private int stuckTime = 10;
 
+    @Positive
+    private int numberOfThreads = 1;
+
     public Set<String> getMainModes() {
         return mainModes;
     }
@@ -101,6 +110,16 @@ public class HermesConfigGroup extends ReflectiveConfigGroup {
         this.stuckTime = stuckTime;
     }
 
+    @StringGetter(NUMBER_OF_THREADS)
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    @StringSetter(NUMBER_OF_THREADS)
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
     @StringSetter(FLOW_CAPACITY_FACTOR)
     public void setFlowCapacityFactor(double flowCapacityFactor) {
         this.flowCapacityFactor = flowCapacityFactor;
@@ -137,6 +156,7 @@ public class HermesConfigGroup extends ReflectiveConfigGroup {
         comments.put(END_TIME, "Simulation End Time");
         comments.put(STUCKTIMEPARAM, STUCKTIMEPARAMDESC);
         comments.put(DETPT, DETPTDESC);
+        comments.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_DESC);
         return comments;
     }
 
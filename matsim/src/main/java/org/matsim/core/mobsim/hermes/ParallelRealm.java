@@ -0,0 +1,325 @@
+package org.matsim.core.mobsim.hermes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventArray;
+import org.matsim.core.events.ParallelEventsManager;
+import org.matsim.core.network.algorithms.CoordinateBisection;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+// Realm that simulates with multiple threads. The network is split into spatial partitions of nodes, each simulated
+// by one thread. A link is popped by the partition of its to-node and pushed to by the partition of its from-node.
+// Every second consists of two phases, separated by barriers:
+// 1. every partition processes its agents and links. Agents pushed to a link of another partition (a boundary link)
+//    are staged in the link. Agents delayed to a later second are sent to the partition that will process their next
+//    plan entry.
+// 2. every partition moves the agents staged in its boundary links to their queues and takes the agents sent to it,
+//    in the order of the sending partitions.
+// Thus, the simulation does not depend on the scheduling of the threads. The events of every second are collected in
+// the order of the partitions and streamed to the events manager while simulating.
+class ParallelRealm extends Realm {
+
+    final private static Logger log = Logger.getLogger(ParallelRealm.class);
+
+    // Number of events after which they are handed over to the events manager.
+    private static final int EVENTS_BATCH_SIZE = 1 << 14;
+
+    private final Partitioning partitioning;
+    private final HLink[] links;
+    private final Partition[] partitions;
+    private final ParallelEventsManager eventsManager;
+    private EventArray events = new EventArray();
+
+    private final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+    ParallelRealm(ScenarioImporter scenario, EventsManager eventsManager, Partitioning partitioning) throws Exception {
+        super(scenario, eventsManager);
+        this.partitioning = partitioning;
+        this.links = scenario.hermes_links;
+        this.eventsManager = (ParallelEventsManager) eventsManager;
+        this.partitions = new Partition[partitioning.numberOfPartitions];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(scenario, eventsManager, i);
+        }
+    }
+
+    @Override
+    void delayAgent(Agent agent, int until) {
+        Partition partition = partitions[partitioning.partitionOf(agent, 0)];
+        partition.delay(agent, until);
+    }
+
+    @Override
+    void delayLink(HLink link, int until) {
+        partitions[partitioning.popperOfLink[link.id()]].delayLink(link, until);
+    }
+
+    @Override
+    public void run() throws Exception {
+        for (HLink link : links) {
+            if (link != null) {
+                link.setBoundary(partitioning.isBoundary(link.id()));
+            }
+        }
+
+        CyclicBarrier processed = new CyclicBarrier(partitions.length);
+        CyclicBarrier exchanged = new CyclicBarrier(partitions.length, this::collectEvents);
+        List<Thread> threads = new ArrayList<>();
+        for (Partition partition : partitions) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int secs = 0; secs < HermesConfigGroup.SIM_STEPS; secs++) {
+                        partition.process(secs);
+                        processed.await();
+                        partition.exchange(secs);
+                        exchanged.await();
+                    }
+                } catch (BrokenBarrierException e) {
+                    // another partition failed
+                } catch (Throwable e) {
+                    exception.compareAndSet(null, e);
+                    breakBarrier(processed);
+                    breakBarrier(exchanged);
+                }
+            }, "HermesPartition_" + partition.index);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (HLink link : links) {
+            if (link != null) {
+                link.setBoundary(false);
+            }
+        }
+        if (exception.get() != null) {
+            throw new RuntimeException(exception.get());
+        }
+    }
+
+    // Lets the other partitions waiting at the barrier fail, and those arriving later too.
+    private static void breakBarrier(CyclicBarrier barrier) {
+        try {
+            barrier.await(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+            // the barrier is broken now
+        }
+    }
+
+    // Called after every second by the last thread that reaches the barrier.
+    private void collectEvents() {
+        int secs = partitions[0].time();
+        for (Partition partition : partitions) {
+            partition.moveSortedEvents(events);
+        }
+        if (secs % 3600 == 0) {
+            log.info("Hermes running at " + Time.writeTime(secs));
+        }
+        if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && (events.size() >= EVENTS_BATCH_SIZE || secs % 3600 == 0) && events.size() > 0) {
+            eventsManager.processEvents(events);
+            events = new EventArray();
+        }
+    }
+
+    @Override
+    EventArray getSortedEvents() {
+        return events;
+    }
+
+    private class Partition extends Realm {
+        private final int index;
+        private int secs;
+        // agents delayed in the current second
+        private final ArrayList<Agent> delayedAgents = new ArrayList<>();
+        private final ArrayList<Integer> delayedUntil = new ArrayList<>();
+        // agents sent to other partitions, by partition
+        private final ArrayList<ArrayList<Agent>> sentAgents = new ArrayList<>();
+        private final ArrayList<ArrayList<Integer>> sentUntil = new ArrayList<>();
+        // boundary links this partition staged agents in during the current second
+        private final ArrayList<HLink> stagedLinks = new ArrayList<>();
+        // boundary links this partition popped agents from during the current second
+        private final ArrayList<HLink> poppedLinks = new ArrayList<>();
+
+        Partition(ScenarioImporter scenario, EventsManager eventsManager, int index) throws Exception {
+            super(scenario, eventsManager);
+            this.index = index;
+            for (int i = 0; i < partitioning.numberOfPartitions; i++) {
+                sentAgents.add(new ArrayList<>());
+                sentUntil.add(new ArrayList<>());
+            }
+        }
+
+        int time() {
+            return secs;
+        }
+
+        void delay(Agent agent, int until) {
+            super.add_delayed_agent(agent, until);
+        }
+
+        // Phase 1: processes the agents and links of this partition.
+        void process(int time) {
+            secs = time;
+            stagedLinks.clear();
+            processTimeStep(time);
+
+            // the next plan entry of an agent is only known after it was processed completely
+            for (int i = 0; i < delayedAgents.size(); i++) {
+                Agent agent = delayedAgents.get(i);
+                int partition = partitioning.partitionOf(agent, index);
+                if (partition == index) {
+                    super.add_delayed_agent(agent, delayedUntil.get(i));
+                } else {
+                    sentAgents.get(partition).add(agent);
+                    sentUntil.get(partition).add(delayedUntil.get(i));
+                }
+            }
+            delayedAgents.clear();
+            delayedUntil.clear();
+        }
+
+        // Phase 2: receives the agents staged in the boundary links and sent by the other partitions.
+        void exchange(int time) {
+            for (Partition sender : partitions) {
+                for (HLink link : sender.stagedLinks) {
+                    if (partitioning.popperOfLink[link.id()] == index) {
+                        if (link.unstage()) {
+                            add_delayed_link(link, Math.max(link.queue().peek().linkFinishTime, time + 1));
+                        }
+                        link.updateFree();
+                    }
+                }
+                ArrayList<Agent> agents = sender.sentAgents.get(index);
+                ArrayList<Integer> until = sender.sentUntil.get(index);
+                for (int i = 0; i < agents.size(); i++) {
+                    super.add_delayed_agent(agents.get(i), until.get(i));
+                }
+                agents.clear();
+                until.clear();
+            }
+            for (HLink link : poppedLinks) {
+                link.updateFree();
+            }
+            poppedLinks.clear();
+        }
+
+        @Override
+        protected void add_delayed_agent(Agent agent, int until) {
+            delayedAgents.add(agent);
+            delayedUntil.add(until);
+        }
+
+        @Override
+        protected boolean push(HLink next, Agent agent) {
+            if (super.push(next, agent)) {
+                if (next.isBoundary() && next.stagedSize() == 1) {
+                    stagedLinks.add(next);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        protected int processLinks(HLink link) {
+            int routed = super.processLinks(link);
+            if (link.isBoundary()) {
+                poppedLinks.add(link);
+            }
+            return routed;
+        }
+    }
+
+    // The partitions of the nodes, and thus of the links and the transit stops.
+    static class Partitioning {
+        final int numberOfPartitions;
+        // partition of the from-node, which pushes agents to the link, by link index
+        final int[] pusherOfLink;
+        // partition of the to-node, which pops agents from the link, by link index
+        final int[] popperOfLink;
+        // partition of the to-node of the link of the stop, by stop index
+        final int[] partitionOfStop;
+
+        Partitioning(Scenario scenario, int numberOfPartitions) {
+            this.numberOfPartitions = numberOfPartitions;
+            List<Node> nodes = new ArrayList<>(scenario.getNetwork().getNodes().values());
+            double[] x = new double[nodes.size()];
+            double[] y = new double[nodes.size()];
+            double[] weights = new double[nodes.size()];
+            for (int i = 0; i < x.length; i++) {
+                x[i] = nodes.get(i).getCoord().getX();
+                y[i] = nodes.get(i).getCoord().getY();
+                weights[i] = 1 + nodes.get(i).getInLinks().size();
+            }
+            int[] parts = CoordinateBisection.partition(x, y, weights, numberOfPartitions);
+            int[] partitionOfNode = new int[Id.getNumberOfIds(Node.class)];
+            for (int i = 0; i < parts.length; i++) {
+                partitionOfNode[nodes.get(i).getId().index()] = parts[i];
+            }
+
+            pusherOfLink = new int[Id.getNumberOfIds(Link.class)];
+            popperOfLink = new int[Id.getNumberOfIds(Link.class)];
+            for (Link link : scenario.getNetwork().getLinks().values()) {
+                pusherOfLink[link.getId().index()] = partitionOfNode[link.getFromNode().getId().index()];
+                popperOfLink[link.getId().index()] = partitionOfNode[link.getToNode().getId().index()];
+            }
+
+            partitionOfStop = new int[Id.getNumberOfIds(TransitStopFacility.class)];
+            for (TransitStopFacility stop : scenario.getTransitSchedule().getFacilities().values()) {
+                Link link = stop.getLinkId() == null ? null : scenario.getNetwork().getLinks().get(stop.getLinkId());
+                if (link != null) {
+                    partitionOfStop[stop.getId().index()] = popperOfLink[link.getId().index()];
+                }
+            }
+
+            int boundaryLinks = 0;
+            for (Link link : scenario.getNetwork().getLinks().values()) {
+                if (isBoundary(link.getId().index())) {
+                    boundaryLinks++;
+                }
+            }
+            log.info(String.format("ETHZ split the network into %d partitions with %d boundary links", numberOfPartitions, boundaryLinks));
+        }
+
+        boolean isBoundary(int link) {
+            return pusherOfLink[link] != popperOfLink[link];
+        }
+
+        // The partition which processes the next plan entry of the agent.
+        int partitionOf(Agent agent, int current) {
+            if (agent.finished()) {
+                return current;
+            }
+            Agent.PlanArray plan = agent.plan();
+            int entry = agent.planIndex() + 1;
+            switch (plan.header(entry)) {
+                case Agent.LinkType:
+                    return pusherOfLink[plan.link(entry)];
+                case Agent.WaitType:
+                case Agent.AccessType:
+                case Agent.EgressType:
+                case Agent.StopArriveType:
+                case Agent.StopDelayType:
+                case Agent.StopDepartType:
+                    return partitionOfStop[plan.stop(entry)];
+                default:
+                    return current;
+            }
+        }
+    }
+}
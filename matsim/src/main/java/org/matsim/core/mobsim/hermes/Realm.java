@@ -55,9 +55,10 @@ public class Realm {
         this.eventsManager = (ParallelEventsManager)eventsManager;
 
 	// the last position is to store events that will not happen...
+        // The queues are created when needed, most of the time steps have none.
         for (int i = 0; i <= HermesConfigGroup.SIM_STEPS + 1; i++) {
-            delayedLinksByWakeupTime.add(new ArrayDeque<>());
-            delayedAgentsByWakeupTime.add(new ArrayDeque<>());
+            delayedLinksByWakeupTime.add(null);
+            delayedAgentsByWakeupTime.add(null);
         }
     }
 
@@ -67,36 +68,51 @@ public class Realm {
         }
     }
 
-    private void add_delayed_agent(Agent agent, int until) {
+    protected void add_delayed_agent(Agent agent, int until) {
         if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("agent %d delayed until %d", agent.id, until));
-        delayedAgentsByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
+        int slot = Math.min(until, HermesConfigGroup.SIM_STEPS + 1);
+        ArrayDeque<Agent> agents = delayedAgentsByWakeupTime.get(slot);
+        if (agents == null) {
+            agents = new ArrayDeque<>();
+            delayedAgentsByWakeupTime.set(slot, agents);
+        }
+        agents.add(agent);
     }
 
-    private void add_delayed_link(HLink link, int until) {
+    protected void add_delayed_link(HLink link, int until) {
         if (HermesConfigGroup.DEBUG_REALMS)
             log(secs, String.format("link %d delayed until %d size %d peek agent %d", link.id(), until, link.queue().size(), link.queue().peek().id));
-        delayedLinksByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(link);
+        int slot = Math.min(until, HermesConfigGroup.SIM_STEPS + 1);
+        ArrayDeque<HLink> links = delayedLinksByWakeupTime.get(slot);
+        if (links == null) {
+            links = new ArrayDeque<>();
+            delayedLinksByWakeupTime.set(slot, links);
+        }
+        links.add(link);
+    }
+
+    // Pushes the agent to the next link.
+    protected boolean push(HLink next, Agent agent) {
+        return next.push(agent, secs);
     }
 
     private void advanceAgentandSetEventTime(Agent agent) {
         advanceAgent(agent);
         // set time in agent's event.
-        setEventTime(agent, Agent.getPlanEvent(agent.currPlan()), secs, false);
+        setEventTime(agent, agent.currPlanEvent(), secs, false);
     }
 
     private void advanceAgent(Agent agent) {
-        long centry = agent.currPlan();
         if (HermesConfigGroup.DEBUG_REALMS)
-            log(secs, String.format("agent %d finished %s (prev plan index is %d)", agent.id, Agent.toString(centry), agent.planIndex));
+            log(secs, String.format("agent %d finished %s (prev plan index is %d)", agent.id, agent.plan.toString(agent.planIndex), agent.planIndex));
         agent.planIndex++;
-        long nentry = agent.currPlan();
         if (HermesConfigGroup.DEBUG_REALMS)
-            log(secs, String.format("agent %d starting %s (new plan index is %d)", agent.id, Agent.toString(nentry), agent.planIndex));
+            log(secs, String.format("agent %d starting %s (new plan index is %d)", agent.id, agent.plan.toString(agent.planIndex), agent.planIndex));
     }
 
-    protected boolean processAgentLink(Agent agent, long planentry, int currLinkId) {
-        int linkid = Agent.getLinkPlanEntry(planentry);
-        int velocity = Agent.getVelocityPlanEntry(planentry);
+    protected boolean processAgentLink(Agent agent, int planentry, int currLinkId) {
+        int linkid = agent.plan.link(planentry);
+        int velocity = agent.plan.velocity(planentry);
         HLink next = links[linkid];
         int prev_finishtime = agent.linkFinishTime;
         // this ensures that if no velocity is provided for the vehicle, we use the link
@@ -105,10 +121,11 @@ public class Realm {
         int traveltime = HermesConfigGroup.LINK_ADVANCE_DELAY + Math.max(1, next.length() / Math.min(velocity, next.velocity()));
         agent.linkFinishTime = secs + traveltime;
 
-        if (next.push(agent,secs)) {
+        if (push(next, agent)) {
             advanceAgentandSetEventTime(agent);
             // If the agent we just added is the head, add to delayed links
-            if (currLinkId != next.id() && next.queue().peek() == agent) {
+            // (agents pushed to boundary links are staged, the link is delayed when they are moved to the queue).
+            if (currLinkId != next.id() && !next.isBoundary() && next.queue().peek() == agent) {
                 add_delayed_link(next, Math.max(agent.linkFinishTime, secs + 1));
             }
             return true;
@@ -118,22 +135,25 @@ public class Realm {
         }
     }
 
-    protected boolean processAgentSleepFor(Agent agent, long planentry) {
-        int sleep = Agent.getSleepPlanEntry(planentry);
-        return processAgentSleepUntil(agent, secs + Math.max(1, sleep));
+    protected boolean processAgentSleepFor(Agent agent, int planentry) {
+        int sleep = agent.plan.sleep(planentry);
+        return sleepUntil(agent, secs + Math.max(1, sleep));
+    }
+
+    protected boolean processAgentSleepUntil(Agent agent, int planentry) {
+        return sleepUntil(agent, agent.plan.sleep(planentry));
     }
 
-    protected boolean processAgentSleepUntil(Agent agent, long planentry) {
-        int sleep = Agent.getSleepPlanEntry(planentry);
+    private boolean sleepUntil(Agent agent, int sleep) {
         add_delayed_agent(agent, Math.max(sleep, secs + 1));
         advanceAgentandSetEventTime(agent);
         return true;
     }
 
-    protected boolean processAgentWait(Agent agent, long planentry) {
+    protected boolean processAgentWait(Agent agent, int planentry) {
         advanceAgentandSetEventTime(agent);
-        int routeid = Agent.getRoutePlanEntry(planentry);
-        int accessStop = Agent.getStopPlanEntry(planentry);
+        int routeid = agent.plan.route(planentry);
+        int accessStop = agent.plan.stop(planentry);
         // Note: getNextStop needs to be called after advanveAgent.
         int egressStop = agent.getNextStopPlanEntry();
         int lineid = line_of_route[routeid];
@@ -152,7 +172,7 @@ public class Realm {
         return true;
     }
 
-    protected boolean processAgentStopArrive(Agent agent, long planentry) {
+    protected boolean processAgentStopArrive(Agent agent, int planentry) {
         add_delayed_agent(agent, secs + 1);
         advanceAgentandSetEventTime(agent);
         // Although we want the agent to be processed in the next tick, we
@@ -160,12 +180,12 @@ public class Realm {
         return true;
     }
 
-    protected boolean processAgentStopDelay(Agent agent, long planentry) {
-        int routeid = Agent.getRoutePlanEntry(planentry);
-        int stopid = Agent.getStopPlanEntry(planentry);
-        int stopidx = Agent.getStopIndexPlanEntry(planentry);
+    protected boolean processAgentStopDelay(Agent agent, int planentry) {
+        int routeid = agent.plan.route(planentry);
+        int stopid = agent.plan.stop(planentry);
+        int stopidx = agent.plan.stopIndex(planentry);
         int lineid = line_of_route[routeid];
-        int departure = Agent.getDeparture(planentry);
+        int departure = agent.plan.departure(planentry);
         ArrayList<Integer> next_stops = stops_in_route.get(routeid);
         Map<Integer, ArrayDeque<Agent>> agents_next_stops =
             agent_stops.get(stopid).get(lineid);
@@ -180,7 +200,7 @@ public class Realm {
             // consume access, activate egress
             advanceAgentandSetEventTime(out);
             // set driver in agent's event
-            setEventVehicle(out, Agent.getPlanEvent(out.currPlan()), agent.id);
+            setEventVehicle(out, out.currPlanEvent(), agent.id);
         }
 
         // take agents
@@ -200,7 +220,7 @@ public class Realm {
                 // consume wait in stop, activate access
                 advanceAgentandSetEventTime(in);
                 // set driver in agent's event
-                setEventVehicle(in, Agent.getPlanEvent(in.currPlan()), agent.id);
+                setEventVehicle(in, in.currPlanEvent(), agent.id);
             }
             in_agents.removeAll(removed);
         }
@@ -209,7 +229,7 @@ public class Realm {
         return true;
     }
 
-    protected boolean processAgentStopDepart(Agent agent, long planentry) {
+    protected boolean processAgentStopDepart(Agent agent, int planentry) {
         advanceAgentandSetEventTime(agent);
         // False is returned to force this agent to be processed in the next tick.
         // This will mean that the vehicle will be processed in the next tick.
@@ -218,8 +238,8 @@ public class Realm {
 
     protected boolean processAgent(Agent agent, int currLinkId) {
         // Peek the next plan element and try to execute it.
-        long planentry = agent.plan.get(agent.planIndex + 1);
-        int type = Agent.getPlanHeader(planentry);
+        int planentry = agent.planIndex + 1;
+        int type = agent.plan.header(planentry);
         switch (type) {
             case Agent.LinkType:        return processAgentLink(agent, planentry, currLinkId);
             case Agent.SleepForType:    return processAgentSleepFor(agent, planentry);
@@ -282,35 +302,46 @@ public class Realm {
     }
 
     public void run() throws Exception {
-    	int routed = 0;
-        Agent agent = null;
-        HLink link = null;
-
         while (secs != HermesConfigGroup.SIM_STEPS) {
             if (secs % 3600 == 0){
                 log.info("Hermes running at " + Time.writeTime(secs));
             }
-            while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
+            int routed = processTimeStep(secs);
+            if (HermesConfigGroup.DEBUG_REALMS && routed > 0) log(secs, String.format("Processed %d agents", routed));
+            if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sorted_events.size() > 0) {
+                eventsManager.processEvents(sorted_events);
+                sorted_events = new EventArray();
+            }
+
+            secs += 1;
+        }
+    }
+
+    // Processes the agents and links that wake up at the given time, returns the number of routed agents.
+    protected int processTimeStep(int time) {
+        int routed = 0;
+        Agent agent = null;
+        HLink link = null;
+        secs = time;
+
+        ArrayDeque<Agent> agents = delayedAgentsByWakeupTime.get(secs);
+        if (agents != null) {
+            while ((agent = agents.poll()) != null) {
                 if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("Processing agent %d", agent.id));
                 routed += processAgentActivities(agent);
-
             }
             delayedAgentsByWakeupTime.set(secs,null);
+        }
 
-            while ((link = delayedLinksByWakeupTime.get(secs).poll()) != null) {
+        ArrayDeque<HLink> links = delayedLinksByWakeupTime.get(secs);
+        if (links != null) {
+            while ((link = links.poll()) != null) {
                 if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("Processing link %d", link.id()));
                 routed += processLinks(link);
             }
             delayedLinksByWakeupTime.set(secs,null);
-            if (HermesConfigGroup.DEBUG_REALMS && routed > 0) log(secs, String.format("Processed %d agents", routed));
-            if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sorted_events.size() > 0) {
-                eventsManager.processEvents(sorted_events);
-                sorted_events = new EventArray();
-            }
-
-            routed = 0;
-            secs += 1;
         }
+        return routed;
     }
 
     public void setEventTime(Agent agent, int eventid, int time, boolean lastevent) {
@@ -358,7 +389,17 @@ public class Realm {
         }
     }
 
-    ArrayList<ArrayDeque<HLink>> delayedLinks() { return this.delayedLinksByWakeupTime; }
-    ArrayList<ArrayDeque<Agent>> delayedAgents() { return this.delayedAgentsByWakeupTime; }
+    // Used to put the agents and links to their initial position.
+    void delayAgent(Agent agent, int until) { add_delayed_agent(agent, until); }
+    void delayLink(HLink link, int until) { add_delayed_link(link, until); }
+
+    // Moves the events sorted so far to the given array.
+    void moveSortedEvents(EventArray target) {
+        for (int i = 0; i < sorted_events.size(); i++) {
+            target.add(sorted_events.get(i));
+        }
+        sorted_events.clear();
+    }
+
     EventArray getSortedEvents() { return this.sorted_events; }
 }
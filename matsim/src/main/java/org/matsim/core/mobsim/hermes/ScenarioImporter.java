@@ -8,6 +8,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
@@ -27,6 +28,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.Route;
@@ -82,7 +84,13 @@ public class ScenarioImporter {
     // Note: in order to make MATSim Agent ids, some positions in the array might be null.
     protected Agent[] hermes_agents;
 
+    // Selected plans of the persons that are encoded in their agents, by hermes id. Plans that are still selected
+    // in the next iteration are not encoded again.
+    private Plan[] encoded_plans;
+
 	protected Realm realm;
+	// Partitions of the network used by the parallel realm, kept across iterations.
+	private ParallelRealm.Partitioning partitioning;
 	private final boolean deterministicPt;
 	// Agents waiting in pt stations. Should be used as follows:
 	// agent_stops.get(curr station id).get(line id).get(dst station id) -> queue of agents
@@ -143,10 +151,14 @@ public class ScenarioImporter {
                     link.reset();
                 }
     	    	}
-    	    	// reset agent plans and events
+    	    	// reset agents, the plans and events of persons are only reset if their selected plan changed
     	        for (int i = 0; i < hermes_agents.length; i++) {
     	        	if (hermes_agents[i] != null) {
-    	        		hermes_agents[i].reset();
+    	        		if (i < agent_persons) {
+    	        			hermes_agents[i].resetProgress();
+    	        		} else {
+    	        			hermes_agents[i].reset();
+    	        		}
     	        	}
     	    	}
     	    	// reset agent_stops
@@ -188,10 +200,6 @@ public class ScenarioImporter {
             	flowCapactiy = (int) Math.round(effectiveflowCapacityPerSec);
             }
 
-            if (link_id > HermesConfigGroup.MAX_LINK_ID) {
-                throw new RuntimeException("exceeded maximum number of links");
-            }
-
             hermes_links[link_id] = new HLink(link_id, storageCapacity, length, speed, flowPeriod, flowCapactiy, scenario.getConfig().hermes().getStuckTime());
         }
     }
@@ -249,7 +257,15 @@ public class ScenarioImporter {
     }
 
     private void generateRealms() throws Exception {
-        realm = new Realm(this, eventsManager);
+        int threads = scenario.getConfig().hermes().getNumberOfThreads();
+        if (threads > 1) {
+            if (partitioning == null || partitioning.numberOfPartitions != threads) {
+                partitioning = new ParallelRealm.Partitioning(scenario, threads);
+            }
+            realm = new ParallelRealm(this, eventsManager, partitioning);
+        } else {
+            realm = new Realm(this, eventsManager);
+        }
 
         // Put agents in their initial location (link or activity center)
         for (Agent agent : hermes_agents) {
@@ -257,21 +273,21 @@ public class ScenarioImporter {
             if (agent == null || agent.plan.size() == 0) {
                 continue;
             }
-            long planentry = agent.plan().get(0);
-            int type = Agent.getPlanHeader(planentry);
+            PlanArray plan = agent.plan();
+            int type = plan.header(0);
             // TODO - I should advance agents in a proper way!
             switch (type) {
                 case Agent.LinkType:
-                    int linkid = Agent.getLinkPlanEntry(planentry);
-                    int velocity = Agent.getVelocityPlanEntry(planentry);
+                    int linkid = plan.link(0);
+                    int velocity = plan.velocity(0);
                     HLink link = hermes_links[linkid];
                     agent.linkFinishTime = link.length() / Math.min(velocity, link.velocity());
                     link.push(agent,0);
                     break;
                 case Agent.SleepForType:
                 case Agent.SleepUntilType:
-                    int sleep = Agent.getSleepPlanEntry(planentry);
-                    realm.delayedAgents().get(Math.min(sleep, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
+                    int sleep = plan.sleep(0);
+                    realm.delayAgent(agent, sleep);
                     break;
                 default:
                    Logger.getLogger(getClass()).error( String.format("ERROR -> unknow plan element type %d",type));
@@ -284,7 +300,7 @@ public class ScenarioImporter {
             if (link != null) {
                 int nextwakeup = link.nexttime();
                 if (nextwakeup > 0) {
-                    realm.delayedLinks().get(nextwakeup).add(link);
+                    realm.delayLink(link, nextwakeup);
                 }
             }
         }
@@ -325,13 +341,13 @@ public class ScenarioImporter {
 
         if (act.getEndTime().isDefined()) {
             time = (int) Math.round(act.getEndTime().seconds());
-            flatplan.add(Agent.prepareSleepUntilEntry(eventid, time));
+            flatplan.addSleepUntilEntry(eventid, time);
         } else if (act.getMaximumDuration().isDefined()) {
             time = (int) Math.round(act.getMaximumDuration().seconds());
-            flatplan.add(Agent.prepareSleepForEntry(eventid, time));
+            flatplan.addSleepForEntry(eventid, time);
         } else {
             // TODO - better way to handle this?
-            flatplan.add(Agent.prepareSleepForEntry(eventid, 0));
+            flatplan.addSleepForEntry(eventid, 0);
         }
         events.add(new ActivityEndEvent(0, id, linkid, facid, type));
     }
@@ -359,12 +375,12 @@ public class ScenarioImporter {
 		for (Id<org.matsim.api.core.v01.network.Link> linkid : netroute.getLinkIds()) {
 			int linkId = linkid.index();
             events.add(new LinkEnterEvent(0, vid, linkid));
-            flatplan.add(Agent.prepareLinkEntry(events.size() - 1, linkId, velocity));
+            flatplan.addLinkEntry(events.size() - 1, linkId, velocity);
             events.add(new LinkLeaveEvent(0, vid, linkid));
         }
         if (netroute.getLinkIds().size() > 1 || !startLId.equals(endLId)) {
             events.add(new LinkEnterEvent(0, vid, endLId));
-            flatplan.add(Agent.prepareLinkEntry(events.size() - 1, egressId, velocity));
+            flatplan.addLinkEntry(events.size() - 1, egressId, velocity);
         }
         events.add(new VehicleLeavesTrafficEvent(0, id, endLId, vid, leg.getMode(), 1));
         events.add(new PersonLeavesVehicleEvent(0, id, vid));
@@ -396,11 +412,11 @@ public class ScenarioImporter {
         Id<Vehicle> vid = Id.createVehicleId("tr_X");
         // Add public transport access
         events.add(new AgentWaitingForPtEvent(0, id, access, egress));
-        flatplan.add(Agent.prepareWaitEntry(events.size() - 1, routeid, accessid));
+        flatplan.addWaitEntry(events.size() - 1, routeid, accessid);
         events.add(new PersonEntersVehicleEvent(0, id, vid));
-        flatplan.add(Agent.prepareAccessEntry(events.size() - 1, routeid, accessid));
+        flatplan.addAccessEntry(events.size() - 1, routeid, accessid);
         events.add(new PersonLeavesVehicleEvent(0, id, vid));
-        flatplan.add(Agent.prepareEgressEntry(events.size() - 1, routeid, egressid));
+        flatplan.addEgressEntry(events.size() - 1, routeid, egressid);
     }
 
     private void processPlanElement(
@@ -448,7 +464,7 @@ public class ScenarioImporter {
 		double routeTravelTime = route.getTravelTime().orElse(0.0);
 		double legTravelTime = element.getTravelTime().orElse(0.0);
 		int time = (int) Math.round(Math.max(routeTravelTime, legTravelTime));
-		flatplan.add(Agent.prepareSleepForEntry(events.size() - 1, time));
+		flatplan.addSleepForEntry(events.size() - 1, time);
 		events.add(new TeleportationArrivalEvent(0, id, route.getDistance(), mode));
 	}
 
@@ -458,10 +474,6 @@ public class ScenarioImporter {
 			PlanArray flatplan,
 			EventArray events) {
 
-		if (events.size() >= HermesConfigGroup.MAX_EVENTS_AGENT) {
-			throw new RuntimeException("exceeded maximum number of agent events");
-		}
-
 		hermes_agents[agent_id] = new Agent(agent_id, capacity, flatplan, events);
     }
 
@@ -510,7 +522,7 @@ public class ScenarioImporter {
 		legmode = TransportMode.car;
 
 		// Sleep until the time of departure
-		flatplan.add(Agent.prepareSleepUntilEntry(0, (int) Math.round(depart.getDepartureTime())));
+		flatplan.addSleepUntilEntry(0, (int) Math.round(depart.getDepartureTime()));
 
 		// Prepare to leave
 		flatevents.add(new TransitDriverStartsEvent(0, driverid, v.getId(), tl.getId(), tr.getId(), depart.getId()));
@@ -521,11 +533,11 @@ public class ScenarioImporter {
         // Adding first link and possibly the first stop.
         if (next.getStopFacility().getLinkId().equals(nr.getStartLinkId())) {
             flatevents.add(new VehicleArrivesAtFacilityEvent(0, v.getId(), next.getStopFacility().getId(), arrivalOffsetHelper(depart, next)));
-            flatplan.add(Agent.prepareStopArrivalEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx));
+            flatplan.addStopArrivalEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx);
             // no event associated to stop delay
-            flatplan.add(Agent.prepareStopDelayEntry((int)departureOffsetHelper(depart, next), rid, stop_ids.get(stopidx), stopidx));
+            flatplan.addStopDelayEntry((int)departureOffsetHelper(depart, next), rid, stop_ids.get(stopidx), stopidx);
             flatevents.add(new VehicleDepartsAtFacilityEvent(0, v.getId(), next.getStopFacility().getId(), departureOffsetHelper(depart, next)));
-            flatplan.add(Agent.prepareStopDepartureEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx));
+            flatplan.addStopDepartureEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx);
             flatevents.add(new LinkLeaveEvent(0, v.getId(), nr.getStartLinkId()));
 
             stopidx += 1;
@@ -538,15 +550,15 @@ public class ScenarioImporter {
         for (Id<org.matsim.api.core.v01.network.Link> link : nr.getLinkIds()) {
             int linkid = link.index();
 			flatevents.add(new LinkEnterEvent(0, v.getId(), link));
-			flatplan.add(Agent.prepareLinkEntry(flatevents.size() - 1, linkid, deterministicPt ? (int) Math.round(averageSpeedbetweenStops.get(stopidx - 1)) : velocity));
+			flatplan.addLinkEntry(flatevents.size() - 1, linkid, deterministicPt ? (int) Math.round(averageSpeedbetweenStops.get(stopidx - 1)) : velocity);
             // Adding link and possibly a stop.
             if (next.getStopFacility().getLinkId().equals(link)) {
                 flatevents.add(new VehicleArrivesAtFacilityEvent(0, v.getId(), next.getStopFacility().getId(), arrivalOffsetHelper(depart, next)));
-                flatplan.add(Agent.prepareStopArrivalEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx));
+                flatplan.addStopArrivalEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx);
                 // no event associated to stop delay
-                flatplan.add(Agent.prepareStopDelayEntry((int)departureOffsetHelper(depart, next), rid, stop_ids.get(stopidx), stopidx));
+                flatplan.addStopDelayEntry((int)departureOffsetHelper(depart, next), rid, stop_ids.get(stopidx), stopidx);
                 flatevents.add(new VehicleDepartsAtFacilityEvent(0, v.getId(), next.getStopFacility().getId(), departureOffsetHelper(depart, next)));
-                flatplan.add(Agent.prepareStopDepartureEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx));
+                flatplan.addStopDepartureEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx);
 
                 stopidx += 1;
                 next = trs.get(stopidx);
@@ -556,14 +568,14 @@ public class ScenarioImporter {
 
         // Adding last link and possibly the last stop.
 		flatevents.add(new LinkEnterEvent(0, v.getId(), nr.getEndLinkId()));
-		flatplan.add(Agent.prepareLinkEntry(flatevents.size() - 1, endid, deterministicPt ? (int) Math.round(averageSpeedbetweenStops.get(stopidx - 1)) : velocity));
+		flatplan.addLinkEntry(flatevents.size() - 1, endid, deterministicPt ? (int) Math.round(averageSpeedbetweenStops.get(stopidx - 1)) : velocity);
         if (next.getStopFacility().getLinkId().equals(nr.getEndLinkId())) {
             flatevents.add(new VehicleArrivesAtFacilityEvent(0, v.getId(), next.getStopFacility().getId(), arrivalOffsetHelper(depart, next)));
-            flatplan.add(Agent.prepareStopArrivalEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx));
+            flatplan.addStopArrivalEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx);
             // no event associated to stop delay
-			flatplan.add(Agent.prepareStopDelayEntry((int) departureOffsetHelper(depart, next), rid, stop_ids.get(stopidx), stopidx));
+			flatplan.addStopDelayEntry((int) departureOffsetHelper(depart, next), rid, stop_ids.get(stopidx), stopidx);
 			flatevents.add(new VehicleDepartsAtFacilityEvent(0, v.getId(), next.getStopFacility().getId(), departureOffsetHelper(depart, next)));
-			flatplan.add(Agent.prepareStopDepartureEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx));
+			flatplan.addStopDepartureEntry(flatevents.size() - 1, rid, stop_ids.get(stopidx), stopidx);
 			stopidx += 1;
 		}
 		flatevents.add(new VehicleLeavesTrafficEvent(0, driverid, nr.getEndLinkId(), v.getId(), legmode, 1));
@@ -607,14 +619,33 @@ public class ScenarioImporter {
 
     private void generatePersonPlans() {
         Population population = scenario.getPopulation();
+        boolean[] selected = new boolean[agent_persons];
+        AtomicInteger encoded = new AtomicInteger();
         population.getPersons().values().parallelStream().forEach((person) -> {
         	int hermes_id = hermes_id(person.getId().index(), false);
-        	PlanArray plan = hermes_agents[hermes_id].plan();
-        	EventArray events = hermes_agents[hermes_id].events();
-            for (PlanElement element: person.getSelectedPlan().getPlanElements()) {
+        	Plan selectedPlan = person.getSelectedPlan();
+        	selected[hermes_id] = true;
+        	if (selectedPlan == encoded_plans[hermes_id]) {
+        		return;
+        	}
+        	Agent agent = hermes_agents[hermes_id];
+        	agent.reset();
+        	PlanArray plan = agent.plan();
+        	EventArray events = agent.events();
+            for (PlanElement element: selectedPlan.getPlanElements()) {
 				processPlanElement(person, plan, events, element);
             }
+            encoded_plans[hermes_id] = selectedPlan;
+            encoded.incrementAndGet();
         });
+        // persons removed from the population are not simulated anymore
+        for (int i = 0; i < agent_persons; i++) {
+        	if (!selected[i] && encoded_plans[i] != null) {
+        		hermes_agents[i].reset();
+        		encoded_plans[i] = null;
+        	}
+        }
+        log.info(String.format("ETHZ encoded the plans of %d of %d persons", encoded.get(), population.getPersons().size()));
     }
 
     private void generateAgents() {
@@ -624,6 +655,7 @@ public class ScenarioImporter {
     	int nagents = agent_persons + Id.getNumberOfIds(Vehicle.class);
     	System.out.flush();
         hermes_agents = new Agent[nagents];
+        encoded_plans = new Plan[agent_persons];
 
         // Generate persons
         for (Person person : population.getPersons().values()) {
@@ -107,6 +107,9 @@ abstract class AbstractQLink implements QLinkI {
 
 	private boolean active = false;
 
+	/** number of time steps in which the link was simulated, only counted if the nodes are re-balanced between the runners */
+	/*package*/ int activeSteps = 0;
+
 	private TransitQLink transitQLink;
 	
 	private final QNodeI toQNode ;
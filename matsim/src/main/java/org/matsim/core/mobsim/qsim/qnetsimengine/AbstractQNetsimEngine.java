@@ -20,6 +20,8 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -30,11 +32,13 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NodeAssignment;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
 import org.matsim.core.gbl.Gbl;
@@ -46,6 +50,7 @@ import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
+import org.matsim.core.network.algorithms.CoordinateBisection;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
@@ -90,6 +95,14 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	private double infoTime = 0;
 	private List<A> engines;
 	private InternalInterface internalInterface = null;
+
+	private final NodeAssignment nodeAssignment;
+	private final double nodeRebalancingInterval;
+	private double nextRebalancingTime = Double.POSITIVE_INFINITY;
+	/** the nodes in the order used for the assignment to the runners */
+	private List<QNodeI> nodes = null;
+	private Map<Id<Node>, Integer> nodeIndices = null;
+	private int[] nodeAssignments = null;
 	
 	AbstractQNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory) {
 		this.qsim = sim;
@@ -130,6 +143,8 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		network.initialize(this, sim.getAgentCounter(), sim.getSimTimer() );
 
 		this.numOfThreads = sim.getScenario().getConfig().qsim().getNumberOfThreads();
+		this.nodeAssignment = qSimConfigGroup.getNodeAssignment();
+		this.nodeRebalancingInterval = qSimConfigGroup.getNodeRebalancingInterval();
 	}
 	
 	static AbstractAgentSnapshotInfoBuilder createAgentSnapshotInfoBuilder(Scenario scenario, SnapshotLinkWidthCalculator linkWidthCalculator) {
@@ -222,6 +237,10 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	 */
 	@Override
 	public final void doSimStep(final double time) {
+		if (time >= this.nextRebalancingTime) {
+			rebalanceNetElementActivators(time);
+			this.nextRebalancingTime += this.nodeRebalancingInterval;
+		}
 		run(time);
 		
 		this.printSimLog(time);
@@ -384,18 +403,67 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	 * to the Thread that handles its InNode.
 	 */
 	private void assignNetElementActivators() {
+		this.nodes = new ArrayList<>(network.getNetsimNodes().values());
+		this.nodeIndices = new HashMap<>(this.nodes.size() * 2);
+		for (int i = 0; i < this.nodes.size(); i++) {
+			this.nodeIndices.put(this.nodes.get(i).getNode().getId(), i);
+		}
+
+		if (this.nodeAssignment == NodeAssignment.coordinateBisection && this.engines.size() > 1) {
+			// initially, assume that the load of a node grows with the number of its outgoing links
+			double[] weights = new double[this.nodes.size()];
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = 1 + this.nodes.get(i).getNode().getOutLinks().size();
+			}
+			this.nodeAssignments = partitionNodes(weights);
+			if (this.nodeRebalancingInterval > 0) {
+				this.nextRebalancingTime = internalInterface.getMobsim().getSimTimer().getSimStartTime() + this.nodeRebalancingInterval;
+				for (AbstractQNetsimEngineRunner engine : this.engines) {
+					engine.setCountingActiveSteps(true);
+				}
+			}
+		} else {
+			this.nodeAssignments = new int[this.nodes.size()];
+			for (int i = 0; i < this.nodeAssignments.length; i++) {
+				this.nodeAssignments[i] = i % this.engines.size();
+			}
+		}
+
+		int[] links = setNetElementActivators();
 
-		// only for statistics
+		// print some statistics
 		int nodes[] = new int[this.engines.size()];
-		int links[] = new int[this.engines.size()];
+		for (int assignment : this.nodeAssignments) {
+			nodes[assignment]++;
+		}
+		for (int i = 0; i < this.engines.size(); i++) {
+			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
+		}
+	}
 
-		int roundRobin = 0;
-		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.engines.size();
+	private int[] partitionNodes(final double[] weights) {
+		double[] x = new double[this.nodes.size()];
+		double[] y = new double[this.nodes.size()];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = this.nodes.get(i).getNode().getCoord().getX();
+			y[i] = this.nodes.get(i).getNode().getCoord().getY();
+		}
+		return CoordinateBisection.partition(x, y, weights, this.engines.size());
+	}
+
+	/**
+	 * Sets the runner of every node and its outgoing links according to {@link #nodeAssignments}.
+	 *
+	 * @return the number of links per runner
+	 */
+	private int[] setNetElementActivators() {
+		int links[] = new int[this.engines.size()];
+		for (int n = 0; n < this.nodes.size(); n++) {
+			QNodeI node = this.nodes.get(n);
+			int i = this.nodeAssignments[n];
 			if( node instanceof AbstractQNode){
 				((AbstractQNode) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
-			nodes[i]++;
 
 			// set activator for out links
 			for (Link outLink : node.getNode().getOutLinks().values()) {
@@ -416,18 +484,57 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 //				}
 
 				links[i]++;
+			}
+		}
+		return links;
+	}
 
+	/**
+	 * Re-computes the regions of the runners, weighting every node with the number of time steps in which it and its
+	 * outgoing links were active since the last re-balancing. The currently active nodes and links are moved to their
+	 * new runners. This happens between two time steps, so no runner is moving nodes or links.
+	 */
+	private void rebalanceNetElementActivators(final double time) {
+		double[] weights = new double[this.nodes.size()];
+		double[] oldLoads = new double[this.engines.size()];
+		for (int n = 0; n < weights.length; n++) {
+			QNodeI node = this.nodes.get(n);
+			double weight = 1;
+			if (node instanceof AbstractQNode) {
+				weight += ((AbstractQNode) node).activeSteps;
+				((AbstractQNode) node).activeSteps = 0;
 			}
+			for (Id<Link> outLinkId : node.getNode().getOutLinks().keySet()) {
+				AbstractQLink qLink = (AbstractQLink) network.getNetsimLink(outLinkId);
+				weight += qLink.activeSteps;
+				qLink.activeSteps = 0;
+			}
+			weights[n] = weight;
+			oldLoads[this.nodeAssignments[n]] += weight;
+		}
 
-			roundRobin++;
+		List<QNodeI> activeNodes = new ArrayList<>();
+		List<QLinkI> activeLinks = new ArrayList<>();
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
+			engine.removeActiveElements(activeNodes, activeLinks);
 		}
 
-		// print some statistics
-		for (int i = 0; i < this.engines.size(); i++) {
-			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
+		this.nodeAssignments = partitionNodes(weights);
+		setNetElementActivators();
+
+		for (QNodeI node : activeNodes) {
+			this.engines.get(this.nodeAssignments[this.nodeIndices.get(node.getNode().getId())]).registerNodeAsActive(node);
+		}
+		for (QLinkI link : activeLinks) {
+			this.engines.get(this.nodeAssignments[this.nodeIndices.get(link.getLink().getFromNode().getId())]).registerLinkAsActive(link);
 		}
 
-//		this.linksToActivateInitially.clear();
+		double[] newLoads = new double[this.engines.size()];
+		for (int n = 0; n < weights.length; n++) {
+			newLoads[this.nodeAssignments[n]] += weights[n];
+		}
+		log.info("SIMULATION (QNetsimEngine) AT " + Time.writeTime(time) + ": re-balanced the nodes between the runners, load before: "
+				+ Arrays.toString(oldLoads) + ", expected load after: " + Arrays.toString(newLoads));
 	}
 
 	private final void arrangeNextAgentState(MobsimAgent pp) {
@@ -20,6 +20,7 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -70,6 +71,11 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	private boolean lockNodes = false;
 	private boolean lockLinks = false;
 
+	/*
+	 * Count the active time steps of the nodes and links as weights for re-balancing the nodes between the runners.
+	 */
+	private boolean countingActiveSteps = false;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -90,6 +96,7 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		Iterator<QNodeI> simNodes = this.nodesQueue.iterator();
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
+			if (this.countingActiveSteps && node instanceof AbstractQNode) ((AbstractQNode) node).activeSteps++;
 			remainsActive = node.doSimStep(time);
 			if (!remainsActive) simNodes.remove();
 		}
@@ -103,6 +110,7 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		ListIterator<QLinkI> simLinks = this.linksList.listIterator();
 		while (simLinks.hasNext()) {
 			link = simLinks.next();
+			if (this.countingActiveSteps && link instanceof AbstractQLink) ((AbstractQLink) link).activeSteps++;
 
 			remainsActive = link.doSimStep();
 
@@ -117,7 +125,7 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 * cdobler, sep'14
 	 */
 	@Override
-	protected final void registerLinkAsActive(QLinkI link) {
+	protected void registerLinkAsActive(QLinkI link) {
 		if (!lockLinks) linksList.add(link);
 		else throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
 	}
@@ -133,7 +141,7 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 * cdobler, sep'14
 	 */
 	@Override
-	protected final void registerNodeAsActive(QNodeI node) {
+	protected void registerNodeAsActive(QNodeI node) {
 		if (!this.lockNodes) this.nodesQueue.add(node);
 		else throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
 	}
@@ -149,6 +157,33 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		return this.nodesQueue.size();
 	}
 
+	/*package*/ final void setCountingActiveSteps(final boolean countingActiveSteps) {
+		this.countingActiveSteps = countingActiveSteps;
+	}
+
+	/**
+	 * Moves the active nodes and links of this runner to the given collections, e.g. to register them with another
+	 * runner. Must only be called between two time steps.
+	 */
+	/*package*/ final void removeActiveElements(final Collection<QNodeI> nodes, final Collection<QLinkI> links) {
+		removeActiveNodes(nodes);
+		removeActiveLinks(links);
+	}
+
+	/*package*/ final void removeActiveNodes(final Collection<QNodeI> nodes) {
+		nodes.addAll(this.nodesQueue);
+		this.nodesQueue.clear();
+	}
+
+	/*package*/ final void removeActiveLinks(final Collection<QLinkI> links) {
+		links.addAll(this.linksList);
+		this.linksList.clear();
+	}
+
+	/*package*/ final boolean isCountingActiveSteps() {
+		return this.countingActiveSteps;
+	}
+
 	protected final void startMeasure() {
 		if (QSim.analyzeRunTimes) this.startTime = System.nanoTime();		
 	}
@@ -48,6 +48,9 @@ abstract class AbstractQNode implements QNodeI {
 
 	// for Customizable
 	private final Map<String, Object> customAttributes = new HashMap<>();
+
+	/** number of time steps in which the node was simulated, only counted if the nodes are re-balanced between the runners */
+	/*package*/ int activeSteps = 0;
 	
 	final Node node;
 
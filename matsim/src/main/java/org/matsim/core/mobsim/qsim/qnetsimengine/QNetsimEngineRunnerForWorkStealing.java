@@ -0,0 +1,165 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineRunnerForWorkStealing.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The runner of the {@link QNetsimEngineWithWorkStealing}. It does not move its nodes and links itself, but only
+ * keeps them between the time steps. Within a time step, they are moved in {@link Chunk}s by the threads of the engine.
+ * <p></p>
+ * While a thread moves the elements of a chunk, all activations are collected by the chunk instead of being
+ * registered directly, as the nodes or links of a runner may be moved by multiple threads at the same time. The
+ * engine registers them after all chunks are done, in the order of the chunks. An element is only recorded by the
+ * chunk which activates it first, so the position of an element activated from multiple chunks depends on the timing
+ * of the threads.
+ */
+/* deliberately package */ final class QNetsimEngineRunnerForWorkStealing extends AbstractQNetsimEngineRunner {
+
+	/** the chunk which is moved by the current thread, if any */
+	private static final ThreadLocal<Chunk> currentChunk = new ThreadLocal<>();
+
+	QNetsimEngineRunnerForWorkStealing() {
+	}
+
+	@Override
+	public void afterSim() {
+	}
+
+	@Override
+	protected void registerNodeAsActive(final QNodeI node) {
+		Chunk chunk = currentChunk.get();
+		if (chunk == null) {
+			super.registerNodeAsActive(node);
+		} else if (chunk.movingNodes) {
+			throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
+		} else {
+			chunk.activatedRunners.add(this);
+			chunk.activatedNodes.add(node);
+		}
+	}
+
+	@Override
+	protected void registerLinkAsActive(final QLinkI link) {
+		Chunk chunk = currentChunk.get();
+		if (chunk == null) {
+			super.registerLinkAsActive(link);
+		} else if (!chunk.movingNodes) {
+			throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		} else {
+			chunk.activatedRunners.add(this);
+			chunk.activatedLinks.add(link);
+		}
+	}
+
+	/**
+	 * A consecutive part of the active nodes or links of a runner, which is moved by one thread.
+	 */
+	static final class Chunk {
+		final QNetsimEngineRunnerForWorkStealing runner;
+		final boolean movingNodes;
+		private final List<QNodeI> nodes;
+		private final List<QLinkI> links;
+		private final int from;
+		private final int to;
+
+		/** the nodes or links which remain active */
+		final List<QNodeI> remainingNodes = new ArrayList<>();
+		final List<QLinkI> remainingLinks = new ArrayList<>();
+
+		/** the activated links (while moving nodes) or nodes (while moving links) and the runners they were registered with */
+		final List<QNetsimEngineRunnerForWorkStealing> activatedRunners = new ArrayList<>();
+		final List<QNodeI> activatedNodes = new ArrayList<>();
+		final List<QLinkI> activatedLinks = new ArrayList<>();
+
+		/** measured while moving */
+		long nanos;
+		int threadIndex;
+
+		private Chunk(final QNetsimEngineRunnerForWorkStealing runner, final List<QNodeI> nodes, final List<QLinkI> links, final int from, final int to) {
+			this.runner = runner;
+			this.movingNodes = nodes != null;
+			this.nodes = nodes;
+			this.links = links;
+			this.from = from;
+			this.to = to;
+		}
+
+		static Chunk ofNodes(final QNetsimEngineRunnerForWorkStealing runner, final List<QNodeI> nodes, final int from, final int to) {
+			return new Chunk(runner, nodes, null, from, to);
+		}
+
+		static Chunk ofLinks(final QNetsimEngineRunnerForWorkStealing runner, final List<QLinkI> links, final int from, final int to) {
+			return new Chunk(runner, null, links, from, to);
+		}
+
+		void move(final double time, final int threadIndex) {
+			long start = System.nanoTime();
+			boolean counting = this.runner.isCountingActiveSteps();
+			currentChunk.set(this);
+			try {
+				if (this.movingNodes) {
+					for (int i = this.from; i < this.to; i++) {
+						QNodeI node = this.nodes.get(i);
+						if (counting && node instanceof AbstractQNode) ((AbstractQNode) node).activeSteps++;
+						if (node.doSimStep(time)) this.remainingNodes.add(node);
+					}
+				} else {
+					for (int i = this.from; i < this.to; i++) {
+						QLinkI link = this.links.get(i);
+						if (counting && link instanceof AbstractQLink) ((AbstractQLink) link).activeSteps++;
+						if (link.doSimStep()) this.remainingLinks.add(link);
+					}
+				}
+			} finally {
+				currentChunk.remove();
+			}
+			this.threadIndex = threadIndex;
+			this.nanos = System.nanoTime() - start;
+		}
+
+		/**
+		 * Registers the nodes or links which remain active with the runner. Must only be called after all chunks are moved.
+		 */
+		void registerRemaining() {
+			for (QNodeI node : this.remainingNodes) {
+				this.runner.registerNodeAsActive(node);
+			}
+			for (QLinkI link : this.remainingLinks) {
+				this.runner.registerLinkAsActive(link);
+			}
+		}
+
+		/**
+		 * Registers the activated nodes or links with their runners. Must only be called after all chunks are moved.
+		 */
+		void registerActivated() {
+			for (int i = 0; i < this.activatedNodes.size(); i++) {
+				this.activatedRunners.get(i).registerNodeAsActive(this.activatedNodes.get(i));
+			}
+			for (int i = 0; i < this.activatedLinks.size(); i++) {
+				this.activatedRunners.get(i).registerLinkAsActive(this.activatedLinks.get(i));
+			}
+		}
+	}
+
+}
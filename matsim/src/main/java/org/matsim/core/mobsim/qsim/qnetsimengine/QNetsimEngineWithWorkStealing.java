@@ -0,0 +1,298 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWithWorkStealing.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineRunnerForWorkStealing.Chunk;
+import org.matsim.core.utils.misc.Time;
+
+/**
+ * Coordinates the movement of vehicles on the links and the nodes, like the {@link QNetsimEngineWithThreadpool}, but
+ * balances the load between the threads dynamically.
+ * <p></p>
+ * In every time step, the active nodes (and afterwards the active links) of every runner are split into chunks. The
+ * runners are started on a {@link ForkJoinPool}. Each of them recursively splits its chunks, keeping one half and
+ * offering the other one in the deque of its thread, from which idle threads steal it. Thus, a runner with many
+ * active elements does not determine the duration of the time step alone.
+ * <p></p>
+ * Nodes and links which are activated while moving are collected per chunk and registered after all chunks are done,
+ * in the order of the chunks (see {@link QNetsimEngineRunnerForWorkStealing}). Note that this does not make the order
+ * of the active elements independent of the scheduling of the threads: a node which is activated by links of different
+ * chunks is recorded by the chunk whose thread activates it first.
+ * <p></p>
+ * The engine measures how long every chunk takes and logs the imbalance of the threads, i.e. the ratio of the
+ * busiest thread to the average, together with the imbalance the runners would have had without stealing.
+ */
+/* deliberately package */ final class QNetsimEngineWithWorkStealing extends AbstractQNetsimEngine<QNetsimEngineRunnerForWorkStealing> {
+
+	private static final Logger log = Logger.getLogger(QNetsimEngineWithWorkStealing.class);
+
+	/** number of nodes or links moved as one task */
+	private static final int CHUNK_SIZE = 64;
+	private static final int STATISTICS_PERIOD = 3600;
+
+	private ForkJoinPool pool;
+
+	private final Statistics periodStatistics = new Statistics();
+	private final Statistics totalStatistics = new Statistics();
+	private double statisticsTime = Double.NEGATIVE_INFINITY;
+
+	/* measurements of the current time step, in nanoseconds */
+	private long stepSpan;
+	private long stepRunnerSpan;
+	private long stepTotal;
+
+	public QNetsimEngineWithWorkStealing(final QSim sim) {
+		this(sim, null);
+	}
+
+	@Inject
+	public QNetsimEngineWithWorkStealing(final QSim sim, QNetworkFactory netsimNetworkFactory) {
+		super(sim, netsimNetworkFactory);
+	}
+
+	@Override
+	protected List<QNetsimEngineRunnerForWorkStealing> initQSimEngineRunners() {
+		List<QNetsimEngineRunnerForWorkStealing> engines = new ArrayList<>();
+		for (int i = 0; i < this.numOfThreads; i++) {
+			engines.add(new QNetsimEngineRunnerForWorkStealing());
+		}
+		return engines;
+	}
+
+	@Override
+	protected void initMultiThreading() {
+		this.pool = new ForkJoinPool(this.numOfThreads, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+			private int count = 0;
+
+			@Override
+			public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName("QNetsimEngine_WorkStealingThread_" + this.count++);
+				return thread;
+			}
+		}, null, false);
+	}
+
+	@Override
+	protected void finishMultiThreading() {
+		this.pool.shutdown();
+		if (this.totalStatistics.steps > 0) {
+			log.info(this.totalStatistics.toString("SIMULATION (QNetsimEngine) work stealing in total"));
+		}
+	}
+
+	@Override
+	protected void run(final double time) {
+		if (time >= this.statisticsTime) {
+			if (this.periodStatistics.steps > 0) {
+				log.info(this.periodStatistics.toString("SIMULATION (QNetsimEngine) AT " + Time.writeTime(time) + " : work stealing"));
+			}
+			this.periodStatistics.reset();
+			this.statisticsTime = (Math.floor(time / STATISTICS_PERIOD) + 1) * STATISTICS_PERIOD;
+		}
+
+		for (AbstractQNetsimEngineRunner engine : this.getQnetsimEngineRunner()) {
+			engine.setTime(time);
+		}
+		this.stepSpan = 0;
+		this.stepRunnerSpan = 0;
+		this.stepTotal = 0;
+
+		// nodes
+		List<QNetsimEngineRunnerForWorkStealing> runners = this.getQnetsimEngineRunner();
+		List<List<Chunk>> chunks = new ArrayList<>(runners.size());
+		for (QNetsimEngineRunnerForWorkStealing runner : runners) {
+			List<QNodeI> nodes = new ArrayList<>();
+			runner.removeActiveNodes(nodes);
+			List<Chunk> runnerChunks = new ArrayList<>(nodes.size() / CHUNK_SIZE + 1);
+			for (int from = 0; from < nodes.size(); from += CHUNK_SIZE) {
+				runnerChunks.add(Chunk.ofNodes(runner, nodes, from, Math.min(from + CHUNK_SIZE, nodes.size())));
+			}
+			chunks.add(runnerChunks);
+		}
+		move(time, chunks);
+
+		// links
+		chunks.clear();
+		for (QNetsimEngineRunnerForWorkStealing runner : runners) {
+			List<QLinkI> links = new ArrayList<>();
+			runner.removeActiveLinks(links);
+			List<Chunk> runnerChunks = new ArrayList<>(links.size() / CHUNK_SIZE + 1);
+			for (int from = 0; from < links.size(); from += CHUNK_SIZE) {
+				runnerChunks.add(Chunk.ofLinks(runner, links, from, Math.min(from + CHUNK_SIZE, links.size())));
+			}
+			chunks.add(runnerChunks);
+		}
+		move(time, chunks);
+
+		if (this.stepTotal > 0) {
+			double ideal = (double) this.stepTotal / this.numOfThreads;
+			this.periodStatistics.add(this.stepSpan, this.stepRunnerSpan, ideal);
+			this.totalStatistics.add(this.stepSpan, this.stepRunnerSpan, ideal);
+		}
+	}
+
+	/**
+	 * Moves the chunks of all runners and registers the remaining and the activated elements afterwards. The duration
+	 * of the phase, i.e. the largest sum of the chunk durations of one thread, is added to the measurements of the time
+	 * step, together with the duration the phase would have had without stealing.
+	 */
+	private void move(final double time, final List<List<Chunk>> chunks) {
+		boolean empty = true;
+		for (List<Chunk> runnerChunks : chunks) {
+			empty = empty && runnerChunks.isEmpty();
+		}
+		if (empty) {
+			return;
+		}
+
+		List<RunnerTask> tasks = new ArrayList<>(chunks.size());
+		for (List<Chunk> runnerChunks : chunks) {
+			tasks.add(new RunnerTask(time, runnerChunks, 0, runnerChunks.size()));
+		}
+		this.pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+
+		long[] runnerNanos = new long[chunks.size()];
+		long[] threadNanos = new long[this.numOfThreads];
+		for (int r = 0; r < chunks.size(); r++) {
+			for (Chunk chunk : chunks.get(r)) {
+				chunk.registerRemaining();
+				runnerNanos[r] += chunk.nanos;
+				if (chunk.threadIndex >= threadNanos.length) {
+					threadNanos = Arrays.copyOf(threadNanos, chunk.threadIndex + 1);
+				}
+				threadNanos[chunk.threadIndex] += chunk.nanos;
+				this.stepTotal += chunk.nanos;
+			}
+		}
+		for (List<Chunk> runnerChunks : chunks) {
+			for (Chunk chunk : runnerChunks) {
+				chunk.registerActivated();
+			}
+		}
+		// without stealing, all chunks of a runner would have been moved by one thread
+		this.stepSpan += max(threadNanos);
+		this.stepRunnerSpan += max(runnerNanos);
+	}
+
+	private static long max(final long[] values) {
+		long max = 0;
+		for (long value : values) {
+			max = Math.max(max, value);
+		}
+		return max;
+	}
+
+	/**
+	 * Moves the chunks <code>from</code> (inclusive) to <code>to</code> (exclusive) of a runner. If there is more than
+	 * one, the second half is offered to other threads.
+	 */
+	private static final class RunnerTask extends RecursiveAction {
+		private final double time;
+		private final List<Chunk> chunks;
+		private final int from;
+		private final int to;
+
+		RunnerTask(final double time, final List<Chunk> chunks, final int from, final int to) {
+			this.time = time;
+			this.chunks = chunks;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			int from = this.from;
+			int to = this.to;
+			List<RunnerTask> forked = new ArrayList<>();
+			while (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				RunnerTask task = new RunnerTask(this.time, this.chunks, middle, to);
+				task.fork();
+				forked.add(task);
+				to = middle;
+			}
+			if (from < to) {
+				Thread thread = Thread.currentThread();
+				int threadIndex = thread instanceof ForkJoinWorkerThread ? ((ForkJoinWorkerThread) thread).getPoolIndex() : 0;
+				this.chunks.get(from).move(this.time, threadIndex);
+			}
+			for (int i = forked.size() - 1; i >= 0; i--) {
+				forked.get(i).join();
+			}
+		}
+	}
+
+	/**
+	 * The imbalance of the threads in a number of time steps.
+	 */
+	private static final class Statistics {
+		private int steps;
+		/** sums of the time step durations, with and without stealing, and of the ideal durations */
+		private double span;
+		private double runnerSpan;
+		private double idealSpan;
+		private double maxImbalance;
+		private double maxRunnerImbalance;
+
+		void add(final double span, final double runnerSpan, final double ideal) {
+			this.steps++;
+			this.span += span;
+			this.runnerSpan += runnerSpan;
+			this.idealSpan += ideal;
+			this.maxImbalance = Math.max(this.maxImbalance, span / ideal);
+			this.maxRunnerImbalance = Math.max(this.maxRunnerImbalance, runnerSpan / ideal);
+		}
+
+		void reset() {
+			this.steps = 0;
+			this.span = 0;
+			this.runnerSpan = 0;
+			this.idealSpan = 0;
+			this.maxImbalance = 0;
+			this.maxRunnerImbalance = 0;
+		}
+
+		String toString(final String prefix) {
+			return String.format(Locale.ROOT, "%s: %d time steps, imbalance of the threads (busiest / average): %.2f (max %.2f per step), "
+					+ "imbalance of the runners without stealing: %.2f (max %.2f per step)",
+					prefix, this.steps, this.span / this.idealSpan, this.maxImbalance, this.runnerSpan / this.idealSpan, this.maxRunnerImbalance);
+		}
+	}
+
+}
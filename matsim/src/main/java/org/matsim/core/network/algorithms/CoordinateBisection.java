@@ -0,0 +1,96 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CoordinateBisection.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Splits weighted points into a number of parts by recursive coordinate bisection: the points are split along the
+ * axis with the larger extent such that the weights of the two halves are proportional to the number of parts each
+ * half is split into afterwards. Thus, every part is a contiguous region of roughly the same total weight.
+ * <p></p>
+ * Used to assign the nodes of the network to the threads of the QSim, so that neighbouring nodes are handled by the
+ * same thread and the load is distributed evenly, and by {@link NetworkPartitioning}.
+ */
+public final class CoordinateBisection {
+
+	private final double[] x;
+	private final double[] y;
+	private final double[] weights;
+	private final int[] parts;
+
+	private CoordinateBisection(final double[] x, final double[] y, final double[] weights) {
+		this.x = x;
+		this.y = y;
+		this.weights = weights;
+		this.parts = new int[x.length];
+	}
+
+	/**
+	 * @return the part (<code>0 &lt;= part &lt; numberOfParts</code>) of every point
+	 */
+	public static int[] partition(final double[] x, final double[] y, final double[] weights, final int numberOfParts) {
+		CoordinateBisection bisection = new CoordinateBisection(x, y, weights);
+		Integer[] points = new Integer[x.length];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = i;
+		}
+		bisection.split(points, 0, points.length, 0, numberOfParts);
+		return bisection.parts;
+	}
+
+	private void split(final Integer[] points, final int from, final int to, final int firstPart, final int numberOfParts) {
+		if (numberOfParts == 1 || to - from <= 1) {
+			for (int i = from; i < to; i++) {
+				this.parts[points[i]] = firstPart;
+			}
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double totalWeight = 0;
+		for (int i = from; i < to; i++) {
+			int p = points[i];
+			minX = Math.min(minX, this.x[p]);
+			maxX = Math.max(maxX, this.x[p]);
+			minY = Math.min(minY, this.y[p]);
+			maxY = Math.max(maxY, this.y[p]);
+			totalWeight += this.weights[p];
+		}
+		final double[] coordinate = (maxX - minX >= maxY - minY) ? this.x : this.y;
+		Arrays.sort(points, from, to, Comparator.comparingDouble((Integer p) -> coordinate[p]).thenComparingInt(p -> p));
+
+		int leftParts = numberOfParts / 2;
+		double targetWeight = totalWeight * leftParts / numberOfParts;
+		double weight = 0;
+		int middle = from;
+		while (middle < to - 1 && weight + this.weights[points[middle]] / 2 < targetWeight) {
+			weight += this.weights[points[middle]];
+			middle++;
+		}
+		split(points, from, middle, firstPart, leftParts);
+		split(points, middle, to, firstPart + leftParts, numberOfParts - leftParts);
+	}
+
+}
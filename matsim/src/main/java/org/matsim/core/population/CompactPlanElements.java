@@ -0,0 +1,346 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanElements.java     
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.AbstractRoute;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * The plan elements of a plan, encoded into a few arrays instead of one object per activity, leg, route and link id.
+ * Ids are stored by their index, times and distances as doubles, and activity types, modes and attribute keys as
+ * interned strings.  Activities, legs and routes of other implementations than the default ones, as well as attribute
+ * values, are kept by reference, so that the encoding is lossless for all plans.
+ * <p></p>
+ * Instances are immutable.  {@link #decode()} creates new plan elements on every call.
+ *
+ */
+/* deliberately package */ final class CompactPlanElements {
+
+	private static final int ACTIVITY = 0;
+	private static final int LEG = 1;
+	private static final int OTHER_ELEMENT = 2;
+
+	private static final int NO_ROUTE = 0;
+	private static final int LINK_NETWORK_ROUTE = 1;
+	private static final int GENERIC_ROUTE = 2;
+	private static final int OTHER_ROUTE = 3;
+
+	private static final int NO_COORD = 0;
+	private static final int COORD_XY = 1;
+	private static final int COORD_XYZ = 2;
+
+	private static final int NO_ID = -1;
+
+	// only the default network route can be re-created by the encoding, all other NetworkRoutes are kept by reference
+	private static final Class<? extends Route> LINK_NETWORK_ROUTE_CLASS = RouteUtils.createLinkNetworkRouteImpl(null, null).getClass();
+
+	private final int size;
+	private final int[] ints;
+	private final double[] doubles;
+	private final Object[] objects;
+
+	private CompactPlanElements(int size, int[] ints, double[] doubles, Object[] objects) {
+		this.size = size;
+		this.ints = ints;
+		this.doubles = doubles;
+		this.objects = objects;
+	}
+
+	/* deliberately package */ int size() {
+		return this.size;
+	}
+
+	/* deliberately package */ static CompactPlanElements encode(List<PlanElement> planElements) {
+		Encoder encoder = new Encoder();
+		for (PlanElement pe : planElements) {
+			if (pe.getClass() == ActivityImpl.class) {
+				encoder.addInt(ACTIVITY);
+				encodeActivity(encoder, (Activity) pe);
+			} else if (pe.getClass() == LegImpl.class) {
+				encoder.addInt(LEG);
+				encodeLeg(encoder, (Leg) pe);
+			} else {
+				encoder.addInt(OTHER_ELEMENT);
+				encoder.addObject(pe);
+			}
+		}
+		return new CompactPlanElements(planElements.size(), Arrays.copyOf(encoder.ints, encoder.intCount),
+				Arrays.copyOf(encoder.doubles, encoder.doubleCount), Arrays.copyOf(encoder.objects, encoder.objectCount));
+	}
+
+	/* deliberately package */ ArrayList<PlanElement> decode() {
+		ArrayList<PlanElement> planElements = new ArrayList<>(this.size);
+		Decoder decoder = new Decoder();
+		for (int i = 0; i < this.size; i++) {
+			int kind = decoder.nextInt();
+			if (kind == ACTIVITY) {
+				planElements.add(decodeActivity(decoder));
+			} else if (kind == LEG) {
+				planElements.add(decodeLeg(decoder));
+			} else {
+				planElements.add((PlanElement) decoder.nextObject());
+			}
+		}
+		return planElements;
+	}
+
+	private static void encodeActivity(Encoder encoder, Activity act) {
+		encoder.addObject(intern(act.getType()));
+		encoder.addInt(indexOf(act.getLinkId()));
+		encoder.addInt(indexOf(act.getFacilityId()));
+		encoder.addTime(act.getStartTime());
+		encoder.addTime(act.getEndTime());
+		encoder.addTime(act.getMaximumDuration());
+		Coord coord = act.getCoord();
+		if (coord == null) {
+			encoder.addInt(NO_COORD);
+		} else {
+			encoder.addInt(coord.hasZ() ? COORD_XYZ : COORD_XY);
+			encoder.addDouble(coord.getX());
+			encoder.addDouble(coord.getY());
+			if (coord.hasZ()) {
+				encoder.addDouble(coord.getZ());
+			}
+		}
+		encodeAttributes(encoder, act.getAttributes());
+	}
+
+	private Activity decodeActivity(Decoder decoder) {
+		Activity act = new ActivityImpl((String) decoder.nextObject());
+		act.setLinkId(decoder.nextId(Link.class));
+		act.setFacilityId(decoder.nextId(ActivityFacility.class));
+		double startTime = decoder.nextDouble();
+		if (!Double.isNaN(startTime)) {
+			act.setStartTime(startTime);
+		}
+		double endTime = decoder.nextDouble();
+		if (!Double.isNaN(endTime)) {
+			act.setEndTime(endTime);
+		}
+		double duration = decoder.nextDouble();
+		if (!Double.isNaN(duration)) {
+			act.setMaximumDuration(duration);
+		}
+		int coordType = decoder.nextInt();
+		if (coordType == COORD_XY) {
+			act.setCoord(new Coord(decoder.nextDouble(), decoder.nextDouble()));
+		} else if (coordType == COORD_XYZ) {
+			act.setCoord(new Coord(decoder.nextDouble(), decoder.nextDouble(), decoder.nextDouble()));
+		}
+		decodeAttributes(decoder, act.getAttributes());
+		return act;
+	}
+
+	private static void encodeLeg(Encoder encoder, Leg leg) {
+		encoder.addObject(intern(leg.getMode()));
+		encoder.addTime(leg.getDepartureTime());
+		encoder.addTime(leg.getTravelTime());
+		encodeAttributes(encoder, leg.getAttributes());
+
+		Route route = leg.getRoute();
+		if (route == null) {
+			encoder.addInt(NO_ROUTE);
+		} else if (route.getClass() == LINK_NETWORK_ROUTE_CLASS) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			encoder.addInt(LINK_NETWORK_ROUTE);
+			encoder.addInt(indexOf(route.getStartLinkId()));
+			encoder.addInt(indexOf(route.getEndLinkId()));
+			encoder.addInt(indexOf(networkRoute.getVehicleId()));
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			encoder.addInt(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				encoder.addInt(linkId.index());
+			}
+			encoder.addDouble(route.getDistance());
+			encoder.addTime(route.getTravelTime());
+			encoder.addDouble(networkRoute.getTravelCost());
+			encoder.addInt(((AbstractRoute) route).isLocked() ? 1 : 0);
+		} else if (route.getClass() == GenericRouteImpl.class) {
+			encoder.addInt(GENERIC_ROUTE);
+			encoder.addInt(indexOf(route.getStartLinkId()));
+			encoder.addInt(indexOf(route.getEndLinkId()));
+			encoder.addDouble(route.getDistance());
+			encoder.addTime(route.getTravelTime());
+			encoder.addObject(route.getRouteDescription());
+			encoder.addInt(((AbstractRoute) route).isLocked() ? 1 : 0);
+		} else {
+			encoder.addInt(OTHER_ROUTE);
+			encoder.addObject(route);
+		}
+	}
+
+	private Leg decodeLeg(Decoder decoder) {
+		Leg leg = new LegImpl((String) decoder.nextObject());
+		double departureTime = decoder.nextDouble();
+		if (!Double.isNaN(departureTime)) {
+			leg.setDepartureTime(departureTime);
+		}
+		double travelTime = decoder.nextDouble();
+		if (!Double.isNaN(travelTime)) {
+			leg.setTravelTime(travelTime);
+		}
+		decodeAttributes(decoder, leg.getAttributes());
+
+		int routeType = decoder.nextInt();
+		if (routeType == LINK_NETWORK_ROUTE) {
+			Id<Link> startLinkId = decoder.nextId(Link.class);
+			Id<Link> endLinkId = decoder.nextId(Link.class);
+			Id<Vehicle> vehicleId = decoder.nextId(Vehicle.class);
+			int linkCount = decoder.nextInt();
+			List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+			for (int i = 0; i < linkCount; i++) {
+				linkIds.add(decoder.nextId(Link.class));
+			}
+			NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(startLinkId, endLinkId);
+			route.setLinkIds(startLinkId, linkIds, endLinkId);
+			route.setVehicleId(vehicleId);
+			route.setDistance(decoder.nextDouble());
+			decodeRouteTravelTime(decoder, route);
+			route.setTravelCost(decoder.nextDouble());
+			decodeLocked(decoder, route);
+			leg.setRoute(route);
+		} else if (routeType == GENERIC_ROUTE) {
+			Route route = new GenericRouteImpl(decoder.nextId(Link.class), decoder.nextId(Link.class));
+			route.setDistance(decoder.nextDouble());
+			decodeRouteTravelTime(decoder, route);
+			route.setRouteDescription((String) decoder.nextObject());
+			decodeLocked(decoder, route);
+			leg.setRoute(route);
+		} else if (routeType == OTHER_ROUTE) {
+			leg.setRoute((Route) decoder.nextObject());
+		}
+		return leg;
+	}
+
+	private static void decodeRouteTravelTime(Decoder decoder, Route route) {
+		double travelTime = decoder.nextDouble();
+		if (!Double.isNaN(travelTime)) {
+			route.setTravelTime(travelTime);
+		}
+	}
+
+	private static void decodeLocked(Decoder decoder, Route route) {
+		// after all other values, as a locked route cannot be changed any more
+		if (decoder.nextInt() != 0) {
+			((AbstractRoute) route).setLocked();
+		}
+	}
+
+	private static void encodeAttributes(Encoder encoder, Attributes attributes) {
+		encoder.addInt(attributes.size());
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			encoder.addObject(intern(entry.getKey()));
+			Object value = entry.getValue();
+			encoder.addObject(value instanceof String ? intern((String) value) : value);
+		}
+	}
+
+	private static void decodeAttributes(Decoder decoder, Attributes attributes) {
+		int count = decoder.nextInt();
+		for (int i = 0; i < count; i++) {
+			attributes.putAttribute((String) decoder.nextObject(), decoder.nextObject());
+		}
+	}
+
+	private static String intern(String s) {
+		return s == null ? null : s.intern();
+	}
+
+	private static int indexOf(Id<?> id) {
+		return id == null ? NO_ID : id.index();
+	}
+
+	private static final class Encoder {
+		private int[] ints = new int[64];
+		private int intCount = 0;
+		private double[] doubles = new double[64];
+		private int doubleCount = 0;
+		private Object[] objects = new Object[16];
+		private int objectCount = 0;
+
+		void addInt(int value) {
+			if (this.intCount == this.ints.length) {
+				this.ints = Arrays.copyOf(this.ints, this.ints.length * 2);
+			}
+			this.ints[this.intCount++] = value;
+		}
+
+		void addDouble(double value) {
+			if (this.doubleCount == this.doubles.length) {
+				this.doubles = Arrays.copyOf(this.doubles, this.doubles.length * 2);
+			}
+			this.doubles[this.doubleCount++] = value;
+		}
+
+		void addTime(OptionalTime time) {
+			// NaN is not a valid time, so it can mark undefined times
+			addDouble(time.isDefined() ? time.seconds() : Double.NaN);
+		}
+
+		void addObject(Object value) {
+			if (this.objectCount == this.objects.length) {
+				this.objects = Arrays.copyOf(this.objects, this.objects.length * 2);
+			}
+			this.objects[this.objectCount++] = value;
+		}
+	}
+
+	private final class Decoder {
+		private int nextInt = 0;
+		private int nextDouble = 0;
+		private int nextObject = 0;
+
+		int nextInt() {
+			return ints[this.nextInt++];
+		}
+
+		<T> Id<T> nextId(Class<T> type) {
+			int index = nextInt();
+			return index == NO_ID ? null : Id.get(index, type);
+		}
+
+		double nextDouble() {
+			return doubles[this.nextDouble++];
+		}
+
+		Object nextObject() {
+			return objects[this.nextObject++];
+		}
+	}
+}
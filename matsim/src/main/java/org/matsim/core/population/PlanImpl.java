@@ -36,7 +36,10 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 /* deliberately package */  final class PlanImpl implements Plan {
 
-	private ArrayList<PlanElement> actsLegs = new ArrayList<>();
+	// volatile, as a compacted plan may be decoded by another thread, see getPlanElements()
+	private volatile ArrayList<PlanElement> actsLegs = new ArrayList<>();
+	// the plan elements while the plan is compacted, see compact(); either this or actsLegs is null; guarded by this
+	private CompactPlanElements compactActsLegs = null;
 
 	private Double score = null;
 	private Person person = null;
@@ -122,17 +125,51 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 	@Override
 	public final List<PlanElement> getPlanElements() {
+		ArrayList<PlanElement> planElements = this.actsLegs;
+		if (planElements == null) {
+			planElements = decode();
+		}
+		return planElements;
+	}
+
+	/**
+	 * Decodes the compacted plan elements, once, even if several threads read the plan at the same time.
+	 */
+	private synchronized ArrayList<PlanElement> decode() {
+		if (this.actsLegs == null) {
+			this.actsLegs = this.compactActsLegs.decode();
+			this.compactActsLegs = null;
+		}
 		return this.actsLegs;
 	}
 
 	@Override
 	public final void addLeg(final Leg leg) {
-		this.actsLegs.add(leg);
+		this.getPlanElements().add(leg);
 	}
 
 	@Override
 	public final void addActivity(final Activity act) {
-		this.actsLegs.add(act);
+		this.getPlanElements().add(act);
+	}
+
+	/**
+	 * Stores the plan elements in a compact encoding until they are requested the next time.  The plan elements
+	 * are then re-created, so references to the plan elements obtained before must not be used any longer.
+	 */
+	/* deliberately package */ final synchronized void compact() {
+		if (this.actsLegs != null && !this.actsLegs.isEmpty()) {
+			this.compactActsLegs = CompactPlanElements.encode(this.actsLegs);
+			this.actsLegs = null;
+		}
+	}
+
+	/* deliberately package */ final boolean isCompact() {
+		return this.actsLegs == null;
+	}
+
+	private synchronized int getNumberOfPlanElements() {
+		return this.actsLegs == null ? this.compactActsLegs.size() : this.actsLegs.size();
 	}
 
 	@Override
@@ -149,7 +186,7 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 		return "[score=" + scoreString + "]" +
 //				"[selected=" + PersonUtils.isSelected(this) + "]" +
-				"[nof_acts_legs=" + getPlanElements().size() + "]" +
+				"[nof_acts_legs=" + getNumberOfPlanElements() + "]" +
 				"[type=" + this.type + "]" +
 				"[personId=" + personIdString + "]" ;
 	}
@@ -30,6 +30,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.population.routes.RouteFactories;
 import org.matsim.core.population.routes.RouteFactory;
 import org.matsim.facilities.ActivityFacility;
@@ -40,12 +41,22 @@ import org.matsim.facilities.ActivityFacility;
 /* deliberately package */ class PopulationFactoryImpl implements PopulationFactory {
 
 	private final RouteFactories routeFactory;
+	private final boolean compactingPlans;
 
     @Inject
 	PopulationFactoryImpl(RouteFactories routeFactory) {
-        this.routeFactory = routeFactory;
+        this(routeFactory, false);
     }
 
+	/**
+	 * @param compactingPlans whether the plans of the persons added to a population with this factory are stored in a compact
+	 * encoding while they are not in use, see {@link PlansConfigGroup#isCompactPlans()}
+	 */
+	PopulationFactoryImpl(RouteFactories routeFactory, boolean compactingPlans) {
+		this.routeFactory = routeFactory;
+		this.compactingPlans = compactingPlans;
+	}
+
     @Override
 	public Person createPerson(final Id<Person> id) {
         return new PersonImpl(id) ;
@@ -98,4 +109,8 @@ import org.matsim.facilities.ActivityFacility;
 		return this.routeFactory;
 	}
 
+	/* deliberately package */ boolean isCompactingPlans() {
+		return this.compactingPlans;
+	}
+
 }
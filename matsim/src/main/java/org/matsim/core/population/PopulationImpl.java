@@ -24,6 +24,7 @@ import java.util.Map;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.scenario.Lockable;
@@ -56,6 +57,13 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		if ( p instanceof Lockable ) {
 			((Lockable) p).setLocked();
 		}
+		if ( this.populationFactory instanceof PopulationFactoryImpl && ((PopulationFactoryImpl) this.populationFactory).isCompactingPlans() ) {
+			for ( Plan plan : p.getPlans() ) {
+				if ( plan instanceof PlanImpl ) {
+					((PlanImpl) plan).compact();
+				}
+			}
+		}
 
 		// show counter
 		this.counter++;
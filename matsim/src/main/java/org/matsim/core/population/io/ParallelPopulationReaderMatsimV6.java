@@ -0,0 +1,391 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.households.Households;
+import org.matsim.lanes.Lanes;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.vehicles.Vehicles;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel reader for population files in the formats v5 and v6.
+ * <p></p>
+ * The main thread parses the xml file. Everything outside of persons (population name, population attributes) is
+ * handled directly by a sequential reader. The tags of each person are recorded and handed over in batches to a pool
+ * of threads, each of which replays them on its own sequential reader, i.e. creates the plans, activities, legs,
+ * routes and attributes. The finished persons are added to the population by the main thread, in the same order as
+ * in the file. Thus, this reader produces the same population as the sequential one and also works with population
+ * streaming.
+ */
+/* deliberately package */ final class ParallelPopulationReaderMatsimV6 extends MatsimXmlParser {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+	private final static String ATTRIBUTES = "attributes";
+
+	/** number of persons handed over to a thread at once */
+	private static final int BATCH_SIZE = 100;
+	/** number of batches that may be in work per thread */
+	private static final int BATCHES_PER_THREAD = 4;
+
+	/**
+	 * Creates the sequential reader for one of the threads.
+	 */
+	interface ReaderFactory {
+		/**
+		 * @param inputCRS the coordinate reference system of the input, as given by the population attributes of the
+		 *                 file or the constructor of the main reader
+		 */
+		MatsimXmlParser createReader(Scenario scenario, String inputCRS);
+	}
+
+	private final Scenario scenario;
+	private final MatsimXmlParser mainReader;
+	private final ReaderFactory readerFactory;
+	private final int numberOfThreads;
+
+	private String inputCRS;
+	private final String targetCRS;
+
+	private ExecutorService executor = null;
+	private ThreadLocal<Runner> runners = null;
+	private final ArrayDeque<Future<List<Person>>> pending = new ArrayDeque<>();
+
+	private Stack<String> personContext = null;
+	private List<Tag> currentPerson = null;
+	private List<List<Tag>> currentBatch = new ArrayList<>(BATCH_SIZE);
+
+	/**
+	 * @param mainReader     sequential reader used for everything outside of persons
+	 * @param readerFactory  creates the sequential readers used for the persons
+	 * @param inputCRS       as passed to the main reader
+	 * @param targetCRS      as passed to the main reader
+	 */
+	ParallelPopulationReaderMatsimV6(
+			final Scenario scenario,
+			final MatsimXmlParser mainReader,
+			final ReaderFactory readerFactory,
+			final String inputCRS,
+			final String targetCRS,
+			final int numberOfThreads) {
+		this.scenario = scenario;
+		this.mainReader = mainReader;
+		this.readerFactory = readerFactory;
+		this.inputCRS = inputCRS;
+		this.targetCRS = targetCRS;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (this.currentPerson != null) {
+			// copy the attributes, the object is re-used by the parser
+			this.currentPerson.add(new Tag(name, new AttributesImpl(atts), null));
+		} else if (PERSON.equals(name)) {
+			if (this.executor == null) {
+				initThreads(context);
+			}
+			this.currentPerson = new ArrayList<>();
+			this.currentPerson.add(new Tag(name, new AttributesImpl(atts), null));
+		} else {
+			this.mainReader.startTag(name, atts, context);
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.currentPerson != null) {
+			this.currentPerson.add(new Tag(name, null, content));
+			if (PERSON.equals(name) && context.size() == this.personContext.size()) {
+				this.currentBatch.add(this.currentPerson);
+				this.currentPerson = null;
+				if (this.currentBatch.size() == BATCH_SIZE) {
+					submitBatch();
+				}
+			}
+		} else {
+			if (POPULATION.equals(name)) {
+				finishPersons();
+			} else if (ATTRIBUTES.equals(name) && POPULATION.equals(context.peek())) {
+				// the sequential reader replaces the crs of the file by the target crs, so remember it
+				String fileCRS = ProjectionUtils.getCRS(this.scenario.getPopulation());
+				if (fileCRS != null && this.targetCRS != null) {
+					this.inputCRS = fileCRS;
+				}
+			}
+			this.mainReader.endTag(name, content, context);
+		}
+	}
+
+	@Override
+	public void endDocument() throws SAXException {
+		shutdown();
+		this.mainReader.endDocument();
+	}
+
+	private void initThreads(final Stack<String> context) {
+		log.info("Start parallel population reading with " + this.numberOfThreads + " threads...");
+		this.personContext = new Stack<>();
+		this.personContext.addAll(context);
+		final String crs = this.inputCRS;
+		this.runners = ThreadLocal.withInitial(() -> new Runner(this.scenario, this.readerFactory, crs));
+		this.executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, ParallelPopulationReaderMatsimV6.class.getSimpleName());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private void submitBatch() {
+		final List<List<Tag>> batch = this.currentBatch;
+		this.currentBatch = new ArrayList<>(BATCH_SIZE);
+		this.pending.add(this.executor.submit(() -> this.runners.get().process(batch, this.personContext)));
+		while (this.pending.size() > this.numberOfThreads * BATCHES_PER_THREAD) {
+			addNextBatch();
+		}
+	}
+
+	private void addNextBatch() {
+		try {
+			for (Person person : this.pending.poll().get()) {
+				this.scenario.getPopulation().addPerson(person);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			shutdown();
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private void finishPersons() {
+		if (this.executor == null) {
+			return;
+		}
+		if (!this.currentBatch.isEmpty()) {
+			submitBatch();
+		}
+		while (!this.pending.isEmpty()) {
+			addNextBatch();
+		}
+		shutdown();
+		log.info("Finished parallel population reading...");
+	}
+
+	private void shutdown() {
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * A start tag, if <code>atts</code> is not null, otherwise an end tag.
+	 */
+	private static final class Tag {
+		final String name;
+		final Attributes atts;
+		final String content;
+
+		Tag(final String name, final Attributes atts, final String content) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+		}
+	}
+
+	/**
+	 * The sequential reader of one thread, which adds the persons to a collector population.
+	 */
+	private static final class Runner {
+		private final MatsimXmlParser reader;
+		private final CollectorPopulation population;
+
+		Runner(final Scenario scenario, final ReaderFactory readerFactory, final String inputCRS) {
+			this.population = new CollectorPopulation(scenario.getPopulation());
+			this.reader = readerFactory.createReader(new CollectorScenario(scenario, this.population), inputCRS);
+		}
+
+		List<Person> process(final List<List<Tag>> batch, final Stack<String> personContext) {
+			List<Person> persons = new ArrayList<>(batch.size());
+			this.population.persons = persons;
+			Stack<String> context = new Stack<>();
+			for (List<Tag> person : batch) {
+				context.clear();
+				context.addAll(personContext);
+				for (Tag tag : person) {
+					if (tag.atts != null) {
+						this.reader.startTag(tag.name, tag.atts, context);
+						context.push(tag.name);
+					} else {
+						context.pop();
+						this.reader.endTag(tag.name, tag.content, context);
+					}
+				}
+			}
+			this.population.persons = null;
+			return persons;
+		}
+	}
+
+	private static final class CollectorScenario implements Scenario {
+
+		private final Scenario delegate;
+		private final Population population;
+
+		CollectorScenario(final Scenario scenario, final Population population) {
+			this.delegate = scenario;
+			this.population = population;
+		}
+
+		@Override
+		public Network getNetwork() {
+			return this.delegate.getNetwork();
+		}
+
+		@Override
+		public Population getPopulation() {
+			return this.population;
+		}
+
+		@Override
+		public ActivityFacilities getActivityFacilities() {
+			return this.delegate.getActivityFacilities();
+		}
+
+		@Override
+		public TransitSchedule getTransitSchedule() {
+			return this.delegate.getTransitSchedule();
+		}
+
+		@Override
+		public Config getConfig() {
+			return this.delegate.getConfig();
+		}
+
+		@Override
+		public void addScenarioElement(final String name, final Object o) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Object getScenarioElement(final String name) {
+			return this.delegate.getScenarioElement(name);
+		}
+
+		@Override
+		public Vehicles getTransitVehicles() {
+			return this.delegate.getTransitVehicles();
+		}
+
+		@Override
+		public Households getHouseholds() {
+			return this.delegate.getHouseholds();
+		}
+
+		@Override
+		public Lanes getLanes() {
+			return this.delegate.getLanes();
+		}
+
+		@Override
+		public Vehicles getVehicles() {
+			return this.delegate.getVehicles();
+		}
+	}
+
+	private static final class CollectorPopulation implements Population {
+
+		private final Population population;
+		/** attributes of the sequential readers, which must not change the real population */
+		private final org.matsim.utils.objectattributes.attributable.Attributes attributes = new org.matsim.utils.objectattributes.attributable.Attributes();
+		private List<Person> persons = null;
+
+		CollectorPopulation(final Population population) {
+			this.population = population;
+		}
+
+		@Override
+		public PopulationFactory getFactory() {
+			return this.population.getFactory();
+		}
+
+		@Override
+		public String getName() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public void setName(final String name) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Map<Id<Person>, ? extends Person> getPersons() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public void addPerson(final Person p) {
+			this.persons.add(p);
+		}
+
+		@Override
+		public Person removePerson(final Id<Person> personId) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public org.matsim.utils.objectattributes.attributable.Attributes getAttributes() {
+			return this.attributes;
+		}
+	}
+
+}
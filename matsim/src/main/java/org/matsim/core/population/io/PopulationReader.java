@@ -120,6 +120,20 @@ public final class PopulationReader extends MatsimXmlParser {
 						        targetCRS,
 								this.scenario);
 				((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
+				if (getNumberOfThreads() > 1) {
+					this.delegate =
+							new ParallelPopulationReaderMatsimV6(
+									this.scenario,
+									this.delegate,
+									(threadScenario, threadInputCRS) -> {
+										PopulationReaderMatsimV6 reader = new PopulationReaderMatsimV6(threadInputCRS, targetCRS, threadScenario);
+										reader.putAttributeConverters( attributeConverters );
+										return reader;
+									},
+									inputCRS,
+									targetCRS,
+									getNumberOfThreads());
+				}
 				log.info("using population_v6-reader.");
 				break;
 			case POPULATION_V5:
@@ -127,6 +141,16 @@ public final class PopulationReader extends MatsimXmlParser {
 						new PopulationReaderMatsimV5(
 						        transformation,
 								this.scenario);
+				if (getNumberOfThreads() > 1) {
+					this.delegate =
+							new ParallelPopulationReaderMatsimV6(
+									this.scenario,
+									this.delegate,
+									(threadScenario, threadInputCRS) -> new PopulationReaderMatsimV5(transformation, threadScenario),
+									inputCRS,
+									targetCRS,
+									getNumberOfThreads());
+				}
 				log.info("using population_v5-reader.");
 				break;
 			case PLANS_V4:
@@ -157,6 +181,19 @@ public final class PopulationReader extends MatsimXmlParser {
 		}
 	}
 
+	/**
+	 * Number of threads for the parallel v5/v6 readers, see {@link org.matsim.core.config.groups.GlobalConfigGroup#getNumberOfThreads()}.
+	 * Only used if {@link org.matsim.core.config.groups.PlansConfigGroup#isParallelReading()} is set, as the ids are then
+	 * not created in the order of the file. Streaming populations are read with the same threads, as the persons are still
+	 * added in the order of the file.
+	 */
+	private int getNumberOfThreads() {
+		if (!this.scenario.getConfig().plans().isParallelReading()) {
+			return 1;
+		}
+		return this.scenario.getConfig().global().getNumberOfThreads();
+	}
+
     @Override
 	public void endDocument() {
 		try {
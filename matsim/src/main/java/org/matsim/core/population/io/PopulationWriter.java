@@ -20,10 +20,19 @@
 
 package org.matsim.core.population.io;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Network;
@@ -52,6 +61,12 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 	private final static Logger log = Logger.getLogger(PopulationWriter.class);
 	private Map<Class<?>,AttributeConverter<?>> converters = new HashMap<>();
 
+	/** number of persons serialized at once by one thread when writing in parallel */
+	private static final int BATCH_SIZE = 100;
+	/** number of batches that may be in work per thread when writing in parallel */
+	private static final int BATCHES_PER_THREAD = 4;
+	private int numberOfThreads = 1;
+
 
 	public PopulationWriter(final Population population) {
 		this(population, null, 1.0);
@@ -128,6 +143,17 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 		this.converters.put( key, converter );
 	}
 
+	/**
+	 * Sets the number of threads used to serialize the persons, typically
+	 * {@link org.matsim.core.config.groups.GlobalConfigGroup#getNumberOfThreads()}. With more than one thread, the
+	 * persons are serialized in batches into separate buffers, which are written to the file in the same order as
+	 * when writing sequentially, so the file content does not change. This is only supported for the current file
+	 * format (v6); other formats are always written sequentially.
+	 */
+	public void setNumberOfThreads( final int numberOfThreads ) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	/**
 	 * Writes all plans to the file.
 	 */
@@ -175,11 +201,83 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 
 
 	private  final void writePersons() {
+		if (this.numberOfThreads > 1 && this.handler instanceof PopulationWriterHandlerImplV6) {
+			writePersonsParallel((PopulationWriterHandlerImplV6) this.handler);
+			return;
+		}
 		for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
 			writePerson(p);
 		}
 	}
 
+	/**
+	 * The persons are selected (see <code>write_person_fraction</code>) and collected into batches by the calling
+	 * thread, so the random numbers are drawn in the same order as when writing sequentially. The batches are
+	 * serialized by the threads, each using its own handler, and the buffers are written in order by the calling thread.
+	 */
+	private void writePersonsParallel(final PopulationWriterHandlerImplV6 mainHandler) {
+		final ThreadLocal<PopulationWriterHandlerImplV6> handlers = ThreadLocal.withInitial(mainHandler::createCopy);
+		final ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, PopulationWriter.class.getSimpleName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		final ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+		try {
+			List<Person> batch = new ArrayList<>(BATCH_SIZE);
+			for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
+				if ((this.write_person_fraction < 1.0) && (MatsimRandom.getRandom().nextDouble() >= this.write_person_fraction)) {
+					continue;
+				}
+				batch.add(p);
+				counter.incCounter();
+				if (batch.size() == BATCH_SIZE) {
+					final List<Person> persons = batch;
+					pending.add(executor.submit(() -> serializePersons(persons, handlers.get())));
+					batch = new ArrayList<>(BATCH_SIZE);
+					while (pending.size() > this.numberOfThreads * BATCHES_PER_THREAD) {
+						writeNextBatch(pending);
+					}
+				}
+			}
+			if (!batch.isEmpty()) {
+				final List<Person> persons = batch;
+				pending.add(executor.submit(() -> serializePersons(persons, handlers.get())));
+			}
+			while (!pending.isEmpty()) {
+				writeNextBatch(pending);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static String serializePersons(final List<Person> persons, final PopulationWriterHandler handler) throws IOException {
+		StringWriter buffer = new StringWriter(persons.size() * 2048);
+		BufferedWriter out = new BufferedWriter(buffer);
+		for (Person person : persons) {
+			handler.writePerson(person, out);
+		}
+		out.flush();
+		return buffer.toString();
+	}
+
+	private void writeNextBatch(final ArrayDeque<Future<String>> pending) {
+		try {
+			this.writer.write(pending.poll().get());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new UncheckedIOException(e.getCause());
+		}
+	}
+
 	private final void writePerson(final Person person) {
 		try {
 			if ((this.write_person_fraction < 1.0) && (MatsimRandom.getRandom().nextDouble() >= this.write_person_fraction)) {
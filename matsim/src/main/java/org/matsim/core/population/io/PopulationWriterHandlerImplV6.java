@@ -25,6 +25,7 @@ import static org.matsim.core.utils.io.XmlUtils.encodeContent;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
@@ -57,6 +58,7 @@ import org.matsim.vehicles.Vehicle;
 
 	// TODO: infrastructure to inject converters
 	private final AttributesXmlWriterDelegate attributesWriter = new AttributesXmlWriterDelegate();
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
 	private final CoordinateTransformation coordinateTransformation;
 
 	PopulationWriterHandlerImplV6(CoordinateTransformation coordinateTransformation) {
@@ -65,9 +67,20 @@ import org.matsim.vehicles.Vehicle;
 
 	@Override
 	public void putAttributeConverters( final Map<Class<?>, AttributeConverter<?>> converters ) {
+		this.converters.putAll( converters );
 		this.attributesWriter.putAttributeConverters( converters );
 	}
 
+	/**
+	 * Creates a handler with the same coordinate transformation and attribute converters. The handler is not
+	 * thread-safe (the attribute converters have state), so every thread that writes persons needs its own copy.
+	 */
+	PopulationWriterHandlerImplV6 createCopy() {
+		PopulationWriterHandlerImplV6 copy = new PopulationWriterHandlerImplV6( this.coordinateTransformation );
+		copy.putAttributeConverters( this.converters );
+		return copy;
+	}
+
 	@Override
 	public void writeHeaderAndStartElement(final BufferedWriter out) throws IOException {
 		out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
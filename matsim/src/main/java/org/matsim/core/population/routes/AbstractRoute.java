@@ -100,6 +100,10 @@ public abstract class AbstractRoute implements Route, Cloneable {
 		locked = true ;
 	}
 
+	public final boolean isLocked() {
+		return locked ;
+	}
+
 	@Override
 	public AbstractRoute clone() {
 		// "clone" is some automagic that, by itself, makes a copy of the "bit pattern" of the object.  That is:
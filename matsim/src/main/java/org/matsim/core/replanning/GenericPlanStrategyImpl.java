@@ -66,8 +66,18 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 	
 	@Override
 	public void run(final HasPlansAndId<T, I> person) {
-		this.counter++;
-		
+		handleCopiedPlan(selectAndCopyPlan(person));
+	}
+
+	/**
+	 * Selects the plan of the person and, if there is a module, makes a copy of it the selected plan.
+	 * Does not touch the state of this strategy, so it may be called for different persons in parallel
+	 * as long as the plan selector is thread-safe.
+	 *
+	 * @return the copy to be handed to the modules by {@link #handleCopiedPlan(BasicPlan)}, or <code>null</code>
+	 * if there is no module
+	 */
+	/* deliberately package */ T selectAndCopyPlan(final HasPlansAndId<T, I> person) {
 		// if there is at least one unscored plan, find that one:
 		T plan = new RandomUnscoredPlanSelector<T, I>().selectPlan(person) ;
 		
@@ -86,17 +96,25 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 
 		// if there is a "module" (i.e. "innovation"):
 		if (this.firstModule != null) {
-			
 			// set the working plan to a copy of the selected plan:
-			plan = person.createCopyOfSelectedPlanAndMakeSelected();
-			
+			return person.createCopyOfSelectedPlanAndMakeSelected();
+		}
+		return null;
+	}
+
+	/**
+	 * Hands the plan copied by {@link #selectAndCopyPlan(HasPlansAndId)} to the modules. Has to be called
+	 * from one thread only, in the order in which the persons should be handled.
+	 */
+	/* deliberately package */ void handleCopiedPlan(final T plan) {
+		this.counter++;
+		if (plan != null) {
 			// add new plan to container that contains the plans that are handled by this PlanStrategy:
 			this.plans.add(plan);
 
 			// start working on this new plan:
 			this.firstModule.handlePlan(plan);
 		}
-
 	}
 
 	@Override
@@ -25,7 +25,9 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.BasicPlan;
@@ -70,6 +72,8 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 
 	private int maxPlansPerAgent = 0;
 
+	private int numberOfThreads = 1;
+
 	private PlanSelector<PL, AG> removalPlanSelector = new GenericWorstPlanForRemovalSelector<>();
 
 //	private String subpopulationAttributeName = null;
@@ -194,35 +198,133 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 			strategy.init(replanningContext);
 		}
 
-		// then go through the population and ...
-		for (HasPlansAndId<PL, AG> person : persons ) {
+		if (this.numberOfThreads > 1) {
+			runParallel(persons);
+		} else {
+			// then go through the population and ...
+			for (HasPlansAndId<PL, AG> person : persons ) {
+				GenericPlanStrategy<PL, AG> strategy = prepareAndChooseStrategy(person);
 
-			// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
-			if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
-				removePlans( person, this.maxPlansPerAgent);
+				// ... and run the strategy:
+				strategy.run(person);
 			}
+		}
+
+		// finally make sure all strategies have finished there work
+		for (GenericPlanStrategy<PL, AG> strategy : distinctStrategies()) {
+			strategy.finish();
+		}
+
+	}
+
+	/**
+	 * Removes surplus plans of the person and chooses the strategy for it.
+	 *
+	 * @return the chosen strategy, not yet run
+	 */
+	private GenericPlanStrategy<PL, AG> prepareAndChooseStrategy(final HasPlansAndId<PL, AG> person) {
+
+		// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
+		if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
+			removePlans( person, this.maxPlansPerAgent);
+		}
 
-			// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
+		// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
 //			String subpopName = null;
 //			if (this.subpopulationAttributeName != null) {
 //				subpopName = (String) PopulationUtils.getPersonAttribute( person, this.subpopulationAttributeName) ;
 //			}
-			String subpopName = PopulationUtils.getSubpopulation( person );
-			GenericPlanStrategy<PL, AG> strategy = this.chooseStrategy(person, subpopName);
+		String subpopName = PopulationUtils.getSubpopulation( person );
+		GenericPlanStrategy<PL, AG> strategy = this.chooseStrategy(person, subpopName);
 
-			if (strategy==null) {
-				throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation? Current subpopulation = " + subpopName);
+		if (strategy==null) {
+			throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation? Current subpopulation = " + subpopName);
+		}
+		
+		return strategy;
+	}
+
+	/**
+	 * Removes surplus plans, chooses the strategies and selects (and copies) the plans in parallel threads. Every person
+	 * draws its random numbers from a generator of its own, seeded from one draw of the global generator and the position
+	 * of the person, so the result depends neither on the scheduling nor on the number of threads. Afterwards, the copied
+	 * plans are handed to the strategy modules in the order of the persons, as the modules are not thread-safe.
+	 * Strategies other than {@link GenericPlanStrategyImpl} are run completely in that second, sequential step.
+	 */
+	@SuppressWarnings("unchecked")
+	private void runParallel(final Iterable<? extends HasPlansAndId<PL, AG>> persons) {
+		final List<HasPlansAndId<PL, AG>> personList = new ArrayList<>();
+		for (HasPlansAndId<PL, AG> person : persons) {
+			personList.add(person);
+		}
+		final int size = personList.size();
+		final long seed = MatsimRandom.getRandom().nextLong();
+		final GenericPlanStrategy<PL, AG>[] strategies = new GenericPlanStrategy[size];
+		final BasicPlan[] copiedPlans = new BasicPlan[size];
+
+		final AtomicBoolean hadException = new AtomicBoolean(false);
+		Thread[] threads = new Thread[this.numberOfThreads];
+		for (int t = 0; t < threads.length; t++) {
+			final int from = (int) ((long) size * t / threads.length);
+			final int to = (int) ((long) size * (t + 1) / threads.length);
+			threads[t] = new Thread(() -> {
+				Random random = new Random();
+				MatsimRandom.setRandomForCurrentThread(random);
+				try {
+					for (int i = from; i < to; i++) {
+						HasPlansAndId<PL, AG> person = personList.get(i);
+						random.setSeed(getPersonSeed(seed, i));
+						GenericPlanStrategy<PL, AG> strategy = prepareAndChooseStrategy(person);
+						strategies[i] = strategy;
+						if (strategy instanceof GenericPlanStrategyImpl) {
+							copiedPlans[i] = ((GenericPlanStrategyImpl<PL, AG>) strategy).selectAndCopyPlan(person);
+						}
+					}
+				} finally {
+					MatsimRandom.setRandomForCurrentThread(null);
+				}
+			}, "PlanSelection." + t);
+			threads[t].setUncaughtExceptionHandler((thread, e) -> {
+				log.error("Thread " + thread.getName() + " died with exception while selecting plans.", e);
+				hadException.set(true);
+			});
+			threads[t].start();
+		}
+		try {
+			for (Thread thread : threads) {
+				thread.join();
 			}
-			
-			// ... and run the strategy:
-			strategy.run(person);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		if (hadException.get()) {
+			throw new RuntimeException("Exception while selecting plans. Cannot guarantee that all persons have been fully processed.");
 		}
 
-		// finally make sure all strategies have finished there work
-		for (GenericPlanStrategy<PL, AG> strategy : distinctStrategies()) {
-			strategy.finish();
+		Random random = new Random();
+		for (int i = 0; i < size; i++) {
+			if (strategies[i] instanceof GenericPlanStrategyImpl) {
+				((GenericPlanStrategyImpl<PL, AG>) strategies[i]).handleCopiedPlan((PL) copiedPlans[i]);
+			} else {
+				random.setSeed(~getPersonSeed(seed, i));
+				MatsimRandom.setRandomForCurrentThread(random);
+				try {
+					strategies[i].run(personList.get(i));
+				} finally {
+					MatsimRandom.setRandomForCurrentThread(null);
+				}
+			}
 		}
+	}
 
+	/*
+	 * Mixes the seed with the person's position (SplitMix64), so that the random numbers of neighboring persons are not correlated.
+	 */
+	private static long getPersonSeed(final long seed, final int personIndex) {
+		long z = seed + (personIndex + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
 	}
 
 	private Collection<GenericPlanStrategy<PL, AG>> distinctStrategies() {
@@ -370,6 +472,23 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 		return this.maxPlansPerAgent ;
 	}
 
+	/**
+	 * Sets the number of threads used to remove surplus plans, choose the strategies and select the plans.
+	 * With more than one thread, every person draws its random numbers from a generator of its own, so the
+	 * results are reproducible, but differ from the ones obtained with a single thread. The strategy
+	 * modules are not affected by this setting.
+	 */
+	public final void setNumberOfPlanSelectionThreads(final int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("the number of plan selection threads must be at least 1, but is " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	final int getNumberOfPlanSelectionThreads() {
+		return this.numberOfThreads;
+	}
+
 	public final List<GenericPlanStrategy<PL, AG>> getStrategies(String subpopulation) {
 		return getStrategyWeights( subpopulation ).unmodifiableStrategies;
 	}
@@ -19,6 +19,8 @@
 
 package org.matsim.core.replanning;
 
+import org.matsim.analysis.IterationStopWatch;
+
 /**
  * A partial, inside view of the Controler which is available during replanning.
  * @author michaz
@@ -31,4 +33,11 @@ public interface ReplanningContext {
 	 */
 	int getIteration();
 
+	/**
+	 * The stop watch of the iteration, to which strategy modules may add their computation times, or <code>null</code>.
+	 */
+	default IterationStopWatch getStopwatch() {
+		return null;
+	}
+
 }
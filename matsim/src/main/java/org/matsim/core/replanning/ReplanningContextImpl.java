@@ -22,6 +22,7 @@
 
 package org.matsim.core.replanning;
 
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
@@ -32,10 +33,12 @@ import javax.inject.Singleton;
 @Singleton
 class ReplanningContextImpl implements ReplanningContext, IterationStartsListener {
 
+    private final IterationStopWatch stopwatch;
     private int iteration;
 
     @Inject
-    ReplanningContextImpl(ControlerListenerManager controlerListenerManager) {
+    ReplanningContextImpl(ControlerListenerManager controlerListenerManager, IterationStopWatch stopwatch) {
+        this.stopwatch = stopwatch;
         controlerListenerManager.addControlerListener(this);
     }
 
@@ -44,6 +47,11 @@ class ReplanningContextImpl implements ReplanningContext, IterationStartsListene
         return iteration;
     }
 
+    @Override
+    public IterationStopWatch getStopwatch() {
+        return stopwatch;
+    }
+
     @Override
     public void notifyIterationStarts(IterationStartsEvent event) {
         this.iteration = event.getIteration();
@@ -56,6 +56,7 @@ public class StrategyManager implements MatsimManager {
 
 		this();
 		setMaxPlansPerAgent(strategyConfigGroup.getMaxAgentPlanMemorySize());
+		setNumberOfPlanSelectionThreads(strategyConfigGroup.getNumberOfPlanSelectionThreads());
 
 		int globalInnovationDisableAfter = (int) ((controlerConfigGroup.getLastIteration() - controlerConfigGroup.getFirstIteration())
 				* strategyConfigGroup.getFractionOfIterationsToDisableInnovation() + controlerConfigGroup.getFirstIteration());
@@ -226,6 +227,15 @@ public class StrategyManager implements MatsimManager {
 		return delegate.getMaxPlansPerAgent();
 	}
 
+	/**
+	 * Sets the number of threads used to remove surplus plans, choose the strategies and select the plans.
+	 *
+	 * @see GenericStrategyManager#setNumberOfPlanSelectionThreads(int)
+	 */
+	public final void setNumberOfPlanSelectionThreads(final int numberOfThreads) {
+		delegate.setNumberOfPlanSelectionThreads(numberOfThreads);
+	}
+
 	@Deprecated
 	public final void addChangeRequestForDefaultSubpopulation(
 			final int iteration,
@@ -21,6 +21,7 @@
 package org.matsim.core.replanning.modules;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
@@ -28,9 +29,13 @@ import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
-import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -40,15 +45,20 @@ import java.util.concurrent.atomic.AtomicReference;
  * Just overwrite getPlanAlgoInstance() to return an instance of your plan
  * algorithm.
  * <p></p>
- * <code>initThreads()</code> creates the threads, but does not yet start them.
+ * <code>prepareReplanning()</code> creates one plan algorithm instance per worker.
  * <p></p>
- * <code>handlePlan(Plan)</code> distributes the plans equally to all threads.
+ * <code>handlePlan(Plan)</code> collects the plans.
  * <p></p>
- * <code>finishReplanning()</code> finally starts the threads and waits for all threads to be finished.
+ * <code>finishReplanning()</code> finally runs the workers on a thread pool shared by all modules and
+ * waits for all workers to be finished.
  * <p></p>
+ * By default, the plans are distributed equally to all workers.
  * While this approach does not lead to optimal performance gains ("slow threads" vs.
- * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
- * started after all to-be-handled plans are added, we can use unsynchronized data structures.
+ * "fast threads"), it helps building reproducible runs.  If a batch size is set (see
+ * {@link GlobalConfigGroup#getReplanningBatchSize()}), the workers instead take batches of plans
+ * from a common queue as long as there are plans left, so that workers with cheap plans take over work from
+ * workers with expensive plans.  Plan algorithms with random number generators of their own then become
+ * non-deterministic, as which plan algorithm instance handles a plan depends on the scheduling of the threads.
  * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
@@ -58,17 +68,24 @@ import java.util.concurrent.atomic.AtomicReference;
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
+
+	/** the threads running the workers of all modules; they are kept for a while to be reused by the next module */
+	private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "PlanAlgoWorker");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	private final int numOfThreads;
+	private final int batchSize;
 
-	private PlanAlgoThread[] algothreads = null;
-	private Thread[] threads = null;
+	private PlanAlgoWorker[] workers = null;
 	private PlanAlgorithm directAlgo = null;
 	private String name = null;
 
-	private int count = 0;
+	private final List<Plan> plans = new ArrayList<>();
 
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
-	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
 
 	private ReplanningContext replanningContext;
 
@@ -83,11 +100,23 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.getReplanningBatchSize());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, 0);
+	}
+
+	/**
+	 * @param numOfThreads the number of workers, 0 to handle the plans directly in {@link #handlePlan(Plan)}
+	 * @param batchSize the number of plans a worker takes at once from the common queue, 0 to distribute the plans equally to the workers
+	 */
+	public AbstractMultithreadedModule(final int numOfThreads, final int batchSize) {
+		if (batchSize < 0) {
+			throw new IllegalArgumentException("batch size must not be negative, but is " + batchSize);
+		}
 		this.numOfThreads = numOfThreads;
+		this.batchSize = batchSize;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -106,7 +135,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
 		} else {
-			initThreads();
+			initWorkers();
 		}
 		this.afterPrepareReplanningHook(replanningContextTmp);
 	}
@@ -118,8 +147,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
-			this.count++;
+			this.plans.add(plan);
 		} else {
 			this.directAlgo.run(plan);
 		}
@@ -137,103 +165,145 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.beforeFinishReplanningHook();
 		
 		if (this.directAlgo == null) {
-			// only try to start threads if we did not directly work on all the plans
-			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
-
-			// start threads
-			for (Thread thread : this.threads) {
-				thread.start();
-			}
-
-			// wait until each thread is finished
-			try {
-				for (Thread thread : this.threads) {
-					thread.join();
-				}
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			}
-			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
-			Throwable throwable = this.hadException.get();
-			if (throwable != null) {
-				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
-			}
+			// only try to start workers if we did not directly work on all the plans
+			runWorkers();
 		}
 		// reset
-		this.algothreads = null;
-		this.threads = null;
+		this.workers = null;
+		this.plans.clear();
 		this.replanningContext = null;
-		this.count = 0;
 		
 		this.afterFinishReplanningHook();
 	}
 
-	private void initThreads() {
-		if (this.threads != null) {
+	private void initWorkers() {
+		if (this.workers != null) {
 			throw new RuntimeException("threads are already initialized");
 		}
 
 		this.hadException.set(null);
-		this.threads = new Thread[this.numOfThreads];
-		this.algothreads = new PlanAlgoThread[this.numOfThreads];
+		this.workers = new PlanAlgoWorker[this.numOfThreads];
+		AtomicInteger nextPlanIndex = new AtomicInteger(0);
 
 		Counter counter = null;
-		// setup threads
+		// setup workers
 		for (int i = 0; i < this.numOfThreads; i++) {
 			PlanAlgorithm algo = getPlanAlgoInstance();
 			if (i == 0) {
 				this.name = algo.getClass().getSimpleName();
 				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
-			Thread thread = new Thread(algothread, this.name + "." + i);
-			thread.setUncaughtExceptionHandler(this.exceptionHandler);
-			this.threads[i] = thread;
-			this.algothreads[i] = algothread;
+			this.workers[i] = new PlanAlgoWorker(this.name + "." + i, i, algo, counter, nextPlanIndex);
 		}
 	}
 
-	/* package (for a test) */ final int getNumOfThreads() {
-		return numOfThreads;
-	}
-
-	private final static class ExceptionHandler implements UncaughtExceptionHandler {
-
-		private final AtomicReference<Throwable> hadException;
+	private void runWorkers() {
+		IterationStopWatch stopwatch = this.replanningContext == null ? null : this.replanningContext.getStopwatch();
+		String operation = "replanning " + this.name;
+		if (stopwatch != null) {
+			// several modules may use the same plan algorithm, e.g. the routers of ReRoute and SubtourModeChoice
+			for (int n = 2; stopwatch.hasOperation(operation); n++) {
+				operation = "replanning " + this.name + " (" + n + ")";
+			}
+			stopwatch.beginOperation(operation);
+		}
+		log.info("[" + this.name + "] starting " + this.workers.length + " threads, handling " + this.plans.size() + " plans"
+				+ (this.batchSize > 0 ? " in batches of " + this.batchSize : ""));
+		long start = System.nanoTime();
+
+		// start workers
+		List<Future<?>> futures = new ArrayList<>(this.workers.length);
+		for (PlanAlgoWorker worker : this.workers) {
+			futures.add(executor.submit(worker));
+		}
 
-		public ExceptionHandler(final AtomicReference<Throwable> hadException) {
-			this.hadException = hadException;
+		// wait until each worker is finished
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					futures.get(i).get();
+				} catch (ExecutionException e) {
+					log.error("Thread " + this.workers[i].threadName + " died with exception. Will stop after all threads finished.", e.getCause());
+					this.hadException.set(e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
 		}
 
-		@Override
-		public void uncaughtException(Thread t, Throwable e) {
-			log.error("Thread " + t.getName() + " died with exception. Will stop after all threads finished.", e);
-			this.hadException.set(e);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long idleNanos = 0;
+		for (PlanAlgoWorker worker : this.workers) {
+			idleNanos += Math.max(0, (long) (seconds * 1e9) - worker.busyNanos);
+		}
+		double plansPerSecond = seconds > 0 ? this.plans.size() / seconds : 0.0;
+		double idleShare = seconds > 0 ? 100.0 * idleNanos / (seconds * 1e9 * this.workers.length) : 0.0;
+		log.info("[" + this.name + "] all " + this.workers.length + " threads finished.");
+		log.info(String.format("[%s] handled %d plans in %.1f s (%.1f plans/s), threads were idle for %.1f%% of the time.",
+				this.name, this.plans.size(), seconds, plansPerSecond, idleShare));
+		if (stopwatch != null) {
+			stopwatch.endOperation(operation);
+			stopwatch.addValue(operation + " plans/s", plansPerSecond);
+			stopwatch.addValue(operation + " idle %", idleShare);
 		}
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
+		}
+	}
 
+	/* package (for a test) */ final int getNumOfThreads() {
+		return numOfThreads;
 	}
 
-	private final static class PlanAlgoThread implements Runnable {
+	private final class PlanAlgoWorker implements Runnable {
 
+		private final String threadName;
+		private final int index;
 		private final PlanAlgorithm planAlgo;
-		private final List<Plan> plans = new LinkedList<>();
 		private final Counter counter;
+		private final AtomicInteger nextPlanIndex;
+		private long busyNanos = 0;
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		PlanAlgoWorker(final String threadName, final int index, final PlanAlgorithm algo, final Counter counter, final AtomicInteger nextPlanIndex) {
+			this.threadName = threadName;
+			this.index = index;
 			this.planAlgo = algo;
 			this.counter = counter;
-		}
-
-		public void addPlanToThread(final Plan plan) {
-			this.plans.add(plan);
+			this.nextPlanIndex = nextPlanIndex;
 		}
 
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			Thread thread = Thread.currentThread();
+			String poolName = thread.getName();
+			thread.setName(this.threadName);
+			long start = System.nanoTime();
+			try {
+				List<Plan> plans = AbstractMultithreadedModule.this.plans;
+				if (batchSize == 0) {
+					// fixed assignment: every numOfThreads-th plan, in the order the plans were handed over
+					for (int i = this.index; i < plans.size(); i += numOfThreads) {
+						handle(plans.get(i));
+					}
+				} else {
+					int from;
+					while ((from = this.nextPlanIndex.getAndAdd(batchSize)) < plans.size()) {
+						int to = Math.min(from + batchSize, plans.size());
+						for (int i = from; i < to; i++) {
+							handle(plans.get(i));
+						}
+					}
+				}
+			} finally {
+				this.busyNanos = System.nanoTime() - start;
+				thread.setName(poolName);
 			}
 		}
+
+		private void handle(final Plan plan) {
+			this.planAlgo.run(plan);
+			this.counter.incCounter();
+		}
 	}
 }
@@ -0,0 +1,360 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java   
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds least cost paths with a bidirectional search on a {@link ContractionHierarchy}: both searches only follow
+ * edges to higher ranked nodes, the forward search from the start node with the upward costs and the backward search
+ * from the end node with the downward costs. The path is unpacked from the shortcuts afterwards.
+ * <p></p>
+ * The costs are those of the {@link ContractionHierarchy.Metric} of the time bin of the start time, and the path is
+ * independent of the person and vehicle. The travel time and cost of the returned path are calculated along its
+ * links from the start time, like the other routers do.
+ * <p></p>
+ * The hierarchy and the metrics are shared by all instances, only the search state belongs to an instance, so an
+ * instance must not be used by several threads at the same time.
+ *
+ * @see ContractionHierarchiesFactory
+ */
+final class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final ContractionHierarchy hierarchy;
+	private final ContractionHierarchiesFactory.Metrics metrics;
+	private final TravelDisutility travelDisutility;
+	private final TravelTime travelTime;
+
+	private final SearchState forward;
+	private final SearchState backward;
+	private int stamp = 0;
+	private int[] unpackStack = new int[64];
+	private int stackSize = 0;
+
+	ContractionHierarchies(final ContractionHierarchy hierarchy, final ContractionHierarchiesFactory.Metrics metrics,
+			final TravelDisutility travelDisutility, final TravelTime travelTime) {
+		this.hierarchy = hierarchy;
+		this.metrics = metrics;
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+		this.forward = new SearchState(hierarchy.numberOfNodes);
+		this.backward = new SearchState(hierarchy.numberOfNodes);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int source = getRank(fromNode);
+		int target = getRank(toNode);
+		ContractionHierarchy.Metric metric = this.metrics.get(starttime);
+
+		if (this.stamp == Integer.MAX_VALUE) {
+			this.forward.clearStamps();
+			this.backward.clearStamps();
+			this.stamp = 0;
+		}
+		this.stamp++;
+		this.forward.start(source, this.stamp);
+		this.backward.start(target, this.stamp);
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+		while (true) {
+			double forwardMin = this.forward.heap.isEmpty() ? Double.POSITIVE_INFINITY : this.forward.cost[this.forward.heap.peek()];
+			double backwardMin = this.backward.heap.isEmpty() ? Double.POSITIVE_INFINITY : this.backward.cost[this.backward.heap.peek()];
+			if (Math.min(forwardMin, backwardMin) >= bestCost) {
+				break;
+			}
+			boolean isForward = forwardMin <= backwardMin;
+			SearchState search = isForward ? this.forward : this.backward;
+			SearchState other = isForward ? this.backward : this.forward;
+			double[] edgeCosts = isForward ? metric.upCost : metric.downCost;
+
+			int node = search.heap.poll();
+			double cost = search.cost[node];
+			if (other.stamp[node] == this.stamp && cost + other.cost[node] < bestCost) {
+				bestCost = cost + other.cost[node];
+				meetingNode = node;
+			}
+			for (int e = this.hierarchy.firstEdge[node]; e < this.hierarchy.firstEdge[node + 1]; e++) {
+				search.relax(this.hierarchy.edgeHead[e], cost + edgeCosts[e], e, this.stamp);
+			}
+		}
+		this.forward.heap.clear();
+		this.backward.heap.clear();
+
+		if (meetingNode < 0) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+			log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+			log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+			log.warn("This will now return null, but it may fail later with a null pointer exception.");
+			return null;
+		}
+		return constructPath(fromNode, source, target, meetingNode, metric, starttime, person, vehicle);
+	}
+
+	private int getRank(final Node node) {
+		int rank = this.hierarchy.getRank(node);
+		if (rank < 0 || this.hierarchy.nodes[rank] != node) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		return rank;
+	}
+
+	private Path constructPath(final Node fromNode, final int source, final int target, final int meetingNode,
+			final ContractionHierarchy.Metric metric, final double starttime, final Person person, final Vehicle vehicle) {
+		List<Link> links = new ArrayList<>();
+
+		// the upward edges from the source to the meeting node, found backwards
+		int size = 0;
+		for (int node = meetingNode; node != source; node = this.hierarchy.edgeTail[this.forward.edge[node]]) {
+			push(this.forward.edge[node] << 1 | 1);
+			size++;
+		}
+		// the stack now contains these edges in the order of the path, read from the top
+		unpack(metric, links, size);
+
+		// the downward edges from the meeting node to the target, found in the order of the path
+		size = 0;
+		for (int node = meetingNode; node != target; node = this.hierarchy.edgeTail[this.backward.edge[node]]) {
+			push(this.backward.edge[node] << 1);
+			size++;
+		}
+		for (int i = this.stackSize - size, j = this.stackSize - 1; i < j; i++, j--) {
+			int edge = this.unpackStack[i];
+			this.unpackStack[i] = this.unpackStack[j];
+			this.unpackStack[j] = edge;
+		}
+		unpack(metric, links, size);
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = starttime;
+		double cost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	private void push(final int edge) {
+		if (this.stackSize == this.unpackStack.length) {
+			this.unpackStack = Arrays.copyOf(this.unpackStack, 2 * this.stackSize);
+		}
+		this.unpackStack[this.stackSize++] = edge;
+	}
+
+	/**
+	 * Replaces the top <code>count</code> edges on the stack, encoded as <code>edge &lt;&lt; 1 | upward</code>, by
+	 * the links they consist of.
+	 */
+	private void unpack(final ContractionHierarchy.Metric metric, final List<Link> links, final int count) {
+		int bottom = this.stackSize - count;
+		while (this.stackSize > bottom) {
+			int item = this.unpackStack[--this.stackSize];
+			int e = item >>> 1;
+			boolean upward = (item & 1) == 1;
+			int via = upward ? metric.upVia[e] : metric.downVia[e];
+			if (via < 0) {
+				links.add(this.hierarchy.getLink(-1 - via));
+				continue;
+			}
+			int tail = this.hierarchy.edgeTail[e];
+			int head = this.hierarchy.edgeHead[e];
+			if (upward) {
+				// tail -> via -> head
+				push(this.hierarchy.findEdge(via, head) << 1 | 1);
+				push(this.hierarchy.findEdge(via, tail) << 1);
+			} else {
+				// head -> via -> tail
+				push(this.hierarchy.findEdge(via, tail) << 1 | 1);
+				push(this.hierarchy.findEdge(via, head) << 1);
+			}
+		}
+	}
+
+	/**
+	 * The costs and the edges by which the nodes were reached in one direction. Entries are only valid if the stamp
+	 * of the node is the one of the current query, so they need not be reset between queries.
+	 */
+	private static final class SearchState {
+
+		final double[] cost;
+		final int[] edge;
+		final int[] stamp;
+		final NodeHeap heap;
+
+		SearchState(final int numberOfNodes) {
+			this.cost = new double[numberOfNodes];
+			this.edge = new int[numberOfNodes];
+			this.stamp = new int[numberOfNodes];
+			this.heap = new NodeHeap(this.cost);
+		}
+
+		void start(final int node, final int stamp) {
+			this.cost[node] = 0;
+			this.edge[node] = -1;
+			this.stamp[node] = stamp;
+			this.heap.insert(node);
+		}
+
+		void relax(final int node, final double cost, final int edge, final int stamp) {
+			if (this.stamp[node] != stamp) {
+				this.stamp[node] = stamp;
+				this.cost[node] = cost;
+				this.edge[node] = edge;
+				if (cost < Double.POSITIVE_INFINITY) {
+					this.heap.insert(node);
+				}
+			} else if (cost < this.cost[node]) {
+				this.cost[node] = cost;
+				this.edge[node] = edge;
+				if (this.heap.contains(node)) {
+					this.heap.decreaseKey(node);
+				} else {
+					// only reached with an infinite cost so far
+					this.heap.insert(node);
+				}
+			}
+		}
+
+		void clearStamps() {
+			Arrays.fill(this.stamp, 0);
+		}
+	}
+
+	/**
+	 * A binary min heap of nodes, ordered by their cost.
+	 */
+	private static final class NodeHeap {
+
+		private final double[] cost;
+		private final int[] heap;
+		private final int[] position; // of every node in the heap, -1 if it is not contained
+		private int size = 0;
+
+		NodeHeap(final double[] cost) {
+			this.cost = cost;
+			this.heap = new int[cost.length];
+			this.position = new int[cost.length];
+			Arrays.fill(this.position, -1);
+		}
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		boolean contains(final int node) {
+			return this.position[node] >= 0;
+		}
+
+		int peek() {
+			return this.heap[0];
+		}
+
+		void insert(final int node) {
+			this.heap[this.size] = node;
+			this.position[node] = this.size;
+			this.size++;
+			siftUp(this.size - 1);
+		}
+
+		void decreaseKey(final int node) {
+			siftUp(this.position[node]);
+		}
+
+		int poll() {
+			int node = this.heap[0];
+			this.position[node] = -1;
+			this.size--;
+			if (this.size > 0) {
+				int last = this.heap[this.size];
+				this.heap[0] = last;
+				this.position[last] = 0;
+				siftDown(0);
+			}
+			return node;
+		}
+
+		void clear() {
+			for (int i = 0; i < this.size; i++) {
+				this.position[this.heap[i]] = -1;
+			}
+			this.size = 0;
+		}
+
+		private void siftUp(int index) {
+			int node = this.heap[index];
+			double key = this.cost[node];
+			while (index > 0) {
+				int parent = (index - 1) >> 1;
+				int parentNode = this.heap[parent];
+				if (this.cost[parentNode] <= key) {
+					break;
+				}
+				this.heap[index] = parentNode;
+				this.position[parentNode] = index;
+				index = parent;
+			}
+			this.heap[index] = node;
+			this.position[node] = index;
+		}
+
+		private void siftDown(int index) {
+			int node = this.heap[index];
+			double key = this.cost[node];
+			while (true) {
+				int child = 2 * index + 1;
+				if (child >= this.size) {
+					break;
+				}
+				if (child + 1 < this.size && this.cost[this.heap[child + 1]] < this.cost[this.heap[child]]) {
+					child++;
+				}
+				int childNode = this.heap[child];
+				if (key <= this.cost[childNode]) {
+					break;
+				}
+				this.heap[index] = childNode;
+				this.position[childNode] = index;
+				index = child;
+			}
+			this.heap[index] = node;
+			this.position[node] = index;
+		}
+	}
+
+}
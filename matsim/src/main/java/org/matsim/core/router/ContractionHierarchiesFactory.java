@@ -0,0 +1,199 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates routers based on a customizable contraction hierarchy, see {@link ContractionHierarchy}.
+ * <p></p>
+ * The hierarchy of a network is computed once. The costs of its edges are customized lazily for every time bin of
+ * <code>timeBinSize</code> seconds, from the travel disutilities in the middle of the bin, when the first path
+ * starting in that bin is requested. When injected, the time bins are those of the travel time calculator
+ * (<code>travelTimeBinSize</code>). The travel disutilities are evaluated without person and vehicle, so travel
+ * disutilities which need a person, e.g. the default one with <code>routingRandomness</code>, are rejected.
+ * <p></p>
+ * Every router computes the link costs of its travel disutility itself, but the customized metrics are shared by all
+ * routers of the same network whose link costs are equal, e.g. the routers of the different threads. The metrics are
+ * dropped at the start of every iteration, so they are customized again with the travel times of the last iteration.
+ * <p></p>
+ * For time-independent travel disutilities, use a <code>timeBinSize</code> of at least <code>maxTime</code>, so
+ * only one metric is customized.
+ *
+ * @see ContractionHierarchies
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchiesFactory.class);
+
+	private final int timeBinSize;
+	private final int numberOfTimeBins;
+
+	private final Map<Network, ContractionHierarchy> hierarchies = new HashMap<>();
+	private final Map<LinkCosts, LazyMetric> metrics = new ConcurrentHashMap<>();
+	/** incremented whenever the metrics are dropped, so the routers drop the metrics they refer to as well */
+	private volatile int generation = 0;
+
+	@Inject
+	public ContractionHierarchiesFactory(final TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup,
+			final PlansCalcRouteConfigGroup plansCalcRouteConfigGroup) {
+		this(travelTimeCalculatorConfigGroup.getTraveltimeBinSize(), travelTimeCalculatorConfigGroup.getMaxTime());
+		if (plansCalcRouteConfigGroup.getRoutingRandomness() != 0.) {
+			log.warn("Contraction hierarchies route without person, which is not possible with the default travel disutility if "
+					+ "routingRandomness in " + PlansCalcRouteConfigGroup.GROUP_NAME + " is not 0. Routers for modes using it will be rejected.");
+		}
+	}
+
+	public ContractionHierarchiesFactory(final int timeBinSize, final int maxTime) {
+		this.timeBinSize = timeBinSize;
+		this.numberOfTimeBins = maxTime / timeBinSize + 1;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts,
+			final TravelTime travelTimes) {
+		ContractionHierarchy hierarchy;
+		synchronized (this.hierarchies) {
+			hierarchy = this.hierarchies.computeIfAbsent(network, ContractionHierarchy::create);
+		}
+		if (hierarchy.getNumberOfLinks() > 0) {
+			try {
+				travelCosts.getLinkTravelDisutility(hierarchy.getLink(0), 0.0, null, null);
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("Contraction hierarchies need travel disutilities which can be calculated without "
+						+ "person and vehicle, which is not the case for " + travelCosts.getClass().getName() + ". With the default "
+						+ "travel disutility, set routingRandomness in " + PlansCalcRouteConfigGroup.GROUP_NAME + " to 0.", e);
+			}
+		}
+		return new ContractionHierarchies(hierarchy, new Metrics(hierarchy, travelCosts), travelCosts, travelTimes);
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		this.metrics.clear();
+		this.generation++;
+	}
+
+	/**
+	 * The metrics of the travel disutility of one router, by time bin. As a router must only be used by one thread at
+	 * a time, so is this.
+	 */
+	final class Metrics {
+
+		private final ContractionHierarchy hierarchy;
+		private final TravelDisutility travelDisutility;
+		private final ContractionHierarchy.Metric[] metrics;
+		private int generation;
+
+		private Metrics(final ContractionHierarchy hierarchy, final TravelDisutility travelDisutility) {
+			this.hierarchy = hierarchy;
+			this.travelDisutility = travelDisutility;
+			this.metrics = new ContractionHierarchy.Metric[numberOfTimeBins];
+			this.generation = ContractionHierarchiesFactory.this.generation;
+		}
+
+		ContractionHierarchy.Metric get(final double time) {
+			if (this.generation != ContractionHierarchiesFactory.this.generation) {
+				Arrays.fill(this.metrics, null);
+				this.generation = ContractionHierarchiesFactory.this.generation;
+			}
+			int bin = Math.max(0, Math.min(numberOfTimeBins - 1, (int) (time / timeBinSize)));
+			ContractionHierarchy.Metric metric = this.metrics[bin];
+			if (metric == null) {
+				LinkCosts linkCosts = new LinkCosts(this.hierarchy, this.hierarchy.getLinkCosts(this.travelDisutility, (bin + 0.5) * timeBinSize));
+				// the customization runs outside of the map, so it only blocks the threads which need the same metric
+				metric = ContractionHierarchiesFactory.this.metrics.computeIfAbsent(linkCosts, LazyMetric::new).get(bin);
+				this.metrics[bin] = metric;
+			}
+			return metric;
+		}
+	}
+
+	/**
+	 * A metric which is customized by the first thread that needs it.
+	 */
+	private static final class LazyMetric {
+
+		private final LinkCosts linkCosts;
+		private ContractionHierarchy.Metric metric = null;
+
+		LazyMetric(final LinkCosts linkCosts) {
+			this.linkCosts = linkCosts;
+		}
+
+		synchronized ContractionHierarchy.Metric get(final int bin) {
+			if (this.metric == null) {
+				long start = System.currentTimeMillis();
+				this.metric = this.linkCosts.hierarchy.customize(this.linkCosts.costs);
+				log.info("customized the contraction hierarchy for time bin " + bin + " in " + (System.currentTimeMillis() - start) + " ms");
+			}
+			return this.metric;
+		}
+	}
+
+	/**
+	 * The costs of the links of a hierarchy, from which a metric is customized.
+	 */
+	private static final class LinkCosts {
+
+		private final ContractionHierarchy hierarchy;
+		private final double[] costs;
+		private final int hashCode;
+
+		LinkCosts(final ContractionHierarchy hierarchy, final double[] costs) {
+			this.hierarchy = hierarchy;
+			this.costs = costs;
+			this.hashCode = 31 * System.identityHashCode(hierarchy) + Arrays.hashCode(costs);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof LinkCosts)) {
+				return false;
+			}
+			LinkCosts other = (LinkCosts) obj;
+			return this.hierarchy == other.hierarchy && this.hashCode == other.hashCode && Arrays.equals(this.costs, other.costs);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+}
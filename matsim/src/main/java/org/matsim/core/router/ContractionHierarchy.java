@@ -0,0 +1,388 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java     
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.TravelDisutility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy (CCH) of a network.
+ * <p></p>
+ * The nodes are ordered by nested dissection along their coordinates, i.e. the nodes which separate the two halves
+ * of a region get higher ranks than the nodes within the halves. Contracting the nodes in this order, ignoring the
+ * direction of the links, results in the upward edges of every node to nodes of higher rank. These are stored in
+ * flat arrays, sorted by the rank of their head: the edges of the node with rank <code>r</code> are
+ * <code>firstEdge[r] &lt;= e &lt; firstEdge[r + 1]</code>.
+ * <p></p>
+ * This structure only depends on the network and is computed once. The costs of the edges, a {@link Metric}, are
+ * computed by {@link #customize(double[])} from the costs of the links, e.g. the travel disutilities at a given time
+ * (see {@link #getLinkCosts(TravelDisutility, double)}). This is cheap compared to the contraction and is done again
+ * whenever the travel disutilities change.
+ * <p></p>
+ * Nodes are addressed by their rank in all arrays.
+ */
+/* deliberately package */ final class ContractionHierarchy {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+	// regions with at most this many nodes are not dissected any further
+	private static final int MIN_DISSECTION_SIZE = 32;
+
+	final int numberOfNodes;
+	final Node[] nodes; // by rank
+	private final int[] rankOfNodeId; // by Id.index() of the node id
+
+	final int[] firstEdge; // by rank of the tail
+	final int[] edgeHead; // rank of the head
+	final int[] edgeTail; // rank of the tail
+
+	private final Link[] links;
+	private final int[] linkEdge;
+	private final boolean[] linkUpward; // whether the link leads from the tail to the head of its edge
+
+	private ContractionHierarchy(final Node[] nodes, final int[] rankOfNodeId, final int[] firstEdge, final int[] edgeHead,
+			final Link[] links, final int[] linkEdge, final boolean[] linkUpward) {
+		this.numberOfNodes = nodes.length;
+		this.nodes = nodes;
+		this.rankOfNodeId = rankOfNodeId;
+		this.firstEdge = firstEdge;
+		this.edgeHead = edgeHead;
+		this.edgeTail = new int[edgeHead.length];
+		for (int r = 0; r < this.numberOfNodes; r++) {
+			Arrays.fill(this.edgeTail, firstEdge[r], firstEdge[r + 1], r);
+		}
+		this.links = links;
+		this.linkEdge = linkEdge;
+		this.linkUpward = linkUpward;
+	}
+
+	/**
+	 * @return the rank of the node, or -1 if the node is not part of the network of this hierarchy
+	 */
+	int getRank(final Node node) {
+		int index = node.getId().index();
+		return index < this.rankOfNodeId.length ? this.rankOfNodeId[index] : -1;
+	}
+
+	Link getLink(final int link) {
+		return this.links[link];
+	}
+
+	int getNumberOfLinks() {
+		return this.links.length;
+	}
+
+	/**
+	 * @return the edge from the lower ranked node <code>tail</code> to <code>head</code>, or -1 if there is none
+	 */
+	int findEdge(final int tail, final int head) {
+		int e = Arrays.binarySearch(this.edgeHead, this.firstEdge[tail], this.firstEdge[tail + 1], head);
+		return e >= 0 ? e : -1;
+	}
+
+	static ContractionHierarchy create(final Network network) {
+		long start = System.currentTimeMillis();
+		Node[] networkNodes = network.getNodes().values().toArray(new Node[0]);
+		int n = networkNodes.length;
+		int[] indexOfNodeId = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(indexOfNodeId, -1);
+		for (int i = 0; i < n; i++) {
+			indexOfNodeId[networkNodes[i].getId().index()] = i;
+		}
+
+		// undirected neighbours, without self loops and duplicates
+		int[][] neighbours = new int[n][];
+		for (int i = 0; i < n; i++) {
+			Node node = networkNodes[i];
+			int[] ns = new int[node.getInLinks().size() + node.getOutLinks().size()];
+			int count = 0;
+			for (Link link : node.getOutLinks().values()) {
+				ns[count++] = indexOfNodeId[link.getToNode().getId().index()];
+			}
+			for (Link link : node.getInLinks().values()) {
+				ns[count++] = indexOfNodeId[link.getFromNode().getId().index()];
+			}
+			neighbours[i] = distinct(ns, count, i);
+		}
+
+		int[] order = new NestedDissection(networkNodes, neighbours).order();
+		int[] rank = new int[n];
+		for (int r = 0; r < n; r++) {
+			rank[order[r]] = r;
+		}
+
+		// contract the nodes in the order of their rank: the upward neighbours of a node form a clique, which is
+		// represented by adding them to the upward neighbours of the lowest of them.
+		int[][] up = new int[n][];
+		int[] upSize = new int[n];
+		for (int r = 0; r < n; r++) {
+			int[] ns = neighbours[order[r]];
+			int[] upward = new int[ns.length];
+			int count = 0;
+			for (int neighbour : ns) {
+				if (rank[neighbour] > r) {
+					upward[count++] = rank[neighbour];
+				}
+			}
+			up[r] = upward;
+			upSize[r] = count;
+		}
+		int numberOfEdges = 0;
+		for (int r = 0; r < n; r++) {
+			int[] upward = distinct(up[r], upSize[r], r);
+			Arrays.sort(upward);
+			up[r] = upward;
+			upSize[r] = upward.length;
+			numberOfEdges += upward.length;
+			if (upward.length > 1) {
+				int lowest = upward[0];
+				int[] target = up[lowest];
+				int size = upSize[lowest];
+				if (size + upward.length - 1 > target.length) {
+					target = Arrays.copyOf(target, Math.max(2 * target.length, size + upward.length - 1));
+					up[lowest] = target;
+				}
+				System.arraycopy(upward, 1, target, size, upward.length - 1);
+				upSize[lowest] = size + upward.length - 1;
+			}
+		}
+
+		int[] firstEdge = new int[n + 1];
+		int[] edgeHead = new int[numberOfEdges];
+		for (int r = 0; r < n; r++) {
+			firstEdge[r + 1] = firstEdge[r] + up[r].length;
+			System.arraycopy(up[r], 0, edgeHead, firstEdge[r], up[r].length);
+			up[r] = null;
+		}
+
+		Node[] nodes = new Node[n];
+		int[] rankOfNodeId = new int[indexOfNodeId.length];
+		Arrays.fill(rankOfNodeId, -1);
+		for (int r = 0; r < n; r++) {
+			nodes[r] = networkNodes[order[r]];
+			rankOfNodeId[nodes[r].getId().index()] = r;
+		}
+
+		List<Link> links = new ArrayList<>(network.getLinks().size());
+		for (Link link : network.getLinks().values()) {
+			if (link.getFromNode() != link.getToNode()) {
+				links.add(link);
+			}
+		}
+		int[] linkEdge = new int[links.size()];
+		boolean[] linkUpward = new boolean[links.size()];
+		ContractionHierarchy hierarchy = new ContractionHierarchy(nodes, rankOfNodeId, firstEdge, edgeHead,
+				links.toArray(new Link[0]), linkEdge, linkUpward);
+		for (int l = 0; l < linkEdge.length; l++) {
+			Link link = links.get(l);
+			int from = rankOfNodeId[link.getFromNode().getId().index()];
+			int to = rankOfNodeId[link.getToNode().getId().index()];
+			linkUpward[l] = from < to;
+			linkEdge[l] = linkUpward[l] ? hierarchy.findEdge(from, to) : hierarchy.findEdge(to, from);
+		}
+
+		log.info("contracted " + n + " nodes with " + links.size() + " links into " + numberOfEdges + " edges in "
+				+ (System.currentTimeMillis() - start) + " ms");
+		return hierarchy;
+	}
+
+	private static int[] distinct(final int[] values, final int count, final int exclude) {
+		int[] sorted = Arrays.copyOf(values, count);
+		Arrays.sort(sorted);
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			if (sorted[i] != exclude && (size == 0 || sorted[size - 1] != sorted[i])) {
+				sorted[size++] = sorted[i];
+			}
+		}
+		return Arrays.copyOf(sorted, size);
+	}
+
+	/**
+	 * @return the travel disutilities of the links at the given time, without person and vehicle, by the index used
+	 * in {@link #getLink(int)}
+	 */
+	double[] getLinkCosts(final TravelDisutility travelDisutility, final double time) {
+		double[] linkCosts = new double[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			linkCosts[l] = travelDisutility.getLinkTravelDisutility(this.links[l], time, null, null);
+		}
+		return linkCosts;
+	}
+
+	/**
+	 * Computes the costs of all edges from the costs of the links, by processing the lower triangles of every edge
+	 * bottom up.
+	 */
+	Metric customize(final double[] linkCosts) {
+		Metric metric = new Metric(this.edgeHead.length);
+		for (int l = 0; l < this.links.length; l++) {
+			double cost = linkCosts[l];
+			int e = this.linkEdge[l];
+			if (this.linkUpward[l]) {
+				if (cost < metric.upCost[e]) {
+					metric.upCost[e] = cost;
+					metric.upVia[e] = -1 - l;
+				}
+			} else if (cost < metric.downCost[e]) {
+				metric.downCost[e] = cost;
+				metric.downVia[e] = -1 - l;
+			}
+		}
+		for (int v = 0; v < this.numberOfNodes; v++) {
+			int last = this.firstEdge[v + 1];
+			for (int i = this.firstEdge[v]; i < last; i++) {
+				int u = this.edgeHead[i];
+				for (int j = i + 1; j < last; j++) {
+					int w = this.edgeHead[j]; // u < w, as the edges are sorted by head
+					int e = findEdge(u, w);
+					// u -> v -> w
+					double cost = metric.downCost[i] + metric.upCost[j];
+					if (cost < metric.upCost[e]) {
+						metric.upCost[e] = cost;
+						metric.upVia[e] = v;
+					}
+					// w -> v -> u
+					cost = metric.downCost[j] + metric.upCost[i];
+					if (cost < metric.downCost[e]) {
+						metric.downCost[e] = cost;
+						metric.downVia[e] = v;
+					}
+				}
+			}
+		}
+		return metric;
+	}
+
+	/**
+	 * The costs of the edges, in upward direction (from tail to head) and downward direction (from head to tail).
+	 * The <code>via</code> arrays contain the rank of the node the shortcut leads over, or <code>-1 - l</code> if
+	 * the edge is the link <code>l</code>.
+	 */
+	static final class Metric {
+
+		final double[] upCost;
+		final double[] downCost;
+		final int[] upVia;
+		final int[] downVia;
+
+		private Metric(final int numberOfEdges) {
+			this.upCost = new double[numberOfEdges];
+			this.downCost = new double[numberOfEdges];
+			this.upVia = new int[numberOfEdges];
+			this.downVia = new int[numberOfEdges];
+			Arrays.fill(this.upCost, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.downCost, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.upVia, Integer.MIN_VALUE);
+			Arrays.fill(this.downVia, Integer.MIN_VALUE);
+		}
+	}
+
+	/**
+	 * Orders the nodes by recursively splitting them at the median of the axis with the larger extent. The nodes of
+	 * the first half which are adjacent to the second half form the separator, which is ordered after both halves.
+	 */
+	private static final class NestedDissection {
+
+		private final Node[] nodes;
+		private final int[][] neighbours;
+		private final boolean[] inSecondHalf;
+		private final int[] order;
+		private int next = 0;
+
+		NestedDissection(final Node[] nodes, final int[][] neighbours) {
+			this.nodes = nodes;
+			this.neighbours = neighbours;
+			this.inSecondHalf = new boolean[nodes.length];
+			this.order = new int[nodes.length];
+		}
+
+		int[] order() {
+			Integer[] points = new Integer[this.nodes.length];
+			for (int i = 0; i < points.length; i++) {
+				points[i] = i;
+			}
+			dissect(points, 0, points.length);
+			return this.order;
+		}
+
+		private void dissect(final Integer[] points, final int from, final int to) {
+			if (to - from <= MIN_DISSECTION_SIZE) {
+				for (int i = from; i < to; i++) {
+					this.order[this.next++] = points[i];
+				}
+				return;
+			}
+			double minX = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				Node node = this.nodes[points[i]];
+				minX = Math.min(minX, node.getCoord().getX());
+				maxX = Math.max(maxX, node.getCoord().getX());
+				minY = Math.min(minY, node.getCoord().getY());
+				maxY = Math.max(maxY, node.getCoord().getY());
+			}
+			Comparator<Integer> comparator = (maxX - minX >= maxY - minY)
+					? Comparator.comparingDouble((Integer p) -> this.nodes[p].getCoord().getX())
+					: Comparator.comparingDouble((Integer p) -> this.nodes[p].getCoord().getY());
+			Arrays.sort(points, from, to, comparator.thenComparingInt(p -> p));
+			int middle = (from + to) / 2;
+
+			// mark the second half, then move the nodes of the first half adjacent to it to the end of the first half
+			for (int i = middle; i < to; i++) {
+				this.inSecondHalf[points[i]] = true;
+			}
+			int separator = middle;
+			for (int i = middle - 1; i >= from; i--) {
+				int p = points[i];
+				for (int neighbour : this.neighbours[p]) {
+					if (this.inSecondHalf[neighbour]) {
+						separator--;
+						points[i] = points[separator];
+						points[separator] = p;
+						break;
+					}
+				}
+			}
+			for (int i = middle; i < to; i++) {
+				this.inSecondHalf[points[i]] = false;
+			}
+
+			dissect(points, from, separator);
+			dissect(points, middle, to);
+			for (int i = separator; i < middle; i++) {
+				this.order[this.next++] = points[i];
+			}
+		}
+	}
+
+}
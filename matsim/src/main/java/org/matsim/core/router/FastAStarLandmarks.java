@@ -20,127 +20,185 @@
 
 package org.matsim.core.router;
 
-import org.matsim.api.core.v01.network.Node;
-import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.router.priorityqueue.BinaryMinHeap;
-import org.matsim.core.router.util.AStarNodeData;
-import org.matsim.core.router.util.AStarNodeDataFactory;
-import org.matsim.core.router.util.ArrayRoutingNetwork;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.matsim.core.router.util.ArrayRoutingNetworkNode;
-import org.matsim.core.router.util.PreProcessLandmarks;
-import org.matsim.core.router.util.RoutingNetwork;
-import org.matsim.core.router.util.RoutingNetworkNode;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
-import org.matsim.core.utils.collections.RouterPriorityQueue;
-import org.matsim.vehicles.Vehicle;
+import org.matsim.core.utils.geometry.CoordUtils;
 
 /**
  * <p>
- * Performance optimized version of the Dijkstra {@link org.matsim.core.router.FastAStarLandmarks} 
- * least cost path router which uses its own network to route within.
+ * Performance optimized version of the {@link org.matsim.core.router.AStarLandmarks} 
+ * least cost path router which routes on a {@link FastRoutingGraph}.
+ * </p>
+ * <p>
+ * Like the graph, the {@link FastRoutingLandmarks} are shared by all instances created
+ * by the same {@link FastAStarLandmarksFactory}. In addition to the query state of the
+ * {@link FastDijkstra}, an instance only holds the expected remaining cost per node and
+ * the currently active landmarks.
  * </p>
  * 
- * @see org.matsim.core.router.FastAStarLandmarks
- * @see org.matsim.core.router.util.RoutingNetwork
+ * @see org.matsim.core.router.AStarLandmarks
+ * @see org.matsim.core.router.FastRoutingLandmarks
  * @author cdobler
  */
-public class FastAStarLandmarks extends AStarLandmarks {
-
-	private final RoutingNetwork routingNetwork;
-	private final FastRouterDelegate fastRouter;
-	private BinaryMinHeap<ArrayRoutingNetworkNode> heap = null;
-	private int maxSize = -1;
-
-	FastAStarLandmarks(final RoutingNetwork routingNetwork, final PreProcessLandmarks preProcessData,
-			final TravelDisutility costFunction, final TravelTime timeFunction, final double overdoFactor,
-			final FastRouterDelegateFactory fastRouterFactory) {
-		super(routingNetwork, preProcessData, costFunction, timeFunction, overdoFactor);
-
-		this.routingNetwork = routingNetwork;
-		this.fastRouter = fastRouterFactory.createFastRouterDelegate(this, new AStarNodeDataFactory(), routingNetwork);
-				
-		this.nodeData.clear();
+public class FastAStarLandmarks extends FastDijkstra {
+
+	private final FastRoutingLandmarks landmarks;
+	private final double overdoFactor;
+
+	private double[] expectedRemainingCosts = null;
+	private int[] activeLandmarkIndexes;
+	private int controlCounter = 0;
+
+	FastAStarLandmarks(final FastRoutingGraph graph, final FastRoutingLandmarks landmarks,
+			final TravelDisutility costFunction, final TravelTime timeFunction, final double overdoFactor) {
+		super(graph, costFunction, timeFunction);
+		this.landmarks = landmarks;
+		this.overdoFactor = overdoFactor;
 	}
 
-	/*
-	 * Replace the references to the from and to nodes with their corresponding
-	 * nodes in the routing network.
-	 */
-	@Override
-	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
-		
-		this.fastRouter.initialize();
-		this.routingNetwork.initialize();
-		
-		RoutingNetworkNode routingNetworkFromNode = routingNetwork.getNodes().get(fromNode.getId());
-		RoutingNetworkNode routingNetworkToNode = routingNetwork.getNodes().get(toNode.getId());
-		
-		return super.calcLeastCostPath(routingNetworkFromNode, routingNetworkToNode, startTime, person, vehicle);
+	public double getOverdoFactor() {
+		return this.overdoFactor;
 	}
-	
+
 	@Override
-	/*package*/ RouterPriorityQueue<? extends Node> createRouterPriorityQueue() {
-		/*
-		 * Re-use existing BinaryMinHeap instead of creating a new one. For large networks (> 10^6 nodes and links) this reduced
-		 * the computation time by 40%! cdobler, oct'15
-		 */
-		if (this.routingNetwork instanceof ArrayRoutingNetwork) {
-			int size = this.routingNetwork.getNodes().size();
-			if (this.heap == null || this.maxSize != size) {
-				this.maxSize = size;
-				this.heap = new BinaryMinHeap<>(maxSize);
-				return this.heap;
-			} else {
-				this.heap.reset();
-				return this.heap;
-			}
-		} else {
-			return super.createRouterPriorityQueue();
+	/*package*/ void initFromNode(final int fromNode, final int toNode, final double startTime) {
+		if (this.expectedRemainingCosts == null) {
+			this.expectedRemainingCosts = new double[this.graph.getNodeCount()];
 		}
+		this.controlCounter = 0;	// reset counter for each calculated path!
+		initializeActiveLandmarks(fromNode, toNode, Math.min(2, this.landmarks.getLandmarkCount()));
+		this.expectedRemainingCosts[fromNode] = estimateRemainingTravelCost(fromNode, toNode);
+		super.initFromNode(fromNode, toNode, startTime);
 	}
-	
-	/*
-	 * Constructs the path and replaces the nodes and links from the routing network
-	 * with their corresponding nodes and links from the network.
-	 */
-	@Override
-	protected Path constructPath(Node fromNode, Node toNode, double startTime, double arrivalTime) {
-		return this.fastRouter.constructPath(fromNode, toNode, startTime, arrivalTime);
-	}
-	
-	/*
-	 * For performance reasons the outgoing links of a node are stored in
-	 * the routing network in an array instead of a map. Therefore we have
-	 * to iterate over an array instead of over a map. 
-	 */
+
 	@Override
-	protected void relaxNode(final Node outNode, final Node toNode, final RouterPriorityQueue<Node> pendingNodes) {
+	/*package*/ void relaxNode(final int outNode, final int toNode) {
 		this.controlCounter++;
-		if (this.controlCounter == controlInterval) {
+		if (this.controlCounter == AStarLandmarks.controlInterval) {
 			int newLandmarkIndex = checkToAddLandmark(outNode, toNode);
 			if (newLandmarkIndex > 0) {
-				updatePendingNodes(newLandmarkIndex, toNode, pendingNodes);
+				updatePendingNodes(newLandmarkIndex, toNode);
 			}
 			this.controlCounter = 0;
 		}
-		
-		this.fastRouter.relaxNode(outNode, toNode, pendingNodes);
+		super.relaxNode(outNode, toNode);
 	}
-	
-	/*
-	 * The DijkstraNodeData is taken from the RoutingNetworkNode and not from a map.
-	 */
+
 	@Override
-	protected AStarNodeData getData(final Node n) {
-		return (AStarNodeData) this.fastRouter.getData(n);
+	/*package*/ void initializeNode(final int n, final int toNode) {
+		this.expectedRemainingCosts[n] = estimateRemainingTravelCost(n, toNode);
 	}
 
-	/*
-	 * The LandmarksData is taken from the RoutingNetworkNode and not from a map.
-	 */
 	@Override
-	protected PreProcessLandmarks.LandmarksData getPreProcessData(final Node n) {
-		return (PreProcessLandmarks.LandmarksData) this.fastRouter.getPreProcessData(n);
+	/*package*/ double getPriority(final int n) {
+		return getCost(n) + this.expectedRemainingCosts[n];
+	}
+
+	/**
+	 * Selects the actLandmarkCount landmarks which yield the best estimation of the
+	 * travel cost from the fromNode to the toNode.
+	 */
+	private void initializeActiveLandmarks(final int fromNode, final int toNode, final int actLandmarkCount) {
+		// Sort the landmarks according to the accuracy of their distance estimation they yield.
+		double[] estTravelTimes = new double[actLandmarkCount];
+		this.activeLandmarkIndexes = new int[actLandmarkCount];
+		for (int i = 0; i < estTravelTimes.length; i++) {
+			estTravelTimes[i] = Double.NEGATIVE_INFINITY;
+		}
+		for (int i = 0; i < this.landmarks.getLandmarkCount(); i++) {
+			double tmpTravTime = estimateRemainingTravelCost(fromNode, toNode, i);
+			for (int j = 0; j < estTravelTimes.length; j++) {
+				if (tmpTravTime > estTravelTimes[j]) {
+					for (int k = estTravelTimes.length - 1; k > j; k--) {
+						estTravelTimes[k] = estTravelTimes[k - 1];
+						this.activeLandmarkIndexes[k] = this.activeLandmarkIndexes[k - 1];
+					}
+					estTravelTimes[j] = tmpTravTime;
+					this.activeLandmarkIndexes[j] = i;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Estimates the remaining travel cost using the active landmarks, the euclidean
+	 * distance multiplied by the minimal travel cost per length is used as lower bound.
+	 */
+	private double estimateRemainingTravelCost(final int fromNode, final int toNode) {
+		double travCost = 0;
+		for (int landmark : this.activeLandmarkIndexes) {
+			double tmpTravCost = estimateRemainingTravelCost(fromNode, toNode, landmark);
+			if (tmpTravCost > travCost) {
+				travCost = tmpTravCost;
+			}
+		}
+		double dist = CoordUtils.calcEuclideanDistance(this.graph.getNode(fromNode).getCoord(), this.graph.getNode(toNode).getCoord());
+		double euclideanTravCost = dist * this.landmarks.getMinTravelCostPerLength() * this.overdoFactor;
+		return travCost > euclideanTravCost ? travCost : euclideanTravCost;
+	}
+
+	private double estimateRemainingTravelCost(final int fromNode, final int toNode, final int landmark) {
+		double tmpTravTime = this.landmarks.getMinLandmarkTravelCost(fromNode, landmark) - this.landmarks.getMaxLandmarkTravelCost(toNode, landmark);
+		if (tmpTravTime < 0) {
+			tmpTravTime = this.landmarks.getMinLandmarkTravelCost(toNode, landmark) - this.landmarks.getMaxLandmarkTravelCost(fromNode, landmark);
+			if (tmpTravTime <= 0) {
+				return 0;
+			}
+		}
+		return tmpTravTime * this.overdoFactor;
+	}
+
+	/**
+	 * Checks whether a non-active landmark yields a better estimation than the active ones
+	 * and, if so, adds the best one to the active landmarks.
+	 *
+	 * @return The index of the added landmark, or -1 if no landmark was added.
+	 */
+	private int checkToAddLandmark(final int fromNode, final int toNode) {
+		double bestTravCostEst = estimateRemainingTravelCost(fromNode, toNode);
+		int bestIndex = -1;
+		for (int i = 0; i < this.landmarks.getLandmarkCount(); i++) {
+			double tmpTravTime = estimateRemainingTravelCost(fromNode, toNode, i);
+			if (tmpTravTime > bestTravCostEst) {
+				bestIndex = i;
+				bestTravCostEst = tmpTravTime;
+			}
+		}
+		if (bestIndex != -1) {
+			int[] newActiveLandmarks = new int[this.activeLandmarkIndexes.length + 1];
+			System.arraycopy(this.activeLandmarkIndexes, 0, newActiveLandmarks, 0, this.activeLandmarkIndexes.length);
+			newActiveLandmarks[this.activeLandmarkIndexes.length] = bestIndex;
+			this.activeLandmarkIndexes = newActiveLandmarks;
+		}
+		return bestIndex;
+	}
+
+	/**
+	 * Re-evaluates the expected remaining cost of the pending nodes after a landmark
+	 * has been added to the active landmarks.
+	 */
+	private void updatePendingNodes(final int newLandmarkIndex, final int toNode) {
+		List<ArrayRoutingNetworkNode> nodesToBeUpdated = new ArrayList<>();
+		List<Double> newEstRemTravCosts = new ArrayList<>();
+		for (ArrayRoutingNetworkNode node : this.heap) {
+			double newEstRemTravCost = estimateRemainingTravelCost(node.getArrayIndex(), toNode, newLandmarkIndex);
+			if (newEstRemTravCost > this.expectedRemainingCosts[node.getArrayIndex()]) {
+				nodesToBeUpdated.add(node);
+				newEstRemTravCosts.add(newEstRemTravCost);
+			}
+		}
+		for (ArrayRoutingNetworkNode node : nodesToBeUpdated) {
+			this.heap.remove(node);
+		}
+		for (int i = 0; i < nodesToBeUpdated.size(); i++) {
+			ArrayRoutingNetworkNode node = nodesToBeUpdated.get(i);
+			this.expectedRemainingCosts[node.getArrayIndex()] = newEstRemTravCosts.get(i);
+			this.heap.add(node, getPriority(node.getArrayIndex()));
+		}
 	}
 }
\ No newline at end of file
@@ -28,25 +28,24 @@ import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.groups.GlobalConfigGroup;
-import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessLandmarks;
-import org.matsim.core.router.util.RoutingNetwork;
-import org.matsim.core.router.util.RoutingNetworkFactory;
-import org.matsim.core.router.util.RoutingNetworkNode;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
 /**
+ * Creates {@link FastAStarLandmarks} instances. The {@link FastRoutingGraph} and the
+ * {@link FastRoutingLandmarks} of a network are only computed once and shared by all
+ * routers created for that network, the routers themselves are cheap to create.
+ *
  * @author cdobler
  */
 @Singleton
 public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory {
 
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks = new HashMap<>();
-	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
+	private final Map<Network, FastRoutingGraph> routingGraphs = new HashMap<>();
+	private final Map<Network, FastRoutingLandmarks> landmarks = new HashMap<>();
 
 	private final int nThreads;
 
@@ -63,7 +62,6 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 	private FastAStarLandmarksFactory(final FastRouterType fastRouterType, int numberOfThreads) {
 		switch (fastRouterType) {
 			case ARRAY:
-				this.routingNetworkFactory = new ArrayRoutingNetworkFactory();
 				break;
 			case POINTER:
 				throw new RuntimeException(
@@ -78,27 +76,22 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 	@Override
 	public synchronized LeastCostPathCalculator createPathCalculator(final Network network,
 			final TravelDisutility travelCosts, final TravelTime travelTimes) {
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		PreProcessLandmarks preProcessLandmarks = this.preProcessData.get(network);
+		FastRoutingGraph routingGraph = this.routingGraphs.get(network);
+		FastRoutingLandmarks routingLandmarks = this.landmarks.get(network);
 
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
+		if (routingGraph == null) {
+			routingGraph = new FastRoutingGraph(network);
 
-			preProcessLandmarks = new PreProcessLandmarks(travelCosts);
+			PreProcessLandmarks preProcessLandmarks = new PreProcessLandmarks(travelCosts);
 			preProcessLandmarks.setNumberOfThreads(nThreads);
 			preProcessLandmarks.run(network);
-			this.preProcessData.put(network, preProcessLandmarks);
+			routingLandmarks = new FastRoutingLandmarks(routingGraph, preProcessLandmarks);
 
-			for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
-				node.setDeadEndData(preProcessLandmarks.getNodeData(node.getNode()));
-			}
-
-			this.routingNetworks.put(network, routingNetwork);
+			this.routingGraphs.put(network, routingGraph);
+			this.landmarks.put(network, routingLandmarks);
 		}
-		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 
 		final double overdoFactor = 1.0;
-		return new FastAStarLandmarks(routingNetwork, preProcessLandmarks, travelCosts, travelTimes, overdoFactor,
-				fastRouterFactory);
+		return new FastAStarLandmarks(routingGraph, routingLandmarks, travelCosts, travelTimes, overdoFactor);
 	}
-}
\ No newline at end of file
+}
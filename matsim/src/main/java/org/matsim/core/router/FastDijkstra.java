@@ -20,123 +20,219 @@
 
 package org.matsim.core.router;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.router.priorityqueue.BinaryMinHeap;
-import org.matsim.core.router.util.ArrayRoutingNetwork;
 import org.matsim.core.router.util.ArrayRoutingNetworkNode;
-import org.matsim.core.router.util.DijkstraNodeData;
-import org.matsim.core.router.util.DijkstraNodeDataFactory;
-import org.matsim.core.router.util.PreProcessDijkstra;
-import org.matsim.core.router.util.RoutingNetwork;
-import org.matsim.core.router.util.RoutingNetworkNode;
+import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
-import org.matsim.core.utils.collections.RouterPriorityQueue;
 import org.matsim.vehicles.Vehicle;
 
 /**
  * <p>
  * Performance optimized version of the Dijkstra {@link org.matsim.core.router.Dijkstra} 
- * least cost path router which uses its own network to route within.
+ * least cost path router which routes on a {@link FastRoutingGraph}.
+ * </p>
+ * <p>
+ * The graph (and, if available, the dead end data) is shared by all instances created
+ * by the same {@link FastDijkstraFactory}. An instance only holds the data of the current
+ * query: cost, time and previous link per node, a visited stamp per node and the heap.
+ * These arrays are allocated when the first path is calculated, creating a router is
+ * therefore cheap. Nodes are expanded in the same order as by the {@link Dijkstra}, so
+ * both find the same routes.
  * </p>
  * 
+ * <h2>Important note</h2>
+ * This class is NOT thread-safe! Create one instance per thread instead.
+ * 
  * @see org.matsim.core.router.Dijkstra
- * @see org.matsim.core.router.util.RoutingNetwork
+ * @see org.matsim.core.router.FastRoutingGraph
  * @author cdobler
  */
-public class FastDijkstra extends Dijkstra {
+public class FastDijkstra implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(FastDijkstra.class);
+
+	/*package*/ final FastRoutingGraph graph;
+	/*package*/ final TravelDisutility costFunction;
+	/*package*/ final TravelTime timeFunction;
 
-	private final RoutingNetwork routingNetwork;
-	private final FastRouterDelegate fastRouter;
-	private BinaryMinHeap<ArrayRoutingNetworkNode> heap = null;
-	private int maxSize = -1;
-	
 	/*
-	 * Create the routing network here and clear the nodeData map 
-	 * which is not used by this implementation.
+	 * Query state, allocated lazily. A node has been visited in the current query
+	 * if its stamp equals the iterationId, so the arrays do not have to be reset.
 	 */
-	FastDijkstra(final RoutingNetwork routingNetwork, final TravelDisutility costFunction, final TravelTime timeFunction,
-			final PreProcessDijkstra preProcessData, final FastRouterDelegateFactory fastRouterFactory) {
-		super(routingNetwork, costFunction, timeFunction, preProcessData);
-		
-		this.routingNetwork = routingNetwork;
-		this.fastRouter = fastRouterFactory.createFastRouterDelegate(this, new DijkstraNodeDataFactory(), routingNetwork);
-
-		this.nodeData.clear();
+	private double[] costs = null;
+	private double[] times = null;
+	private int[] comingFrom = null;
+	private int[] iterationIds = null;
+	private int iterationId = 0;
+	/*package*/ BinaryMinHeap<ArrayRoutingNetworkNode> heap = null;
+
+	private int deadEndEntryNode = -1;
+	private Person person = null;
+	private Vehicle vehicle = null;
+
+	FastDijkstra(final FastRoutingGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this.graph = graph;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
 	}
-		
-	/*
-	 * Replace the references to the from and to nodes with their corresponding
-	 * nodes in the routing network.
-	 */
+
 	@Override
 	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
-		
-		this.fastRouter.initialize();
-		this.routingNetwork.initialize();
-		
-		RoutingNetworkNode routingNetworkFromNode = this.routingNetwork.getNodes().get(fromNode.getId());
-		RoutingNetworkNode routingNetworkToNode = this.routingNetwork.getNodes().get(toNode.getId());
-
-		return super.calcLeastCostPath(routingNetworkFromNode, routingNetworkToNode, startTime, person, vehicle);
-	}
-	
-	@Override
-	/*package*/ RouterPriorityQueue<? extends Node> createRouterPriorityQueue() {
-		/*
-		 * Re-use existing BinaryMinHeap instead of creating a new one. For large networks (> 10^6 nodes and links) this reduced
-		 * the computation time by 40%! cdobler, oct'15
-		 */
-		if (this.routingNetwork instanceof ArrayRoutingNetwork) {
-			int size = this.routingNetwork.getNodes().size();
-			if (this.heap == null || this.maxSize != size) {
-				this.maxSize = size;
-				this.heap = new BinaryMinHeap<>(maxSize);
-				return this.heap;
-			} else {
-				this.heap.reset();
-				return this.heap;
+		int fromIndex = this.graph.getNodeIndex(fromNode);
+		int toIndex = this.graph.getNodeIndex(toNode);
+
+		initializeQueryState();
+		this.person = person;
+		this.vehicle = vehicle;
+		if (this.graph.hasDeadEndData()) {
+			this.deadEndEntryNode = this.graph.getDeadEndEntryNode(toIndex);
+		}
+
+		initFromNode(fromIndex, toIndex, startTime);
+
+		while (true) {
+			ArrayRoutingNetworkNode outNode = this.heap.poll();
+			if (outNode == null) {
+				log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+				log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+				log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+				log.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+				log.warn("This will now return null, but it may fail later with a null pointer exception.");
+				return null;
 			}
-//			int maxSize = this.routingNetwork.getNodes().size();
-//			return new BinaryMinHeap<ArrayRoutingNetworkNode>(maxSize);
+			int outIndex = outNode.getArrayIndex();
+			if (outIndex == toIndex) {
+				break;
+			}
+			relaxNode(outIndex, toIndex);
+		}
+
+		return constructPath(toIndex, startTime);
+	}
+
+	private void initializeQueryState() {
+		if (this.heap == null) {
+			int nodeCount = this.graph.getNodeCount();
+			this.costs = new double[nodeCount];
+			this.times = new double[nodeCount];
+			this.comingFrom = new int[nodeCount];
+			this.iterationIds = new int[nodeCount];
+			this.heap = new BinaryMinHeap<>(nodeCount);
+		} else {
+			this.heap.reset();
+		}
+
+		if (this.iterationId == Integer.MAX_VALUE) {
+			Arrays.fill(this.iterationIds, 0);
+			this.iterationId = 1;
 		} else {
-			return super.createRouterPriorityQueue();
+			this.iterationId++;
 		}
 	}
-	
-	/*
-	 * Constructs the path and replaces the nodes and links from the routing network
-	 * with their corresponding nodes and links from the network.
-	 */
-	@Override
-	protected Path constructPath(Node fromNode, Node toNode, double startTime, double arrivalTime) {
-		return this.fastRouter.constructPath(fromNode, toNode, startTime, arrivalTime);
+
+	/*package*/ void initFromNode(final int fromNode, final int toNode, final double startTime) {
+		visitNode(fromNode, startTime, 0, -1);
+		this.heap.add(this.graph.getNode(fromNode), getPriority(fromNode));
 	}
-	
-	/*
-	 * For performance reasons the outgoing links of a node are stored in
-	 * the routing network in an array instead of a map. Therefore we have
-	 * to iterate over an array instead of over a map. 
+
+	/*package*/ void relaxNode(final int outNode, final int toNode) {
+		double currTime = this.times[outNode];
+		double currCost = this.costs[outNode];
+		boolean pruneDeadEnds = this.graph.hasDeadEndData();
+		for (int l = this.graph.getFirstOutLink(outNode), end = this.graph.getOutLinksEnd(outNode); l < end; l++) {
+			int n = this.graph.getToNode(l);
+			if (pruneDeadEnds) {
+				/* IF the node n is not in a dead end
+				 * OR the outNode is in a dead end (and so is the fromNode)
+				 * OR n is in the same dead end as the toNode
+				 * THEN we add n to the pending nodes */
+				int nDeadEndEntryNode = this.graph.getDeadEndEntryNode(n);
+				if (nDeadEndEntryNode != -1 && this.graph.getDeadEndEntryNode(outNode) == -1
+						&& nDeadEndEntryNode != this.deadEndEntryNode) {
+					continue;
+				}
+			}
+			addToPendingNodes(l, n, currTime, currCost, toNode);
+		}
+	}
+
+	private void addToPendingNodes(final int l, final int n, final double currTime, final double currCost, final int toNode) {
+		Link link = this.graph.getLink(l);
+		double travelTime = this.timeFunction.getLinkTravelTime(link, currTime, this.person, this.vehicle);
+		double travelCost = this.costFunction.getLinkTravelDisutility(link, currTime, this.person, this.vehicle);
+		double totalCost = currCost + travelCost;
+
+		if (this.iterationIds[n] != this.iterationId) {
+			visitNode(n, currTime + travelTime, totalCost, l);
+			initializeNode(n, toNode);
+			this.heap.add(this.graph.getNode(n), getPriority(n));
+			return;
+		}
+
+		double nCost = this.costs[n];
+		if (totalCost < nCost) {
+			visitNode(n, currTime + travelTime, totalCost, l);
+			this.heap.decreaseKey(this.graph.getNode(n), getPriority(n));
+		} else if (totalCost == nCost) {
+			// Special case: a node can be reached from two links with exactly the same costs.
+			// Decide based on the linkId which one to take... just have to common criteria to be deterministic.
+			int prevLink = this.comingFrom[n];
+			if (prevLink != -1 && this.graph.getLink(prevLink).getId().compareTo(link.getId()) > 0) {
+				visitNode(n, currTime + travelTime, totalCost, l);
+				this.heap.decreaseKey(this.graph.getNode(n), getPriority(n));
+			}
+		}
+	}
+
+	private void visitNode(final int n, final double time, final double cost, final int comingFrom) {
+		this.times[n] = time;
+		this.costs[n] = cost;
+		this.comingFrom[n] = comingFrom;
+		this.iterationIds[n] = this.iterationId;
+	}
+
+	/**
+	 * Called when a node is visited for the first time in the current query, before
+	 * it is added to the heap.
 	 */
-	@Override
-	protected void relaxNode(final Node outNode, final Node toNode, final RouterPriorityQueue<Node> pendingNodes) {
-		this.fastRouter.relaxNode(outNode, toNode, pendingNodes);
+	/*package*/ void initializeNode(final int n, final int toNode) {
 	}
-	
-	/*
-	 * The DijkstraNodeData is taken from the RoutingNetworkNode and not from a map.
+
+	/**
+	 * The value used to sort the pending nodes during routing.
 	 */
-	@Override
-	protected DijkstraNodeData getData(final Node n) {
-		return (DijkstraNodeData) this.fastRouter.getData(n);
+	/*package*/ double getPriority(final int n) {
+		return this.costs[n];
+	}
+
+	/*package*/ final double getCost(final int n) {
+		return this.costs[n];
 	}
 
 	/*
-	 * The DeadEndData is taken from the RoutingNetworkNode and not from a map.
+	 * Follows the previous links from the toNode back to the fromNode.
 	 */
-	@Override
-	protected PreProcessDijkstra.DeadEndData getPreProcessData(final Node n) {
-		return this.fastRouter.getPreProcessData(n);
+	private Path constructPath(final int toNode, final double startTime) {
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		nodes.add(this.graph.getNode(toNode).getNode());
+		for (int l = this.comingFrom[toNode]; l != -1; l = this.comingFrom[this.graph.getFromNode(l)]) {
+			Link link = this.graph.getLink(l);
+			links.add(link);
+			nodes.add(link.getFromNode());
+		}
+		Collections.reverse(nodes);
+		Collections.reverse(links);
+		return new Path(nodes, links, this.times[toNode] - startTime, this.costs[toNode]);
 	}
 }
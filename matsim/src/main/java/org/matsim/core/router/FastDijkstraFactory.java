@@ -27,23 +27,22 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessDijkstra;
-import org.matsim.core.router.util.RoutingNetwork;
-import org.matsim.core.router.util.RoutingNetworkFactory;
-import org.matsim.core.router.util.RoutingNetworkNode;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
+/**
+ * Creates {@link FastDijkstra} instances. The {@link FastRoutingGraph} of a network is
+ * only built once and shared by all routers created for that network, the routers
+ * themselves are cheap to create.
+ */
 @Singleton
 public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 
 	private final boolean usePreProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks = new HashMap<>();
-	private final Map<Network, PreProcessDijkstra> preProcessData = new HashMap<>();
+	private final Map<Network, FastRoutingGraph> routingGraphs = new HashMap<>();
 
 	@Inject
 	public FastDijkstraFactory() {
@@ -59,7 +58,6 @@ public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 
 		switch (fastRouterType) {
 			case ARRAY:
-				this.routingNetworkFactory = new ArrayRoutingNetworkFactory();
 				break;
 			case POINTER:
 				throw new RuntimeException("PointerRoutingNetworks are no longer supported. "
@@ -72,26 +70,20 @@ public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 	@Override
 	public synchronized LeastCostPathCalculator createPathCalculator(final Network network,
 			final TravelDisutility travelCosts, final TravelTime travelTimes) {
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		PreProcessDijkstra preProcessDijkstra = this.preProcessData.get(network);
-
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
+		FastRoutingGraph routingGraph = this.routingGraphs.get(network);
 
+		if (routingGraph == null) {
 			if (this.usePreProcessData) {
-				preProcessDijkstra = new PreProcessDijkstra();
+				PreProcessDijkstra preProcessDijkstra = new PreProcessDijkstra();
 				preProcessDijkstra.run(network);
-				this.preProcessData.put(network, preProcessDijkstra);
-
-				for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
-					node.setDeadEndData(preProcessDijkstra.getNodeData(node.getNode()));
-				}
+				routingGraph = new FastRoutingGraph(network, preProcessDijkstra);
+			} else {
+				routingGraph = new FastRoutingGraph(network);
 			}
 
-			this.routingNetworks.put(network, routingNetwork);
+			this.routingGraphs.put(network, routingGraph);
 		}
-		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 
-		return new FastDijkstra(routingNetwork, travelCosts, travelTimes, preProcessDijkstra, fastRouterFactory);
+		return new FastDijkstra(routingGraph, travelCosts, travelTimes);
 	}
-}
\ No newline at end of file
+}
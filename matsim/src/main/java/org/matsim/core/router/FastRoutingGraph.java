@@ -0,0 +1,154 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FastRoutingGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.ArrayRoutingNetworkNode;
+import org.matsim.core.router.util.PreProcessDijkstra;
+
+/**
+ * Compact, read-only representation of a network used by {@link FastDijkstra} and
+ * {@link FastAStarLandmarks}. The out-links of all nodes are stored in one array
+ * (compressed sparse row layout), nodes and links are addressed by their array index.
+ * <p>
+ * An instance is created once per network by the router factories and shared by all
+ * routers created from them, no matter in which thread they are used. The per-query
+ * data (costs, times, visited stamps, heap) is held by the routers themselves.
+ * <p>
+ * Nodes and out-links are enumerated in the same order as by the
+ * {@link org.matsim.core.router.util.ArrayRoutingNetworkFactory}, so routes are
+ * identical to the ones found on an {@link org.matsim.core.router.util.ArrayRoutingNetwork}.
+ *
+ * @see FastRoutingLandmarks
+ */
+/* deliberately package */ final class FastRoutingGraph {
+
+	/* the heap elements, also provide the node's coordinate */
+	private final ArrayRoutingNetworkNode[] nodes;
+	/* node index by Id.index(), -1 if the node is not part of the graph */
+	private final int[] nodeIndices;
+
+	/* the out-links of node i are stored from firstOutLink[i] to firstOutLink[i + 1] - 1 */
+	private final int[] firstOutLink;
+	private final Link[] links;
+	private final int[] linkFromNode;
+	private final int[] linkToNode;
+
+	/* index of the dead end entry node of each node, -1 if the node is not within a dead end */
+	private final int[] deadEndEntryNodes;
+
+	FastRoutingGraph(final Network network) {
+		this(network, null);
+	}
+
+	/**
+	 * @param preProcessData if not <code>null</code>, dead ends are pruned while routing
+	 */
+	FastRoutingGraph(final Network network, final PreProcessDijkstra preProcessData) {
+		int nodeCount = network.getNodes().size();
+		this.nodes = new ArrayRoutingNetworkNode[nodeCount];
+		this.nodeIndices = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(this.nodeIndices, -1);
+		int nodeIndex = 0;
+		int linkCount = 0;
+		for (Node node : network.getNodes().values()) {
+			this.nodes[nodeIndex] = new ArrayRoutingNetworkNode(node, 0, nodeIndex);
+			this.nodeIndices[node.getId().index()] = nodeIndex;
+			linkCount += node.getOutLinks().size();
+			nodeIndex++;
+		}
+
+		this.firstOutLink = new int[nodeCount + 1];
+		this.links = new Link[linkCount];
+		this.linkFromNode = new int[linkCount];
+		this.linkToNode = new int[linkCount];
+		int linkIndex = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			this.firstOutLink[i] = linkIndex;
+			for (Link link : this.nodes[i].getNode().getOutLinks().values()) {
+				this.links[linkIndex] = link;
+				this.linkFromNode[linkIndex] = i;
+				this.linkToNode[linkIndex] = getNodeIndex(link.getToNode());
+				linkIndex++;
+			}
+		}
+		this.firstOutLink[nodeCount] = linkIndex;
+
+		if (preProcessData != null) {
+			this.deadEndEntryNodes = new int[nodeCount];
+			for (int i = 0; i < nodeCount; i++) {
+				Node deadEndEntryNode = preProcessData.getNodeData(this.nodes[i].getNode()).getDeadEndEntryNode();
+				this.deadEndEntryNodes[i] = deadEndEntryNode == null ? -1 : getNodeIndex(deadEndEntryNode);
+			}
+		} else {
+			this.deadEndEntryNodes = null;
+		}
+	}
+
+	int getNodeCount() {
+		return this.nodes.length;
+	}
+
+	int getNodeIndex(final Node node) {
+		int index = node.getId().index();
+		if (index >= this.nodeIndices.length || this.nodeIndices[index] < 0) {
+			throw new IllegalArgumentException("Node " + node.getId() + " is not part of the routing network. Aborting!");
+		}
+		return this.nodeIndices[index];
+	}
+
+	ArrayRoutingNetworkNode getNode(final int node) {
+		return this.nodes[node];
+	}
+
+	int getFirstOutLink(final int node) {
+		return this.firstOutLink[node];
+	}
+
+	int getOutLinksEnd(final int node) {
+		return this.firstOutLink[node + 1];
+	}
+
+	Link getLink(final int link) {
+		return this.links[link];
+	}
+
+	int getFromNode(final int link) {
+		return this.linkFromNode[link];
+	}
+
+	int getToNode(final int link) {
+		return this.linkToNode[link];
+	}
+
+	boolean hasDeadEndData() {
+		return this.deadEndEntryNodes != null;
+	}
+
+	int getDeadEndEntryNode(final int node) {
+		return this.deadEndEntryNodes[node];
+	}
+}
@@ -0,0 +1,74 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FastRoutingLandmarks.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.core.router.util.PreProcessLandmarks;
+
+/**
+ * The landmark tables of a {@link PreProcessLandmarks} run, stored in two flat arrays
+ * indexed by the node indices of a {@link FastRoutingGraph}. Like the graph, an instance
+ * is created once per network and shared read-only by all {@link FastAStarLandmarks}
+ * instances, so the per-node <code>LandmarksData</code> objects are not kept.
+ */
+/* deliberately package */ final class FastRoutingLandmarks {
+
+	private final int landmarkCount;
+	private final double minTravelCostPerLength;
+
+	/* value for node n and landmark l is stored at n * landmarkCount + l */
+	private final double[] minLandmarkTravelCosts;
+	private final double[] maxLandmarkTravelCosts;
+
+	/**
+	 * @param preProcessData has to be run on the network of the given graph
+	 */
+	FastRoutingLandmarks(final FastRoutingGraph graph, final PreProcessLandmarks preProcessData) {
+		this.landmarkCount = preProcessData.getLandmarks().length;
+		this.minTravelCostPerLength = preProcessData.getMinTravelCostPerLength();
+
+		int nodeCount = graph.getNodeCount();
+		this.minLandmarkTravelCosts = new double[nodeCount * this.landmarkCount];
+		this.maxLandmarkTravelCosts = new double[nodeCount * this.landmarkCount];
+		for (int node = 0; node < nodeCount; node++) {
+			PreProcessLandmarks.LandmarksData data = preProcessData.getNodeData(graph.getNode(node).getNode());
+			for (int landmark = 0; landmark < this.landmarkCount; landmark++) {
+				this.minLandmarkTravelCosts[node * this.landmarkCount + landmark] = data.getMinLandmarkTravelTime(landmark);
+				this.maxLandmarkTravelCosts[node * this.landmarkCount + landmark] = data.getMaxLandmarkTravelTime(landmark);
+			}
+		}
+	}
+
+	int getLandmarkCount() {
+		return this.landmarkCount;
+	}
+
+	double getMinTravelCostPerLength() {
+		return this.minTravelCostPerLength;
+	}
+
+	double getMinLandmarkTravelCost(final int node, final int landmark) {
+		return this.minLandmarkTravelCosts[node * this.landmarkCount + landmark];
+	}
+
+	double getMaxLandmarkTravelCost(final int node, final int landmark) {
+		return this.maxLandmarkTravelCosts[node * this.landmarkCount + landmark];
+	}
+}
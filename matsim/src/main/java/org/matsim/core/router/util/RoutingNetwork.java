@@ -27,13 +27,13 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 
 /**
- * A network that is used by FastDijkstra, FastAStarEuclidean and FastAStarLandmarks.
+ * A network that is used by FastAStarEuclidean and FastMultiNodeDijkstra. FastDijkstra
+ * and FastAStarLandmarks route on the more compact org.matsim.core.router.FastRoutingGraph.
  * Instead of storing the node data in a map, the data is attached directly to the nodes
  * which is faster but also consumes more memory.
  * 
- * @see org.matsim.core.router.FastDijkstra
  * @see org.matsim.core.router.FastAStarEuclidean
- * @see org.matsim.core.router.FastAStarLandmarks
+ * @see org.matsim.core.router.FastMultiNodeDijkstra
  * @author cdobler
  */
 public interface RoutingNetwork extends Network {
@@ -49,7 +49,9 @@ import org.matsim.utils.objectattributes.attributable.Attributable;
 import org.matsim.vehicles.MatsimVehicleReader;
 
 
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Paths;
 import java.util.*;
 
 import static org.matsim.core.config.groups.PlansConfigGroup.PERSON_ATTRIBUTES_DEPRECATION_MESSAGE;
@@ -110,14 +112,20 @@ class ScenarioLoaderImpl {
 //		log.info("loading scenario from base directory: " + currentDir);
 		// the above is not used and thus only causing confusion in the log output.  kai, sep'18
 
-		this.loadNetwork();
-		this.loadActivityFacilities();
-		this.loadPopulation();
-		this.loadHouseholds(); // tests internally if the file is there
-		this.loadTransit(); // tests internally if the file is there
-		this.loadTransitVehicles(); // tests internally if the file is there
-		if (this.config.vehicles().getVehiclesFile()!=null ) {
-			this.loadVehicles() ;
+		if (this.config.scenario().getSnapshotFile() != null) {
+			this.loadSnapshot();
+			this.loadNetworkChangeEvents();
+			this.loadHouseholds(); // tests internally if the file is there
+		} else {
+			this.loadNetwork();
+			this.loadActivityFacilities();
+			this.loadPopulation();
+			this.loadHouseholds(); // tests internally if the file is there
+			this.loadTransit(); // tests internally if the file is there
+			this.loadTransitVehicles(); // tests internally if the file is there
+			if (this.config.vehicles().getVehiclesFile()!=null ) {
+				this.loadVehicles() ;
+			}
 		}
 		if (this.config.network().getLaneDefinitionsFile()!=null ) {
 			this.loadLanes();
@@ -142,15 +150,37 @@ class ScenarioLoaderImpl {
             reader.putAttributeConverters( attributeConverters );
             reader.parse(networkUrl);
 
-			if ((this.config.network().getChangeEventsInputFile()!= null) && this.config.network().isTimeVariantNetwork()) {
-				log.info("loading network change events from " + this.config.network().getChangeEventsInputFileUrl(this.config.getContext()).getFile());
-				Network network = this.scenario.getNetwork();
-				List<NetworkChangeEvent> changeEvents = new ArrayList<>() ;
-				NetworkChangeEventsParser parser = new NetworkChangeEventsParser(network,changeEvents);
-				parser.parse(this.config.network().getChangeEventsInputFileUrl(config.getContext()));
-				NetworkUtils.setNetworkChangeEvents(network,changeEvents);
-			}
+			this.loadNetworkChangeEvents();
+		}
+	}
+
+	private void loadNetworkChangeEvents() {
+		if ((this.config.network().getChangeEventsInputFile()!= null) && this.config.network().isTimeVariantNetwork()) {
+			log.info("loading network change events from " + this.config.network().getChangeEventsInputFileUrl(this.config.getContext()).getFile());
+			Network network = this.scenario.getNetwork();
+			List<NetworkChangeEvent> changeEvents = new ArrayList<>() ;
+			NetworkChangeEventsParser parser = new NetworkChangeEventsParser(network,changeEvents);
+			parser.parse(this.config.network().getChangeEventsInputFileUrl(config.getContext()));
+			NetworkUtils.setNetworkChangeEvents(network,changeEvents);
+		}
+	}
+
+	/**
+	 * Loads network, facilities, population, transit schedule, transit vehicles and vehicles from a binary snapshot,
+	 * see {@link ScenarioUtils#writeSnapshot(Scenario, String)}.
+	 */
+	private void loadSnapshot() {
+		URL snapshotUrl = ConfigGroup.getInputFileURL(this.config.getContext(), this.config.scenario().getSnapshotFile());
+		String snapshotFile;
+		try {
+			snapshotFile = Paths.get(snapshotUrl.toURI()).toString();
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			throw new RuntimeException("scenario snapshots can only be loaded from local files, not from " + snapshotUrl, e);
 		}
+		ScenarioSnapshotReader reader = new ScenarioSnapshotReader(this.scenario);
+		reader.putAttributeConverters(this.attributeConverters);
+		reader.read(snapshotFile);
+		PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
 	}
 
 	private void loadActivityFacilities() {
@@ -0,0 +1,617 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioSnapshotReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityFacilityImpl;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.OpeningTimeImpl;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopArea;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.CostInformation;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.matsim.core.scenario.ScenarioSnapshotWriter.*;
+
+/**
+ * Reads a binary snapshot written by {@link ScenarioSnapshotWriter} into the (empty) containers of a scenario.
+ * <p></p>
+ * The file is memory-mapped instead of read through streams, so the operating system can serve it directly from its
+ * page cache, e.g. when several runs are started from the same snapshot. No coordinate transformation is applied, so
+ * the snapshot must have been written with the same internal coordinate system as configured for the scenario.
+ */
+/* deliberately package */ final class ScenarioSnapshotReader {
+
+	private static final Logger log = Logger.getLogger(ScenarioSnapshotReader.class);
+
+	private final Scenario scenario;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+	private final List<String> strings = new ArrayList<>();
+	private MappedInput in = null;
+
+	ScenarioSnapshotReader(final Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	void read(final String filename) {
+		log.info("loading scenario snapshot from " + filename);
+		this.strings.clear();
+		try (MappedInput in = new MappedInput(filename)) {
+			this.in = in;
+			if (in.getInt() != MAGIC) {
+				throw new IllegalArgumentException(filename + " is not a scenario snapshot.");
+			}
+			int version = in.getInt();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of scenario snapshot " + filename + ", expected " + VERSION);
+			}
+			byte section;
+			while ((section = in.getByte()) != SECTION_END) {
+				switch (section) {
+					case SECTION_NETWORK:
+						readNetwork(this.scenario.getNetwork());
+						break;
+					case SECTION_FACILITIES:
+						readFacilities(this.scenario.getActivityFacilities());
+						break;
+					case SECTION_POPULATION:
+						readPopulation(this.scenario.getPopulation());
+						break;
+					case SECTION_TRANSIT_SCHEDULE:
+						readTransitSchedule(this.scenario.getTransitSchedule());
+						break;
+					case SECTION_TRANSIT_VEHICLES:
+						readVehicles(this.scenario.getTransitVehicles());
+						break;
+					case SECTION_VEHICLES:
+						readVehicles(this.scenario.getVehicles());
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown section " + section + " in scenario snapshot " + filename);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.in = null;
+		}
+		log.info("scenario snapshot loaded: " + this.scenario.getNetwork().getLinks().size() + " links, "
+				+ this.scenario.getActivityFacilities().getFacilities().size() + " facilities, "
+				+ this.scenario.getPopulation().getPersons().size() + " persons, "
+				+ this.scenario.getTransitSchedule().getTransitLines().size() + " transit lines.");
+	}
+
+	private void readNetwork(final Network network) throws IOException {
+		network.setName(readText());
+		network.setCapacityPeriod(this.in.getDouble());
+		network.setEffectiveCellSize(this.in.getDouble());
+		network.setEffectiveLaneWidth(this.in.getDouble());
+		readAttributes(network.getAttributes());
+
+		NetworkFactory factory = network.getFactory();
+		int nodes = this.in.getInt();
+		for (int i = 0; i < nodes; i++) {
+			Node node = factory.createNode(readId(Node.class), readCoord());
+			network.addNode(node);
+			readAttributes(node.getAttributes());
+		}
+
+		int links = this.in.getInt();
+		for (int i = 0; i < links; i++) {
+			Id<Link> id = readId(Link.class);
+			Node fromNode = network.getNodes().get(readId(Node.class));
+			Node toNode = network.getNodes().get(readId(Node.class));
+			Link link = factory.createLink(id, fromNode, toNode);
+			link.setLength(this.in.getDouble());
+			link.setFreespeed(this.in.getDouble());
+			link.setCapacity(this.in.getDouble());
+			link.setNumberOfLanes(this.in.getDouble());
+			int modes = this.in.getInt();
+			Set<String> allowedModes = new HashSet<>();
+			for (int m = 0; m < modes; m++) {
+				allowedModes.add(readString());
+			}
+			link.setAllowedModes(allowedModes);
+			network.addLink(link);
+			readAttributes(link.getAttributes());
+		}
+	}
+
+	private void readFacilities(final ActivityFacilities facilities) throws IOException {
+		facilities.setName(readText());
+		readAttributes(facilities.getAttributes());
+		int count = this.in.getInt();
+		for (int i = 0; i < count; i++) {
+			Id<ActivityFacility> id = readId(ActivityFacility.class);
+			Coord coord = readCoord();
+			Id<Link> linkId = readId(Link.class);
+			ActivityFacility facility;
+			if (coord != null && linkId == null) {
+				facility = facilities.getFactory().createActivityFacility(id, coord);
+			} else if (coord == null && linkId != null) {
+				facility = facilities.getFactory().createActivityFacility(id, linkId);
+			} else {
+				facility = facilities.getFactory().createActivityFacility(id, coord, linkId);
+			}
+			String desc = readText();
+			if (desc != null && facility instanceof ActivityFacilityImpl) {
+				((ActivityFacilityImpl) facility).setDesc(desc);
+			}
+			readAttributes(facility.getAttributes());
+			int options = this.in.getInt();
+			for (int o = 0; o < options; o++) {
+				ActivityOption option = facilities.getFactory().createActivityOption(readString());
+				option.setCapacity(this.in.getDouble());
+				int openingTimes = this.in.getInt();
+				for (int t = 0; t < openingTimes; t++) {
+					double start = this.in.getDouble();
+					double end = this.in.getDouble();
+					option.addOpeningTime(new OpeningTimeImpl(start, end));
+				}
+				facility.addActivityOption(option);
+			}
+			facilities.addActivityFacility(facility);
+		}
+	}
+
+	private void readPopulation(final Population population) throws IOException {
+		population.setName(readText());
+		readAttributes(population.getAttributes());
+		PopulationFactory factory = population.getFactory();
+		int persons = this.in.getInt();
+		for (int i = 0; i < persons; i++) {
+			Person person = factory.createPerson(readId(Person.class));
+			readAttributes(person.getAttributes());
+			int plans = this.in.getInt();
+			int selected = this.in.getInt();
+			for (int p = 0; p < plans; p++) {
+				person.addPlan(readPlan(factory));
+			}
+			if (selected >= 0) {
+				person.setSelectedPlan(person.getPlans().get(selected));
+			}
+			population.addPerson(person);
+		}
+	}
+
+	private Plan readPlan(final PopulationFactory factory) throws IOException {
+		Plan plan = factory.createPlan();
+		if (this.in.getBoolean()) {
+			plan.setScore(this.in.getDouble());
+		}
+		plan.setType(readString());
+		readAttributes(plan.getAttributes());
+		int elements = this.in.getInt();
+		for (int e = 0; e < elements; e++) {
+			byte type = this.in.getByte();
+			if (type == ACTIVITY) {
+				plan.addActivity(readActivity(factory));
+			} else if (type == LEG) {
+				plan.addLeg(readLeg(factory));
+			} else {
+				throw new IllegalArgumentException("Unknown plan element type " + type);
+			}
+		}
+		return plan;
+	}
+
+	private Activity readActivity(final PopulationFactory factory) throws IOException {
+		String type = readString();
+		Id<Link> linkId = readId(Link.class);
+		Id<ActivityFacility> facilityId = readId(ActivityFacility.class);
+		Coord coord = readCoord();
+		Activity act;
+		if (linkId != null) {
+			act = factory.createActivityFromLinkId(type, linkId);
+			if (coord != null) {
+				act.setCoord(coord);
+			}
+		} else if (coord != null) {
+			act = factory.createActivityFromCoord(type, coord);
+		} else {
+			act = factory.createActivityFromActivityFacilityId(type, facilityId);
+		}
+		if (facilityId != null) {
+			act.setFacilityId(facilityId);
+		}
+		if (this.in.getBoolean()) {
+			act.setStartTime(this.in.getDouble());
+		} else {
+			act.setStartTimeUndefined();
+		}
+		if (this.in.getBoolean()) {
+			act.setMaximumDuration(this.in.getDouble());
+		} else {
+			act.setMaximumDurationUndefined();
+		}
+		if (this.in.getBoolean()) {
+			act.setEndTime(this.in.getDouble());
+		} else {
+			act.setEndTimeUndefined();
+		}
+		readAttributes(act.getAttributes());
+		return act;
+	}
+
+	private Leg readLeg(final PopulationFactory factory) throws IOException {
+		Leg leg = factory.createLeg(readString());
+		if (this.in.getBoolean()) {
+			leg.setDepartureTime(this.in.getDouble());
+		} else {
+			leg.setDepartureTimeUndefined();
+		}
+		if (this.in.getBoolean()) {
+			leg.setTravelTime(this.in.getDouble());
+		} else {
+			leg.setTravelTimeUndefined();
+		}
+		readAttributes(leg.getAttributes());
+		if (this.in.getBoolean()) {
+			String routeType = readString();
+			Id<Link> startLinkId = readId(Link.class);
+			Id<Link> endLinkId = readId(Link.class);
+			Class<? extends Route> routeClass = factory.getRouteFactories().getRouteClassForType(routeType);
+			Route route = factory.getRouteFactories().createRoute(routeClass, startLinkId, endLinkId);
+			if (this.in.getBoolean()) {
+				route.setTravelTime(this.in.getDouble());
+			} else {
+				route.setTravelTimeUndefined();
+			}
+			route.setDistance(this.in.getDouble());
+			Id<Vehicle> vehicleId = readId(Vehicle.class);
+			if (vehicleId != null && route instanceof NetworkRoute) {
+				((NetworkRoute) route).setVehicleId(vehicleId);
+			}
+			String description = readText();
+			if (description != null) {
+				route.setRouteDescription(description);
+			}
+			leg.setRoute(route);
+		}
+		return leg;
+	}
+
+	private void readTransitSchedule(final TransitSchedule schedule) throws IOException {
+		TransitScheduleFactory factory = schedule.getFactory();
+		readAttributes(schedule.getAttributes());
+
+		int stops = this.in.getInt();
+		for (int i = 0; i < stops; i++) {
+			Id<TransitStopFacility> id = readId(TransitStopFacility.class);
+			Coord coord = readCoord();
+			TransitStopFacility stop = factory.createTransitStopFacility(id, coord, this.in.getBoolean());
+			Id<Link> linkId = readId(Link.class);
+			if (linkId != null) {
+				stop.setLinkId(linkId);
+			}
+			String name = readText();
+			if (name != null) {
+				stop.setName(name);
+			}
+			Id<TransitStopArea> stopAreaId = readId(TransitStopArea.class);
+			if (stopAreaId != null) {
+				stop.setStopAreaId(stopAreaId);
+			}
+			readAttributes(stop.getAttributes());
+			schedule.addStopFacility(stop);
+		}
+
+		int transferTimes = this.in.getInt();
+		for (int i = 0; i < transferTimes; i++) {
+			Id<TransitStopFacility> fromStop = readId(TransitStopFacility.class);
+			Id<TransitStopFacility> toStop = readId(TransitStopFacility.class);
+			schedule.getMinimalTransferTimes().set(fromStop, toStop, this.in.getDouble());
+		}
+
+		int lines = this.in.getInt();
+		for (int i = 0; i < lines; i++) {
+			TransitLine line = factory.createTransitLine(readId(TransitLine.class));
+			String name = readText();
+			if (name != null) {
+				line.setName(name);
+			}
+			readAttributes(line.getAttributes());
+			int routes = this.in.getInt();
+			for (int r = 0; r < routes; r++) {
+				line.addRoute(readTransitRoute(schedule));
+			}
+			schedule.addTransitLine(line);
+		}
+	}
+
+	private TransitRoute readTransitRoute(final TransitSchedule schedule) throws IOException {
+		TransitScheduleFactory factory = schedule.getFactory();
+		Id<TransitRoute> id = readId(TransitRoute.class);
+		String description = readText();
+		String mode = readString();
+		Attributes attributes = new Attributes();
+		readAttributes(attributes);
+
+		int stopCount = this.in.getInt();
+		List<TransitRouteStop> stops = new ArrayList<>(stopCount);
+		for (int s = 0; s < stopCount; s++) {
+			Id<TransitStopFacility> stopId = readId(TransitStopFacility.class);
+			TransitStopFacility facility = schedule.getFacilities().get(stopId);
+			if (facility == null) {
+				throw new RuntimeException("no stop/facility with id " + stopId);
+			}
+			TransitRouteStop.Builder<?> builder = factory.createTransitRouteStopBuilder(facility);
+			if (this.in.getBoolean()) {
+				builder.arrivalOffset(this.in.getDouble());
+			}
+			if (this.in.getBoolean()) {
+				builder.departureOffset(this.in.getDouble());
+			}
+			builder.awaitDepartureTime(this.in.getBoolean());
+			stops.add(builder.build());
+		}
+
+		NetworkRoute networkRoute = null;
+		if (this.in.getBoolean()) {
+			Id<Link> startLinkId = readId(Link.class);
+			int linkCount = this.in.getInt();
+			List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+			for (int l = 0; l < linkCount; l++) {
+				linkIds.add(readId(Link.class));
+			}
+			Id<Link> endLinkId = readId(Link.class);
+			networkRoute = this.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, startLinkId, endLinkId);
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+		}
+
+		TransitRoute route = factory.createTransitRoute(id, networkRoute, stops, mode);
+		route.setDescription(description);
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			route.getAttributes().putAttribute(entry.getKey(), entry.getValue());
+		}
+
+		int departures = this.in.getInt();
+		for (int d = 0; d < departures; d++) {
+			Id<Departure> departureId = readId(Departure.class);
+			Departure departure = factory.createDeparture(departureId, this.in.getDouble());
+			Id<Vehicle> vehicleId = readId(Vehicle.class);
+			if (vehicleId != null) {
+				departure.setVehicleId(vehicleId);
+			}
+			readAttributes(departure.getAttributes());
+			route.addDeparture(departure);
+		}
+		return route;
+	}
+
+	private void readVehicles(final Vehicles vehicles) throws IOException {
+		int types = this.in.getInt();
+		for (int i = 0; i < types; i++) {
+			VehicleType type = vehicles.getFactory().createVehicleType(readId(VehicleType.class));
+			type.setDescription(readText());
+			type.setWidth(this.in.getDouble());
+			type.setMaximumVelocity(this.in.getDouble());
+			type.setLength(this.in.getDouble());
+			type.setPcuEquivalents(this.in.getDouble());
+			type.setFlowEfficiencyFactor(this.in.getDouble());
+			type.setNetworkMode(readString());
+			readAttributes(type.getAttributes());
+
+			VehicleCapacity capacity = type.getCapacity();
+			Double value;
+			capacity.setSeats((value = readOptionalDouble()) == null ? null : value.intValue());
+			capacity.setStandingRoom((value = readOptionalDouble()) == null ? null : value.intValue());
+			if ((value = readOptionalDouble()) != null) {
+				capacity.setVolumeInCubicMeters(value);
+			}
+			if ((value = readOptionalDouble()) != null) {
+				capacity.setWeightInTons(value);
+			}
+			if ((value = readOptionalDouble()) != null) {
+				capacity.setOther(value);
+			}
+			readAttributes(capacity.getAttributes());
+
+			readAttributes(type.getEngineInformation().getAttributes());
+
+			CostInformation costs = type.getCostInformation();
+			costs.setFixedCost(readOptionalDouble());
+			costs.setCostsPerMeter(readOptionalDouble());
+			costs.setCostsPerSecond(readOptionalDouble());
+			readAttributes(costs.getAttributes());
+
+			vehicles.addVehicleType(type);
+		}
+
+		int count = this.in.getInt();
+		for (int i = 0; i < count; i++) {
+			Id<Vehicle> id = readId(Vehicle.class);
+			VehicleType type = vehicles.getVehicleTypes().get(readId(VehicleType.class));
+			vehicles.addVehicle(vehicles.getFactory().createVehicle(id, type));
+		}
+	}
+
+	private void readAttributes(final Attributes attributes) throws IOException {
+		int count = this.in.getInt();
+		for (int i = 0; i < count; i++) {
+			String name = readString();
+			String className = readString();
+			String value = readText();
+			Object converted = this.attributesConverter.convert(className, value);
+			if (converted != null) {
+				attributes.putAttribute(name, converted);
+			}
+		}
+	}
+
+	private Coord readCoord() throws IOException {
+		byte dimensions = this.in.getByte();
+		if (dimensions == 0) {
+			return null;
+		}
+		double x = this.in.getDouble();
+		double y = this.in.getDouble();
+		return dimensions == 3 ? new Coord(x, y, this.in.getDouble()) : new Coord(x, y);
+	}
+
+	private Double readOptionalDouble() throws IOException {
+		return this.in.getBoolean() ? this.in.getDouble() : null;
+	}
+
+	private <T> Id<T> readId(final Class<T> type) throws IOException {
+		String id = readString();
+		return id == null ? null : Id.create(id, type);
+	}
+
+	private String readString() throws IOException {
+		int index = this.in.getInt();
+		if (index == NULL_STRING) {
+			return null;
+		}
+		if (index == NEW_STRING) {
+			String string = readText().intern();
+			this.strings.add(string);
+			return string;
+		}
+		return this.strings.get(index);
+	}
+
+	private String readText() throws IOException {
+		int length = this.in.getInt();
+		if (length == NULL_STRING) {
+			return null;
+		}
+		return new String(this.in.getBytes(length), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a file through memory-mapped regions. A region cannot be larger than 2 GB, so large files are mapped
+	 * piecewise; a new region is mapped when the current one does not contain the next value completely.
+	 */
+	private static final class MappedInput implements Closeable {
+
+		private static final int REGION_SIZE = 1 << 30;
+
+		private final FileChannel channel;
+		private final long size;
+		private long regionStart = 0;
+		private MappedByteBuffer buffer;
+
+		MappedInput(final String filename) throws IOException {
+			this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+			this.size = this.channel.size();
+			map(0);
+		}
+
+		private void map(final long position) throws IOException {
+			this.regionStart = position;
+			this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_SIZE, this.size - position));
+		}
+
+		private void ensure(final int bytes) throws IOException {
+			if (this.buffer.remaining() < bytes) {
+				long position = this.regionStart + this.buffer.position();
+				if (position + bytes > this.size) {
+					throw new IOException("Unexpected end of scenario snapshot.");
+				}
+				if (bytes > REGION_SIZE) {
+					throw new IOException("Value too large: " + bytes + " bytes.");
+				}
+				map(position);
+			}
+		}
+
+		byte getByte() throws IOException {
+			ensure(1);
+			return this.buffer.get();
+		}
+
+		boolean getBoolean() throws IOException {
+			return getByte() != 0;
+		}
+
+		int getInt() throws IOException {
+			ensure(4);
+			return this.buffer.getInt();
+		}
+
+		double getDouble() throws IOException {
+			ensure(8);
+			return this.buffer.getDouble();
+		}
+
+		byte[] getBytes(final int length) throws IOException {
+			ensure(length);
+			byte[] bytes = new byte[length];
+			this.buffer.get(bytes);
+			return bytes;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.buffer = null;
+			this.channel.close();
+		}
+	}
+
+}
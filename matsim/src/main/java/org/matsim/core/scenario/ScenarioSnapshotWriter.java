@@ -0,0 +1,475 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioSnapshotWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scenario;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityFacilityImpl;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.OpeningTime;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.CostInformation;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the network, activity facilities, population, transit schedule, transit vehicles and vehicles of a scenario
+ * into a binary snapshot, which can be loaded much faster than the xml files, see {@link ScenarioSnapshotReader}.
+ * <p></p>
+ * The snapshot contains the data as it is in memory, i.e. the coordinates are in the internal coordinate system
+ * and attributes are stored with the {@link AttributeConverter}s as in the xml files. Identifiers and other strings
+ * which typically repeat (modes, activity types, attribute names) are written only once and referenced by an index
+ * afterwards. The format is not meant for archiving; it may change between MATSim versions. Nodes are written with their
+ * attributes only, so a node type or original id is contained if it is stored as node attribute.
+ *
+ * @see ScenarioUtils#writeSnapshot(Scenario, String)
+ */
+/* deliberately package */ final class ScenarioSnapshotWriter {
+
+	private static final Logger log = Logger.getLogger(ScenarioSnapshotWriter.class);
+
+	static final int MAGIC = 0x4d53534e; // "MSSN"
+	static final int VERSION = 2;
+
+	static final byte SECTION_NETWORK = 1;
+	static final byte SECTION_FACILITIES = 2;
+	static final byte SECTION_POPULATION = 3;
+	static final byte SECTION_TRANSIT_SCHEDULE = 4;
+	static final byte SECTION_TRANSIT_VEHICLES = 5;
+	static final byte SECTION_VEHICLES = 6;
+	static final byte SECTION_END = 0;
+
+	static final byte ACTIVITY = 1;
+	static final byte LEG = 2;
+
+	/** a string that has no index yet follows */
+	static final int NEW_STRING = -2;
+	static final int NULL_STRING = -1;
+
+	private final Scenario scenario;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+	private final Map<String, Integer> strings = new HashMap<>();
+	private DataOutputStream out = null;
+
+	ScenarioSnapshotWriter(final Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	void write(final String filename) {
+		write(filename, true);
+	}
+
+	/**
+	 * Writes a snapshot containing only the population, e.g. for checkpoints of a running simulation where the other
+	 * elements of the scenario do not change.
+	 */
+	void writePopulation(final String filename) {
+		write(filename, false);
+	}
+
+	private void write(final String filename, final boolean completeScenario) {
+		log.info("writing scenario snapshot to " + filename);
+		this.strings.clear();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+			this.out = out;
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+
+			if (completeScenario) {
+				out.writeByte(SECTION_NETWORK);
+				writeNetwork(this.scenario.getNetwork());
+				out.writeByte(SECTION_FACILITIES);
+				writeFacilities(this.scenario.getActivityFacilities());
+			}
+			out.writeByte(SECTION_POPULATION);
+			writePopulation(this.scenario.getPopulation());
+			if (completeScenario) {
+				out.writeByte(SECTION_TRANSIT_SCHEDULE);
+				writeTransitSchedule(this.scenario.getTransitSchedule());
+				out.writeByte(SECTION_TRANSIT_VEHICLES);
+				writeVehicles(this.scenario.getTransitVehicles());
+				out.writeByte(SECTION_VEHICLES);
+				writeVehicles(this.scenario.getVehicles());
+			}
+			out.writeByte(SECTION_END);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.out = null;
+		}
+		log.info("scenario snapshot written, " + this.strings.size() + " distinct strings.");
+	}
+
+	private void writeNetwork(final Network network) throws IOException {
+		writeText(network.getName());
+		this.out.writeDouble(network.getCapacityPeriod());
+		this.out.writeDouble(network.getEffectiveCellSize());
+		this.out.writeDouble(network.getEffectiveLaneWidth());
+		writeAttributes(network.getAttributes());
+
+		this.out.writeInt(network.getNodes().size());
+		for (Node node : network.getNodes().values()) {
+			writeId(node.getId());
+			writeCoord(node.getCoord());
+			writeAttributes(node.getAttributes());
+		}
+
+		this.out.writeInt(network.getLinks().size());
+		for (Link link : network.getLinks().values()) {
+			writeId(link.getId());
+			writeId(link.getFromNode().getId());
+			writeId(link.getToNode().getId());
+			this.out.writeDouble(link.getLength());
+			this.out.writeDouble(link.getFreespeed());
+			this.out.writeDouble(link.getCapacity());
+			this.out.writeDouble(link.getNumberOfLanes());
+			this.out.writeInt(link.getAllowedModes().size());
+			for (String mode : link.getAllowedModes()) {
+				writeString(mode);
+			}
+			writeAttributes(link.getAttributes());
+		}
+	}
+
+	private void writeFacilities(final ActivityFacilities facilities) throws IOException {
+		writeText(facilities.getName());
+		writeAttributes(facilities.getAttributes());
+		this.out.writeInt(facilities.getFacilities().size());
+		for (ActivityFacility facility : facilities.getFacilities().values()) {
+			writeId(facility.getId());
+			writeCoord(facility.getCoord());
+			writeId(facility.getLinkId());
+			writeText(facility instanceof ActivityFacilityImpl ? ((ActivityFacilityImpl) facility).getDesc() : null);
+			writeAttributes(facility.getAttributes());
+			this.out.writeInt(facility.getActivityOptions().size());
+			for (ActivityOption option : facility.getActivityOptions().values()) {
+				writeString(option.getType());
+				this.out.writeDouble(option.getCapacity());
+				this.out.writeInt(option.getOpeningTimes().size());
+				for (OpeningTime openingTime : option.getOpeningTimes()) {
+					this.out.writeDouble(openingTime.getStartTime());
+					this.out.writeDouble(openingTime.getEndTime());
+				}
+			}
+		}
+	}
+
+	private void writePopulation(final Population population) throws IOException {
+		writeText(population.getName());
+		writeAttributes(population.getAttributes());
+		this.out.writeInt(population.getPersons().size());
+		for (Person person : population.getPersons().values()) {
+			writeId(person.getId());
+			writeAttributes(person.getAttributes());
+			this.out.writeInt(person.getPlans().size());
+			this.out.writeInt(person.getPlans().indexOf(person.getSelectedPlan()));
+			for (Plan plan : person.getPlans()) {
+				writePlan(plan);
+			}
+		}
+	}
+
+	private void writePlan(final Plan plan) throws IOException {
+		Double score = plan.getScore();
+		this.out.writeBoolean(score != null);
+		if (score != null) {
+			this.out.writeDouble(score);
+		}
+		writeString(plan.getType());
+		writeAttributes(plan.getAttributes());
+		this.out.writeInt(plan.getPlanElements().size());
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (pe instanceof Activity) {
+				Activity act = (Activity) pe;
+				this.out.writeByte(ACTIVITY);
+				writeString(act.getType());
+				writeId(act.getLinkId());
+				writeId(act.getFacilityId());
+				writeCoord(act.getCoord());
+				writeOptionalTime(act.getStartTime());
+				writeOptionalTime(act.getMaximumDuration());
+				writeOptionalTime(act.getEndTime());
+				writeAttributes(act.getAttributes());
+			} else if (pe instanceof Leg) {
+				Leg leg = (Leg) pe;
+				this.out.writeByte(LEG);
+				writeString(leg.getMode());
+				writeOptionalTime(leg.getDepartureTime());
+				writeOptionalTime(leg.getTravelTime());
+				writeAttributes(leg.getAttributes());
+				writeRoute(leg.getRoute());
+			} else {
+				throw new IllegalArgumentException("Unsupported plan element " + pe.getClass().getName());
+			}
+		}
+	}
+
+	private void writeRoute(final Route route) throws IOException {
+		this.out.writeBoolean(route != null);
+		if (route == null) {
+			return;
+		}
+		writeString(route.getRouteType());
+		writeId(route.getStartLinkId());
+		writeId(route.getEndLinkId());
+		writeOptionalTime(route.getTravelTime());
+		this.out.writeDouble(route.getDistance());
+		writeId(route instanceof NetworkRoute ? ((NetworkRoute) route).getVehicleId() : null);
+		writeText(route.getRouteDescription());
+	}
+
+	private void writeTransitSchedule(final TransitSchedule schedule) throws IOException {
+		writeAttributes(schedule.getAttributes());
+
+		this.out.writeInt(schedule.getFacilities().size());
+		for (TransitStopFacility stop : schedule.getFacilities().values()) {
+			writeId(stop.getId());
+			writeCoord(stop.getCoord());
+			this.out.writeBoolean(stop.getIsBlockingLane());
+			writeId(stop.getLinkId());
+			writeText(stop.getName());
+			writeId(stop.getStopAreaId());
+			writeAttributes(stop.getAttributes());
+		}
+
+		int transferTimes = 0;
+		for (MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator(); iter.hasNext(); ) {
+			iter.next();
+			transferTimes++;
+		}
+		this.out.writeInt(transferTimes);
+		for (MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator(); iter.hasNext(); ) {
+			iter.next();
+			writeId(iter.getFromStopId());
+			writeId(iter.getToStopId());
+			this.out.writeDouble(iter.getSeconds());
+		}
+
+		this.out.writeInt(schedule.getTransitLines().size());
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			writeId(line.getId());
+			writeText(line.getName());
+			writeAttributes(line.getAttributes());
+			this.out.writeInt(line.getRoutes().size());
+			for (TransitRoute route : line.getRoutes().values()) {
+				writeTransitRoute(route);
+			}
+		}
+	}
+
+	private void writeTransitRoute(final TransitRoute route) throws IOException {
+		writeId(route.getId());
+		writeText(route.getDescription());
+		writeString(route.getTransportMode());
+		writeAttributes(route.getAttributes());
+
+		this.out.writeInt(route.getStops().size());
+		for (TransitRouteStop stop : route.getStops()) {
+			writeId(stop.getStopFacility().getId());
+			writeOptionalTime(stop.getArrivalOffset());
+			writeOptionalTime(stop.getDepartureOffset());
+			this.out.writeBoolean(stop.isAwaitDepartureTime());
+		}
+
+		NetworkRoute networkRoute = route.getRoute();
+		this.out.writeBoolean(networkRoute != null);
+		if (networkRoute != null) {
+			writeId(networkRoute.getStartLinkId());
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			this.out.writeInt(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				writeId(linkId);
+			}
+			writeId(networkRoute.getEndLinkId());
+		}
+
+		this.out.writeInt(route.getDepartures().size());
+		for (Departure departure : route.getDepartures().values()) {
+			writeId(departure.getId());
+			this.out.writeDouble(departure.getDepartureTime());
+			writeId(departure.getVehicleId());
+			writeAttributes(departure.getAttributes());
+		}
+	}
+
+	private void writeVehicles(final Vehicles vehicles) throws IOException {
+		this.out.writeInt(vehicles.getVehicleTypes().size());
+		for (VehicleType type : vehicles.getVehicleTypes().values()) {
+			writeId(type.getId());
+			writeText(type.getDescription());
+			this.out.writeDouble(type.getWidth());
+			this.out.writeDouble(type.getMaximumVelocity());
+			this.out.writeDouble(type.getLength());
+			this.out.writeDouble(type.getPcuEquivalents());
+			this.out.writeDouble(type.getFlowEfficiencyFactor());
+			writeString(type.getNetworkMode());
+			writeAttributes(type.getAttributes());
+
+			VehicleCapacity capacity = type.getCapacity();
+			writeOptionalDouble(capacity.getSeats() == null ? null : capacity.getSeats().doubleValue());
+			writeOptionalDouble(capacity.getStandingRoom() == null ? null : capacity.getStandingRoom().doubleValue());
+			writeOptionalDouble(capacity.getVolumeInCubicMeters());
+			writeOptionalDouble(capacity.getWeightInTons());
+			writeOptionalDouble(capacity.getOther());
+			writeAttributes(capacity.getAttributes());
+
+			writeAttributes(type.getEngineInformation().getAttributes());
+
+			CostInformation costs = type.getCostInformation();
+			writeOptionalDouble(costs.getFixedCosts());
+			writeOptionalDouble(costs.getCostsPerMeter());
+			writeOptionalDouble(costs.getCostsPerSecond());
+			writeAttributes(costs.getAttributes());
+		}
+
+		this.out.writeInt(vehicles.getVehicles().size());
+		for (Vehicle vehicle : vehicles.getVehicles().values()) {
+			writeId(vehicle.getId());
+			writeId(vehicle.getType().getId());
+		}
+	}
+
+	private void writeAttributes(final Attributes attributes) throws IOException {
+		List<String> entries = new ArrayList<>(attributes.size() * 3);
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			String converted = this.attributesConverter.convertToString(entry.getValue());
+			if (converted != null) {
+				entries.add(entry.getKey());
+				entries.add(entry.getValue().getClass().getName());
+				entries.add(converted);
+			}
+		}
+		this.out.writeInt(entries.size() / 3);
+		for (int i = 0; i < entries.size(); i += 3) {
+			writeString(entries.get(i));
+			writeString(entries.get(i + 1));
+			writeText(entries.get(i + 2));
+		}
+	}
+
+	private void writeCoord(final Coord coord) throws IOException {
+		if (coord == null) {
+			this.out.writeByte(0);
+		} else if (coord.hasZ()) {
+			this.out.writeByte(3);
+			this.out.writeDouble(coord.getX());
+			this.out.writeDouble(coord.getY());
+			this.out.writeDouble(coord.getZ());
+		} else {
+			this.out.writeByte(2);
+			this.out.writeDouble(coord.getX());
+			this.out.writeDouble(coord.getY());
+		}
+	}
+
+	private void writeOptionalTime(final OptionalTime time) throws IOException {
+		this.out.writeBoolean(time.isDefined());
+		if (time.isDefined()) {
+			this.out.writeDouble(time.seconds());
+		}
+	}
+
+	private void writeOptionalDouble(final Double value) throws IOException {
+		this.out.writeBoolean(value != null);
+		if (value != null) {
+			this.out.writeDouble(value);
+		}
+	}
+
+	private void writeId(final Id<?> id) throws IOException {
+		writeString(id == null ? null : id.toString());
+	}
+
+	/**
+	 * Writes a string that is expected to repeat, e.g. identifiers or modes. It is written only on its first
+	 * occurrence, afterwards only its index.
+	 */
+	private void writeString(final String string) throws IOException {
+		if (string == null) {
+			this.out.writeInt(NULL_STRING);
+			return;
+		}
+		Integer index = this.strings.get(string);
+		if (index != null) {
+			this.out.writeInt(index);
+		} else {
+			this.strings.put(string, this.strings.size());
+			this.out.writeInt(NEW_STRING);
+			writeText(string);
+		}
+	}
+
+	/**
+	 * Writes a string that is not expected to repeat, e.g. route descriptions or attribute values.
+	 */
+	private void writeText(final String text) throws IOException {
+		if (text == null) {
+			this.out.writeInt(NULL_STRING);
+			return;
+		}
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		this.out.writeInt(bytes.length);
+		this.out.write(bytes);
+	}
+
+}
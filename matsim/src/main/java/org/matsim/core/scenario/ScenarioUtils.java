@@ -29,8 +29,12 @@ import org.matsim.facilities.ActivityFacilities;
 import org.matsim.households.Households;
 import org.matsim.lanes.Lanes;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.utils.objectattributes.AttributeConverter;
 import org.matsim.vehicles.Vehicles;
 
+import java.util.Collections;
+import java.util.Map;
+
 
 /**
  * Provides ways to get a Scenario from the implementation in this package.
@@ -91,6 +95,52 @@ public final class ScenarioUtils {
 		scenarioLoader.loadScenario();
 	}
 	
+	/**
+	 * Writes the network, facilities, population, transit schedule, transit vehicles and vehicles of the scenario into a
+	 * binary snapshot. Setting the snapshot file in the {@link org.matsim.core.config.groups.ScenarioConfigGroup} makes
+	 * {@link #loadScenario(Config)} load these elements from the snapshot instead of the xml input files, which is much
+	 * faster, e.g. when restarting a run or running several policy variants of the same base case.
+	 */
+	public static void writeSnapshot(final Scenario scenario, final String filename) {
+		writeSnapshot(scenario, filename, Collections.emptyMap());
+	}
+
+	public static void writeSnapshot(final Scenario scenario, final String filename, final Map<Class<?>, AttributeConverter<?>> attributeConverters) {
+		ScenarioSnapshotWriter writer = new ScenarioSnapshotWriter(scenario);
+		writer.putAttributeConverters(attributeConverters);
+		writer.write(filename);
+	}
+
+	/**
+	 * Writes only the population of the scenario, including all plans and their scores, into a binary snapshot.
+	 *
+	 * @see #readPopulationSnapshot(Scenario, String)
+	 */
+	public static void writePopulationSnapshot(final Scenario scenario, final String filename) {
+		writePopulationSnapshot(scenario, filename, Collections.emptyMap());
+	}
+
+	public static void writePopulationSnapshot(final Scenario scenario, final String filename, final Map<Class<?>, AttributeConverter<?>> attributeConverters) {
+		ScenarioSnapshotWriter writer = new ScenarioSnapshotWriter(scenario);
+		writer.putAttributeConverters(attributeConverters);
+		writer.writePopulation(filename);
+	}
+
+	/**
+	 * Reads a snapshot written with {@link #writePopulationSnapshot(Scenario, String)} into the population of the
+	 * scenario, which is expected to be empty.  The network and the facilities the plans refer to must already be
+	 * loaded.
+	 */
+	public static void readPopulationSnapshot(final Scenario scenario, final String filename) {
+		readPopulationSnapshot(scenario, filename, Collections.emptyMap());
+	}
+
+	public static void readPopulationSnapshot(final Scenario scenario, final String filename, final Map<Class<?>, AttributeConverter<?>> attributeConverters) {
+		ScenarioSnapshotReader reader = new ScenarioSnapshotReader(scenario);
+		reader.putAttributeConverters(attributeConverters);
+		reader.read(filename);
+	}
+
 	public final static class ScenarioBuilder {
 		private MutableScenario scenario;
 		public ScenarioBuilder( Config config ) {
@@ -22,6 +22,7 @@ package org.matsim.core.scoring;
 import com.google.inject.Inject;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.*;
 import org.matsim.api.core.v01.events.handler.*;
@@ -34,7 +35,6 @@ import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.TeleportationArrivalEventHandler;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
-import org.matsim.core.gbl.Gbl;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
@@ -46,9 +46,7 @@ import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.vehicles.Vehicle;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Converts a stream of Events into a stream of Legs. Passes Legs to a single LegHandler which must be registered with this class.
@@ -125,6 +123,26 @@ public final class EventsToLegs
 		private double relativePositionOnLastArrivalLink;
 	}
 
+	/**
+	 * The state of the current leg of a person.  The instance is kept for all legs of the person, also across iterations,
+	 * so that no objects need to be created for the bookkeeping of a leg.
+	 */
+	private static class PersonState {
+		private Leg leg;
+		private Id<Link> departureLinkId;
+		private TeleportationArrivalEvent routelessTravel;
+		private PendingTransitTravel transitTravel;
+		private PendingVehicleTravel vehicleTravel;
+
+		private void clear() {
+			this.leg = null;
+			this.departureLinkId = null;
+			this.routelessTravel = null;
+			this.transitTravel = null;
+			this.vehicleTravel = null;
+		}
+	}
+
 	public interface LegHandler {
 		void handleLeg(PersonExperiencedLeg leg);
 	}
@@ -137,17 +155,11 @@ public final class EventsToLegs
 		this.transitSchedule = transitSchedule;
 	}
 
-	private Map<Id<Person>, Leg> legs = new HashMap<>();
-	private Map<Id<Person>, List<Id<Link>>> experiencedRoutes = new HashMap<>();
-	private Map<Id<Person>, Double> relPosOnDepartureLinkPerPerson = new HashMap<>();
-	private Map<Id<Person>, Double> relPosOnArrivalLinkPerPerson = new HashMap<>();
+	// all state is addressed by the index of the ids, as the maps are accessed for nearly every event
+	private final IdMap<Person, PersonState> personStates = new IdMap<>(Person.class);
 
-	private Map<Id<Person>, TeleportationArrivalEvent> routelessTravels = new HashMap<>();
-	private Map<Id<Person>, PendingTransitTravel> transitTravels = new HashMap<>();
-	private Map<Id<Person>, PendingVehicleTravel> vehicleTravels = new HashMap<>();
-
-	private Map<Id<Vehicle>, LineAndRoute> transitVehicle2currentRoute = new HashMap<>();
-	private Map<Id<Vehicle>, VehicleRoute> vehicle2route = new HashMap<>();
+	private final IdMap<Vehicle, LineAndRoute> transitVehicle2currentRoute = new IdMap<>(Vehicle.class);
+	private final IdMap<Vehicle, VehicleRoute> vehicle2route = new IdMap<>(Vehicle.class);
 
 	private List<LegHandler> legHandlers = new ArrayList<>();
 
@@ -165,47 +177,52 @@ public final class EventsToLegs
 
 	@Override
 	public void reset(int iteration) {
-		legs.clear();
-		experiencedRoutes.clear();
-
-		transitTravels.clear();
-		vehicleTravels.clear();
-		routelessTravels.clear();
+		for (PersonState personState : personStates) {
+			personState.clear();
+		}
 
 		transitVehicle2currentRoute.clear();
 		vehicle2route.clear();
+	}
 
-		relPosOnDepartureLinkPerPerson.clear();
-		relPosOnArrivalLinkPerPerson.clear();
+	private PersonState getPersonState(Id<Person> personId) {
+		PersonState personState = personStates.get(personId);
+		if (personState == null) {
+			personState = new PersonState();
+			personStates.put(personId, personState);
+		}
+		return personState;
 	}
 
 	@Override
 	public void handleEvent(PersonDepartureEvent event) {
 		Leg leg = PopulationUtils.createLeg(event.getLegMode());
 		leg.setDepartureTime(event.getTime());
-		legs.put(event.getPersonId(), leg);
-
-		List<Id<Link>> route = new ArrayList<>();
-		route.add(event.getLinkId());
-		experiencedRoutes.put(event.getPersonId(), route);
+		PersonState personState = getPersonState(event.getPersonId());
+		personState.leg = leg;
+		personState.departureLinkId = event.getLinkId();
 	}
 
 	@Override
 	public void handleEvent(PersonEntersVehicleEvent event) {
-		Leg leg = legs.get(event.getPersonId());
+		PersonState personState = personStates.get(event.getPersonId());
+		Leg leg = personState.leg;
 		leg.getAttributes().putAttribute(ENTER_VEHICLE_TIME_ATTRIBUTE_NAME, event.getTime());
 		LineAndRoute lineAndRoute = transitVehicle2currentRoute.get(event.getVehicleId());
 		if (lineAndRoute != null) {
 			if (!event.getPersonId().equals(lineAndRoute.driverId)) {
 				// transit drivers are not considered to travel by transit
-				transitTravels.put(event.getPersonId(),
-						new PendingTransitTravel(event.getVehicleId(), lineAndRoute.lastFacilityId, event.getTime()));
+				personState.transitTravel = new PendingTransitTravel(event.getVehicleId(), lineAndRoute.lastFacilityId, event.getTime());
 			}
 		} else {
-			VehicleRoute route = vehicle2route.computeIfAbsent(event.getVehicleId(), vehicleId -> new VehicleRoute());
+			VehicleRoute route = vehicle2route.get(event.getVehicleId());
+			if (route == null) {
+				route = new VehicleRoute();
+				vehicle2route.put(event.getVehicleId(), route);
+			}
 			int currentLinkIdx = Math.max(0, route.links.size() - 1);
 			PendingVehicleTravel vehicleTravel = new PendingVehicleTravel(route, currentLinkIdx);
-			vehicleTravels.put(event.getPersonId(), vehicleTravel);
+			personState.vehicleTravel = vehicleTravel;
 			route.newVehicleTravels.add(vehicleTravel);
 		}
 	}
@@ -254,37 +271,23 @@ public final class EventsToLegs
 
 	@Override
 	public void handleEvent(TeleportationArrivalEvent travelEvent) {
-		routelessTravels.put(travelEvent.getPersonId(), travelEvent);
+		getPersonState(travelEvent.getPersonId()).routelessTravel = travelEvent;
 	}
 
 	@Override
 	public void handleEvent(PersonArrivalEvent event) {
-		Leg leg = legs.get(event.getPersonId());
+		PersonState personState = personStates.get(event.getPersonId());
+		Leg leg = personState.leg;
 		leg.setTravelTime(event.getTime() - leg.getDepartureTime().seconds());
 		double travelTime = leg.getDepartureTime().seconds()
 				+ leg.getTravelTime().seconds() - leg.getDepartureTime().seconds();
 		leg.setTravelTime(travelTime);
-		List<Id<Link>> experiencedRoute = experiencedRoutes.get(event.getPersonId());
-		assert experiencedRoute.size() >= 1;
-		PendingTransitTravel pendingTransitTravel;
-		PendingVehicleTravel pendingVehicleTravel;
-		if (experiencedRoute.size() > 1) { // different links processed
-			NetworkRoute networkRoute = RouteUtils.createNetworkRoute(experiencedRoute, null);
-			networkRoute.setTravelTime(travelTime);
-
-			/* use the relative position of vehicle enter/leave traffic events on first/last links
-			 * to calculate the correct route distance including the first/last link.
-			 * (see MATSIM-227) tt feb'16
-			 */
-			double relPosOnDepartureLink = relPosOnDepartureLinkPerPerson.get(event.getPersonId());
-			Double relPosOnArrivalLink = relPosOnArrivalLinkPerPerson.get(event.getPersonId());
-			Gbl.assertNotNull(relPosOnArrivalLink);
-			networkRoute.setDistance(
-					RouteUtils.calcDistance(networkRoute, relPosOnDepartureLink, relPosOnArrivalLink, network));
-
-			leg.setRoute(networkRoute);
-		} else if ((pendingTransitTravel = transitTravels.remove(event.getPersonId())) != null) {
-			// i.e. experiencedRoute.size()==1 && pending transit travel (= person has entered a vehicle)
+		Id<Link> departureLinkId = personState.departureLinkId;
+		PendingTransitTravel pendingTransitTravel = personState.transitTravel;
+		PendingVehicleTravel pendingVehicleTravel = personState.vehicleTravel;
+		if (pendingTransitTravel != null) {
+			// i.e. pending transit travel (= person has entered a vehicle)
+			personState.transitTravel = null;
 
 			final LineAndRoute lineAndRoute = transitVehicle2currentRoute.get(pendingTransitTravel.vehicleId);
 			assert lineAndRoute != null;
@@ -313,13 +316,14 @@ public final class EventsToLegs
 			passengerRoute.setTravelTime(travelTime);
 			passengerRoute.setDistance(RouteUtils.calcDistance(passengerRoute, transitSchedule, network));
 			leg.setRoute(passengerRoute);
-		} else if ((pendingVehicleTravel = vehicleTravels.remove(event.getPersonId())) != null) {
+		} else if (pendingVehicleTravel != null) {
+			personState.vehicleTravel = null;
 			VehicleRoute vehicleRoute = pendingVehicleTravel.route;
 			List<Id<Link>> traveledLinks = vehicleRoute.links.subList(pendingVehicleTravel.accessLinkIdx,
 					vehicleRoute.links.size());
 			Route route;
 			if (traveledLinks.isEmpty()) {//special case: enter and leave vehicle without entering traffic
-				route = RouteUtils.createGenericRouteImpl(experiencedRoute.get(0), event.getLinkId());
+				route = RouteUtils.createGenericRouteImpl(departureLinkId, event.getLinkId());
 				route.setDistance(0.0);
 			} else {
 				route = RouteUtils.createNetworkRoute(traveledLinks, null);
@@ -333,9 +337,10 @@ public final class EventsToLegs
 			leg.setRoute(route);
 
 		} else {
-			// i.e. experiencedRoute.size()==1 and no pendingTransitTravel
-			TeleportationArrivalEvent travelEvent = routelessTravels.remove(event.getPersonId());
-			Route genericRoute = RouteUtils.createGenericRouteImpl(experiencedRoute.get(0), event.getLinkId());
+			// i.e. no pendingTransitTravel and no pendingVehicleTravel
+			TeleportationArrivalEvent travelEvent = personState.routelessTravel;
+			personState.routelessTravel = null;
+			Route genericRoute = RouteUtils.createGenericRouteImpl(departureLinkId, event.getLinkId());
 			genericRoute.setTravelTime(travelTime);
 			if (travelEvent != null) {
 				genericRoute.setDistance(travelEvent.getDistance());
@@ -40,6 +40,7 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
@@ -63,11 +64,17 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * The persons are partitioned into shards by the index of their id.  Every shard is an event handler of its own, which only
+ * passes on the events of its persons, so that with parallel events handling the shards score their persons in parallel threads.
+ * The shard of a person is also locked when the legs and activities of the person are scored, which arrive from the threads of
+ * {@link EventsToLegs} and {@link EventsToActivities}, so that the scoring function of a person is never called by two threads at
+ * the same time.  Scoring functions of persons in different shards may however be called at the same time.
  * 
  * @author michaz
  *
  */
- final class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.LegHandler, EventsToActivities.ActivityHandler {
+ final class ScoringFunctionsForPopulation implements EventsToLegs.LegHandler, EventsToActivities.ActivityHandler {
 	// there is currently only one place outside package where this is used, and I think it
 	// can be changed there.  kai, sep'17
 	// I just removed that.  kai, apr'18
@@ -89,11 +96,22 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 	private final IdMap<Person, Plan> tripRecords = new IdMap<>(Person.class);
 	
-	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+	private final ScoringShard[] shards;
 
 	@Inject
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, ParallelEventHandlingConfigGroup parallelEventHandlingConfigGroup) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory,
+				parallelEventHandlingConfigGroup.getNumberOfThreads() != null ? Math.max(1, parallelEventHandlingConfigGroup.getNumberOfThreads()) : 1);
+	}
+
 	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 						 Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 1);
+	}
+
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfShards) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -102,7 +120,11 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
-		eventsManager.addHandler(this);
+		this.shards = new ScoringShard[numberOfShards];
+		for (int i = 0; i < numberOfShards; i++) {
+			this.shards[i] = new ScoringShard(i);
+			eventsManager.addHandler(this.shards[i]);
+		}
 		eventsToActivities.addActivityHandler(this);
 		eventsToLegs.addLegHandler(this);
 	}
@@ -116,60 +138,19 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		}
 	}
 
-	@Override
-	synchronized public void handleEvent(Event o) {
-		// this is for the stuff that is directly based on events.
-		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
-		// for the time being, not all PersonEvents may "implement HasPersonId".
-		// link enter/leave events are NOT passed on, for performance reasons.
-		// kai/dominik, dec'12
-		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} 
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
-			}
-		}
-
-		// Establish and end connection between driver and vehicle
-		if (o instanceof VehicleEntersTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
-		}
-		if (o instanceof VehicleLeavesTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
-		}
-		// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
-		/*
-		 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
-		 * for agentId, there we have a map lookup for linkId. Should be somewhat similar in terms of average
-		 * computational complexity. In BetaTravelTest, 194sec w/ "false", 193sec w/ "true". However, the experienced
-		 * plans service in fact does the same thing, so we should be able to get away without having to do this twice.
-		 * kai, mar'17)
-		 */
-		if ( o instanceof LinkEnterEvent ) {
-			Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
-			Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
-			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
-			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
-			if (scoringFunction != null) {
-				scoringFunction.handleEvent(o);
-			}
-		}
+	private ScoringShard getShard(Id<Person> agentId) {
+		return this.shards[agentId.index() % this.shards.length];
 	}
 
 	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
+	public void handleLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
-		Leg leg = o.getLeg();
+		synchronized (getShard(agentId)) {
+			handleLegOfShard(agentId, o.getLeg());
+		}
+	}
+
+	private void handleLegOfShard(Id<Person> agentId, Leg leg) {
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
 		if (scoringFunction != null) {
 			scoringFunction.handleLeg(leg);
@@ -183,9 +164,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
+	public void handleActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
-		Activity activity = o.getActivity();
+		synchronized (getShard(agentId)) {
+			handleActivityOfShard(agentId, o.getActivity());
+		}
+	}
+
+	private void handleActivityOfShard(Id<Person> agentId, Activity activity) {
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
 		if (scoringFunction != null) {
 			scoringFunction.handleActivity(activity);
@@ -273,9 +259,86 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		}
 	}
 
-	@Override
-	public void reset(int iteration) {
+	/**
+	 * Passes the events of the persons in one shard on to their scoring functions.
+	 */
+	private final class ScoringShard implements BasicEventHandler {
+
+		private final int index;
+		private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+
+		ScoringShard(int index) {
+			this.index = index;
+		}
+
+		private boolean isInShard(Id<Person> personId) {
+			return personId != null && personId.index() % shards.length == this.index;
+		}
+
+		@Override
+		public void handleEvent(Event o) {
+			// this is for the stuff that is directly based on events.
+			// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
+			// for the time being, not all PersonEvents may "implement HasPersonId".
+			// link enter/leave events are NOT passed on, for performance reasons.
+			// kai/dominik, dec'12
+			if (o instanceof HasPersonId) {
+				Id<Person> personId = ((HasPersonId) o).getPersonId();
+				if (isInShard(personId)) {
+					ScoringFunction scoringFunction = getScoringFunctionForAgent(personId);
+					if (scoringFunction != null) {
+						synchronized (this) {
+							if (o instanceof PersonStuckEvent) {
+								scoringFunction.agentStuck(o.getTime());
+							} else if (o instanceof PersonMoneyEvent) {
+								scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+								// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+								// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+							}
+//							else {
+								scoringFunction.handleEvent(o);
+								// passing this on in any case, see comment above.  kai, mar'17
+//							}
+						}
+					}
+				}
+			}
 
+			// Establish and end connection between driver and vehicle
+			// (every shard needs to know all drivers, as the driver of a vehicle may belong to any shard)
+			if (o instanceof VehicleEntersTrafficEvent) {
+				this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+			}
+			if (o instanceof VehicleLeavesTrafficEvent) {
+				this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+			}
+			// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
+			/*
+			 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
+			 * for agentId, there we have a map lookup for linkId. Should be somewhat similar in terms of average
+			 * computational complexity. In BetaTravelTest, 194sec w/ "false", 193sec w/ "true". However, the experienced
+			 * plans service in fact does the same thing, so we should be able to get away without having to do this twice.
+			 * kai, mar'17)
+			 */
+			if ( o instanceof LinkEnterEvent ) {
+				Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
+				Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
+				if (isInShard(driverId)) {
+					ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
+					// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
+					if (scoringFunction != null) {
+						synchronized (this) {
+							scoringFunction.handleEvent(o);
+						}
+					}
+				}
+			}
+		}
+
+		@Override
+		public void reset(int iteration) {
+
+		}
 	}
 
 }
@@ -26,6 +26,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.router.priorityqueue.HasIndex;
 
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  *  Uses an array to store DataContainer object for the TravelTimeCalculator.
@@ -78,5 +79,10 @@ class ArrayBasedDataContainerProvider implements DataContainerProvider {
 			return this.delegate.getTravelTimeData(link, createIfMissing);
 		}
 	}
-	
+
+	@Override
+	public void forEachTravelTimeData(BiConsumer<Id<Link>, TravelTimeData> consumer) {
+		this.delegate.forEachTravelTimeData(consumer);
+	}
+
 }
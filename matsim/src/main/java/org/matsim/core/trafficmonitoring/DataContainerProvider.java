@@ -23,6 +23,8 @@ package org.matsim.core.trafficmonitoring;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 
+import java.util.function.BiConsumer;
+
 interface DataContainerProvider {
 	
 	/*
@@ -34,4 +36,9 @@ interface DataContainerProvider {
 	 * This method is called from the TravelTime part of the TravelTimeCalculator.
 	 */
 	/*package*/ TravelTimeData getTravelTimeData(final Link link, final boolean createIfMissing);
+
+	/*
+	 * Calls the consumer for every link for which data was created so far.
+	 */
+	/*package*/ void forEachTravelTimeData(final BiConsumer<Id<Link>, TravelTimeData> consumer);
 }
@@ -24,6 +24,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 class MapBasedDataContainerProvider implements DataContainerProvider {
 
@@ -49,5 +50,10 @@ class MapBasedDataContainerProvider implements DataContainerProvider {
 	public TravelTimeData getTravelTimeData(Link link, boolean createIfMissing) {
 		return this.getTravelTimeData(link.getId(), createIfMissing);
 	}
+
+	@Override
+	public void forEachTravelTimeData(BiConsumer<Id<Link>, TravelTimeData> consumer) {
+		this.linkData.forEach(consumer);
+	}
 	
 }
@@ -40,6 +40,7 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
@@ -48,10 +49,18 @@ import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
  * Calculates actual travel times on link from events and optionally also the link-to-link 
@@ -63,7 +72,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap},}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used. For very large networks, {@link TravelTimeDataFlatArrayFactory} stores the
+ * travel times of all links in flat arrays addressed by the index of the link ids.
  *
  * @author dgrether
  * @author mrieser
@@ -81,15 +91,13 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	TimeSlotComputation aggregator;
 
 
-	private Map<Id<Link>, TravelTimeData> linkData;
-
 	private Map<Tuple<Id<Link>, Id<Link>>, TravelTimeData> linkToLinkData;
 
-	private final DataContainerProvider dataContainerProvider;
+	private DataContainerProvider dataContainerProvider;
 
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	private final VehicleShard allVehicles = new VehicleShard(0, 1);
+	private VehicleShard[] shards = null;
 
-	private final Set<Id<Vehicle>> vehiclesToIgnore;
 	private final Set<String> analyzedModes;
 
 	private final boolean filterAnalyzedModes;
@@ -122,6 +130,17 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			case TravelTimeCalculatorHashMap:
 				calculator.ttDataFactory = new TravelTimeDataHashMapFactory(network);
 				break;
+			case TravelTimeCalculatorFlatArray:
+				calculator.setTtDataFactory(new TravelTimeDataFlatArrayFactory(network, calculator.numSlots));
+				break;
+			case TravelTimeCalculatorConcurrent:
+				calculator.setTtDataFactory(new TravelTimeDataFlatArrayFactory(network, calculator.numSlots, true));
+				int numberOfShards = config.getNumberOfConcurrentHandlers();
+				calculator.shards = new VehicleShard[numberOfShards];
+				for (int i = 0; i < numberOfShards; i++) {
+					calculator.shards[i] = calculator.new VehicleShard(i, numberOfShards);
+				}
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -146,8 +165,10 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		// this injected constructor is not used when getSeparateModes is true
 		this(network, ttconfigGroup.getTraveltimeBinSize(), ttconfigGroup.getMaxTime(), ttconfigGroup.isCalculateLinkTravelTimes(),
 			  ttconfigGroup.isCalculateLinkToLinkTravelTimes(), ttconfigGroup.isFilterModes(), CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModesAsString() ) );
-		eventsManager.addHandler(this);
 		configure(this, ttconfigGroup, network);
+		for (EventHandler handler : getEventHandlers()) {
+			eventsManager.addHandler(handler);
+		}
 	}
 
 	@Deprecated // user builder instead.  kai, feb'19
@@ -236,7 +257,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		this.travelTimeGetter = new AveragingTravelTimeGetter( this.aggregator ) ;
 		this.ttDataFactory = new TravelTimeDataArrayFactory(network, this.numSlots);
 		if (this.calculateLinkTravelTimes){
-			this.linkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4));
+			Map<Id<Link>, TravelTimeData> linkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4));
 
 			/*
 			 * So far, link data objects were stored in a HashMap. This lookup strategy is used
@@ -255,12 +276,6 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
-
-		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
-		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
-
 
 		this.reset(0);
 
@@ -268,96 +283,221 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	@Override
 	public void handleEvent(final LinkEnterEvent e) {
-		/* if only some modes are analyzed, we check whether the vehicles
-		 * performs a trip with one of those modes. if not, we skip the event. */
-		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
-
-		LinkEnterEvent oldEvent = this.linkEnterEvents.put(e.getVehicleId(), e);
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
-			TravelTimeData data = getLinkToLinkTravelTimeData(fromToLink );
-			double enterTime = oldEvent.getTime();
-
-			final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
-			data.addTravelTime(timeSlot, e.getTime() - enterTime );
-			data.setNeedsConsolidation( true );
-		}
+		this.allVehicles.handleEvent(e);
 	}
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
-		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
-				TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				double enterTime = oldEvent.getTime();
-
-				final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
-				data.addTravelTime(timeSlot, e.getTime() - enterTime );
-				data.setNeedsConsolidation( true );
-			}
-		}
+		this.allVehicles.handleEvent(e);
 	}
 
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
-		/* if filtering transport modes is enabled and the vehicles
-		 * starts a leg on a non analyzed transport mode, add the vehicle
-		 * to the filtered vehicles set. */
-		if (filterAnalyzedModes && !analyzedModes.contains(event.getNetworkMode())) {
-			this.vehiclesToIgnore.add(event.getVehicleId());
-		}
+		this.allVehicles.handleEvent(event);
 	}
 
 	@Override
 	public void handleEvent(final VehicleLeavesTrafficEvent event) {
-		/* remove EnterEvents from list when a vehicle arrives.
-		 * otherwise, the activity duration would counted as travel time, when the
-		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
-
-		// try to remove vehicles from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		this.allVehicles.handleEvent(event);
 	}
 
 	@Override
 	public void handleEvent(VehicleArrivesAtFacilityEvent event) {
-		/* remove EnterEvents from list when a bus stops on a link.
-		 * otherwise, the stop time would counted as travel time, when the
-		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.allVehicles.handleEvent(event);
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-			data.setNeedsConsolidation( true );
-
-			//			this.aggregator.addStuckEventTravelTime(data, e.getTime(), event.getTime());
-			// this functionality is no longer there.
-
-			if (this.calculateLinkToLinkTravelTimes
-					&& event.getTime() < qsimConfig.getEndTime().seconds()
-				// (we think that this only makes problems when the abort is not just because of mobsim end time. kai & theresa, jan'17)
-			){
-				log.error(ERROR_STUCK_AND_LINKTOLINK);
-				throw new IllegalStateException(ERROR_STUCK_AND_LINKTOLINK);
+		this.allVehicles.handleEvent(event);
+	}
+
+	/**
+	 * Returns the event handlers which have to be added to the events manager. This is the calculator itself, except
+	 * for {@link TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType#TravelTimeCalculatorConcurrent}: there, every
+	 * handler measures the travel times of a part of the vehicles, so the handlers may be run by different threads of
+	 * a parallel events manager, e.g. the SimStepParallelEventsManagerImpl.
+	 */
+	public List<EventHandler> getEventHandlers() {
+		if (this.shards == null) {
+			return Collections.singletonList(this);
+		}
+		return Collections.unmodifiableList(Arrays.asList(this.shards));
+	}
+
+	/**
+	 * Handles the events of the vehicles whose id index modulo <code>numberOfShards</code> is <code>shard</code>,
+	 * and remembers their state.  As the data of the links is shared by all shards, several shards may only be used
+	 * with a data factory which supports concurrent access.
+	 */
+	private final class VehicleShard implements LinkEnterEventHandler, LinkLeaveEventHandler, VehicleEntersTrafficEventHandler,
+			VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler, VehicleAbortsEventHandler {
+
+		private final int shard;
+		private final int numberOfShards;
+
+		// link and time at which the vehicles entered their current link, by vehicle id index. -1 if the vehicle is not on a link.
+		private int[] enteredLinks = new int[0];
+		private double[] enterTimes = new double[0];
+
+		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
+		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
+		private final Set<Id<Vehicle>> vehiclesToIgnore = new HashSet<>();
+
+		VehicleShard(final int shard, final int numberOfShards) {
+			this.shard = shard;
+			this.numberOfShards = numberOfShards;
+		}
+
+		private boolean isResponsible(final Id<Vehicle> vehicleId) {
+			return this.numberOfShards == 1 || vehicleId.index() % this.numberOfShards == this.shard;
+		}
+
+		@Override
+		public void handleEvent(final LinkEnterEvent e) {
+			if (!isResponsible(e.getVehicleId())) return;
+
+			/* if only some modes are analyzed, we check whether the vehicles
+			 * performs a trip with one of those modes. if not, we skip the event. */
+			if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
+
+			int vehicleIndex = e.getVehicleId().index();
+			if (vehicleIndex >= this.enteredLinks.length) {
+				int size = Math.max(vehicleIndex + 1, Id.getNumberOfIds(Vehicle.class));
+				int oldSize = this.enteredLinks.length;
+				this.enteredLinks = Arrays.copyOf(this.enteredLinks, size);
+				this.enterTimes = Arrays.copyOf(this.enterTimes, size);
+				Arrays.fill(this.enteredLinks, oldSize, size, -1);
+			}
+			int oldLinkIndex = this.enteredLinks[vehicleIndex];
+			if ((oldLinkIndex >= 0) && calculateLinkToLinkTravelTimes) {
+				TravelTimeData data = getLinkToLinkTravelTimeData(Id.get(oldLinkIndex, Link.class), e.getLinkId());
+				double enterTime = this.enterTimes[vehicleIndex];
+
+				final int timeSlot = aggregator.getTimeSlotIndex(enterTime );
+				data.addTravelTime(timeSlot, e.getTime() - enterTime );
+				data.setNeedsConsolidation( true );
+			}
+			this.enteredLinks[vehicleIndex] = e.getLinkId().index();
+			this.enterTimes[vehicleIndex] = e.getTime();
+		}
+
+		@Override
+		public void handleEvent(final LinkLeaveEvent e) {
+			if (calculateLinkTravelTimes && isResponsible(e.getVehicleId())) {
+				int vehicleIndex = e.getVehicleId().index();
+				if (vehicleIndex < this.enteredLinks.length && this.enteredLinks[vehicleIndex] >= 0) {
+					TravelTimeData data = dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+					double enterTime = this.enterTimes[vehicleIndex];
+
+					final int timeSlot = aggregator.getTimeSlotIndex(enterTime );
+					data.addTravelTime(timeSlot, e.getTime() - enterTime );
+					data.setNeedsConsolidation( true );
+				}
+			}
+		}
+
+		@Override
+		public void handleEvent(VehicleEntersTrafficEvent event) {
+			/* if filtering transport modes is enabled and the vehicles
+			 * starts a leg on a non analyzed transport mode, add the vehicle
+			 * to the filtered vehicles set. */
+			if (filterAnalyzedModes && !analyzedModes.contains(event.getNetworkMode()) && isResponsible(event.getVehicleId())) {
+				this.vehiclesToIgnore.add(event.getVehicleId());
+			}
+		}
+
+		@Override
+		public void handleEvent(final VehicleLeavesTrafficEvent event) {
+			if (!isResponsible(event.getVehicleId())) return;
+
+			/* remove EnterEvents from list when a vehicle arrives.
+			 * otherwise, the activity duration would counted as travel time, when the
+			 * vehicle departs again and leaves the link! */
+			removeEnteredLink(event.getVehicleId());
+
+			// try to remove vehicles from set with filtered vehicles
+			if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		}
+
+		@Override
+		public void handleEvent(VehicleArrivesAtFacilityEvent event) {
+			if (!isResponsible(event.getVehicleId())) return;
+
+			/* remove EnterEvents from list when a bus stops on a link.
+			 * otherwise, the stop time would counted as travel time, when the
+			 * bus departs again and leaves the link! */
+			removeEnteredLink(event.getVehicleId());
+		}
+
+		@Override
+		public void handleEvent(VehicleAbortsEvent event) {
+			if (!isResponsible(event.getVehicleId())) return;
+
+			int linkIndex = removeEnteredLink(event.getVehicleId());
+			if (linkIndex >= 0) {
+				TravelTimeData data = dataContainerProvider.getTravelTimeData(Id.get(linkIndex, Link.class), true);
+				data.setNeedsConsolidation( true );
+
+				//			this.aggregator.addStuckEventTravelTime(data, e.getTime(), event.getTime());
+				// this functionality is no longer there.
+
+				if (calculateLinkToLinkTravelTimes
+						&& event.getTime() < qsimConfig.getEndTime().seconds()
+					// (we think that this only makes problems when the abort is not just because of mobsim end time. kai & theresa, jan'17)
+				){
+					log.error(ERROR_STUCK_AND_LINKTOLINK);
+					throw new IllegalStateException(ERROR_STUCK_AND_LINKTOLINK);
+				}
+			}
+
+			// try to remove vehicle from set with filtered vehicles
+			if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		}
+
+		/**
+		 * @return the index of the link the vehicle was on, or -1 if it was on no link
+		 */
+		private int removeEnteredLink(final Id<Vehicle> vehicleId) {
+			int vehicleIndex = vehicleId.index();
+			if (vehicleIndex >= this.enteredLinks.length) {
+				return -1;
+			}
+			int linkIndex = this.enteredLinks[vehicleIndex];
+			this.enteredLinks[vehicleIndex] = -1;
+			return linkIndex;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			resetState();
+			if (this.shard == 0) {
+				// the events manager resets all shards, but the data needs to be reset only once
+				resetData();
 			}
 		}
 
-		// try to remove vehicle from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		void resetState() {
+			Arrays.fill(this.enteredLinks, -1);
+			this.vehiclesToIgnore.clear();
+		}
+	}
+
+	private TravelTimeData getLinkToLinkTravelTimeData( Id<Link> fromLinkId, Id<Link> toLinkId ) {
+		if (this.ttDataFactory instanceof TravelTimeDataFlatArrayFactory) {
+			TravelTimeData data = ((TravelTimeDataFlatArrayFactory) this.ttDataFactory).getTurnTravelTimeData(fromLinkId, toLinkId, true);
+			if (data != null) {
+				return data;
+			}
+			// not a turn between adjacent links, use the map below
+		}
+		return this.linkToLinkData.computeIfAbsent(new Tuple<>(fromLinkId, toLinkId), fromLinkToLink -> this.ttDataFactory.createTravelTimeData(fromLinkId));
 	}
 
-	private TravelTimeData getLinkToLinkTravelTimeData( Tuple<Id<Link>, Id<Link>> fromLinkToLink ) {
-		TravelTimeData data = this.linkToLinkData.get(fromLinkToLink);
-		if ( null == data ) {
-			data = this.ttDataFactory.createTravelTimeData(fromLinkToLink.getFirst()) ;
-			this.linkToLinkData.put(fromLinkToLink, data);
+	private void forEachLinkToLinkTravelTimeData(final BiConsumer<Tuple<Id<Link>, Id<Link>>, TravelTimeData> consumer) {
+		if (this.ttDataFactory instanceof TravelTimeDataFlatArrayFactory) {
+			((TravelTimeDataFlatArrayFactory) this.ttDataFactory).forEachTurnTravelTimeData(consumer);
 		}
-		return data;
+		this.linkToLinkData.forEach(consumer);
 	}
 
 	/*
@@ -412,7 +552,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			throw new IllegalStateException("No link to link travel time is available " +
 									    "if calculation is switched off by config option!");
 		}
-		TravelTimeData data = this.getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId) );
+		TravelTimeData data = this.getLinkToLinkTravelTimeData(fromLinkId, toLinkId);
 		if ( data.isNeedingConsolidation() ) {
 			consolidateData(data);
 		}
@@ -421,20 +561,28 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	@Override
 	public void reset(int iteration) {
+		resetData();
+		this.allVehicles.resetState();
+		if (this.shards != null) {
+			for (VehicleShard shard : this.shards) {
+				shard.resetState();
+			}
+		}
+	}
+
+	private void resetData() {
 		if (this.calculateLinkTravelTimes) {
-			for (TravelTimeData data : this.linkData.values()){
+			this.dataContainerProvider.forEachTravelTimeData((linkId, data) -> {
 				data.resetTravelTimes();
 				data.setNeedsConsolidation( false );
-			}
+			});
 		}
 		if (this.calculateLinkToLinkTravelTimes){
-			for (TravelTimeData data : this.linkToLinkData.values()){
+			forEachLinkToLinkTravelTimeData((fromLinkToLink, data) -> {
 				data.resetTravelTimes();
 				data.setNeedsConsolidation( false );
-			}
+			});
 		}
-		this.linkEnterEvents.clear();
-		this.vehiclesToIgnore.clear();
 	}
 
 	/**
@@ -548,9 +696,100 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		};
 	}
 
+	/**
+	 * Writes the travel times measured so far, e.g. to continue a run from a checkpoint.  Only the averaged travel times
+	 * of the time slots with measurements are written, so {@link #readState(DataInput)} results in the same travel times
+	 * but not necessarily in the same number of measurements per time slot.
+	 */
+	public void writeState(final DataOutput out) throws IOException {
+		out.writeInt(this.numSlots);
+		if (this.calculateLinkTravelTimes) {
+			Map<Id<Link>, TravelTimeData> linkData = new LinkedHashMap<>();
+			this.dataContainerProvider.forEachTravelTimeData(linkData::put);
+			out.writeInt(linkData.size());
+			for (Map.Entry<Id<Link>, TravelTimeData> e : linkData.entrySet()) {
+				out.writeUTF(e.getKey().toString());
+				writeState(e.getValue(), out);
+			}
+		} else {
+			out.writeInt(0);
+		}
+		if (this.calculateLinkToLinkTravelTimes) {
+			Map<Tuple<Id<Link>, Id<Link>>, TravelTimeData> linkToLinkData = new LinkedHashMap<>();
+			forEachLinkToLinkTravelTimeData(linkToLinkData::put);
+			out.writeInt(linkToLinkData.size());
+			for (Map.Entry<Tuple<Id<Link>, Id<Link>>, TravelTimeData> e : linkToLinkData.entrySet()) {
+				out.writeUTF(e.getKey().getFirst().toString());
+				out.writeUTF(e.getKey().getSecond().toString());
+				writeState(e.getValue(), out);
+			}
+		} else {
+			out.writeInt(0);
+		}
+	}
+
+	private void writeState(final TravelTimeData data, final DataOutput out) throws IOException {
+		int count = 0;
+		for (int i = 0; i < this.numSlots; i++) {
+			if (data.getMeasuredTravelTime(i) >= 0) {
+				count++;
+			}
+		}
+		out.writeInt(count);
+		for (int i = 0; i < this.numSlots; i++) {
+			double travelTime = data.getMeasuredTravelTime(i);
+			if (travelTime >= 0) {
+				out.writeInt(i);
+				out.writeDouble(travelTime);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the travel times measured so far by the ones written with {@link #writeState(DataOutput)}.
+	 */
+	public void readState(final DataInput in) throws IOException {
+		int slots = in.readInt();
+		if (slots != this.numSlots) {
+			throw new IllegalArgumentException("The travel times were stored with " + slots + " time slots, but " + this.numSlots
+					+ " time slots are configured. Check the travelTimeCalculator config group.");
+		}
+		this.reset(0);
+		int links = in.readInt();
+		if (links > 0 && !this.calculateLinkTravelTimes) {
+			throw new IllegalArgumentException("Link travel times are stored, but their calculation is switched off by config option!");
+		}
+		for (int l = 0; l < links; l++) {
+			Id<Link> linkId = Id.createLinkId(in.readUTF());
+			readState(this.dataContainerProvider.getTravelTimeData(linkId, true), in);
+		}
+		int linkToLinks = in.readInt();
+		if (linkToLinks > 0 && !this.calculateLinkToLinkTravelTimes) {
+			throw new IllegalArgumentException("Link to link travel times are stored, but their calculation is switched off by config option!");
+		}
+		for (int l = 0; l < linkToLinks; l++) {
+			Id<Link> fromLinkId = Id.createLinkId(in.readUTF());
+			Id<Link> toLinkId = Id.createLinkId(in.readUTF());
+			readState(getLinkToLinkTravelTimeData(fromLinkId, toLinkId), in);
+		}
+	}
+
+	private static void readState(final TravelTimeData data, final DataInput in) throws IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			int slot = in.readInt();
+			data.setTravelTime(slot, in.readDouble());
+		}
+		data.setNeedsConsolidation(true);
+	}
+
 	@Deprecated // use builder.configure(config) instead.  kai, feb'19
 	public void setTtDataFactory( TravelTimeDataFactory ttDataFactory ){
 		// yyyyyy this is currently here for a test, but should be removed.  kai, feb'19
 		this.ttDataFactory = ttDataFactory;
+		if (ttDataFactory instanceof DataContainerProvider && this.calculateLinkTravelTimes) {
+			// the factory stores the data itself, e.g. the TravelTimeDataFlatArrayFactory
+			this.dataContainerProvider = (DataContainerProvider) ttDataFactory;
+		}
 	}
 }
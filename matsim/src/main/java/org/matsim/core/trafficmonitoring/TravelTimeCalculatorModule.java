@@ -31,6 +31,7 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
@@ -127,7 +128,9 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 			builder.setAnalyzedModes( CollectionUtils.stringToSet( mode ) );
 			builder.configure( config );
 			TravelTimeCalculator calculator = builder.build();
-			eventsManager.addHandler( calculator );
+			for ( EventHandler handler : calculator.getEventHandlers() ) {
+				eventsManager.addHandler( handler );
+			}
 			return calculator ;
 		}
 	}
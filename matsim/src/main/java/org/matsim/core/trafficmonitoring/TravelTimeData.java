@@ -59,6 +59,12 @@ abstract class TravelTimeData {
 	 */
 	abstract double getTravelTime(final int timeSlot, final double now);
 
+	/**
+	 * Returns the (averaged) travel time measured in the time slot, or a negative value if nothing was measured in it,
+	 * i.e. without falling back to the free speed travel time.
+	 */
+	abstract double getMeasuredTravelTime(final int timeSlot);
+
 	void setNeedsConsolidation( boolean flag ) {
 		this.needsConsolidation = flag ;
 	}
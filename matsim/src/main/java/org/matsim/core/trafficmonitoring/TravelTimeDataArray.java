@@ -79,6 +79,11 @@ class TravelTimeDataArray extends TravelTimeData {
 		return freespeed;
 	}
 
+	@Override
+	double getMeasuredTravelTime(final int timeSlot) {
+		return this.timeCnt[timeSlot] > 0 ? this.travelTimes[timeSlot] : -1.0;
+	}
+
 	/* package-private for debugging */ String cntToString(){
 		StringBuilder strb = new StringBuilder().append( "cnt=[ " );
 		for( int ii = 0 ; ii < this.timeCnt.length ; ii++ ){
@@ -0,0 +1,87 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataAtomicArray.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.matsim.api.core.v01.network.Link;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Travel times of one link or turn which may be measured by several threads at the same time. The sum and the
+ * number of the travel times of every time slot are accumulated with atomic operations in a slice of an
+ * {@link AtomicLongArray}, which is shared with other links or turns, see {@link TravelTimeDataFlatArrayFactory}.
+ */
+final class TravelTimeDataAtomicArray extends TravelTimeData {
+
+	// per time slot: the sum of the travel times as double bits, followed by the number of travel times
+	private final AtomicLongArray data;
+	private final int offset;
+	private final int numSlots;
+	private final Link link;
+
+	TravelTimeDataAtomicArray(final AtomicLongArray data, final int offset, final int numSlots, final Link link) {
+		this.data = data;
+		this.offset = offset;
+		this.numSlots = numSlots;
+		this.link = link;
+	}
+
+	@Override
+	public void resetTravelTimes() {
+		for (int i = this.offset; i < this.offset + 2 * this.numSlots; i++) {
+			this.data.set(i, 0L);
+		}
+	}
+
+	@Override
+	void setTravelTime(final int timeSlot, final double traveltime) {
+		int index = this.offset + 2 * timeSlot;
+		this.data.set(index, Double.doubleToRawLongBits(traveltime));
+		this.data.set(index + 1, 1L);
+	}
+
+	@Override
+	void addTravelTime(final int timeSlot, final double traveltime) {
+		int index = this.offset + 2 * timeSlot;
+		long sum;
+		do {
+			sum = this.data.get(index);
+		} while (!this.data.compareAndSet(index, sum, Double.doubleToRawLongBits(Double.longBitsToDouble(sum) + traveltime)));
+		this.data.incrementAndGet(index + 1);
+	}
+
+	@Override
+	double getTravelTime(final int timeSlot, final double now) {
+		double ttime = getMeasuredTravelTime(timeSlot);
+		if (ttime >= 0.0) return ttime; // negative values are invalid.
+
+		// nothing was measured in this time slot, so just use freespeed
+		return this.link.getLength() / this.link.getFreespeed(now);
+	}
+
+	@Override
+	double getMeasuredTravelTime(final int timeSlot) {
+		int index = this.offset + 2 * timeSlot;
+		long cnt = this.data.get(index + 1);
+		return cnt > 0 ? Double.longBitsToDouble(this.data.get(index)) / cnt : -1.0;
+	}
+
+}
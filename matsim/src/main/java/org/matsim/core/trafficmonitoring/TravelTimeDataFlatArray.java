@@ -0,0 +1,89 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataFlatArray.java 
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.matsim.api.core.v01.network.Link;
+
+import java.util.Arrays;
+
+/**
+ * Travel times of one link or turn, stored in a slice of primitive arrays which are shared
+ * with many other links or turns, see {@link TravelTimeDataFlatArrayFactory}.
+ * Behaves like {@link TravelTimeDataArray}.
+ */
+final class TravelTimeDataFlatArray extends TravelTimeData {
+
+	private final double[] travelTimes;
+	private final short[] counts;
+	private final int offset;
+	private final int numSlots;
+	private final Link link;
+
+	TravelTimeDataFlatArray(final double[] travelTimes, final short[] counts, final int offset, final int numSlots, final Link link) {
+		this.travelTimes = travelTimes;
+		this.counts = counts;
+		this.offset = offset;
+		this.numSlots = numSlots;
+		this.link = link;
+	}
+
+	@Override
+	public void resetTravelTimes() {
+		Arrays.fill(this.counts, this.offset, this.offset + this.numSlots, (short) 0);
+		Arrays.fill(this.travelTimes, this.offset, this.offset + this.numSlots, -1.0);
+	}
+
+	@Override
+	void setTravelTime(final int timeSlot, final double traveltime) {
+		this.counts[this.offset + timeSlot] = 1;
+		this.travelTimes[this.offset + timeSlot] = traveltime;
+	}
+
+	@Override
+	void addTravelTime(final int timeSlot, final double traveltime) {
+		int index = this.offset + timeSlot;
+		short cnt = this.counts[index];
+		double sum = this.travelTimes[index] * cnt;
+
+		sum += traveltime;
+		cnt++;
+
+		this.travelTimes[index] = sum / cnt;
+		this.counts[index] = cnt;
+	}
+
+	@Override
+	double getTravelTime(final int timeSlot, final double now) {
+		double ttime = this.travelTimes[this.offset + timeSlot];
+		if (ttime >= 0.0) return ttime; // negative values are invalid.
+
+		// nothing was measured in this time slot, so just use freespeed
+		double freespeed = this.link.getLength() / this.link.getFreespeed(now);
+		this.travelTimes[this.offset + timeSlot] = freespeed;
+		return freespeed;
+	}
+
+	@Override
+	double getMeasuredTravelTime(final int timeSlot) {
+		return this.counts[this.offset + timeSlot] > 0 ? this.travelTimes[this.offset + timeSlot] : -1.0;
+	}
+
+}
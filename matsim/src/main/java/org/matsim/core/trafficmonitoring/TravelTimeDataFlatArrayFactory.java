@@ -0,0 +1,253 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataFlatArrayFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.utils.collections.Tuple;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+
+/**
+ * Stores the travel times of all links in flat primitive arrays instead of one {@link TravelTimeDataArray}
+ * object with its own arrays per link. The slots of a link are addressed by {@link Id#index()} of the link id,
+ * so looking up the data of a link, e.g. by the router, is a single array access.
+ * <br>
+ * The arrays are allocated in chunks of {@link #LINKS_PER_CHUNK} links which are never copied, so the data of a
+ * link never moves and may be created while other threads read or write the data of other links.
+ * <br>
+ * Turns, i.e. link-to-link travel times, are addressed by a packed turn table: the turns from a link to the
+ * out-links of its to-node are numbered consecutively, starting at <code>firstTurn[fromLinkIndex]</code>.
+ * Turns between links which are not adjacent in the network are not contained in the table, and
+ * {@link #getTurnTravelTimeData(Id, Id, boolean)} returns <code>null</code> for them.
+ * <br>
+ * If created as <code>concurrent</code>, the travel times are accumulated in {@link TravelTimeDataAtomicArray}s, so
+ * they may be measured by several event handling threads at the same time.
+ */
+final class TravelTimeDataFlatArrayFactory implements TravelTimeDataFactory, DataContainerProvider {
+
+	static final int LINKS_PER_CHUNK = 1 << 10;
+
+	private final Network network;
+	private final int numSlots;
+	private final boolean concurrent;
+
+	private final Chunks linkChunks;
+	private volatile TravelTimeData[] linkData;
+
+	private final Chunks turnChunks;
+	private volatile int[] firstTurn = null; // size: number of link ids + 1
+	private int[] turnTargets = null; // index of the to-link of each turn
+	private volatile TravelTimeData[] turnData = null;
+
+	TravelTimeDataFlatArrayFactory(final Network network, final int numSlots) {
+		this(network, numSlots, false);
+	}
+
+	TravelTimeDataFlatArrayFactory(final Network network, final int numSlots, final boolean concurrent) {
+		this.network = network;
+		this.numSlots = numSlots;
+		this.concurrent = concurrent;
+		this.linkChunks = new Chunks(numSlots, concurrent);
+		this.turnChunks = new Chunks(numSlots, concurrent);
+		this.linkData = new TravelTimeData[Id.getNumberOfIds(Link.class)];
+	}
+
+	/**
+	 * Creates data which is not part of the flat arrays, e.g. for turns between links which are not adjacent.
+	 */
+	@Override
+	public TravelTimeData createTravelTimeData(final Id<Link> linkId) {
+		Link link = this.network.getLinks().get(linkId);
+		if (this.concurrent) {
+			TravelTimeData ttData = new TravelTimeDataAtomicArray(new AtomicLongArray(2 * this.numSlots), 0, this.numSlots, link);
+			ttData.resetTravelTimes();
+			return ttData;
+		}
+		return new TravelTimeDataArray(link, this.numSlots);
+	}
+
+	@Override
+	public TravelTimeData getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
+		int index = linkId.index();
+		TravelTimeData[] data = this.linkData;
+		if (index < data.length) {
+			TravelTimeData ttData = data[index];
+			if (ttData != null || !createIfMissing) {
+				return ttData;
+			}
+		} else if (!createIfMissing) {
+			return null;
+		}
+		return createLinkData(linkId);
+	}
+
+	@Override
+	public TravelTimeData getTravelTimeData(final Link link, final boolean createIfMissing) {
+		return getTravelTimeData(link.getId(), createIfMissing);
+	}
+
+	private synchronized TravelTimeData createLinkData(final Id<Link> linkId) {
+		int index = linkId.index();
+		TravelTimeData[] data = this.linkData;
+		if (index >= data.length) {
+			data = Arrays.copyOf(data, Math.max(index + 1, Id.getNumberOfIds(Link.class)));
+		}
+		TravelTimeData ttData = data[index];
+		if (ttData == null) {
+			ttData = this.linkChunks.allocate(this.network.getLinks().get(linkId));
+			data[index] = ttData;
+		}
+		this.linkData = data; // volatile write, publishes the new data
+		return ttData;
+	}
+
+	@Override
+	public void forEachTravelTimeData(final BiConsumer<Id<Link>, TravelTimeData> consumer) {
+		TravelTimeData[] data = this.linkData;
+		for (int i = 0; i < data.length; i++) {
+			if (data[i] != null) {
+				consumer.accept(Id.get(i, Link.class), data[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return the data of the turn from one link to another, or <code>null</code> if the turn is not contained in
+	 * the turn table, i.e. if the to-link is not an out-link of the to-node of the from-link.
+	 */
+	TravelTimeData getTurnTravelTimeData(final Id<Link> fromLinkId, final Id<Link> toLinkId, final boolean createIfMissing) {
+		int[] first = this.firstTurn;
+		if (first == null) {
+			first = buildTurnTable();
+		}
+		int from = fromLinkId.index();
+		if (from + 1 >= first.length) {
+			return null;
+		}
+		int to = toLinkId.index();
+		int[] targets = this.turnTargets;
+		for (int turn = first[from]; turn < first[from + 1]; turn++) {
+			if (targets[turn] == to) {
+				TravelTimeData ttData = this.turnData[turn];
+				if (ttData == null && createIfMissing) {
+					ttData = createTurnData(turn, fromLinkId);
+				}
+				return ttData;
+			}
+		}
+		return null;
+	}
+
+	private synchronized int[] buildTurnTable() {
+		if (this.firstTurn != null) {
+			return this.firstTurn;
+		}
+		int numberOfLinks = Id.getNumberOfIds(Link.class);
+		int[] first = new int[numberOfLinks + 1];
+		for (Link link : this.network.getLinks().values()) {
+			first[link.getId().index() + 1] = link.getToNode().getOutLinks().size();
+		}
+		for (int i = 0; i < numberOfLinks; i++) {
+			first[i + 1] += first[i];
+		}
+		int[] targets = new int[first[numberOfLinks]];
+		for (Link link : this.network.getLinks().values()) {
+			int turn = first[link.getId().index()];
+			for (Id<Link> toLinkId : link.getToNode().getOutLinks().keySet()) {
+				targets[turn++] = toLinkId.index();
+			}
+		}
+		this.turnTargets = targets;
+		this.turnData = new TravelTimeData[targets.length];
+		this.firstTurn = first; // volatile write, publishes the turn table
+		return first;
+	}
+
+	private synchronized TravelTimeData createTurnData(final int turn, final Id<Link> fromLinkId) {
+		TravelTimeData[] data = this.turnData;
+		TravelTimeData ttData = data[turn];
+		if (ttData == null) {
+			ttData = this.turnChunks.allocate(this.network.getLinks().get(fromLinkId));
+			data[turn] = ttData;
+			this.turnData = data; // volatile write, publishes the new data
+		}
+		return ttData;
+	}
+
+	/*package*/ void forEachTurnTravelTimeData(final BiConsumer<Tuple<Id<Link>, Id<Link>>, TravelTimeData> consumer) {
+		int[] first = this.firstTurn;
+		if (first == null) {
+			return;
+		}
+		TravelTimeData[] data = this.turnData;
+		for (int from = 0; from + 1 < first.length; from++) {
+			for (int turn = first[from]; turn < first[from + 1]; turn++) {
+				if (data[turn] != null) {
+					consumer.accept(new Tuple<>(Id.get(from, Link.class), Id.get(this.turnTargets[turn], Link.class)), data[turn]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Hands out slices of <code>numSlots</code> time slots, allocating new arrays when the current ones are full.
+	 */
+	private static final class Chunks {
+
+		private final int numSlots;
+		private final boolean concurrent;
+		private double[] travelTimes = null;
+		private short[] counts = null;
+		private AtomicLongArray sumsAndCounts = null;
+		private int used = LINKS_PER_CHUNK;
+
+		Chunks(final int numSlots, final boolean concurrent) {
+			this.numSlots = numSlots;
+			this.concurrent = concurrent;
+		}
+
+		TravelTimeData allocate(final Link link) {
+			if (this.used == LINKS_PER_CHUNK) {
+				if (this.concurrent) {
+					this.sumsAndCounts = new AtomicLongArray(LINKS_PER_CHUNK * 2 * this.numSlots);
+				} else {
+					this.travelTimes = new double[LINKS_PER_CHUNK * this.numSlots];
+					this.counts = new short[LINKS_PER_CHUNK * this.numSlots];
+				}
+				this.used = 0;
+			}
+			TravelTimeData ttData;
+			if (this.concurrent) {
+				ttData = new TravelTimeDataAtomicArray(this.sumsAndCounts, this.used * 2 * this.numSlots, this.numSlots, link);
+			} else {
+				ttData = new TravelTimeDataFlatArray(this.travelTimes, this.counts, this.used * this.numSlots, this.numSlots, link);
+			}
+			ttData.resetTravelTimes();
+			this.used++;
+			return ttData;
+		}
+	}
+
+}
@@ -85,6 +85,12 @@ class TravelTimeDataHashMap extends TravelTimeData {
 		return ts.timeSum / ts.cnt;
 	}
 
+	@Override
+	double getMeasuredTravelTime(final int timeSlice) {
+		TimeStruct ts = this.travelTimes.get(IntegerCache.getInteger(timeSlice));
+		return ts == null ? -1.0 : ts.timeSum / ts.cnt;
+	}
+
 	private static class TimeStruct {
 		public double timeSum;
 		public int cnt;
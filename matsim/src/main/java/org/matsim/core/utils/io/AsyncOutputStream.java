@@ -0,0 +1,231 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AsyncOutputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An output stream that passes the written data in blocks to a separate thread, which writes them to the
+ * underlying stream. Thus, the (often expensive) compression and the actual writing of the data do not block
+ * the thread that produces the data.
+ * <p></p>
+ * The blocks are recycled, and at most {@link #MAX_BLOCKS} blocks are in use at the same time. If the underlying
+ * stream cannot keep up, the producing thread waits until a block is available again. Exceptions of the underlying
+ * stream are re-thrown to the producing thread with the next write, flush or close.
+ */
+final class AsyncOutputStream extends OutputStream {
+
+	static final int BLOCK_SIZE = 1 << 18;
+	static final int MAX_BLOCKS = 4;
+
+	private final BlockingQueue<Block> filledBlocks = new ArrayBlockingQueue<>(MAX_BLOCKS + 1);
+	private final BlockingQueue<Block> freeBlocks = new ArrayBlockingQueue<>(MAX_BLOCKS);
+	private final Thread writerThread;
+	private final OutputStream out;
+
+	private Block current = new Block();
+	private int allocatedBlocks = 1;
+	private boolean closed = false;
+
+	private volatile Throwable error = null;
+	private final Object flushLock = new Object();
+	private long requestedFlushes = 0;
+	private long completedFlushes = 0;
+
+	AsyncOutputStream(final OutputStream out) {
+		this.out = out;
+		this.writerThread = new Thread(this::writeBlocks, "AsyncOutputStream");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		ensureOpen();
+		if (this.current.length == BLOCK_SIZE) {
+			handOver(false);
+		}
+		this.current.data[this.current.length++] = (byte) b;
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			if (this.current.length == BLOCK_SIZE) {
+				handOver(false);
+			}
+			int n = Math.min(len, BLOCK_SIZE - this.current.length);
+			System.arraycopy(b, off, this.current.data, this.current.length, n);
+			this.current.length += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Waits until all data written so far was passed to the underlying stream and the underlying stream was flushed.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		long flushId;
+		synchronized (this.flushLock) {
+			flushId = ++this.requestedFlushes;
+		}
+		handOver(true);
+		try {
+			synchronized (this.flushLock) {
+				while (this.completedFlushes < flushId && this.error == null) {
+					this.flushLock.wait();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while flushing.");
+		}
+		checkError();
+	}
+
+	/**
+	 * Passes the remaining data to the writer thread and waits until it has closed the underlying stream. The underlying
+	 * stream is closed even if an error occurred before; that error is re-thrown afterwards.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		this.current.close = true;
+		// there are never more blocks than the queue can hold, so this does not block
+		this.filledBlocks.offer(this.current);
+		this.current = null;
+		try {
+			this.writerThread.join();
+		} catch (InterruptedException e) {
+			// the writer thread then closes the underlying stream without writing the remaining blocks
+			this.writerThread.interrupt();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing.");
+		}
+		checkError();
+	}
+
+	private void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("stream closed");
+		}
+	}
+
+	private void handOver(final boolean flush) throws IOException {
+		checkError();
+		this.current.flush = flush;
+		try {
+			this.filledBlocks.put(this.current);
+			Block next = this.freeBlocks.poll();
+			if (next == null) {
+				if (this.allocatedBlocks < MAX_BLOCKS) {
+					next = new Block();
+					this.allocatedBlocks++;
+				} else {
+					next = this.freeBlocks.take();
+				}
+			}
+			this.current = next;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the output.");
+		}
+	}
+
+	private void checkError() throws IOException {
+		Throwable t = this.error;
+		if (t instanceof IOException) {
+			throw new IOException(t.getMessage(), t);
+		} else if (t != null) {
+			throw new IOException("Error while writing asynchronously.", t);
+		}
+	}
+
+	/**
+	 * The loop of the writer thread. After an error, the remaining blocks are discarded, so the producer never waits forever.
+	 * The underlying stream is closed when the loop ends, be it regularly or by an interrupt.
+	 */
+	private void writeBlocks() {
+		try {
+			while (true) {
+				Block block = this.filledBlocks.take();
+				if (this.error == null) {
+					try {
+						if (block.length > 0) {
+							this.out.write(block.data, 0, block.length);
+						}
+						if (block.flush) {
+							this.out.flush();
+						}
+					} catch (IOException | RuntimeException e) {
+						this.error = e;
+					}
+				}
+				if (block.close) {
+					return;
+				}
+				if (block.flush) {
+					synchronized (this.flushLock) {
+						this.completedFlushes++;
+						this.flushLock.notifyAll();
+					}
+				}
+				block.length = 0;
+				block.flush = false;
+				this.freeBlocks.offer(block);
+			}
+		} catch (InterruptedException e) {
+			if (this.error == null) {
+				this.error = e;
+			}
+		} finally {
+			try {
+				this.out.close();
+			} catch (IOException | RuntimeException e) {
+				if (this.error == null) {
+					this.error = e;
+				}
+			}
+			synchronized (this.flushLock) {
+				this.flushLock.notifyAll();
+			}
+		}
+	}
+
+	private static final class Block {
+		final byte[] data = new byte[BLOCK_SIZE];
+		int length = 0;
+		boolean flush = false;
+		boolean close = false;
+	}
+
+}
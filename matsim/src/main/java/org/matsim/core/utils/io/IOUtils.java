@@ -148,6 +148,33 @@ final public class IOUtils {
 	// Logger
 	private final static Logger logger = Logger.getLogger(IOUtils.class);
 
+	// Settings for writing output streams.
+	private static volatile int compressionThreads = 0;
+
+	/**
+	 * Sets the number of threads used to compress output streams that are opened afterwards with
+	 * {@link #getOutputStream(URL, boolean)} and the methods based on it.
+	 * <ul>
+	 * <li><code>0</code> (default): the data is compressed and written synchronously by the calling thread.</li>
+	 * <li><code>1</code>: the data is compressed and written asynchronously by a separate thread per stream.</li>
+	 * <li><code>n &gt; 1</code>: additionally, gzip and zstd compression use <code>n</code> threads per stream.
+	 * Gzip files are then written as concatenated gzip members, which are read by all common gzip implementations.</li>
+	 * </ul>
+	 * The setting applies to the whole JVM. The controler sets it from
+	 * {@link org.matsim.core.config.groups.GlobalConfigGroup#getNumberOfCompressionThreads()} when a run starts and restores
+	 * the previous value when the run ends.
+	 */
+	public static void setCompressionThreads(int numberOfThreads) {
+		if (numberOfThreads < 0) {
+			throw new IllegalArgumentException("Number of compression threads must not be negative: " + numberOfThreads);
+		}
+		compressionThreads = numberOfThreads;
+	}
+
+	public static int getCompressionThreads() {
+		return compressionThreads;
+	}
+
 	/**
 	 * This function takes a path and tries to find the file in the file system or
 	 * in the resource path. The order of resolution is as follows:
@@ -296,6 +323,8 @@ final public class IOUtils {
 	 * extension, the method will try to open the compressed file using the proper
 	 * decompression algorithm. Note that compressed files cannot be appended and
 	 * that it is only possible to write to the file system (i.e. file:// protocol).
+	 * <p></p>
+	 * See {@link #setCompressionThreads(int)} for asynchronous and multi-threaded output.
 	 * 
 	 * @throws UncheckedIOException
 	 */
@@ -314,11 +343,16 @@ final public class IOUtils {
 			}
 
 			OutputStream outputStream = new FileOutputStream(file, append);
+			int threads = compressionThreads;
 
 			if (compression != null) {
 				switch (compression) {
 					case GZIP:
-						outputStream = new GZIPOutputStream(outputStream);
+						if (threads > 1) {
+							outputStream = new ParallelGZIPOutputStream(outputStream, threads);
+						} else {
+							outputStream = new GZIPOutputStream(outputStream);
+						}
 						break;
 					case LZ4:
 						outputStream = new LZ4BlockOutputStream(outputStream);
@@ -327,11 +361,18 @@ final public class IOUtils {
 						outputStream = new CompressorStreamFactory().createCompressorOutputStream(CompressorStreamFactory.BZIP2, outputStream);
 						break;
 					case ZSTD:
-						outputStream = new ZstdOutputStream(outputStream, 6);
+						ZstdOutputStream zstdStream = new ZstdOutputStream(outputStream, 6);
+						if (threads > 1) {
+							zstdStream.setWorkers(threads);
+						}
+						outputStream = zstdStream;
 						break;
 				}
 			}
 
+			if (threads > 0) {
+				return new AsyncOutputStream(outputStream);
+			}
 			return new BufferedOutputStream(outputStream);
 		} catch (IOException | CompressorException | URISyntaxException e) {
 			throw new UncheckedIOException(e);
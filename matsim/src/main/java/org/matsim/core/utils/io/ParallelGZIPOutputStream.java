@@ -0,0 +1,189 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelGZIPOutputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses data with gzip using multiple threads, similar to <code>pigz</code>.
+ * <p></p>
+ * The data is split into blocks, which are compressed independently of each other by a pool of threads. Each
+ * block is written as a complete gzip member; the members are written in order. A file consisting of concatenated
+ * gzip members is a valid gzip file, which is read completely by {@link java.util.zip.GZIPInputStream} and all
+ * common gzip tools. As the blocks do not share a dictionary, the files are slightly larger than with a single
+ * gzip stream.
+ */
+final class ParallelGZIPOutputStream extends OutputStream {
+
+	static final int BLOCK_SIZE = 1 << 19;
+
+	private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+	private final OutputStream out;
+	private final ExecutorService executor;
+	private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+	private final int maxPending;
+
+	private byte[] block = new byte[BLOCK_SIZE];
+	private int position = 0;
+	private boolean empty = true;
+	private boolean closed = false;
+
+	ParallelGZIPOutputStream(final OutputStream out, final int numberOfThreads) {
+		this.out = out;
+		this.maxPending = 2 * numberOfThreads;
+		this.executor = Executors.newFixedThreadPool(numberOfThreads, r -> {
+			Thread thread = new Thread(r, "ParallelGZIPOutputStream");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (this.position == BLOCK_SIZE) {
+			submitBlock();
+		}
+		this.block[this.position++] = (byte) b;
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (this.position == BLOCK_SIZE) {
+				submitBlock();
+			}
+			int n = Math.min(len, BLOCK_SIZE - this.position);
+			System.arraycopy(b, off, this.block, this.position, n);
+			this.position += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Compresses and writes all data written so far. Every flush ends a gzip member, so flushing too often
+	 * reduces the compression ratio.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (this.position > 0) {
+			submitBlock();
+		}
+		while (!this.pending.isEmpty()) {
+			writeNextMember();
+		}
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			if (this.empty || this.position > 0) {
+				// an empty file would not be a valid gzip file
+				submitBlock();
+			}
+			while (!this.pending.isEmpty()) {
+				writeNextMember();
+			}
+		} finally {
+			this.executor.shutdownNow();
+			this.out.close();
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		final byte[] data = this.block;
+		final int length = this.position;
+		this.pending.add(this.executor.submit(() -> compress(data, length)));
+		this.empty = false;
+		this.block = new byte[BLOCK_SIZE];
+		this.position = 0;
+		while (this.pending.size() > this.maxPending) {
+			writeNextMember();
+		}
+	}
+
+	private void writeNextMember() throws IOException {
+		try {
+			byte[] member = this.pending.poll().get();
+			this.out.write(member);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing.");
+		} catch (ExecutionException e) {
+			throw new IOException("Error while compressing.", e.getCause());
+		}
+	}
+
+	/**
+	 * Compresses the data into a complete gzip member (header, deflated data and trailer).
+	 */
+	private static byte[] compress(final byte[] data, final int length) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+			byte[] result = new byte[HEADER.length + length / 2 + 1024];
+			System.arraycopy(HEADER, 0, result, 0, HEADER.length);
+			int size = HEADER.length;
+			while (!deflater.finished()) {
+				if (size == result.length) {
+					result = Arrays.copyOf(result, result.length * 2);
+				}
+				size += deflater.deflate(result, size, result.length - size);
+			}
+
+			CRC32 crc = new CRC32();
+			crc.update(data, 0, length);
+			if (size + 8 > result.length) {
+				result = Arrays.copyOf(result, size + 8);
+			}
+			writeIntLE(result, size, (int) crc.getValue());
+			writeIntLE(result, size + 4, length);
+			return size + 8 == result.length ? result : Arrays.copyOf(result, size + 8);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static void writeIntLE(final byte[] buffer, final int offset, final int value) {
+		buffer[offset] = (byte) value;
+		buffer[offset + 1] = (byte) (value >>> 8);
+		buffer[offset + 2] = (byte) (value >>> 16);
+		buffer[offset + 3] = (byte) (value >>> 24);
+	}
+
+}
@@ -234,6 +234,96 @@ public class ControlerIT {
 				((Leg)(person1.getPlans().get(1).getPlanElements().get(1))).getTravelTime().seconds(), MatsimTestUtils.EPSILON);
 	}
 
+	@Test
+	public void testCheckpointing() {
+		Fixture f = new Fixture(ConfigUtils.createConfig());
+		addCheckpointingPersons(f);
+		Config config = f.scenario.getConfig();
+		config.controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.overwriteExistingFiles);
+		config.controler().setOutputDirectory(this.utils.getOutputDirectory() + "run/");
+		config.controler().setCreateGraphs(false);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setDumpDataAtEnd(false);
+		config.controler().setLastIteration(1);
+		config.controler().setWriteCheckpointInterval(1);
+		ActivityParams actParams = new ActivityParams("h");
+		actParams.setTypicalDuration(8*3600);
+		config.planCalcScore().addActivityParams(actParams);
+		config.strategy().setMaxAgentPlanMemorySize(4);
+		StrategySettings strat = new StrategySettings();
+		strat.setStrategyName(DefaultStrategy.ReRoute.toString());
+		strat.setWeight(1.);
+		config.strategy().addStrategySettings(strat);
+		config.global().setNumberOfThreads(0);
+		config.qsim().setUsingFastCapacityUpdate(this.isUsingFastCapacityUpdate);
+
+		Controler controler = new Controler(f.scenario);
+		controler.run();
+		String checkpoint = this.utils.getOutputDirectory() + "run/ITERS/it.0/0.checkpoint.bin";
+		assertTrue(new File(checkpoint).exists());
+		assertTrue(new File(this.utils.getOutputDirectory() + "run/ITERS/it.0/0.checkpoint_population.bin").exists());
+		assertTrue("the last iteration is always checkpointed", new File(this.utils.getOutputDirectory() + "run/ITERS/it.1/1.checkpoint.bin").exists());
+
+		// continue a second run from the checkpoint of iteration 0; the population is read from the checkpoint
+		Fixture f2 = new Fixture(ConfigUtils.createConfig());
+		Config config2 = f2.scenario.getConfig();
+		config2.controler().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.overwriteExistingFiles);
+		config2.controler().setOutputDirectory(this.utils.getOutputDirectory() + "resumed/");
+		config2.controler().setCreateGraphs(false);
+		config2.controler().setWriteEventsInterval(0);
+		config2.controler().setDumpDataAtEnd(false);
+		config2.controler().setLastIteration(1);
+		config2.controler().setResumeFromCheckpoint(checkpoint);
+		config2.planCalcScore().addActivityParams(actParams);
+		config2.strategy().setMaxAgentPlanMemorySize(4);
+		config2.strategy().addStrategySettings(strat);
+		config2.global().setNumberOfThreads(0);
+		config2.qsim().setUsingFastCapacityUpdate(this.isUsingFastCapacityUpdate);
+
+		Controler resumed = new Controler(f2.scenario);
+		resumed.run();
+		assertFalse("iteration 0 must not be simulated again", new File(this.utils.getOutputDirectory() + "resumed/ITERS/it.0").exists());
+
+		Population population = f.scenario.getPopulation();
+		Population resumedPopulation = f2.scenario.getPopulation();
+		assertEquals(population.getPersons().size(), resumedPopulation.getPersons().size());
+		for (Person person : population.getPersons().values()) {
+			Person resumedPerson = resumedPopulation.getPersons().get(person.getId());
+			assertEquals(person.getPlans().size(), resumedPerson.getPlans().size());
+			for (int i = 0; i < person.getPlans().size(); i++) {
+				assertEquals(person.getPlans().get(i).getScore(), resumedPerson.getPlans().get(i).getScore(), MatsimTestUtils.EPSILON);
+			}
+		}
+		// the re-routed plan was routed with the travel times of the checkpoint
+		Person resumedPerson1 = resumedPopulation.getPersons().get(Id.create("1", Person.class));
+		assertEquals(150.5, ((Leg) (resumedPerson1.getPlans().get(1).getPlanElements().get(1))).getTravelTime().seconds(), MatsimTestUtils.EPSILON);
+		// the score statistics contain both iterations
+		assertEquals(controler.getScoreStats().getScoreHistory(), resumed.getScoreStats().getScoreHistory());
+	}
+
+	/**
+	 * Adds 2 persons driving from link 1 to link 3, both starting at the same time at 7am.
+	 */
+	private static void addCheckpointingPersons(final Fixture f) {
+		Population population = f.scenario.getPopulation();
+		PopulationFactory factory = population.getFactory();
+		for (String id : new String[] { "1", "2" }) {
+			Person person = factory.createPerson(Id.create(id, Person.class));
+			Plan plan = factory.createPlan();
+			person.addPlan(plan);
+			Activity a = factory.createActivityFromLinkId("h", f.link1.getId());
+			a.setEndTime(7.0*3600);
+			plan.addActivity(a);
+			Leg leg = factory.createLeg(TransportMode.car);
+			plan.addLeg(leg);
+			NetworkRoute route = factory.getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), Collections.singletonList(f.link2.getId()), f.link3.getId());
+			leg.setRoute(route);
+			plan.addActivity(factory.createActivityFromLinkId("h", f.link3.getId()));
+			population.addPerson(person);
+		}
+	}
+
 	/**
 	 * Tests that a custom scoring function factory doesn't get overwritten
 	 * in the initialization process of the Controler.
@@ -525,6 +615,32 @@ public class ControlerIT {
 		assertTrue(outputPlans.exists());
 	}
 
+	@Test
+	public void testCompressionThreadsAreResetAfterRun() {
+		final Config config = utils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config_plans1.xml"));
+		config.controler().setLastIteration(0);
+		config.controler().setCreateGraphs(false);
+		config.global().setNumberOfCompressionThreads(2);
+
+		final Controler controler = new Controler(config);
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				bindMobsim().toProvider(new Provider<Mobsim>() {
+					@Override
+					public Mobsim get() {
+						return new FakeMobsim();
+					}
+				});
+			}
+		});
+		controler.run();
+
+		assertEquals(0, IOUtils.getCompressionThreads());
+		Population population = PopulationUtils.readPopulation(controler.getControlerIO().getOutputFilename(Controler.DefaultFiles.population));
+		assertEquals(controler.getScenario().getPopulation().getPersons().size(), population.getPersons().size());
+	}
+
 	/**
 	 * @author mrieser
 	 */
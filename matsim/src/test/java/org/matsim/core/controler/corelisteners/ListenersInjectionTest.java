@@ -46,6 +46,11 @@ public class ListenersInjectionTest {
 		testIsSingleton( DumpDataAtEnd.class );
 	}
 
+	@Test
+	public void testCheckpointingIsSingleton() {
+		testIsSingleton( Checkpointing.class );
+	}
+
 	@Test
 	public void testEvensHandlingIsSingleton() {
 		testIsSingleton( EventsHandling.class );
@@ -68,6 +68,34 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_SingleThreaded() {
+		EventsManager manager = new EventsManagerImpl(true);
+		CountingMyEventHandler handler = new CountingMyEventHandler();
+		manager.addHandler(handler);
+		manager.initProcessing();
+		manager.processEvent(new MyEvent(123.45));
+		manager.processEvent(new MySubEvent(234.56));
+		manager.finishProcessing();
+		Assert.assertEquals("EventHandler was not called for event and sub-event.", 2, handler.counter);
+	}
+
+	@Test
+	public void testProcessEvent_ExceptionInEventHandler_SingleThreaded() {
+		EventsManager manager = new EventsManagerImpl(true);
+		CrashingMyEventHandler handler = new CrashingMyEventHandler();
+		manager.addHandler(handler);
+		manager.initProcessing();
+		try {
+			manager.processEvent(new MyEvent(123.45));
+			Assert.fail("expected exception, but got none.");
+		} catch (final ArithmeticException e) {
+			log.info("Catched expected exception.", e);
+
+			Assert.assertEquals(1, handler.counter);
+		}
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -78,6 +106,12 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/*package*/ static class MySubEvent extends MyEvent {
+		public MySubEvent(final double time) {
+			super(time);
+		}
+	}
+
 	/*package*/ static interface MyEventHandler extends EventHandler {
 		public void handleEvent(final MyEvent e);
 	}
@@ -0,0 +1,51 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DoubleFormatterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DoubleFormatterTest {
+
+	@Test
+	public void testSameAsDoubleToString() {
+		double[] values = { 0.0, -0.0, 1.0, -1.0, 9.0, 10.0, 99.0, 100.0, 3600.0, 86400.0, 9999999.0, -9999999.0, 1.0E7, -1.0E7,
+				1.0E12, 0.5, 0.001, 1.0E-4, 21600.25, Long.MAX_VALUE, Long.MIN_VALUE, Double.MAX_VALUE, Double.MIN_VALUE,
+				Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (double value : values) {
+			assertFormat(value);
+		}
+		Random random = new Random(4711);
+		for (int i = 0; i < 100000; i++) {
+			assertFormat(random.nextInt(20000000) - 10000000);
+			assertFormat(random.nextDouble() * 100000);
+		}
+	}
+
+	private static void assertFormat(double value) {
+		char[] buffer = new char[DoubleFormatter.MAX_LENGTH + 3];
+		int end = DoubleFormatter.format(value, buffer, 3);
+		Assert.assertEquals(Double.toString(value), new String(buffer, 3, end - 3));
+	}
+
+}
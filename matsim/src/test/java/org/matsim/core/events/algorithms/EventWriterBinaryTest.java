@@ -0,0 +1,175 @@
+package org.matsim.core.events.algorithms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testStreamRoundtrip() {
+		List<Event> expected = createEvents();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos);
+		for (Event event : expected) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readStream(new ByteArrayInputStream(baos.toByteArray()), ControlerConfigGroup.EventsFileFormat.binary);
+		events.finishProcessing();
+
+		assertEvents(expected, collector.getEvents());
+	}
+
+	@Test
+	public void testFileRoundtrip() {
+		List<Event> expected = createEvents();
+		for (String filename : new String[] { "events.bin", "events.bin.gz" }) {
+			String file = this.utils.getOutputDirectory() + filename;
+			EventWriterBinary writer = new EventWriterBinary(file);
+			for (Event event : expected) {
+				writer.handleEvent(event);
+			}
+			writer.closeFile();
+
+			EventsManager events = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			events.addHandler(collector);
+			events.initProcessing();
+			EventsUtils.readEvents(events, file);
+			events.finishProcessing();
+
+			assertEvents(expected, collector.getEvents());
+		}
+	}
+
+	@Test
+	public void testSpecialValues() {
+		List<Event> expected = new ArrayList<>();
+		expected.add(new LinkLeaveEvent(3600.0, Id.create("vehicle>3", Vehicle.class), Id.create("link<2", Link.class)));
+		expected.add(new LinkLeaveEvent(3600.5, Id.create("1.0", Vehicle.class), Id.create("1", Link.class)));
+		expected.add(new LinkLeaveEvent(1.0E7, Id.create("-0.0", Vehicle.class), Id.create("äöü", Link.class)));
+		expected.add(new LinkLeaveEvent(3.0, Id.create("", Vehicle.class), Id.create("1E3", Link.class)));
+		GenericEvent generic = new GenericEvent("TEST", 3.0);
+		generic.getAttributes().put("dummy", null);
+		generic.getAttributes().put("number", "12.50");
+		expected.add(generic);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos);
+		for (Event event : expected) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readStream(new ByteArrayInputStream(baos.toByteArray()), ControlerConfigGroup.EventsFileFormat.binary);
+		events.finishProcessing();
+
+		assertEvents(expected, collector.getEvents());
+		GenericEvent event = (GenericEvent) collector.getEvents().get(4);
+		Assert.assertTrue(event.getAttributes().containsKey("dummy"));
+		Assert.assertNull(event.getAttributes().get("dummy"));
+	}
+
+	@Test
+	public void testOptionalValues() {
+		List<Event> expected = new ArrayList<>();
+		expected.add(new ActivityEndEvent(0.0, Id.createPersonId("1"), Id.create("1", Link.class), Id.create("1", ActivityFacility.class), "home"));
+		expected.add(new PersonDepartureEvent(0.0, Id.createPersonId("1"), Id.create("1", Link.class), null));
+		expected.add(new PersonEntersVehicleEvent(1.0, Id.createPersonId("1"), Id.create("1", Vehicle.class)));
+		expected.add(new VehicleEntersTrafficEvent(1.0, Id.createPersonId("1"), Id.create("1", Link.class), Id.create("1", Vehicle.class), null, 0.5));
+		expected.add(new VehicleLeavesTrafficEvent(2.0, Id.createPersonId("1"), Id.create("2", Link.class), null, "car", Double.NaN));
+		expected.add(new PersonLeavesVehicleEvent(2.0, Id.createPersonId("1"), Id.create("1", Vehicle.class)));
+		expected.add(new PersonArrivalEvent(2.0, Id.createPersonId("1"), Id.create("2", Link.class), null));
+		expected.add(new PersonMoneyEvent(2.0, Id.createPersonId("1"), 1.0E-5, null, null));
+		expected.add(new ActivityStartEvent(2.0, Id.createPersonId("1"), null, null, "work", null));
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(baos);
+		for (Event event : expected) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readStream(new ByteArrayInputStream(baos.toByteArray()), ControlerConfigGroup.EventsFileFormat.binary);
+		events.finishProcessing();
+
+		assertEvents(expected, collector.getEvents());
+		Assert.assertSame(Id.create("1", ActivityFacility.class), ((ActivityEndEvent) collector.getEvents().get(0)).getFacilityId());
+		Assert.assertSame(Id.create("1", Vehicle.class), ((PersonEntersVehicleEvent) collector.getEvents().get(2)).getVehicleId());
+	}
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			double time = 21600 + i / 10;
+			Id<Vehicle> vehicleId = Id.create(i % 100, Vehicle.class);
+			Id<Link> linkId = Id.create(i % 37, Link.class);
+			events.add(new ActivityEndEvent(time, Id.createPersonId(i % 100), linkId, null, "home"));
+			events.add(new PersonDepartureEvent(time, Id.createPersonId(i % 100), linkId, "car"));
+			events.add(new VehicleEntersTrafficEvent(time, Id.createPersonId(i % 100), linkId, vehicleId, "car", 1.0));
+			events.add(new LinkLeaveEvent(time + 0.25, vehicleId, linkId));
+			events.add(new LinkEnterEvent(time + 1, vehicleId, Id.create(i % 31, Link.class)));
+			events.add(new PersonMoneyEvent(time + 1, Id.createPersonId(i % 100), -i * 0.013, "toll", "city"));
+			events.add(new ActivityStartEvent(time + 2, Id.createPersonId(i % 100), linkId, null, "work", new Coord(i * 1.5, -i * 2.75)));
+			GenericEvent generic = new GenericEvent("custom", time + 2);
+			generic.getAttributes().put("value", Integer.toString(i));
+			events.add(generic);
+		}
+		return events;
+	}
+
+	private static void assertEvents(List<Event> expected, List<Event> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+			Assert.assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+		}
+	}
+
+}
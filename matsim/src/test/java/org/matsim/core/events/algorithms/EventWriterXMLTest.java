@@ -19,18 +19,37 @@
 
 package org.matsim.core.events.algorithms;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.facilities.ActivityFacility;
 import org.matsim.testcases.MatsimTestUtils;
 import org.matsim.testcases.utils.EventsCollector;
 import org.matsim.vehicles.Vehicle;
@@ -96,4 +115,50 @@ public class EventWriterXMLTest {
 		events.finishProcessing();
 		Assert.assertEquals("there must be 1 event.", 1, collector.getEvents().size());
 	}
+
+	/**
+	 * The allocation-free {@link Event#writeAttributes(Event.AttributeWriter)} must produce the same output as
+	 * writing {@link Event#getAttributes()}.
+	 */
+	@Test
+	public void testWriteAttributesMatchesGetAttributes() {
+		Id<Person> person = Id.createPersonId("p&1");
+		Id<Link> link = Id.createLinkId("l1");
+		Id<Vehicle> vehicle = Id.createVehicleId("v1");
+		List<Event> events = new ArrayList<>();
+		for (double time : new double[] { 0.0, -0.0, 1.0, 3600.0, 21600.5, 86399.999, 9999999.0, 1.0E7, 3.0E9, -12.0, Double.NaN, Double.POSITIVE_INFINITY }) {
+			events.add(new LinkEnterEvent(time, vehicle, link));
+			events.add(new LinkLeaveEvent(time, vehicle, link));
+			events.add(new VehicleEntersTrafficEvent(time, person, link, vehicle, "car", 1.0));
+			events.add(new VehicleEntersTrafficEvent(time, null, null, null, null, 0.25));
+			events.add(new VehicleLeavesTrafficEvent(time, person, link, vehicle, "car", 1.0));
+			events.add(new VehicleLeavesTrafficEvent(time, person, null, null, null, -0.0));
+			events.add(new PersonDepartureEvent(time, person, link, "car"));
+			events.add(new PersonDepartureEvent(time, person, null, null));
+			events.add(new PersonArrivalEvent(time, person, link, "walk"));
+			events.add(new PersonArrivalEvent(time, person, null, null));
+			events.add(new PersonEntersVehicleEvent(time, person, vehicle));
+			events.add(new PersonLeavesVehicleEvent(time, person, vehicle));
+			events.add(new ActivityEndEvent(time, person, link, Id.create("f1", ActivityFacility.class), "home"));
+			events.add(new ActivityEndEvent(time, null, null, null, null));
+			events.add(new ActivityStartEvent(time, person, link, null, "work", new Coord(1234.5, -0.001)));
+			events.add(new ActivityStartEvent(time, person, link, Id.create("f1", ActivityFacility.class), "work", null));
+			events.add(new PersonMoneyEvent(time, person, -1.5, "toll", "city"));
+		}
+
+		for (Event event : events) {
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			EventWriterXML writer = new EventWriterXML(actual);
+			writer.handleEvent(event);
+			writer.closeFile();
+
+			StringBuilder expected = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n\t<event ");
+			for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+				expected.append(entry.getKey()).append("=\"");
+				expected.append(entry.getValue() == null ? null : entry.getValue().replace("&", "&amp;")).append("\" ");
+			}
+			expected.append(" />\n</events>");
+			Assert.assertEquals(expected.toString(), new String(actual.toByteArray(), StandardCharsets.UTF_8));
+		}
+	}
 }
@@ -30,8 +30,21 @@ public class FlowCapacityTest {
 	 */
 	@Test
 	public void testFlowCapacityDriving() {
+		runFlowCapacityDriving(new Fixture());
+	}
+
+	/**
+	 * Tests that the flow capacity is the same if the network is split into partitions simulated by
+	 * different threads, with link 2 leading from one partition to the other.
+	 */
+	@Test
+	public void testFlowCapacityDriving_multipleThreads() {
 		Fixture f = new Fixture();
+		f.config.hermes().setNumberOfThreads(2);
+		runFlowCapacityDriving(f);
+	}
 
+	private static void runFlowCapacityDriving(Fixture f) {
 		// add a lot of persons with legs from link1 to link3, starting at 6:30
 		for (int i = 1; i <= 12000; i++) {
 			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
@@ -210,6 +210,49 @@ public class HermesTest {
 		Assert.assertEquals("wrong time in second event.", 7.0*3600 + 11, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
 	}
 
+	/**
+	 * Tests that the plans are re-imported correctly in the next iteration if only some persons changed
+	 * their selected plan.
+	 */
+	@Test
+	public void testTwoAgent_SecondIterationWithChangedPlan() {
+		Fixture f = new Fixture();
+
+		// add two persons with leg from link1 to link3, the first starting at 6am, the second at 7am
+		for (int i = 0; i < 2; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime((6+i)*3600);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+			NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		LinkEnterEventCollector collector = new LinkEnterEventCollector();
+		events.addHandler(collector);
+		createHermes(f, events).run();
+		Assert.assertEquals("wrong number of link enter events.", 4, collector.events.size());
+
+		// the second person departs at 8am in the next iteration
+		Person person = f.plans.getPersons().get(Id.create(1, Person.class));
+		Plan plan = person.createCopyOfSelectedPlanAndMakeSelected();
+		PopulationUtils.getFirstActivity(plan).setEndTime(8*3600);
+		collector.reset(1);
+		createHermes(f, events).run();
+
+		Assert.assertEquals("wrong number of link enter events.", 4, collector.events.size());
+		Assert.assertEquals("wrong time in first event.", 6.0*3600, collector.events.get(0).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in second event.", 6.0*3600 + 11, collector.events.get(1).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in first event.", 8.0*3600, collector.events.get(2).getTime(), MatsimTestCase.EPSILON);
+		Assert.assertEquals("wrong time in second event.", 8.0*3600 + 11, collector.events.get(3).getTime(), MatsimTestCase.EPSILON);
+	}
+
 	/**
 	 * A single agent is simulated that uses teleportation for its one and only leg.
 	 *
@@ -0,0 +1,85 @@
+package org.matsim.core.mobsim.hermes;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.mobsim.hermes.Agent.PlanArray;
+
+public class PlanArrayTest {
+
+	@Test
+	public void testCompactEncoding() {
+		PlanArray plan = new PlanArray();
+		plan.addSleepUntilEntry(0, 7 * 3600);
+		plan.addLinkEntry(3, 123456789, 30);
+		plan.addWaitEntry(5, 17, 42);
+		plan.addStopDelayEntry(8 * 3600, 17, 42, 3);
+
+		Assert.assertFalse(plan.isWide());
+		assertEntries(plan, 123456789, 30, 5, 17, 42);
+	}
+
+	@Test
+	public void testWideEncodingForLargeStopIds() {
+		PlanArray plan = new PlanArray();
+		plan.addSleepUntilEntry(0, 7 * 3600);
+		plan.addLinkEntry(3, 123456789, 30);
+		Assert.assertFalse(plan.isWide());
+		// the stop id does not fit into the compact encoding, the entries added before are converted
+		plan.addWaitEntry(5, 17, HermesConfigGroup.MAX_STOP_ROUTE_ID);
+		plan.addStopDelayEntry(8 * 3600, 17, 42, 3);
+
+		Assert.assertTrue(plan.isWide());
+		assertEntries(plan, 123456789, 30, 5, 17, HermesConfigGroup.MAX_STOP_ROUTE_ID);
+	}
+
+	@Test
+	public void testWideEncodingForManyEvents() {
+		PlanArray plan = new PlanArray();
+		plan.addSleepUntilEntry(0, 7 * 3600);
+		for (int i = 1; i <= 40000; i++) {
+			plan.addLinkEntry(2 * i, i, 30);
+		}
+		Assert.assertTrue(plan.isWide());
+		Assert.assertEquals(40001, plan.size());
+		Assert.assertEquals(Agent.SleepUntilType, plan.header(0));
+		Assert.assertEquals(7 * 3600, plan.sleep(0));
+		for (int i = 1; i <= 40000; i++) {
+			Assert.assertEquals(Agent.LinkType, plan.header(i));
+			Assert.assertEquals(2 * i, plan.event(i));
+			Assert.assertEquals(i, plan.link(i));
+			Assert.assertEquals(30, plan.velocity(i));
+		}
+
+		plan.clear();
+		plan.addLinkEntry(1, 2, 3);
+		Assert.assertFalse(plan.isWide());
+		Assert.assertEquals(2, plan.link(0));
+	}
+
+	@Test
+	public void testWideEncodingForFastVehicles() {
+		PlanArray plan = new PlanArray();
+		plan.addLinkEntry(1, 2, HermesConfigGroup.MAX_VEHICLE_VELOCITY + 1);
+		Assert.assertTrue(plan.isWide());
+		Assert.assertEquals(HermesConfigGroup.MAX_VEHICLE_VELOCITY + 1, plan.velocity(0));
+	}
+
+	private static void assertEntries(PlanArray plan, int linkId, int velocity, int waitEvent, int routeId, int waitStopId) {
+		Assert.assertEquals(4, plan.size());
+		Assert.assertEquals(Agent.SleepUntilType, plan.header(0));
+		Assert.assertEquals(7 * 3600, plan.sleep(0));
+		Assert.assertEquals(Agent.LinkType, plan.header(1));
+		Assert.assertEquals(3, plan.event(1));
+		Assert.assertEquals(linkId, plan.link(1));
+		Assert.assertEquals(velocity, plan.velocity(1));
+		Assert.assertEquals(Agent.WaitType, plan.header(2));
+		Assert.assertEquals(waitEvent, plan.event(2));
+		Assert.assertEquals(routeId, plan.route(2));
+		Assert.assertEquals(waitStopId, plan.stop(2));
+		Assert.assertEquals(Agent.StopDelayType, plan.header(3));
+		Assert.assertEquals(8 * 3600, plan.departure(3));
+		Assert.assertEquals(routeId, plan.route(3));
+		Assert.assertEquals(42, plan.stop(3));
+		Assert.assertEquals(3, plan.stopIndex(3));
+	}
+}
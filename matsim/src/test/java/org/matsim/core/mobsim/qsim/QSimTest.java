@@ -616,7 +616,32 @@ public class QSimTest {
 	@Test
 	public void testFlowCapacityDriving() {
 		Fixture f = new Fixture(isUsingFastCapacityUpdate, numberOfThreads);
+		runFlowCapacityDriving(f);
+	}
+
+	/**
+	 * Tests that the flow capacity is respected also if the nodes are assigned to the runners by coordinate bisection
+	 * and re-balanced while vehicles are on the links.
+	 */
+	@Test
+	public void testFlowCapacityDriving_coordinateBisection() {
+		Fixture f = new Fixture(isUsingFastCapacityUpdate, numberOfThreads);
+		f.config.qsim().setNodeAssignment(QSimConfigGroup.NodeAssignment.coordinateBisection);
+		f.config.qsim().setNodeRebalancingInterval(600);
+		runFlowCapacityDriving(f);
+	}
+
+	/**
+	 * Tests that the flow capacity is the same if the nodes and links are moved by the work-stealing scheduler.
+	 */
+	@Test
+	public void testFlowCapacityDriving_workStealing() {
+		Fixture f = new Fixture(isUsingFastCapacityUpdate, numberOfThreads);
+		f.config.qsim().setNetsimScheduling(QSimConfigGroup.NetsimScheduling.workStealing);
+		runFlowCapacityDriving(f);
+	}
 
+	private void runFlowCapacityDriving(Fixture f) {
 		// add a lot of persons with legs from link1 to link3, starting at 6:30
 		for (int i = 1; i <= 10000; i++) {
 			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
@@ -0,0 +1,76 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CoordinateBisectionTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CoordinateBisectionTest {
+
+	@Test
+	public void testEqualWeights() {
+		// a grid of 10 x 10 points
+		double[] x = new double[100];
+		double[] y = new double[100];
+		double[] weights = new double[100];
+		for (int i = 0; i < 100; i++) {
+			x[i] = i % 10;
+			y[i] = i / 10;
+			weights[i] = 1;
+		}
+		int[] parts = CoordinateBisection.partition(x, y, weights, 4);
+
+		int[] sizes = new int[4];
+		for (int part : parts) {
+			sizes[part]++;
+		}
+		Assert.assertArrayEquals(new int[] { 25, 25, 25, 25 }, sizes);
+
+		// the parts are contiguous, i.e. the quadrants of the grid
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(parts[0 + (x[i] < 5 ? 0 : 5) + (y[i] < 5 ? 0 : 50)], parts[i]);
+		}
+	}
+
+	@Test
+	public void testWeights() {
+		// points on a line, the last one is as heavy as all others together
+		double[] x = new double[11];
+		double[] y = new double[11];
+		double[] weights = new double[11];
+		for (int i = 0; i < 11; i++) {
+			x[i] = i;
+			weights[i] = i == 10 ? 10 : 1;
+		}
+		int[] parts = CoordinateBisection.partition(x, y, weights, 2);
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals(0, parts[i]);
+		}
+		Assert.assertEquals(1, parts[10]);
+	}
+
+	@Test
+	public void testMorePartsThanPoints() {
+		int[] parts = CoordinateBisection.partition(new double[] { 0, 1 }, new double[] { 0, 0 }, new double[] { 1, 1 }, 4);
+		Assert.assertNotEquals(parts[0], parts[1]);
+	}
+
+}
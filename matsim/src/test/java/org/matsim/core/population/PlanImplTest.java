@@ -35,10 +35,23 @@ import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.AbstractRoute;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 public class PlanImplTest {
 
@@ -272,6 +285,167 @@ public class PlanImplTest {
 		assertEquals(98.76, route2.getTravelTime().seconds(), 1e-8);
 	}
 
+	@Test
+	public void testCompact() {
+		Plan plan = PopulationUtils.createPlan(PopulationUtils.getFactory().createPerson(Id.create(1, Person.class)));
+		Activity home = PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0));
+		home.setLinkId(Id.create(1, Link.class));
+		home.setEndTime(7 * 3600 + 0.25);
+		Leg car = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+		car.setDepartureTime(7 * 3600 + 0.25);
+		TripStructureUtils.setRoutingMode(car, TransportMode.car);
+		NetworkRoute networkRoute = RouteUtils.createLinkNetworkRouteImpl(Id.create(1, Link.class),
+				Arrays.asList(Id.create(2, Link.class), Id.create(3, Link.class)), Id.create(4, Link.class));
+		networkRoute.setTravelTime(98.76);
+		networkRoute.setDistance(2000.5);
+		networkRoute.setVehicleId(Id.create("car1", Vehicle.class));
+		car.setRoute(networkRoute);
+		Activity work = PopulationUtils.createAndAddActivityFromLinkId(plan, "w", Id.create(4, Link.class));
+		work.setFacilityId(Id.create("f1", ActivityFacility.class));
+		work.setCoord(new Coord(100, 200, 3));
+		work.setStartTime(8 * 3600);
+		work.setMaximumDuration(8 * 3600);
+		work.getAttributes().putAttribute("someAttribute", 42);
+		Leg walk = PopulationUtils.createAndAddLeg( plan, TransportMode.walk );
+		Route genericRoute = RouteUtils.createGenericRouteImpl(Id.create(4, Link.class), Id.create(1, Link.class));
+		genericRoute.setDistance(1234.5);
+		genericRoute.setRouteDescription("some description");
+		walk.setRoute(genericRoute);
+		walk.setTravelTime(900);
+		PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0));
+
+		List<PlanElement> original = new ArrayList<>(plan.getPlanElements());
+		((PlanImpl) plan).compact();
+		assertTrue(((PlanImpl) plan).isCompact());
+		List<PlanElement> restored = plan.getPlanElements();
+		assertFalse(((PlanImpl) plan).isCompact());
+
+		assertEquals(original.size(), restored.size());
+		for (int i = 0; i < original.size(); i++) {
+			assertNotSame(original.get(i), restored.get(i));
+			if (original.get(i) instanceof Activity) {
+				Activity act = (Activity) original.get(i);
+				Activity act2 = (Activity) restored.get(i);
+				assertEquals(act.getType(), act2.getType());
+				assertEquals(act.getLinkId(), act2.getLinkId());
+				assertEquals(act.getFacilityId(), act2.getFacilityId());
+				assertEquals(act.getCoord(), act2.getCoord());
+				assertEquals(act.getStartTime(), act2.getStartTime());
+				assertEquals(act.getEndTime(), act2.getEndTime());
+				assertEquals(act.getMaximumDuration(), act2.getMaximumDuration());
+				assertEquals(act.getAttributes().toString(), act2.getAttributes().toString());
+			} else {
+				Leg leg = (Leg) original.get(i);
+				Leg leg2 = (Leg) restored.get(i);
+				assertEquals(leg.getMode(), leg2.getMode());
+				assertEquals(leg.getDepartureTime(), leg2.getDepartureTime());
+				assertEquals(leg.getTravelTime(), leg2.getTravelTime());
+				assertEquals(leg.getAttributes().toString(), leg2.getAttributes().toString());
+				assertEquals(leg.getRoute().getClass(), leg2.getRoute().getClass());
+				assertEquals(leg.getRoute().getStartLinkId(), leg2.getRoute().getStartLinkId());
+				assertEquals(leg.getRoute().getEndLinkId(), leg2.getRoute().getEndLinkId());
+				assertEquals(leg.getRoute().getDistance(), leg2.getRoute().getDistance(), 0.0);
+				assertEquals(leg.getRoute().getTravelTime(), leg2.getRoute().getTravelTime());
+				assertEquals(leg.getRoute().getRouteDescription(), leg2.getRoute().getRouteDescription());
+			}
+		}
+		assertEquals(networkRoute.getLinkIds(), ((NetworkRoute) ((Leg) restored.get(1)).getRoute()).getLinkIds());
+		assertEquals(networkRoute.getVehicleId(), ((NetworkRoute) ((Leg) restored.get(1)).getRoute()).getVehicleId());
+		assertEquals(TransportMode.car, TripStructureUtils.getRoutingMode((Leg) restored.get(1)));
+	}
+
+	@Test
+	public void testCompact_lockedRoutes() {
+		Plan plan = PopulationUtils.createPlan(PopulationUtils.getFactory().createPerson(Id.create(1, Person.class)));
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "h", Id.create(1, Link.class));
+		Leg car = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+		NetworkRoute networkRoute = RouteUtils.createLinkNetworkRouteImpl(Id.create(1, Link.class),
+				Arrays.asList(Id.create(2, Link.class)), Id.create(3, Link.class));
+		((AbstractRoute) networkRoute).setLocked();
+		car.setRoute(networkRoute);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "w", Id.create(3, Link.class));
+		Leg walk = PopulationUtils.createAndAddLeg( plan, TransportMode.walk );
+		Route genericRoute = RouteUtils.createGenericRouteImpl(Id.create(3, Link.class), Id.create(1, Link.class));
+		((AbstractRoute) genericRoute).setLocked();
+		walk.setRoute(genericRoute);
+		Leg bike = PopulationUtils.createAndAddLeg( plan, TransportMode.bike );
+		bike.setRoute(RouteUtils.createGenericRouteImpl(Id.create(3, Link.class), Id.create(1, Link.class)));
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "h", Id.create(1, Link.class));
+
+		((PlanImpl) plan).compact();
+		List<PlanElement> restored = plan.getPlanElements();
+
+		AbstractRoute restoredNetworkRoute = (AbstractRoute) ((Leg) restored.get(1)).getRoute();
+		AbstractRoute restoredGenericRoute = (AbstractRoute) ((Leg) restored.get(3)).getRoute();
+		AbstractRoute restoredUnlockedRoute = (AbstractRoute) ((Leg) restored.get(4)).getRoute();
+		assertTrue(restoredNetworkRoute.isLocked());
+		assertTrue(restoredGenericRoute.isLocked());
+		assertFalse(restoredUnlockedRoute.isLocked());
+		assertEquals(Arrays.asList(Id.create(2, Link.class)), ((NetworkRoute) restoredNetworkRoute).getLinkIds());
+		assertEquals(Id.create(3, Link.class), restoredGenericRoute.getStartLinkId());
+	}
+
+	@Test
+	public void testCompact_concurrentDecoding() throws InterruptedException {
+		Plan plan = PopulationUtils.createPlan(PopulationUtils.getFactory().createPerson(Id.create(1, Person.class)));
+		for (int i = 0; i < 100; i++) {
+			PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(i, i));
+			PopulationUtils.createAndAddLeg( plan, TransportMode.walk );
+		}
+		PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0));
+
+		for (int round = 0; round < 20; round++) {
+			((PlanImpl) plan).compact();
+			List<List<PlanElement>> results = new ArrayList<>();
+			CountDownLatch start = new CountDownLatch(1);
+			Thread[] threads = new Thread[4];
+			for (int t = 0; t < threads.length; t++) {
+				threads[t] = new Thread(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+					List<PlanElement> planElements = plan.getPlanElements();
+					synchronized (results) {
+						results.add(planElements);
+					}
+				});
+				threads[t].start();
+			}
+			start.countDown();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertEquals(threads.length, results.size());
+			for (List<PlanElement> planElements : results) {
+				// all threads must see the same, single decoded list
+				assertSame(plan.getPlanElements(), planElements);
+			}
+		}
+	}
+
+	@Test
+	public void testCompactPlansOfAddedPersons() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setCompactPlans(true);
+		Population population = PopulationUtils.createPopulation(config);
+		Person person = population.getFactory().createPerson(Id.create(1, Person.class));
+		Plan plan = population.getFactory().createPlan();
+		PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0));
+		PopulationUtils.createAndAddLeg( plan, TransportMode.walk );
+		PopulationUtils.createAndAddActivityFromCoord(plan, "w", new Coord(100, 200));
+		person.addPlan(plan);
+		population.addPerson(person);
+
+		assertTrue(((PlanImpl) plan).isCompact());
+		assertEquals("[score=undefined][nof_acts_legs=3][type=null][personId=1]", plan.toString());
+		PopulationUtils.createAndAddLeg( plan, TransportMode.walk );
+		PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(0, 0));
+		assertEquals(5, plan.getPlanElements().size());
+		assertEquals("w", ((Activity) plan.getPlanElements().get(2)).getType());
+	}
+
 	/**
 	 * @author meisterk
 	 */
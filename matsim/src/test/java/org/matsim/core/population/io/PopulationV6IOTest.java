@@ -321,4 +321,86 @@ public class PopulationV6IOTest {
 
 		Assert.assertEquals(route.getRouteDescription(), ((Leg) scenario.getPopulation().getPersons().get(person1.getId()).getSelectedPlan().getPlanElements().get(1)).getRoute().getRouteDescription());
 	}
+
+	@Test
+	public void testParallelReading() {
+		Population population = createPopulationForParallelIO();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PopulationWriter(population).write(out);
+
+		Scenario sequential = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		sequential.getConfig().global().setNumberOfThreads(1);
+		new PopulationReader(sequential).parse(new ByteArrayInputStream(out.toByteArray()));
+
+		Scenario parallel = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		parallel.getConfig().global().setNumberOfThreads(4);
+		parallel.getConfig().plans().setParallelReading(true);
+		new PopulationReader(parallel).parse(new ByteArrayInputStream(out.toByteArray()));
+
+		Assert.assertEquals(1000, parallel.getPopulation().getPersons().size());
+		Assert.assertEquals("synthetic", parallel.getPopulation().getAttributes().getAttribute("type"));
+		Assert.assertArrayEquals("persons must be added in the same order as by the sequential reader",
+				sequential.getPopulation().getPersons().keySet().toArray(),
+				parallel.getPopulation().getPersons().keySet().toArray());
+
+		ByteArrayOutputStream sequentialOut = new ByteArrayOutputStream();
+		new PopulationWriter(sequential.getPopulation()).write(sequentialOut);
+		ByteArrayOutputStream parallelOut = new ByteArrayOutputStream();
+		new PopulationWriter(parallel.getPopulation()).write(parallelOut);
+		Assert.assertEquals(sequentialOut.toString(), parallelOut.toString());
+		Assert.assertEquals(out.toString(), parallelOut.toString());
+	}
+
+	@Test
+	public void testParallelWriting() {
+		Population population = createPopulationForParallelIO();
+
+		ByteArrayOutputStream sequentialOut = new ByteArrayOutputStream();
+		PopulationWriter sequentialWriter = new PopulationWriter(population);
+		sequentialWriter.setNumberOfThreads(1);
+		sequentialWriter.write(sequentialOut);
+
+		ByteArrayOutputStream parallelOut = new ByteArrayOutputStream();
+		PopulationWriter parallelWriter = new PopulationWriter(population);
+		parallelWriter.setNumberOfThreads(4);
+		parallelWriter.write(parallelOut);
+
+		Assert.assertEquals(sequentialOut.toString(), parallelOut.toString());
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReader(scenario).parse(new ByteArrayInputStream(parallelOut.toByteArray()));
+		Assert.assertEquals(population.getPersons().size(), scenario.getPopulation().getPersons().size());
+	}
+
+	private static Population createPopulationForParallelIO() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		population.getAttributes().putAttribute("type", "synthetic");
+
+		for (int i = 0; i < 1000; i++) {
+			Person person = pf.createPerson(Id.create(999 - i, Person.class));
+			person.getAttributes().putAttribute("age", i % 90);
+			for (int j = 0; j < 2; j++) {
+				Plan plan = pf.createPlan();
+				plan.setScore(i + j * 0.5);
+				Activity home = pf.createActivityFromCoord("home", new Coord(i, j));
+				home.setEndTime(6 * 3600 + i);
+				home.getAttributes().putAttribute("index", i);
+				Leg leg = pf.createLeg(j == 0 ? "walk" : "car");
+				leg.getAttributes().putAttribute("note", "leg of " + i);
+				GenericRouteImpl route = new GenericRouteImpl(Id.create("a" + i, Link.class), Id.create("b" + j, Link.class));
+				route.setRouteDescription("route " + i + " & " + j);
+				leg.setRoute(route);
+				plan.addActivity(home);
+				plan.addLeg(leg);
+				plan.addActivity(pf.createActivityFromLinkId("work", Id.create("b" + j, Link.class)));
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(i % 2));
+			population.addPerson(person);
+		}
+
+		return population;
+	}
 }
@@ -38,6 +38,7 @@ import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
 import org.matsim.core.scenario.ScenarioUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -288,6 +289,68 @@ public class StrategyManagerTest {
 		assertTrue("plan should not have been removed.", p.getPlans().contains(plans[plans.length - 3]));
 	}
 
+	/**
+	 * Plan selection in parallel threads has to give the same results for any number of threads,
+	 * and the plans have to be handed to the modules in the order of the persons.
+	 */
+	@Test
+	public void testParallelPlanSelection() {
+		List<Id<Person>> handledPersons2 = new ArrayList<>();
+		List<Integer> selectedPlans2 = runPlanSelection(2, handledPersons2);
+		List<Id<Person>> handledPersons5 = new ArrayList<>();
+		List<Integer> selectedPlans5 = runPlanSelection(5, handledPersons5);
+
+		assertEquals(selectedPlans2, selectedPlans5);
+		assertEquals(handledPersons2, handledPersons5);
+		assertFalse(handledPersons2.isEmpty());
+		for (int i = 1; i < handledPersons2.size(); i++) {
+			assertTrue("plans not handled in the order of the persons.", Integer.parseInt(handledPersons2.get(i - 1).toString()) < Integer.parseInt(handledPersons2.get(i).toString()));
+		}
+	}
+
+	/**
+	 * @return per person the index of the selected plan within the remaining plans (-1 for the copied plan)
+	 */
+	private static List<Integer> runPlanSelection(final int numberOfThreads, final List<Id<Person>> handledPersons) {
+		MatsimRandom.reset(4711);
+		Population population = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation();
+		for (int i = 0; i < 1000; i++) {
+			Person p = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			for (int j = 0; j < 5; j++) {
+				PersonUtils.createAndAddPlan(p, false).setScore((double) ((i * 7 + j * 13) % 11));
+			}
+			population.addPerson(p);
+		}
+
+		PlanStrategyImpl innovation = new PlanStrategyImpl(new RandomPlanSelector<Plan, Person>());
+		innovation.addStrategyModule(new PlanStrategyModule() {
+			@Override
+			public void prepareReplanning(ReplanningContext replanningContext) {
+			}
+			@Override
+			public void handlePlan(Plan plan) {
+				handledPersons.add(plan.getPerson().getId());
+			}
+			@Override
+			public void finishReplanning() {
+			}
+		});
+
+		StrategyManager manager = new StrategyManager();
+		manager.addStrategyForDefaultSubpopulation(new PlanStrategyImpl(new RandomPlanSelector<Plan, Person>()), 0.7);
+		manager.addStrategyForDefaultSubpopulation(innovation, 0.3);
+		manager.setMaxPlansPerAgent(3);
+		manager.setNumberOfPlanSelectionThreads(numberOfThreads);
+		manager.run(population, null);
+
+		List<Integer> selectedPlans = new ArrayList<>();
+		for (Person p : population.getPersons().values()) {
+			assertTrue(p.getPlans().size() <= 4);
+			selectedPlans.add(p.getSelectedPlan().getScore() == null ? -1 : p.getPlans().indexOf(p.getSelectedPlan()));
+		}
+		return selectedPlans;
+	}
+
 	@Test
 	public void testGetStrategies() {
 		// init StrategyManager
@@ -22,11 +22,25 @@ package org.matsim.core.replanning.modules;
 
 import org.apache.log4j.Logger;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author mrieser
@@ -35,6 +49,9 @@ public class AbstractMultithreadedModuleTest {
 
 	private final static Logger log = Logger.getLogger(AbstractMultithreadedModuleTest.class);
 
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
 	@Test
 	public void testGetNumOfThreads() {
 		Config config = new Config();
@@ -60,6 +77,127 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testFixedAssignment() {
+		List<Plan> plans = createPlans(10);
+		RecordingModule testee = new RecordingModule(3, 0);
+		testee.prepareReplanning(null);
+		plans.forEach(testee::handlePlan);
+		testee.finishReplanning();
+
+		Assert.assertEquals(3, testee.algos.size());
+		for (int i = 0; i < 3; i++) {
+			List<Plan> handled = testee.algos.get(i).handledPlans;
+			Assert.assertEquals((10 - i + 2) / 3, handled.size());
+			for (int j = 0; j < handled.size(); j++) {
+				Assert.assertSame(plans.get(i + 3 * j), handled.get(j));
+			}
+		}
+	}
+
+	@Test
+	public void testBatches() {
+		List<Plan> plans = createPlans(1003);
+		RecordingModule testee = new RecordingModule(4, 10);
+		for (int iteration = 0; iteration < 2; iteration++) {
+			testee.algos.clear();
+			testee.prepareReplanning(null);
+			plans.forEach(testee::handlePlan);
+			testee.finishReplanning();
+
+			Map<Plan, Integer> handledCount = new IdentityHashMap<>();
+			for (RecordingPlanAlgo algo : testee.algos) {
+				for (Plan plan : algo.handledPlans) {
+					handledCount.merge(plan, 1, Integer::sum);
+				}
+			}
+			Assert.assertEquals(plans.size(), handledCount.size());
+			for (Plan plan : plans) {
+				Assert.assertEquals(Integer.valueOf(1), handledCount.get(plan));
+			}
+		}
+	}
+
+	@Test
+	public void testStopwatchOperationsOfModulesWithSameAlgorithm() throws IOException {
+		IterationStopWatch stopwatch = new IterationStopWatch();
+		List<Plan> plans = createPlans(10);
+		RecordingModule first = new RecordingModule(2, 0);
+		RecordingModule second = new RecordingModule(2, 0);
+		for (int iteration = 0; iteration < 2; iteration++) {
+			final int currentIteration = iteration;
+			ReplanningContext context = new ReplanningContext() {
+				@Override
+				public int getIteration() {
+					return currentIteration;
+				}
+				@Override
+				public IterationStopWatch getStopwatch() {
+					return stopwatch;
+				}
+			};
+			stopwatch.beginIteration(iteration);
+			for (RecordingModule module : Arrays.asList(first, second)) {
+				module.prepareReplanning(context);
+				plans.forEach(module::handlePlan);
+				module.finishReplanning();
+			}
+			Assert.assertTrue(stopwatch.hasOperation("replanning RecordingPlanAlgo"));
+			Assert.assertTrue(stopwatch.hasOperation("replanning RecordingPlanAlgo (2)"));
+			Assert.assertFalse(stopwatch.hasOperation("replanning RecordingPlanAlgo (3)"));
+			stopwatch.endIteration();
+		}
+
+		String filename = this.utils.getOutputDirectory() + "stopwatch";
+		stopwatch.writeTextFile(filename);
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename + ".txt")) {
+			List<String> header = Arrays.asList(reader.readLine().split("\t"));
+			Assert.assertTrue(header.contains("replanning RecordingPlanAlgo"));
+			Assert.assertTrue(header.contains("replanning RecordingPlanAlgo (2)"));
+			Assert.assertTrue(header.contains("replanning RecordingPlanAlgo plans/s"));
+			Assert.assertTrue(header.contains("replanning RecordingPlanAlgo (2) idle %"));
+			for (int iteration = 0; iteration < 2; iteration++) {
+				String[] row = reader.readLine().split("\t", -1);
+				Assert.assertEquals(header.size(), row.length);
+				Assert.assertFalse(row[header.indexOf("replanning RecordingPlanAlgo (2) plans/s")].isEmpty());
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeBatchSize() {
+		new RecordingModule(2, -1);
+	}
+
+	private static List<Plan> createPlans(int count) {
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+		return plans;
+	}
+
+	private static class RecordingModule extends AbstractMultithreadedModule {
+		private final List<RecordingPlanAlgo> algos = new ArrayList<>();
+		public RecordingModule(final int nOfThreads, final int batchSize) {
+			super(nOfThreads, batchSize);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			RecordingPlanAlgo algo = new RecordingPlanAlgo();
+			this.algos.add(algo);
+			return algo;
+		}
+	}
+
+	private static class RecordingPlanAlgo implements PlanAlgorithm {
+		private final List<Plan> handledPlans = new ArrayList<>();
+		@Override
+		public void run(Plan plan) {
+			this.handledPlans.add(plan);
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -0,0 +1,196 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java                                         *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory(3600, 30 * 3600).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testCalcLeastCostPath_SameCostAsDijkstra() {
+		Network network = createGridNetwork(20, new Random(4711));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator ch = getLeastCostPathCalculator(network);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8.0 * 3600, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, 8.0 * 3600, null, null);
+			assertEquals("wrong travel cost from " + from.getId() + " to " + to.getId(), expected.travelCost, actual.travelCost, 1e-6);
+			assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+			assertEquals(from, actual.nodes.get(0));
+			assertEquals(to, actual.nodes.get(actual.nodes.size() - 1));
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+		}
+	}
+
+	public void testDefaultTravelDisutility_RoutingRandomness() {
+		Network network = createGridNetwork(5, new Random(4711));
+		Config config = ConfigUtils.createConfig();
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		TravelDisutility travelDisutility = new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, config).createTravelDisutility(travelTime);
+		try {
+			new ContractionHierarchiesFactory(3600, 30 * 3600).createPathCalculator(network, travelDisutility, travelTime);
+			fail("expected exception, travel disutility cannot be calculated without person.");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("routingRandomness"));
+		}
+	}
+
+	public void testDefaultTravelDisutility_SameCostAsDijkstra() {
+		Network network = createGridNetwork(20, new Random(4711));
+		Config config = ConfigUtils.createConfig();
+		config.plansCalcRoute().setRoutingRandomness(0.);
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		TravelDisutility travelDisutility = new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, config).createTravelDisutility(travelTime);
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory(3600, 30 * 3600).createPathCalculator(network, travelDisutility, travelTime);
+		assertSameCosts(network, new Dijkstra(network, travelDisutility, travelTime), ch);
+	}
+
+	public void testTravelDisutilitiesOfSameClass_DifferentCosts() {
+		Network network = createGridNetwork(20, new Random(4711));
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		Config timeConfig = ConfigUtils.createConfig();
+		timeConfig.plansCalcRoute().setRoutingRandomness(0.);
+		Config distanceConfig = ConfigUtils.createConfig();
+		distanceConfig.plansCalcRoute().setRoutingRandomness(0.);
+		distanceConfig.planCalcScore().getModes().get(TransportMode.car).setMarginalUtilityOfDistance(-0.1);
+		TravelDisutility timeDisutility = new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, timeConfig).createTravelDisutility(travelTime);
+		TravelDisutility distanceDisutility = new RandomizingTimeDistanceTravelDisutilityFactory(TransportMode.car, distanceConfig).createTravelDisutility(travelTime);
+
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(3600, 30 * 3600);
+		LeastCostPathCalculator timeCh = factory.createPathCalculator(network, timeDisutility, travelTime);
+		LeastCostPathCalculator distanceCh = factory.createPathCalculator(network, distanceDisutility, travelTime);
+		assertSameCosts(network, new Dijkstra(network, timeDisutility, travelTime), timeCh);
+		assertSameCosts(network, new Dijkstra(network, distanceDisutility, travelTime), distanceCh);
+	}
+
+	public void testTimeBinSizeOfTravelTimeCalculator() {
+		Network network = createGridNetwork(5, new Random(4711));
+		Config config = ConfigUtils.createConfig();
+		config.travelTimeCalculator().setTraveltimeBinSize(900);
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		Set<Double> times = new HashSet<>();
+		TravelDisutility travelDisutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				times.add(time);
+				return freespeed.getLinkTravelDisutility(link, time, person, vehicle);
+			}
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return freespeed.getLinkMinimumTravelDisutility(link);
+			}
+		};
+		LeastCostPathCalculator ch = new ContractionHierarchiesFactory(config.travelTimeCalculator(), config.plansCalcRoute())
+				.createPathCalculator(network, travelDisutility, freespeed);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		ch.calcLeastCostPath(nodes[0], nodes[nodes.length - 1], 8.0 * 3600, null, null);
+		assertTrue("link costs must be taken in the middle of the 15 minute bin", times.contains(8.0 * 3600 + 450));
+		assertFalse("link costs must not be taken in the middle of the hour", times.contains(8.5 * 3600));
+	}
+
+	private static void assertSameCosts(final Network network, final LeastCostPathCalculator expectedRouter, final LeastCostPathCalculator router) {
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		Random random = new Random(42);
+		for (int i = 0; i < 100; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = expectedRouter.calcLeastCostPath(from, to, 8.0 * 3600, null, null);
+			Path actual = router.calcLeastCostPath(from, to, 8.0 * 3600, null, null);
+			assertEquals("wrong travel cost from " + from.getId() + " to " + to.getId(), expected.travelCost, actual.travelCost, 1e-6);
+		}
+	}
+
+	public void testCalcLeastCostPath_Unreachable() {
+		Network network = createGridNetwork(5, new Random(4711));
+		Node isolated = NetworkUtils.createAndAddNode(network, Id.create("isolated", Node.class), new Coord(-1000, -1000));
+		Node other = network.getNodes().get(Id.create("0_0", Node.class));
+		NetworkUtils.createAndAddLink(network, Id.create("oneway", Link.class), isolated, other, 100, 10, 1000, 1);
+
+		LeastCostPathCalculator ch = getLeastCostPathCalculator(network);
+		assertNull(ch.calcLeastCostPath(other, isolated, 8.0 * 3600, null, null));
+		assertEquals(1, ch.calcLeastCostPath(isolated, other, 8.0 * 3600, null, null).links.size());
+	}
+
+	private static Network createGridNetwork(final int size, final Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLink(network, nodes[x][y], nodes[x + 1][y], random);
+					addLink(network, nodes[x + 1][y], nodes[x][y], random);
+				}
+				if (y + 1 < size) {
+					addLink(network, nodes[x][y], nodes[x][y + 1], random);
+					addLink(network, nodes[x][y + 1], nodes[x][y], random);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLink(final Network network, final Node from, final Node to, final Random random) {
+		Id<Link> id = Id.create(from.getId() + "-" + to.getId(), Link.class);
+		NetworkUtils.createAndAddLink(network, id, from, to, 100, 5 + 25 * random.nextDouble(), 1000, 1);
+	}
+
+}
@@ -20,10 +20,29 @@
 package org.matsim.core.scenario;
 
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkWriter;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.PopulationWriter;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
@@ -33,14 +52,26 @@ import org.matsim.core.gbl.Gbl;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.scenario.ScenarioUtils.ScenarioBuilder;
 import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.ActivityOption;
+import org.matsim.facilities.FacilitiesWriter;
+import org.matsim.facilities.OpeningTimeImpl;
 import org.matsim.facilities.FacilitiesUtils;
 import org.matsim.households.Household;
 import org.matsim.households.HouseholdUtils;
 import org.matsim.pt.transitSchedule.TransitScheduleUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
 import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitScheduleWriter;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.MatsimVehicleWriter;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
 
 /**
  * @author mrieser / Senozon AG
@@ -154,4 +185,117 @@ public class ScenarioLoaderImplTest {
 						"hello"));
 
 	}
+
+	@Test
+	public void testLoadScenario_fromSnapshot() throws IOException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+
+		Network network = scenario.getNetwork();
+		network.getAttributes().putAttribute("name", "snapshot test");
+		Node node1 = network.getFactory().createNode(Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = network.getFactory().createNode(Id.createNodeId(2), new Coord(1000, 0, 12.5));
+		network.addNode(node1);
+		network.addNode(node2);
+		Link link1 = network.getFactory().createLink(Id.createLinkId(1), node1, node2);
+		link1.setAllowedModes(new HashSet<>(Arrays.asList(TransportMode.car, TransportMode.pt)));
+		link1.getAttributes().putAttribute("toll", 1.5);
+		Link link2 = network.getFactory().createLink(Id.createLinkId(2), node2, node1);
+		network.addLink(link1);
+		network.addLink(link2);
+
+		ActivityFacility facility = scenario.getActivityFacilities().getFactory().createActivityFacility(
+				Id.create("f1", ActivityFacility.class), new Coord(10, 10), link1.getId());
+		ActivityOption option = scenario.getActivityFacilities().getFactory().createActivityOption("work");
+		option.setCapacity(20);
+		option.addOpeningTime(new OpeningTimeImpl(8 * 3600, 17 * 3600));
+		facility.addActivityOption(option);
+		facility.getAttributes().putAttribute("floors", 3);
+		scenario.getActivityFacilities().addActivityFacility(facility);
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < 10; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			person.getAttributes().putAttribute("age", 20 + i);
+			for (int j = 0; j < 2; j++) {
+				Plan plan = pf.createPlan();
+				plan.setScore(j == 0 ? null : 12.5 * i);
+				Activity home = pf.createActivityFromCoord("home", new Coord(i, 0));
+				home.setEndTime(7 * 3600 + i);
+				Leg leg = pf.createLeg(TransportMode.car);
+				leg.setDepartureTime(7 * 3600 + i);
+				NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(link1.getId(), Collections.emptyList(), link2.getId());
+				route.setVehicleId(Id.createVehicleId(i));
+				route.setDistance(1000);
+				leg.setRoute(route);
+				leg.getAttributes().putAttribute("note", "leg " + i);
+				Activity work = pf.createActivityFromActivityFacilityId("work", facility.getId());
+				work.setLinkId(link2.getId());
+				work.setMaximumDuration(8 * 3600);
+				plan.addActivity(home);
+				plan.addLeg(leg);
+				plan.addActivity(work);
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(i % 2));
+			scenario.getPopulation().addPerson(person);
+		}
+
+		TransitScheduleFactory sf = scenario.getTransitSchedule().getFactory();
+		TransitStopFacility stop1 = sf.createTransitStopFacility(Id.create("s1", TransitStopFacility.class), new Coord(0, 0), false);
+		stop1.setLinkId(link2.getId());
+		stop1.setName("first stop");
+		TransitStopFacility stop2 = sf.createTransitStopFacility(Id.create("s2", TransitStopFacility.class), new Coord(1000, 0), true);
+		stop2.setLinkId(link1.getId());
+		scenario.getTransitSchedule().addStopFacility(stop1);
+		scenario.getTransitSchedule().addStopFacility(stop2);
+		scenario.getTransitSchedule().getMinimalTransferTimes().set(stop1.getId(), stop2.getId(), 120);
+		TransitLine line = sf.createTransitLine(Id.create("line", TransitLine.class));
+		line.getAttributes().putAttribute("operator", "snapshot transport");
+		TransitRoute transitRoute = sf.createTransitRoute(Id.create("route", TransitRoute.class),
+				RouteUtils.createLinkNetworkRouteImpl(link2.getId(), Collections.emptyList(), link1.getId()),
+				Arrays.asList(sf.createTransitRouteStop(stop1, 0, 0), sf.createTransitRouteStop(stop2, 60, 90)), TransportMode.pt);
+		Departure departure = sf.createDeparture(Id.create("d1", Departure.class), 8 * 3600);
+		departure.setVehicleId(Id.createVehicleId("bus"));
+		transitRoute.addDeparture(departure);
+		line.addRoute(transitRoute);
+		scenario.getTransitSchedule().addTransitLine(line);
+
+		VehicleType busType = scenario.getTransitVehicles().getFactory().createVehicleType(Id.create("bus", VehicleType.class));
+		busType.getCapacity().setSeats(40);
+		busType.getCapacity().setStandingRoom(30);
+		busType.getCostInformation().setFixedCost(100.0);
+		scenario.getTransitVehicles().addVehicleType(busType);
+		scenario.getTransitVehicles().addVehicle(scenario.getTransitVehicles().getFactory().createVehicle(Id.createVehicleId("bus"), busType));
+		VehicleType carType = scenario.getVehicles().getFactory().createVehicleType(Id.create("car", VehicleType.class));
+		carType.setMaximumVelocity(40);
+		VehicleUtils.setFuelConsumption(carType, 0.07);
+		scenario.getVehicles().addVehicleType(carType);
+		scenario.getVehicles().addVehicle(scenario.getVehicles().getFactory().createVehicle(Id.createVehicleId(0), carType));
+
+		String snapshot = this.util.getOutputDirectory() + "scenario.snapshot";
+		ScenarioUtils.writeSnapshot(scenario, snapshot);
+
+		Config config = ConfigUtils.createConfig();
+		config.scenario().setSnapshotFile(snapshot);
+		Scenario loaded = ScenarioUtils.loadScenario(config);
+
+		Assert.assertEquals(2, loaded.getNetwork().getLinks().size());
+		Assert.assertEquals(10, loaded.getPopulation().getPersons().size());
+		Assert.assertEquals(writeAll(scenario, "original"), writeAll(loaded, "loaded"));
+	}
+
+	private String writeAll(final Scenario scenario, final String prefix) throws IOException {
+		String dir = this.util.getOutputDirectory();
+		new NetworkWriter(scenario.getNetwork()).write(dir + prefix + "_network.xml");
+		new FacilitiesWriter(scenario.getActivityFacilities()).write(dir + prefix + "_facilities.xml");
+		new PopulationWriter(scenario.getPopulation()).write(dir + prefix + "_population.xml");
+		new TransitScheduleWriter(scenario.getTransitSchedule()).writeFile(dir + prefix + "_schedule.xml");
+		new MatsimVehicleWriter(scenario.getTransitVehicles()).writeFile(dir + prefix + "_transitVehicles.xml");
+		new MatsimVehicleWriter(scenario.getVehicles()).writeFile(dir + prefix + "_vehicles.xml");
+		StringBuilder content = new StringBuilder();
+		for (String file : new String[] {"network", "facilities", "population", "schedule", "transitVehicles", "vehicles"}) {
+			content.append(new String(Files.readAllBytes(Paths.get(dir + prefix + "_" + file + ".xml")), StandardCharsets.UTF_8));
+		}
+		return content.toString();
+	}
 }
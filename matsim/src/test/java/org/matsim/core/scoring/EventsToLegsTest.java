@@ -72,6 +72,33 @@ public class EventsToLegsTest {
 		assertLeg(lh, 10., 20., 50.0, "walk");
 	}
 
+	@Test
+	public void testReusesPersonStateAcrossLegsAndIterations() {
+		Scenario scenario = createTriangularNetwork();
+		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		RememberingLegHandler lh = new RememberingLegHandler();
+		eventsToLegs.addLegHandler(lh);
+		Id<Person> agentId = Id.create("1", Person.class);
+		eventsToLegs.handleEvent(new PersonDepartureEvent(10.0, agentId, Id.create("l1", Link.class), TransportMode.walk));
+		eventsToLegs.handleEvent(new TeleportationArrivalEvent(30.0, agentId, 50.0, TransportMode.walk));
+		eventsToLegs.handleEvent(new PersonArrivalEvent(30.0, agentId, Id.create("l2", Link.class), TransportMode.walk));
+		assertLeg(lh, 10., 20., 50.0, "walk");
+
+		// the distance of the first leg must not be used for the second one
+		eventsToLegs.handleEvent(new PersonDepartureEvent(40.0, agentId, Id.create("l2", Link.class), TransportMode.walk));
+		eventsToLegs.handleEvent(new PersonArrivalEvent(45.0, agentId, Id.create("l3", Link.class), TransportMode.walk));
+		assertLeg(lh, 40., 5., 0.0, "walk");
+		Assert.assertEquals(Id.create("l2", Link.class), lh.handledLeg.getLeg().getRoute().getStartLinkId());
+
+		// nor a teleportation of a previous iteration
+		eventsToLegs.handleEvent(new PersonDepartureEvent(50.0, agentId, Id.create("l3", Link.class), TransportMode.walk));
+		eventsToLegs.handleEvent(new TeleportationArrivalEvent(60.0, agentId, 70.0, TransportMode.walk));
+		eventsToLegs.reset(1);
+		eventsToLegs.handleEvent(new PersonDepartureEvent(10.0, agentId, Id.create("l1", Link.class), TransportMode.walk));
+		eventsToLegs.handleEvent(new PersonArrivalEvent(30.0, agentId, Id.create("l2", Link.class), TransportMode.walk));
+		assertLeg(lh, 10., 20., 0.0, "walk");
+	}
+
 	@Test
 	public void testCreatesLegWithRoute() {
 		Scenario scenario = createTriangularNetwork();
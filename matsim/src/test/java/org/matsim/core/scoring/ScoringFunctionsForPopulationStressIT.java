@@ -138,7 +138,19 @@ public class ScoringFunctionsForPopulationStressIT {
 		work(config);
 	}
 
+	@Test
+	public void workWithShards() {
+		Config config = ConfigUtils.createConfig();
+		config.parallelEventHandling().setNumberOfThreads(4);
+		config.parallelEventHandling().setSynchronizeOnSimSteps(true);
+		work(config, 4, 10, MAX / 10);
+	}
+
 	private void work(Config config) {
+		work(config, 1, 1, MAX);
+	}
+
+	private void work(Config config, int numberOfShards, int numberOfPersons, int numberOfRepetitions) {
 		PlanCalcScoreConfigGroup.ActivityParams work = new PlanCalcScoreConfigGroup.ActivityParams("work");
 		work.setTypicalDuration(100.0);
 		config.planCalcScore().addActivityParams(work);
@@ -148,8 +160,9 @@ public class ScoringFunctionsForPopulationStressIT {
 		car.setConstant(-1.0);
 		config.planCalcScore().addModeParams(car);
 		final Scenario scenario = ScenarioUtils.createScenario(config);
-		Id<Person> personId = Id.createPersonId(1);
-		scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(personId));
+		for (int p = 1; p <= numberOfPersons; p++) {
+			scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(Id.createPersonId(p)));
+		}
 		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
 		EventsManager events = EventsUtils.createEventsManager(config);
 		ScoringFunctionFactory scoringFunctionFactory = new ScoringFunctionFactory() {
@@ -211,26 +224,36 @@ public class ScoringFunctionsForPopulationStressIT {
 				e2acts,
 				e2legs,
 				scenario.getPopulation(),
-				scoringFunctionFactory
+				scoringFunctionFactory,
+				numberOfShards
 		);
 		controlerListenerManager.fireControlerIterationStartsEvent(0);
 		events.initProcessing();
-		for (int i=0; i<MAX; i++) {
-			events.processEvent(new PersonMoneyEvent(i*200, personId, 1.0, "tollRefund", "motorwayOperator"));
-			events.processEvent(new ActivityStartEvent(i*200, personId, Id.createLinkId(0), null, "work"));
-			events.processEvent(new ActivityEndEvent(i*200 + 100, personId, Id.createLinkId(0), null, "work"));
-			events.processEvent(new PersonDepartureEvent(i*200+100, personId, Id.createLinkId(0), "car"));
-			events.processEvent(new PersonArrivalEvent(i*200+200, personId, Id.createLinkId(0), "car"));
+		for (int i=0; i<numberOfRepetitions; i++) {
+			// (all persons do the same at the same time, the events must be ordered by time)
+			for (Id<Person> personId : scenario.getPopulation().getPersons().keySet()) {
+				events.processEvent(new PersonMoneyEvent(i*200, personId, 1.0, "tollRefund", "motorwayOperator"));
+				events.processEvent(new ActivityStartEvent(i*200, personId, Id.createLinkId(0), null, "work"));
+			}
+			for (Id<Person> personId : scenario.getPopulation().getPersons().keySet()) {
+				events.processEvent(new ActivityEndEvent(i*200 + 100, personId, Id.createLinkId(0), null, "work"));
+				events.processEvent(new PersonDepartureEvent(i*200+100, personId, Id.createLinkId(0), "car"));
+			}
+			for (Id<Person> personId : scenario.getPopulation().getPersons().keySet()) {
+				events.processEvent(new PersonArrivalEvent(i*200+200, personId, Id.createLinkId(0), "car"));
+			}
 			events.afterSimStep(i*200+200);
 		}
 		events.finishProcessing();
 		scoringFunctionsForPopulation.finishScoringFunctions();
 		
-		//assert when TypicalDurationScoreComputation.uniform
-//		assertEquals(60.0 * MAX, scoringFunctionsForPopulation.getScoringFunctionForAgent(personId).getScore(), 1.0);
-		
-		//assert when TypicalDurationScoreComputation.relative
-		assertEquals(1.0/6.0 * MAX, scoringFunctionsForPopulation.getScoringFunctionForAgent(personId).getScore(), 1.0);
+		for (Id<Person> personId : scenario.getPopulation().getPersons().keySet()) {
+			//assert when TypicalDurationScoreComputation.uniform
+//			assertEquals(60.0 * numberOfRepetitions, scoringFunctionsForPopulation.getScoringFunctionForAgent(personId).getScore(), 1.0);
+
+			//assert when TypicalDurationScoreComputation.relative
+			assertEquals(1.0/6.0 * numberOfRepetitions, scoringFunctionsForPopulation.getScoringFunctionForAgent(personId).getScore(), 1.0);
+		}
 	}
 
 	/* I (mrieser, 2019-01-09) disabled this test. By definition, events for one person should come in the right sequence,
@@ -40,6 +40,14 @@ public class LinkToLinkTravelTimeCalculatorTest extends MatsimTestCase {
 	 * @author mrieser 
 	 */
 	public void testLongTravelTimeInEmptySlot() {
+		doLongTravelTimeInEmptySlotTest(false);
+	}
+
+	public void testLongTravelTimeInEmptySlot_FlatArray() {
+		doLongTravelTimeInEmptySlotTest(true);
+	}
+
+	private void doLongTravelTimeInEmptySlotTest(final boolean flatArray) {
 		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(loadConfig(null));
     scenario.getConfig().travelTimeCalculator().setCalculateLinkToLinkTravelTimes(true);
 		Network network = (Network) scenario.getNetwork();
@@ -60,6 +68,9 @@ public class LinkToLinkTravelTimeCalculatorTest extends MatsimTestCase {
 
 		int timeBinSize = 15*60;
 		TravelTimeCalculator ttcalc = new TravelTimeCalculator(network, timeBinSize, 12*3600, scenario.getConfig().travelTimeCalculator());
+		if (flatArray) {
+			ttcalc.setTtDataFactory(new TravelTimeDataFlatArrayFactory(network, TimeBinUtils.getTimeBinCount(12*3600, timeBinSize)));
+		}
 
 		Id<Vehicle> vehId1 = Id.create(11, Vehicle.class);
 		Id<Vehicle> vehId2 = Id.create(12, Vehicle.class);
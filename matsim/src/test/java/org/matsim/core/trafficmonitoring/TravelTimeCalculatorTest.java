@@ -48,6 +48,8 @@ import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.ParallelEventsManagerImpl;
+import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.scenario.MutableScenario;
@@ -96,6 +98,36 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 				aggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
 	}
 
+	public final void testTravelTimeCalculator_FlatArray_Optimistic() throws IOException {
+
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		// by default: averaging travel times
+		String compareFile = getClassInputDirectory() + "link10_ttimes.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		TimeSlotComputation travelTimeAggregator = new TimeSlotComputation( numSlots, binSize );
+		TravelTimeGetter travelTimeGetter = new AveragingTravelTimeGetter( travelTimeAggregator ) ;
+		doTravelTimeCalculatorTest(scenario, new TravelTimeDataFlatArrayFactory(scenario.getNetwork(), numSlots),
+				travelTimeAggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
+	}
+
+	public final void testTravelTimeCalculator_FlatArray_Optimistic_LinearInterpolation() throws IOException {
+
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		// use linear interpolation
+		String compareFile = getClassInputDirectory() + "link10_ttimes_linearinterpolation.txt";
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		TimeSlotComputation aggregator = new TimeSlotComputation( numSlots, binSize );
+		TravelTimeGetter travelTimeGetter = new LinearInterpolatingTravelTimeGetter( numSlots, binSize, aggregator );
+		doTravelTimeCalculatorTest(scenario, new TravelTimeDataFlatArrayFactory(scenario.getNetwork(), numSlots),
+				aggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
+	}
+
 	public final void testTravelTimeCalculator_HashMap_Optimistic() throws IOException {
 
 		int endTime = 30*3600;
@@ -129,6 +161,56 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 				aggregator, binSize, endTime, compareFile, false, this.getClassInputDirectory(), travelTimeGetter );
 	}
 
+	/**
+	 * Tests that the concurrent calculator, with its handlers run by several threads, measures the same travel times
+	 * as the default one.
+	 */
+	public final void testTravelTimeCalculator_Concurrent() {
+		Scenario scenario = ScenarioUtils.createScenario( ConfigUtils.createConfig() );
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile(getClassInputDirectory() + "link10_network.xml");
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		new MatsimEventsReader(events).readFile(getClassInputDirectory() + "link10_events.xml");
+		events.finishProcessing();
+
+		TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+		TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder(network);
+		builder.configure(config);
+		TravelTimeCalculator expected = builder.build();
+
+		config.setTravelTimeCalculatorType(TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorConcurrent.name());
+		config.setNumberOfConcurrentHandlers(3);
+		builder.configure(config);
+		TravelTimeCalculator concurrent = builder.build();
+		assertEquals(3, concurrent.getEventHandlers().size());
+
+		EventsManager expectedEvents = EventsUtils.createEventsManager();
+		expectedEvents.addHandler(expected);
+		EventsManager parallelEvents = new ParallelEventsManagerImpl(3);
+		for (EventHandler handler : concurrent.getEventHandlers()) {
+			parallelEvents.addHandler(handler);
+		}
+		expectedEvents.initProcessing();
+		parallelEvents.initProcessing();
+		for (Event e : collector.getEvents()) {
+			expectedEvents.processEvent(e);
+			parallelEvents.processEvent(e);
+		}
+		expectedEvents.finishProcessing();
+		parallelEvents.finishProcessing();
+
+		for (Link link : network.getLinks().values()) {
+			for (int i = 0; i < 4*24; i++) {
+				assertEquals(expected.getLinkTravelTimes().getLinkTravelTime(link, i*900, null, null),
+						concurrent.getLinkTravelTimes().getLinkTravelTime(link, i*900, null, null), 1e-8);
+			}
+		}
+	}
+
 //	public final void testTravelTimeCalculator_HashMap_Pessimistic() throws IOException {
 //		String compareFile;
 //		MutableScenario scenario;
@@ -213,6 +213,46 @@ public class IOUtilsTest {
 		Assert.assertTrue("compressed file should be less than 50 bytes, but is " + file.length(), file.length() < 50);
 	}
 
+	@Test
+	public void testGetBufferedWriter_compressionThreads() throws IOException {
+		try {
+			for (int threads : new int[] { 1, 4 }) {
+				IOUtils.setCompressionThreads(threads);
+				for (String extension : new String[] { ".txt", ".txt.gz", ".txt.lz4", ".txt.bz2", ".txt.zst" }) {
+					String filename = this.utils.getOutputDirectory() + "test" + threads + extension;
+					URL url = IOUtils.getFileUrl(filename);
+					StringBuilder expected = new StringBuilder();
+					try (BufferedWriter writer = IOUtils.getBufferedWriter(url)) {
+						for (int i = 0; i < 200000; i++) {
+							String line = "line " + i + " " + (i * 7919 % 10007) + "\n";
+							writer.write(line);
+							expected.append(line);
+							if (i == 100) {
+								// everything written so far must have reached the file
+								writer.flush();
+							}
+						}
+					}
+					StringBuilder actual = new StringBuilder();
+					try (BufferedReader reader = IOUtils.getBufferedReader(url)) {
+						String line;
+						while ((line = reader.readLine()) != null) {
+							actual.append(line).append('\n');
+						}
+					}
+					Assert.assertEquals(filename, expected.toString(), actual.toString());
+				}
+
+				// an empty file must still be a valid gzip file
+				URL url = IOUtils.getFileUrl(this.utils.getOutputDirectory() + "empty" + threads + ".txt.gz");
+				IOUtils.getBufferedWriter(url).close();
+				Assert.assertNull(IOUtils.getBufferedReader(url).readLine());
+			}
+		} finally {
+			IOUtils.setCompressionThreads(0);
+		}
+	}
+
 	@Test(expected = UncheckedIOException.class)
 	public void testGetBufferedWriter_append_lz4() throws IOException {
 		String filename = this.utils.getOutputDirectory() + "test.txt.lz4";
@@ -585,4 +625,45 @@ public class IOUtilsTest {
 		Assert.assertEquals(input, gziped.readLine());
 	}
 
+	@Test
+	public void testAsyncOutputStream_errorClosesUnderlyingStream() throws IOException {
+		boolean[] closed = { false };
+		OutputStream failing = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("disk full");
+			}
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				throw new IOException("disk full");
+			}
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+		AsyncOutputStream out = new AsyncOutputStream(failing);
+		out.write(new byte[AsyncOutputStream.BLOCK_SIZE + 1]);
+		try {
+			out.flush();
+			Assert.fail("expected IOException");
+		} catch (IOException e) {
+			Assert.assertEquals("disk full", e.getMessage());
+		}
+		try {
+			out.close();
+			Assert.fail("expected IOException");
+		} catch (IOException e) {
+			Assert.assertEquals("disk full", e.getMessage());
+		}
+		Assert.assertTrue("underlying stream must be closed", closed[0]);
+		try {
+			out.write(1);
+			Assert.fail("expected IOException");
+		} catch (IOException e) {
+			Assert.assertEquals("stream closed", e.getMessage());
+		}
+		out.close();
+	}
+
 }